@@ -0,0 +1,116 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request computations behind the income, spending limit, portfolio
+ * and stock history endpoints, fed with fixture data instead of Firestore
+ * and Alpha Vantage responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx6g"})
+public class AggregationBenchmark {
+    private static final String[] PERIODS = {"daily", "weekly", "monthly", "quarterly", "yearly", "custom"};
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+    private static final Gson GSON = new Gson();
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int documents;
+
+    private String incomes;
+    private byte[] expenses;
+    private byte[] positions;
+    private List<Map<String, Object>> history;
+    private JSONObject[] limits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        incomes = Fixtures.incomes(documents);
+        expenses = Fixtures.expenses(documents).getBytes(StandardCharsets.UTF_8);
+        positions = Fixtures.positions(documents).getBytes(StandardCharsets.UTF_8);
+        history = Fixtures.history(documents);
+        limits = new JSONObject[PERIODS.length];
+        for (int i = 0; i < PERIODS.length; i++) {
+            limits[i] = Fixtures.limitFields(PERIODS[i]);
+        }
+    }
+
+    /**
+     * IncomeHandler's Gson parse, monthly spread and re-serialization
+     */
+    @Benchmark
+    public String computeMonthlyYearly() {
+        return IncomeHandler.computeMonthlyYearly(incomes);
+    }
+
+    /**
+     * Period boundaries for every kind of spending limit
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void spendingPeriods(Blackhole blackhole) {
+        for (JSONObject limit : limits) {
+            blackhole.consume(SpendingLimitsHandler.spendingPeriod(limit, TODAY));
+        }
+    }
+
+    /**
+     * Decoding an Expenses listing and summing one category over a quarter,
+     * as a spending limit check does
+     */
+    @Benchmark
+    public double currentSpending() throws IOException {
+        LocalDate[] range = SpendingLimitsHandler.spendingPeriod(limits[3], TODAY);
+        List<Expense> listing = FirestoreDecoder.decodeList(new ByteArrayInputStream(expenses), Expense::builder);
+        return SpendingLimitsHandler.sumSpending(listing, "Food", range[0], range[1]);
+    }
+
+    /**
+     * Decoding positions, valuing them at their last price and serializing the
+     * portfolio response
+     */
+    @Benchmark
+    public String portfolioValuation() throws IOException {
+        List<Map<String, Object>> valued = new ArrayList<>();
+        for (StockPosition position : FirestoreDecoder.decodeList(new ByteArrayInputStream(positions), StockPosition::builder)) {
+            valued.add(StockHandler.valuePosition(position.getSymbol(), position.getQuantity(),
+                    position.getAveragePrice(), position.getLastPrice()));
+        }
+        JsonObject response = new JsonObject();
+        response.add("positions", GSON.toJsonTree(valued));
+        return GSON.toJson(response);
+    }
+
+    @Benchmark
+    public String historySerialization() {
+        return StockHandler.historyJson(history);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BoundedCache under concurrent use: six readers and two writers share one
+ * cache, the mix the wallet and market caches see while the refresher runs.
+ * Reads also pay for the hit/miss counter.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheContentionBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int entries;
+
+    private BoundedCache<String, String> cache;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = new BoundedCache<>("benchmark", entries, TimeUnit.MINUTES.toMillis(10));
+        // Twice as many keys as fit, so a share of reads miss and writes evict
+        keys = new String[entries * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "wallet:" + i;
+        }
+        for (int i = 0; i < entries; i++) {
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(6)
+    public String get(Cursor cursor) {
+        return cache.get(keys[cursor.random.nextInt(keys.length)]);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(2)
+    public void put(Cursor cursor) {
+        String key = keys[cursor.random.nextInt(keys.length)];
+        cache.put(key, key);
+    }
+}
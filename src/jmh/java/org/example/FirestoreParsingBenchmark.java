@@ -0,0 +1,89 @@
+package org.example;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading an Expenses listing three ways: the org.json tree walk AlertsHandler
+ * and SpendingLimitsHandler use, the Gson tree IncomeHandler uses, and the
+ * streaming FirestoreDecoder. Each reads the same fields and sums the amounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx6g"})
+public class FirestoreParsingBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int documents;
+
+    private String body;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        body = Fixtures.expenses(documents);
+        bytes = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public double orgJsonTree() {
+        double total = 0;
+        JSONArray docs = new JSONObject(body).getJSONArray("documents");
+        for (int i = 0; i < docs.length(); i++) {
+            JSONObject fields = docs.getJSONObject(i).getJSONObject("fields");
+            if (fields.has("date") && fields.has("category")) {
+                fields.getJSONObject("date").getString("stringValue");
+                fields.getJSONObject("category").getString("stringValue");
+                total += fields.getJSONObject("total").getDouble("doubleValue");
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double gsonTree() {
+        double total = 0;
+        JsonArray docs = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("documents");
+        for (JsonElement doc : docs) {
+            JsonObject fields = doc.getAsJsonObject().getAsJsonObject("fields");
+            if (fields.has("date") && fields.has("category")) {
+                fields.getAsJsonObject("date").get("stringValue").getAsString();
+                fields.getAsJsonObject("category").get("stringValue").getAsString();
+                total += fields.getAsJsonObject("total").get("doubleValue").getAsDouble();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double streamingDecoder() throws IOException {
+        double total = 0;
+        for (Expense expense : FirestoreDecoder.decodeList(new ByteArrayInputStream(bytes), Expense::builder)) {
+            total += expense.amount();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,168 @@
+package org.example;
+
+import org.json.JSONObject;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generated datasets shaped like the Firestore REST listings and Alpha Vantage
+ * history the handlers receive in production.
+ *
+ * Every generator is seeded, so the same size always yields the same bytes and
+ * results stay comparable between runs. Sizes from 1k to 1M documents are
+ * generated in memory instead of being checked in.
+ */
+final class Fixtures {
+    static final String DOCUMENT_PREFIX = "projects/cashclimb-d162c/databases/(default)/documents/Users/bench-user/";
+
+    private static final String[] CATEGORIES = {
+            "Food", "Rent", "Utilities", "Transport", "Entertainment", "Health", "Shopping", "Travel"
+    };
+    private static final String[] FREQUENCIES = {"weekly", "biweekly", "monthly", "yearly", "once"};
+    private static final String[] SYMBOLS = {
+            "AAPL", "MSFT", "GOOGL", "AMZN", "NVDA", "META", "TSLA", "JPM", "V", "WMT", "KO", "DIS"
+    };
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private Fixtures() {
+    }
+
+    /**
+     * An Expenses listing. Amounts are stored under "total", as
+     * Expense.toDocument() saves them.
+     */
+    static String expenses(int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        StringBuilder json = listingStart();
+        for (int i = 0; i < count; i++) {
+            document(json, i, "Expenses", "e");
+            stringField(json, "name", "Expense " + i).append(',');
+            stringField(json, "category", CATEGORIES[random.nextInt(CATEGORIES.length)]).append(',');
+            stringField(json, "date", FIRST_DAY.plusDays(random.nextInt(730)).toString()).append(',');
+            doubleField(json, "total", cents(random.nextDouble(1, 500)));
+            documentEnd(json);
+        }
+        return listingEnd(json);
+    }
+
+    /**
+     * An Income listing mixing one-off and recurring entries, both date formats
+     * the income page accepts, and integer as well as double totals
+     */
+    static String incomes(int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        StringBuilder json = listingStart();
+        for (int i = 0; i < count; i++) {
+            LocalDate date = FIRST_DAY.plusDays(random.nextInt(365));
+            document(json, i, "Income", "i");
+            stringField(json, "name", "Income " + i).append(',');
+            if (random.nextInt(4) == 0) {
+                integerField(json, "total", random.nextInt(100, 5000)).append(',');
+            } else {
+                doubleField(json, "total", cents(random.nextDouble(100, 5000))).append(',');
+            }
+            String formatted = random.nextBoolean() ? date.toString()
+                    : String.format("%02d/%02d/%d", date.getMonthValue(), date.getDayOfMonth(), date.getYear());
+            stringField(json, "date", formatted).append(',');
+            stringField(json, "frequency", FREQUENCIES[random.nextInt(FREQUENCIES.length)]).append(',');
+            stringField(json, "recurring", Boolean.toString(random.nextInt(3) == 0));
+            documentEnd(json);
+        }
+        return listingEnd(json);
+    }
+
+    /**
+     * A StockPositions listing
+     */
+    static String positions(int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        StringBuilder json = listingStart();
+        for (int i = 0; i < count; i++) {
+            double average = cents(random.nextDouble(5, 900));
+            document(json, i, "StockPositions", "p");
+            stringField(json, "symbol", SYMBOLS[i % SYMBOLS.length] + (i / SYMBOLS.length)).append(',');
+            integerField(json, "quantity", random.nextInt(1, 500)).append(',');
+            doubleField(json, "averagePrice", average).append(',');
+            doubleField(json, "lastPrice", cents(average * random.nextDouble(0.7, 1.4)));
+            documentEnd(json);
+        }
+        return listingEnd(json);
+    }
+
+    /**
+     * Daily price points as StockApiService.getStockHistory returns them
+     */
+    static List<Map<String, Object>> history(int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        List<Map<String, Object>> points = new ArrayList<>(count);
+        long day = 24 * 60 * 60 * 1000L;
+        long start = FIRST_DAY.toEpochDay() * day;
+        double price = 100;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price = cents(Math.max(1, price * (1 + random.nextDouble(-0.03, 0.03))));
+            Map<String, Object> point = new HashMap<>();
+            point.put("timestamp", start + i * day);
+            point.put("price", price);
+            point.put("open", open);
+            point.put("high", cents(Math.max(open, price) * 1.01));
+            point.put("low", cents(Math.min(open, price) * 0.99));
+            point.put("volume", random.nextLong(100_000, 50_000_000));
+            points.add(point);
+        }
+        return points;
+    }
+
+    /**
+     * Fields of a spending limit document for the given period
+     */
+    static JSONObject limitFields(String period) {
+        JSONObject fields = new JSONObject();
+        fields.put("category", new JSONObject().put("stringValue", "Food"));
+        fields.put("period", new JSONObject().put("stringValue", period));
+        fields.put("startDate", new JSONObject().put("stringValue", "2024-01-01"));
+        fields.put("amount", new JSONObject().put("doubleValue", 750.0));
+        return fields;
+    }
+
+    private static double cents(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static StringBuilder listingStart() {
+        return new StringBuilder("{\"documents\":[");
+    }
+
+    private static String listingEnd(StringBuilder json) {
+        if (json.charAt(json.length() - 1) == ',') {
+            json.setLength(json.length() - 1);
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void document(StringBuilder json, int index, String collection, String idPrefix) {
+        json.append("{\"name\":\"").append(DOCUMENT_PREFIX).append(collection).append('/')
+                .append(idPrefix).append(String.format("%07d", index)).append("\",\"fields\":{");
+    }
+
+    private static void documentEnd(StringBuilder json) {
+        json.append("},\"createTime\":\"2024-06-01T12:00:00.000000Z\",\"updateTime\":\"2024-06-01T12:00:00.000000Z\"},");
+    }
+
+    private static StringBuilder stringField(StringBuilder json, String name, String value) {
+        return json.append('"').append(name).append("\":{\"stringValue\":\"").append(value).append("\"}");
+    }
+
+    private static StringBuilder doubleField(StringBuilder json, String name, double value) {
+        return json.append('"').append(name).append("\":{\"doubleValue\":").append(value).append('}');
+    }
+
+    private static StringBuilder integerField(StringBuilder json, String name, long value) {
+        return json.append('"').append(name).append("\":{\"integerValue\":\"").append(value).append("\"}");
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building one Firestore write body: with FirestoreEncoder, and the two ways
+ * the handlers built it before the encoder, as an org.json tree and by string
+ * concatenation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBodyBenchmark {
+    private final Expense expense = new Expense(null, "2025-06-15", "Weekly \"big\" shop", "Food", 127.45);
+
+    @Benchmark
+    public byte[] encoder() {
+        return expense.toDocument().toBytes();
+    }
+
+    @Benchmark
+    public byte[] orgJsonTree() {
+        JSONObject fields = new JSONObject()
+                .put("date", new JSONObject().put("stringValue", expense.date()))
+                .put("name", new JSONObject().put("stringValue", expense.name()))
+                .put("category", new JSONObject().put("stringValue", expense.category()))
+                .put("total", new JSONObject().put("doubleValue", expense.amount()));
+        return new JSONObject().put("fields", fields).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] stringBuilt() {
+        String body = "{\"fields\":{"
+                + "\"date\":{\"stringValue\":\"" + expense.date() + "\"},"
+                + "\"name\":{\"stringValue\":\"" + expense.name().replace("\"", "\\\"") + "\"},"
+                + "\"category\":{\"stringValue\":\"" + expense.category() + "\"},"
+                + "\"total\":{\"doubleValue\":" + expense.amount() + "}"
+                + "}}";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -4,6 +4,8 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -21,24 +23,18 @@ import java.util.UUID;
  * This includes fetching alerts, marking them as read, and generating new alerts based on various triggers.
  */
 public class AlertsHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertsHandler.class);
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("AlertsHandler invoked: " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        LOGGER.debug("AlertsHandler invoked: {} {}", exchange.getRequestMethod(), exchange.getRequestURI().getPath());
         
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println("401 - Missing idToken/localId in cookies");
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext context = RequestContext.of(exchange);
+        String idToken = context.idToken();
+        String localId = context.localId();
         
         if (idToken == null || localId == null) {
-            System.out.println("401 - null tokens");
+            LOGGER.debug("401 - null tokens");
             exchange.sendResponseHeaders(401, -1);
             return;
         }
@@ -52,11 +48,18 @@ public class AlertsHandler implements HttpHandler {
             handleMarkAllRead(exchange, idToken, localId);
         } else if (path.equals("/api/alerts/trigger/check") && "POST".equalsIgnoreCase(method)) {
             handleCheckTriggers(exchange, idToken, localId);
+        } else if (path.equals("/api/alerts/price") && "GET".equalsIgnoreCase(method)) {
+            handleGetPriceAlerts(exchange, localId);
+        } else if (path.equals("/api/alerts/price") && "POST".equalsIgnoreCase(method)) {
+            handleCreatePriceAlert(exchange, localId);
+        } else if (path.matches("/api/alerts/price/[^/]+") && "DELETE".equalsIgnoreCase(method)) {
+            String alertId = path.substring(path.lastIndexOf('/') + 1);
+            handleDeletePriceAlert(exchange, localId, alertId);
         } else if (path.matches("/api/alerts/[^/]+") && "DELETE".equalsIgnoreCase(method)) {
             String alertId = path.substring(path.lastIndexOf('/') + 1);
             handleDeleteAlert(exchange, idToken, localId, alertId);
         } else {
-            System.out.println("404 - Unsupported path/method: " + path + " " + method);
+            LOGGER.debug("404 - Unsupported path/method: {} {}", path, method);
             exchange.sendResponseHeaders(404, -1);
         }
     }
@@ -74,7 +77,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
                 StringBuilder response = new StringBuilder();
@@ -164,12 +167,12 @@ public class AlertsHandler implements HttpHandler {
                     os.write(responseBytes);
                     os.close();
                 } else {
-                    System.out.println("Error fetching alerts: " + responseCode);
+                    LOGGER.warn("Error fetching alerts: {}", responseCode);
                     exchange.sendResponseHeaders(responseCode, -1);
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error getting alerts", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
@@ -188,7 +191,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             List<String> alertIds = new ArrayList<>();
             
             if (responseCode == 200) {
@@ -220,30 +223,13 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
             
-            // Mark each unread alert as read
+            // Mark each unread alert as read, touching only the read flag of alerts that still exist
             int markedCount = 0;
+            FirestoreEncoder.Document markRead = FirestoreEncoder.document().bool("read", true);
             
             for (String alertId : alertIds) {
-                String updateUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
-                        + localId + "/Alerts/" + alertId;
-                
-                URL updateUrlObj = new URL(updateUrl);
-                HttpURLConnection updateConn = (HttpURLConnection) updateUrlObj.openConnection();
-                updateConn.setRequestMethod("PATCH");
-                updateConn.setRequestProperty("Content-Type", "application/json");
-                updateConn.setRequestProperty("Authorization", "Bearer " + idToken);
-                updateConn.setDoOutput(true);
-                
-                JSONObject updateData = new JSONObject();
-                JSONObject fields = new JSONObject();
-                fields.put("read", new JSONObject().put("booleanValue", true));
-                updateData.put("fields", fields);
-                
-                OutputStream os = updateConn.getOutputStream();
-                os.write(updateData.toString().getBytes(StandardCharsets.UTF_8));
-                os.close();
-                
-                int updateResponseCode = updateConn.getResponseCode();
+                int updateResponseCode = FirestoreWrites.update("Users/" + localId + "/Alerts/" + alertId,
+                        markRead, idToken, true);
                 if (updateResponseCode == 200) {
                     markedCount++;
                 }
@@ -262,7 +248,7 @@ public class AlertsHandler implements HttpHandler {
             os.close();
             
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error marking alerts as read", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
@@ -280,7 +266,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("DELETE");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 JSONObject successResponse = new JSONObject();
                 successResponse.put("success", true);
@@ -292,15 +278,82 @@ public class AlertsHandler implements HttpHandler {
                 os.write(responseBytes);
                 os.close();
             } else {
-                System.out.println("Error deleting alert: " + responseCode);
+                LOGGER.warn("Error deleting alert: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error deleting alert", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
     
+    /**
+     * Handle GET request to list a user's active stock price alerts
+     */
+    private void handleGetPriceAlerts(HttpExchange exchange, String localId) throws IOException {
+        JSONArray alerts = new JSONArray();
+        for (PriceAlert alert : PriceAlertService.getInstance().getAlerts(localId)) {
+            alerts.put(alert.toJSON());
+        }
+        
+        JSONObject response = new JSONObject();
+        response.put("alerts", alerts);
+        sendJson(exchange, 200, response);
+    }
+    
+    /**
+     * Handle POST request to create a stock price alert.
+     * Expects {"symbol": "AAPL", "type": "PRICE_ABOVE|PRICE_BELOW|PERCENT_MOVE", "threshold": 200, "basePrice": 180}
+     * where basePrice is optional and only used for PERCENT_MOVE.
+     */
+    private void handleCreatePriceAlert(HttpExchange exchange, String localId) throws IOException {
+        JSONObject errorResponse = new JSONObject();
+        try {
+            JSONObject request = RequestContext.of(exchange).json();
+            
+            PriceAlert.Type type = PriceAlert.Type.valueOf(request.getString("type").trim().toUpperCase());
+            Double basePrice = request.has("basePrice") ? request.getDouble("basePrice") : null;
+            
+            PriceAlert alert = PriceAlertService.getInstance().addAlert(
+                    localId, request.getString("symbol"), type, request.getDouble("threshold"), basePrice);
+            
+            JSONObject response = new JSONObject();
+            response.put("success", true);
+            response.put("alert", alert.toJSON());
+            sendJson(exchange, 201, response);
+        } catch (IllegalArgumentException | org.json.JSONException e) {
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            sendJson(exchange, 400, errorResponse);
+        } catch (Exception e) {
+            LOGGER.warn("Error creating price alert", e);
+            exchange.sendResponseHeaders(500, -1);
+        }
+    }
+    
+    /**
+     * Handle DELETE request to remove a stock price alert
+     */
+    private void handleDeletePriceAlert(HttpExchange exchange, String localId, String alertId) throws IOException {
+        if (!PriceAlertService.getInstance().removeAlert(localId, alertId)) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        
+        JSONObject response = new JSONObject();
+        response.put("success", true);
+        sendJson(exchange, 200, response);
+    }
+    
+    private void sendJson(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] responseBytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, responseBytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(responseBytes);
+        os.close();
+    }
+    
     /**
      * Handle POST request to check for new alerts based on triggers
      * This method checks various conditions (bills due, spending limits, etc.) and creates alerts as needed
@@ -337,7 +390,7 @@ public class AlertsHandler implements HttpHandler {
             os.close();
             
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error checking alert triggers", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
@@ -378,8 +431,7 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error checking bill alerts: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error checking bill alerts: {}", e.getMessage(), e);
         }
         return alertsCreated;
     }
@@ -399,66 +451,36 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                in.close();
-                
-                JSONObject firebaseResponse = new JSONObject(response.toString());
+                List<Budget> budgets = FirestoreDecoder.decodeList(conn.getInputStream(), Budget::builder);
                 
-                if (firebaseResponse.has("documents")) {
-                    JSONArray documents = firebaseResponse.getJSONArray("documents");
+                // Check each budget category
+                for (Budget budget : budgets) {
+                    if (budget.category() == null || budget.amount() <= 0) {
+                        continue;
+                    }
                     
-                    // Get current month expenses
-                    double totalExpenses = getCurrentMonthExpenses(idToken, localId);
+                    // Get expenses for this category
+                    double categoryExpenses = getCategoryExpenses(idToken, localId, budget.category());
                     
-                    // Check each budget category
-                    for (int i = 0; i < documents.length(); i++) {
-                        JSONObject document = documents.getJSONObject(i);
-                        JSONObject fields = document.getJSONObject("fields");
-                        
-                        if (fields.has("amount") && fields.has("category")) {
-                            double budgetAmount = 0;
-                            if (fields.getJSONObject("amount").has("doubleValue")) {
-                                budgetAmount = fields.getJSONObject("amount").getDouble("doubleValue");
-                            } else if (fields.getJSONObject("amount").has("integerValue")) {
-                                budgetAmount = fields.getJSONObject("amount").getInt("integerValue");
-                            }
-                            
-                            String category = fields.getJSONObject("category").getString("stringValue");
+                    // Create alert if over budget
+                    if (categoryExpenses > budget.amount()) {
+                        // Check if alert already exists
+                        if (!alertExists(idToken, localId, "budget_exceeded", budget.category())) {
+                            String title = "Budget Exceeded";
+                            String message = String.format("You've exceeded your %s budget of $%.2f. Current spending: $%.2f", 
+                                    budget.category(), budget.amount(), categoryExpenses);
                             
-                            // Get expenses for this category
-                            double categoryExpenses = getCategoryExpenses(idToken, localId, category);
-                            
-                            // Create alert if over budget
-                            if (categoryExpenses > budgetAmount) {
-                                // Check if alert already exists
-                                if (!alertExists(idToken, localId, "budget_exceeded", category)) {
-                                    String title = "Budget Exceeded";
-                                    String message = String.format("You've exceeded your %s budget of $%.2f. Current spending: $%.2f", 
-                                            category, budgetAmount, categoryExpenses);
-                                    
-                                    // Get document ID
-                                    String name = document.getString("name");
-                                    String id = name.substring(name.lastIndexOf('/') + 1);
-                                    
-                                    createAlert(idToken, localId, title, message, "budget_exceeded", id);
-                                    alertsCreated++;
-                                }
-                            }
+                            createAlert(idToken, localId, title, message, "budget_exceeded", budget.id());
+                            alertsCreated++;
                         }
                     }
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error checking budget alerts: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error checking budget alerts: {}", e.getMessage(), e);
         }
         return alertsCreated;
     }
@@ -478,7 +500,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -533,8 +555,7 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error checking spending limit alerts: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error checking spending limit alerts: {}", e.getMessage(), e);
         }
         return alertsCreated;
     }
@@ -554,7 +575,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -612,8 +633,7 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error checking paycheck alerts: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error checking paycheck alerts: {}", e.getMessage(), e);
         }
         return alertsCreated;
     }
@@ -633,7 +653,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
 
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
 
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -715,8 +735,7 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error checking goal alerts: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error checking goal alerts: {}", e.getMessage(), e);
         }
         return alertsCreated;
     }
@@ -727,6 +746,16 @@ public class AlertsHandler implements HttpHandler {
     private int getUserAlertDays(String idToken, String localId) {
         int defaultAlertDays = 3; // Default value
         
+        // With the live cache on, the user document is a local lookup
+        FirestoreService firestoreService = FirestoreService.getInstance();
+        if (firestoreService.isLiveCacheEnabled()) {
+            Object settings = firestoreService.getUserProfile(localId).get("settings");
+            if (settings instanceof java.util.Map && ((java.util.Map<?, ?>) settings).get("billAlertDays") instanceof Number) {
+                return ((Number) ((java.util.Map<?, ?>) settings).get("billAlertDays")).intValue();
+            }
+            return defaultAlertDays;
+        }
+        
         try {
             String userUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" + localId;
             
@@ -735,7 +764,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -762,8 +791,7 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error getting user alert days: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error getting user alert days: {}", e.getMessage(), e);
         }
         
         return defaultAlertDays;
@@ -782,7 +810,7 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -816,8 +844,7 @@ public class AlertsHandler implements HttpHandler {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error checking if alert exists: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error checking if alert exists: {}", e.getMessage(), e);
         }
         
         return false;
@@ -832,21 +859,17 @@ public class AlertsHandler implements HttpHandler {
             String alertId = UUID.randomUUID().toString();
             
             // Create the alert document
-            JSONObject document = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("title", new JSONObject().put("stringValue", title));
-            fields.put("message", new JSONObject().put("stringValue", message));
-            fields.put("type", new JSONObject().put("stringValue", alertType));
-            fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-            fields.put("read", new JSONObject().put("booleanValue", false));
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .string("title", title)
+                    .string("message", message)
+                    .string("type", alertType)
+                    .timestamp("created", Instant.now())
+                    .bool("read", false);
             
             if (relatedId != null) {
-                fields.put("relatedId", new JSONObject().put("stringValue", relatedId));
+                document.string("relatedId", relatedId);
             }
             
-            document.put("fields", fields);
-            
             // Save to Firestore
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
                     + localId + "/Alerts/" + alertId;
@@ -854,21 +877,15 @@ public class AlertsHandler implements HttpHandler {
             URL url = new URL(firestoreUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
-            
-            OutputStream os = conn.getOutputStream();
-            os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-            os.close();
+            document.writeTo(conn);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode != 200 && responseCode != 201) {
-                System.out.println("Error creating alert: " + responseCode);
+                LOGGER.warn("Error creating alert: {}", responseCode);
             }
         } catch (Exception e) {
-            System.out.println("Error creating alert: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error creating alert: {}", e.getMessage(), e);
         }
     }
     
@@ -893,47 +910,20 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                in.close();
-                
-                JSONObject firebaseResponse = new JSONObject(response.toString());
-                
-                if (firebaseResponse.has("documents")) {
-                    JSONArray documents = firebaseResponse.getJSONArray("documents");
+                for (Expense expense : FirestoreDecoder.decodeList(conn.getInputStream(), Expense::builder)) {
+                    LocalDate expenseDate = expense.localDate();
                     
-                    // Check each expense
-                    for (int i = 0; i < documents.length(); i++) {
-                        JSONObject document = documents.getJSONObject(i);
-                        JSONObject fields = document.getJSONObject("fields");
-                        
-                        if (fields.has("date") && fields.has("amount")) {
-                            String dateStr = fields.getJSONObject("date").getString("stringValue");
-                            LocalDate expenseDate = LocalDate.parse(dateStr);
-                            
-                            // Check if this expense is from the current month and year
-                            if (expenseDate.getMonthValue() == currentMonth && expenseDate.getYear() == currentYear) {
-                                // Add to total
-                                if (fields.getJSONObject("amount").has("doubleValue")) {
-                                    total += fields.getJSONObject("amount").getDouble("doubleValue");
-                                } else if (fields.getJSONObject("amount").has("integerValue")) {
-                                    total += fields.getJSONObject("amount").getInt("integerValue");
-                                }
-                            }
-                        }
+                    // Check if this expense is from the current month and year
+                    if (expenseDate != null && expenseDate.getMonthValue() == currentMonth && expenseDate.getYear() == currentYear) {
+                        total += expense.amount();
                     }
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error getting current month expenses: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error getting current month expenses: {}", e.getMessage(), e);
         }
         
         return total;
@@ -960,51 +950,23 @@ public class AlertsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                in.close();
-                
-                JSONObject firebaseResponse = new JSONObject(response.toString());
-                
-                if (firebaseResponse.has("documents")) {
-                    JSONArray documents = firebaseResponse.getJSONArray("documents");
+                for (Expense expense : FirestoreDecoder.decodeList(conn.getInputStream(), Expense::builder)) {
+                    LocalDate expenseDate = expense.localDate();
                     
-                    // Check each expense
-                    for (int i = 0; i < documents.length(); i++) {
-                        JSONObject document = documents.getJSONObject(i);
-                        JSONObject fields = document.getJSONObject("fields");
-                        
-                        if (fields.has("date") && fields.has("amount") && fields.has("category")) {
-                            String dateStr = fields.getJSONObject("date").getString("stringValue");
-                            LocalDate expenseDate = LocalDate.parse(dateStr);
-                            String expenseCategory = fields.getJSONObject("category").getString("stringValue");
-                            
-                            // Check if this expense is from the current month and year, and matches the category
-                            if (expenseDate.getMonthValue() == currentMonth && 
-                                expenseDate.getYear() == currentYear && 
-                                expenseCategory.equals(category)) {
-                                
-                                // Add to total
-                                if (fields.getJSONObject("amount").has("doubleValue")) {
-                                    total += fields.getJSONObject("amount").getDouble("doubleValue");
-                                } else if (fields.getJSONObject("amount").has("integerValue")) {
-                                    total += fields.getJSONObject("amount").getInt("integerValue");
-                                }
-                            }
-                        }
+                    // Check if this expense is from the current month and year, and matches the category
+                    if (expenseDate != null &&
+                        expenseDate.getMonthValue() == currentMonth && 
+                        expenseDate.getYear() == currentYear && 
+                        category.equals(expense.category())) {
+                        total += expense.amount();
                     }
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error getting category expenses: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error getting category expenses: {}", e.getMessage(), e);
         }
         
         return total;
@@ -1054,22 +1016,4 @@ public class AlertsHandler implements HttpHandler {
 //
 //        return netWorth;
 //    }
-    
-    /**
-     * Extract a cookie value from the cookie string
-     */
-    private static String extractCookieValue(String cookies, String name) {
-        if (cookies == null) {
-            return null;
-        }
-        
-        String[] parts = cookies.split(";");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring((name + "=").length());
-            }
-        }
-        return null;
-    }
 }
@@ -148,6 +148,9 @@ public class AlphaVantageClient {
             quoteCache.put(cacheKey, stock);
             quoteCacheTimestamps.put(cacheKey, System.currentTimeMillis());
             
+            // Let any price alerts on this symbol see the new quote
+            PriceAlertService.getInstance().onQuote(symbol, stock.getPrice());
+            
             return stock;
             
         } catch (AlphaVantageException e) {
@@ -287,29 +290,10 @@ public class AlphaVantageClient {
     }
     
     /**
-     * Get company name for a symbol (simplified version)
+     * Get company name for a symbol from the bundled symbol directory
      */
     private String getCompanyName(String symbol) {
-        // A map of common symbols to company names - in a real app, this would come from another API call
-        Map<String, String> companyNames = new HashMap<>();
-        companyNames.put("AAPL", "Apple Inc.");
-        companyNames.put("MSFT", "Microsoft Corporation");
-        companyNames.put("GOOGL", "Alphabet Inc. (Google)");
-        companyNames.put("AMZN", "Amazon.com Inc.");
-        companyNames.put("META", "Meta Platforms Inc.");
-        companyNames.put("TSLA", "Tesla Inc.");
-        companyNames.put("NVDA", "NVIDIA Corporation");
-        companyNames.put("JPM", "JPMorgan Chase & Co.");
-        companyNames.put("V", "Visa Inc.");
-        companyNames.put("JNJ", "Johnson & Johnson");
-        companyNames.put("WMT", "Walmart Inc.");
-        companyNames.put("PG", "Procter & Gamble Co.");
-        companyNames.put("MA", "Mastercard Inc.");
-        companyNames.put("UNH", "UnitedHealth Group Inc.");
-        companyNames.put("HD", "Home Depot Inc.");
-        
-        // Return the company name if found, otherwise return the symbol with "Inc." appended
-        return companyNames.getOrDefault(symbol, symbol + " Inc.");
+        return SymbolDirectory.getInstance().getCompanyName(symbol);
     }
     
     /**
@@ -0,0 +1,346 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Application metrics, exported in Prometheus format on /metrics.
+ *
+ * Records:
+ *   http.server.requests          latency histogram per route, method and status
+ *   http.server.requests.active   requests in flight per route
+ *   http.client.requests          outbound call latency per provider and outcome
+ *   cache.gets                    cache lookups per cache, tagged hit or miss
+ *   ratelimiter.tokens            tokens left in each outbound rate limiter
+ * plus the standard JVM memory, GC, thread and CPU meters.
+ *
+ * Server timing comes from instrument(server), which puts a timing filter in
+ * front of every context. Outbound calls are timed where they are made: through
+ * responseCode(conn) for HttpURLConnection, send(...) for java.net.http and
+ * the OkHttp interceptor for the crypto clients.
+ */
+public final class AppMetrics {
+    private static final PrometheusMeterRegistry REGISTRY = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    // Hosts grouped into the providers the dashboards care about; anything else is tagged by host
+    private static final Map<String, String> PROVIDERS = Map.of(
+            "firestore.googleapis.com", "firestore",
+            "identitytoolkit.googleapis.com", "firebase_auth",
+            "securetoken.googleapis.com", "firebase_auth",
+            "www.googleapis.com", "google_certs",
+            "www.alphavantage.co", "alphavantage",
+            "pro-api.coinmarketcap.com", "coinmarketcap",
+            "api.etherscan.io", "etherscan",
+            "blockchain.info", "blockchain_info",
+            "api.coingecko.com", "coingecko",
+            "api.openai.com", "openai");
+
+    // Any other request method is tagged OTHER so clients cannot mint new series
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS");
+
+    private static final Map<String, AtomicInteger> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    static {
+        new JvmMemoryMetrics().bindTo(REGISTRY);
+        new JvmGcMetrics().bindTo(REGISTRY);
+        new JvmThreadMetrics().bindTo(REGISTRY);
+        new ProcessorMetrics().bindTo(REGISTRY);
+    }
+
+    private AppMetrics() {
+    }
+
+    /**
+     * Wrap a server so every context created on it is timed and traced
+     */
+    public static HttpServer instrument(HttpServer server) {
+        return new InstrumentedServer(server);
+    }
+
+    /**
+     * Handler serving the registry in the Prometheus text format
+     */
+    public static HttpHandler scrapeHandler() {
+        return AppMetrics::scrape;
+    }
+
+    /**
+     * Time an HttpURLConnection call up to its response status
+     *
+     * @return The status code, as conn.getResponseCode() would
+     */
+    public static int responseCode(HttpURLConnection conn) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int code = conn.getResponseCode();
+            recordOutbound(RequestTracer.current(), provider(conn.getURL().getHost()),
+                    conn.getRequestMethod() + " " + conn.getURL().getPath(), outcome(code), start);
+            return code;
+        } catch (IOException e) {
+            recordOutbound(RequestTracer.current(), provider(conn.getURL().getHost()),
+                    conn.getRequestMethod() + " " + conn.getURL().getPath(), "IO_ERROR", start);
+            throw e;
+        }
+    }
+
+    /**
+     * Send a java.net.http request and time it
+     */
+    public static <T> HttpResponse<T> send(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        String provider = provider(request.uri().getHost());
+        String operation = request.method() + " " + request.uri().getPath();
+        try {
+            HttpResponse<T> response = client.send(request, handler);
+            recordOutbound(RequestTracer.current(), provider, operation, outcome(response.statusCode()), start);
+            return response;
+        } catch (IOException | InterruptedException e) {
+            recordOutbound(RequestTracer.current(), provider, operation, "IO_ERROR", start);
+            throw e;
+        }
+    }
+
+    /**
+     * OkHttp interceptor timing each call made through a client
+     */
+    public static Interceptor okHttpInterceptor() {
+        return chain -> {
+            long start = System.nanoTime();
+            String provider = provider(chain.request().url().host());
+            String operation = chain.request().method() + " " + chain.request().url().encodedPath();
+            try {
+                Response response = chain.proceed(chain.request());
+                recordOutbound(RequestTracer.current(), provider, operation, outcome(response.code()), start);
+                return response;
+            } catch (IOException e) {
+                recordOutbound(RequestTracer.current(), provider, operation, "IO_ERROR", start);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Count a cache lookup; the hit ratio is hit / (hit + miss)
+     */
+    public static void cacheGet(String cache, boolean hit) {
+        Counter.builder("cache.gets")
+                .tag("cache", cache)
+                .tag("result", hit ? "hit" : "miss")
+                .register(REGISTRY)
+                .increment();
+        RequestTracer.event("cache", cache, hit ? "hit" : "miss");
+    }
+
+    /**
+     * Export a rate limiter's remaining tokens. The supplier is polled on scrape.
+     */
+    public static void rateLimiterTokens(String limiter, Supplier<Number> tokens) {
+        Gauge.builder("ratelimiter.tokens", tokens)
+                .tag("limiter", limiter)
+                // Suppliers are usually lambdas or method references nothing else holds on to
+                .strongReference(true)
+                .register(REGISTRY);
+    }
+
+    /**
+     * Record an outbound call that started at startNanos and has just finished,
+     * and add it to the request's trace
+     *
+     * @param trace The trace of the request making the call, or null
+     * @param operation What was called, e.g. the method and path; used for the trace only
+     */
+    static void recordOutbound(RequestTracer.Trace trace, String provider, String operation, String outcome,
+                               long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        RequestTracer.span(trace, "http", provider + " " + operation, outcome, startNanos);
+        Timer.builder("http.client.requests")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(REGISTRY)
+                .record(Duration.ofNanos(nanos));
+    }
+
+    private static String provider(String host) {
+        return host == null ? "unknown" : PROVIDERS.getOrDefault(host, host);
+    }
+
+    private static String methodTag(String method) {
+        return METHODS.contains(method) ? method : "OTHER";
+    }
+
+    private static String outcome(int status) {
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        } else if (status >= 400) {
+            return "CLIENT_ERROR";
+        } else if (status >= 300) {
+            return "REDIRECTION";
+        } else if (status >= 200) {
+            return "SUCCESS";
+        }
+        return "UNKNOWN";
+    }
+
+    private static void scrape(HttpExchange exchange) throws IOException {
+        byte[] body = REGISTRY.scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Times each exchange on a context; added first so it sees auth rejections too
+     */
+    private static class TimingFilter extends Filter {
+        private final String route;
+        private final AtomicInteger inFlight;
+
+        TimingFilter(String route) {
+            this.route = route;
+            this.inFlight = IN_FLIGHT.computeIfAbsent(route, r -> {
+                AtomicInteger gauge = new AtomicInteger();
+                Gauge.builder("http.server.requests.active", gauge, AtomicInteger::get)
+                        .tag("route", r)
+                        .register(REGISTRY);
+                return gauge;
+            });
+        }
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            String exception = "none";
+            try {
+                chain.doFilter(exchange);
+            } catch (IOException | RuntimeException e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+                int status = exchange.getResponseCode();
+                Timer.builder("http.server.requests")
+                        .tag("route", route)
+                        .tag("method", methodTag(exchange.getRequestMethod()))
+                        .tag("status", status > 0 ? Integer.toString(status) : "none")
+                        .tag("exception", exception)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(MIN_EXPECTED)
+                        .maximumExpectedValue(MAX_EXPECTED)
+                        .register(REGISTRY)
+                        .record(Duration.ofNanos(System.nanoTime() - start));
+            }
+        }
+
+        @Override
+        public String description() {
+            return "TimingFilter records latency for " + route;
+        }
+    }
+
+    /**
+     * HttpServer that adds a TimingFilter and a trace filter to each context as it is created
+     */
+    private static class InstrumentedServer extends HttpServer {
+        private final HttpServer delegate;
+
+        InstrumentedServer(HttpServer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpContext createContext(String path, HttpHandler handler) {
+            return instrument(delegate.createContext(path, handler));
+        }
+
+        @Override
+        public HttpContext createContext(String path) {
+            return instrument(delegate.createContext(path));
+        }
+
+        private static HttpContext instrument(HttpContext context) {
+            context.getFilters().add(new TimingFilter(context.getPath()));
+            context.getFilters().add(RequestTracer.filter());
+            return context;
+        }
+
+        @Override
+        public void bind(InetSocketAddress addr, int backlog) throws IOException {
+            delegate.bind(addr, backlog);
+        }
+
+        @Override
+        public void start() {
+            delegate.start();
+        }
+
+        @Override
+        public void setExecutor(Executor executor) {
+            delegate.setExecutor(executor);
+        }
+
+        @Override
+        public Executor getExecutor() {
+            return delegate.getExecutor();
+        }
+
+        @Override
+        public void stop(int delay) {
+            delegate.stop(delay);
+        }
+
+        @Override
+        public void removeContext(String path) {
+            delegate.removeContext(path);
+        }
+
+        @Override
+        public void removeContext(HttpContext context) {
+            delegate.removeContext(context);
+        }
+
+        @Override
+        public InetSocketAddress getAddress() {
+            return delegate.getAddress();
+        }
+    }
+}
@@ -2,12 +2,15 @@ package org.example;
 
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
-import org.json.JSONObject;
 
 public class AssetsLiabilitiesHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetsLiabilitiesHandler.class);
+
     private final String collectionName;
 
     public AssetsLiabilitiesHandler(String collectionName) {
@@ -17,15 +20,15 @@ public class AssetsLiabilitiesHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         String method = exchange.getRequestMethod();
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println(" Unauthorized " + collectionName + " attempt: missing cookies");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken  = request.idToken();
+        String localId  = request.localId();
+        if (idToken == null || localId == null) {
+            LOGGER.debug("Unauthorized {} attempt: missing cookies", collectionName);
             exchange.sendResponseHeaders(401, -1);
             return;
         }
-        String idToken  = extractCookieValue(cookies, "idToken");
-        String localId  = extractCookieValue(cookies, "localId");
-        System.out.println("=== AssetsLiabilitiesHandler(" + collectionName + ") " + method + " ===");
+        LOGGER.debug("=== AssetsLiabilitiesHandler({}) {} ===", collectionName, method);
 
         if ("GET".equalsIgnoreCase(method)) {
             handleGet(exchange, idToken, localId);
@@ -39,10 +42,10 @@ public class AssetsLiabilitiesHandler implements HttpHandler {
     private void handleGet(HttpExchange exchange, String idToken, String localId) throws IOException {
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/"
                 + "databases/(default)/documents/Users/" + localId + "/" + collectionName;
-        System.out.println("→ FETCH GET " + urlStr);
+        LOGGER.debug("→ FETCH GET {}", urlStr);
         HttpURLConnection conn = openConnection(urlStr, "GET", idToken);
-        int code = conn.getResponseCode();
-        System.out.println("← Firestore GET response code: " + code);
+        int code = AppMetrics.responseCode(conn);
+        LOGGER.debug("← Firestore GET response code: {}", code);
         if (code == 200) {
             String body = readAll(conn.getInputStream());
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
@@ -55,33 +58,29 @@ public class AssetsLiabilitiesHandler implements HttpHandler {
     }
 
     private void handlePost(HttpExchange exchange, String idToken, String localId) throws IOException {
-        String reqBody = readAll(exchange.getRequestBody());
-        System.out.println("→ RECEIVED POST payload for " + collectionName + ": " + reqBody);
-        JSONObject req = new JSONObject(reqBody);
-        String name = req.optString("name", "");
-        double amount = req.has("amount") ? req.optDouble("amount", Double.NaN) : Double.NaN;
+        RequestContext request = RequestContext.of(exchange);
+        LOGGER.debug("→ RECEIVED POST payload for {}: {}", collectionName, request.body());
+        String name = request.string("name");
+        double amount = request.number("amount", Double.NaN);
         if (name.isEmpty() || Double.isNaN(amount)) {
-            System.out.println(" Invalid payload for " + collectionName);
+            LOGGER.debug("Invalid payload for {}", collectionName);
             exchange.sendResponseHeaders(400, -1);
             return;
         }
 
-        JSONObject fields = new JSONObject();
-        fields.put("name",   new JSONObject().put("stringValue", name));
-        fields.put("amount", new JSONObject().put("doubleValue", amount));
-        JSONObject payload = new JSONObject().put("fields", fields);
-        byte[] out = payload.toString().getBytes(StandardCharsets.UTF_8);
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .string("name", name)
+                .number("amount", amount);
+        byte[] out = document.toBytes();
 
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/"
                 + "databases/(default)/documents/Users/" + localId + "/" + collectionName;
-        System.out.println("→ FETCH POST " + urlStr);
+        LOGGER.debug("→ FETCH POST {}", urlStr);
         HttpURLConnection conn = openConnection(urlStr, "POST", idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(out);
+        document.writeTo(conn);
 
-        int code = conn.getResponseCode();
-        System.out.println("← Firestore POST response code: " + code);
+        int code = AppMetrics.responseCode(conn);
+        LOGGER.debug("← Firestore POST response code: {}", code);
         if (code >= 200 && code < 300) {
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
             exchange.sendResponseHeaders(200, out.length);
@@ -107,12 +106,4 @@ public class AssetsLiabilitiesHandler implements HttpHandler {
             return sb.toString();
         }
     }
-
-    private String extractCookieValue(String cookies, String name) {
-        for (String c : cookies.split(";")) {
-            String[] kv = c.trim().split("=", 2);
-            if (kv[0].equals(name) && kv.length == 2) return kv[1];
-        }
-        return null;
-    }
 }
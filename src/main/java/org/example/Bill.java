@@ -0,0 +1,77 @@
+package org.example;
+
+import org.json.JSONObject;
+
+/**
+ * A recurring or one-off bill stored under Users/{id}/Bills
+ *
+ * Optional fields are null when the document does not have them.
+ */
+public record Bill(
+        String id,
+        String name,
+        Double amount,
+        String category,
+        String frequency,
+        String dueDate,
+        Integer alertDays,
+        Boolean autoPay,
+        String notes,
+        boolean paid
+) {
+    /**
+     * Builder used by FirestoreDecoder to map a Firestore document onto a Bill
+     */
+    public static FirestoreDecoder.DocumentBuilder<Bill> builder() {
+        return new FirestoreDecoder.DocumentBuilder<>() {
+            private String name;
+            private Double amount;
+            private String category;
+            private String frequency;
+            private String dueDate;
+            private Integer alertDays;
+            private Boolean autoPay;
+            private String notes;
+            private boolean paid;
+
+            @Override
+            public void field(String field, Object value) {
+                switch (field) {
+                    case "name" -> name = FirestoreDecoder.asString(value);
+                    case "amount" -> amount = value instanceof Number number ? number.doubleValue() : null;
+                    case "category" -> category = FirestoreDecoder.asString(value);
+                    case "frequency" -> frequency = FirestoreDecoder.asString(value);
+                    case "dueDate" -> dueDate = FirestoreDecoder.asString(value);
+                    case "alertDays" -> alertDays = value instanceof Number number ? number.intValue() : null;
+                    case "autoPay" -> autoPay = value instanceof Boolean bool ? bool : null;
+                    case "notes" -> notes = FirestoreDecoder.asString(value);
+                    case "paid" -> paid = FirestoreDecoder.asBoolean(value, false);
+                    default -> { }
+                }
+            }
+
+            @Override
+            public Bill build(String documentId) {
+                return new Bill(documentId, name, amount, category, frequency, dueDate, alertDays, autoPay, notes, paid);
+            }
+        };
+    }
+
+    /**
+     * JSON form returned by /api/bills; absent optional fields are left out
+     */
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.putOpt("name", name);
+        json.putOpt("amount", amount);
+        json.putOpt("category", category);
+        json.putOpt("frequency", frequency);
+        json.putOpt("dueDate", dueDate);
+        json.putOpt("alertDays", alertDays);
+        json.putOpt("autoPay", autoPay);
+        json.putOpt("notes", notes);
+        json.put("paid", paid);
+        return json;
+    }
+}
@@ -4,6 +4,8 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -17,24 +19,18 @@ import java.util.Map;
 import java.util.UUID;
 
 public class BillsHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BillsHandler.class);
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("BillsHandler invoked: " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        LOGGER.debug("BillsHandler invoked: {} {}", exchange.getRequestMethod(), exchange.getRequestURI().getPath());
         
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println("401 - Missing idToken/localId in cookies");
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
         
         if (idToken == null || localId == null) {
-            System.out.println("401 - null tokens");
+            LOGGER.debug("401 - null tokens");
             exchange.sendResponseHeaders(401, -1);
             return;
         }
@@ -52,7 +48,7 @@ public class BillsHandler implements HttpHandler {
             String billId = path.substring(path.lastIndexOf('/') + 1);
             handleDeleteBill(exchange, idToken, localId, billId);
         } else {
-            System.out.println("404 - Unsupported path/method: " + path + " " + exchange.getRequestMethod());
+            LOGGER.debug("404 - Unsupported path/method: {} {}", path, exchange.getRequestMethod());
             exchange.sendResponseHeaders(404, -1);
         }
     }
@@ -67,76 +63,19 @@ public class BillsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
+                InputStream body = conn.getInputStream();
+                WriteAheadLog wal = WriteAheadLog.getInstance();
+                if (wal.hasPending(localId, "Bills")) {
+                    String merged = wal.mergePending(localId, "Bills", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                    body = new ByteArrayInputStream(merged.getBytes(StandardCharsets.UTF_8));
                 }
-                in.close();
                 
-                // Format response for our app
-                JSONObject firebaseResponse = new JSONObject(response.toString());
+                // Decode straight from the response stream into Bill records
                 JSONArray bills = new JSONArray();
-                
-                if (firebaseResponse.has("documents")) {
-                    JSONArray documents = firebaseResponse.getJSONArray("documents");
-                    for (int i = 0; i < documents.length(); i++) {
-                        JSONObject document = documents.getJSONObject(i);
-                        JSONObject fields = document.getJSONObject("fields");
-                        
-                        JSONObject bill = new JSONObject();
-                        // Extract document ID from the full path
-                        String name = document.getString("name");
-                        String id = name.substring(name.lastIndexOf('/') + 1);
-                        bill.put("id", id);
-                        
-                        if (fields.has("name")) {
-                            bill.put("name", fields.getJSONObject("name").getString("stringValue"));
-                        }
-                        
-                        if (fields.has("amount")) {
-                            if (fields.getJSONObject("amount").has("doubleValue")) {
-                                bill.put("amount", fields.getJSONObject("amount").getDouble("doubleValue"));
-                            } else if (fields.getJSONObject("amount").has("integerValue")) {
-                                bill.put("amount", fields.getJSONObject("amount").getInt("integerValue"));
-                            }
-                        }
-                        
-                        if (fields.has("category")) {
-                            bill.put("category", fields.getJSONObject("category").getString("stringValue"));
-                        }
-                        
-                        if (fields.has("frequency")) {
-                            bill.put("frequency", fields.getJSONObject("frequency").getString("stringValue"));
-                        }
-                        
-                        if (fields.has("dueDate")) {
-                            bill.put("dueDate", fields.getJSONObject("dueDate").getString("stringValue"));
-                        }
-                        
-                        if (fields.has("alertDays")) {
-                            bill.put("alertDays", fields.getJSONObject("alertDays").getInt("integerValue"));
-                        }
-                        
-                        if (fields.has("autoPay")) {
-                            bill.put("autoPay", fields.getJSONObject("autoPay").getBoolean("booleanValue"));
-                        }
-                        
-                        if (fields.has("notes")) {
-                            bill.put("notes", fields.getJSONObject("notes").getString("stringValue"));
-                        }
-                        
-                        if (fields.has("paid")) {
-                            bill.put("paid", fields.getJSONObject("paid").getBoolean("booleanValue"));
-                        } else {
-                            bill.put("paid", false);
-                        }
-                        
-                        bills.put(bill);
-                    }
+                for (Bill bill : FirestoreDecoder.decodeList(body, Bill::builder)) {
+                    bills.put(bill.toJSON());
                 }
                 
                 JSONObject appResponse = new JSONObject();
@@ -161,49 +100,49 @@ public class BillsHandler implements HttpHandler {
                     os.write(responseBytes);
                     os.close();
                 } else {
-                    System.out.println("Error fetching bills: " + responseCode);
+                    LOGGER.warn("Error fetching bills: {}", responseCode);
                     exchange.sendResponseHeaders(responseCode, -1);
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error getting bills", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
     
     private void handleCreateBill(HttpExchange exchange, String idToken, String localId) throws IOException {
         try {
-            // Read the request body
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder requestBody = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                requestBody.append(line);
-            }
-            
             // Parse the bill data
-            JSONObject billData = new JSONObject(requestBody.toString());
+            JSONObject billData = RequestContext.of(exchange).json();
             
             // Generate a unique ID for the bill
             String billId = UUID.randomUUID().toString();
             
             // Create the Firestore document
-            JSONObject document = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("name", new JSONObject().put("stringValue", billData.getString("name")));
-            fields.put("amount", new JSONObject().put("doubleValue", billData.getDouble("amount")));
-            fields.put("category", new JSONObject().put("stringValue", billData.getString("category")));
-            fields.put("frequency", new JSONObject().put("stringValue", billData.getString("frequency")));
-            fields.put("dueDate", new JSONObject().put("stringValue", billData.getString("dueDate")));
-            fields.put("alertDays", new JSONObject().put("integerValue", billData.getInt("alertDays")));
-            fields.put("autoPay", new JSONObject().put("booleanValue", billData.getBoolean("autoPay")));
-            fields.put("notes", new JSONObject().put("stringValue", billData.optString("notes", "")));
-            fields.put("paid", new JSONObject().put("booleanValue", billData.optBoolean("paid", false)));
-            fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-            
-            document.put("fields", fields);
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .string("name", billData.getString("name"))
+                    .number("amount", billData.getDouble("amount"))
+                    .string("category", billData.getString("category"))
+                    .string("frequency", billData.getString("frequency"))
+                    .string("dueDate", billData.getString("dueDate"))
+                    .integer("alertDays", billData.getInt("alertDays"))
+                    .bool("autoPay", billData.getBoolean("autoPay"))
+                    .string("notes", billData.optString("notes", ""))
+                    .bool("paid", billData.optBoolean("paid", false))
+                    .timestamp("created", Instant.now());
+            
+            // Acknowledge once durable locally; the write-ahead log delivers it to Firestore
+            WriteAheadLog wal = WriteAheadLog.getInstance();
+            if (wal.isEnabled()) {
+                try {
+                    wal.set(idToken, localId, "Bills", billId, document);
+                    sendCreatedBill(exchange, billId);
+                    createBillAlert(idToken, localId, billData);
+                    return;
+                } catch (IOException e) {
+                    LOGGER.warn("Write-ahead log unavailable, writing bill directly: {}", e.getMessage());
+                }
+            }
             
             // Save to Firestore
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
@@ -212,35 +151,21 @@ public class BillsHandler implements HttpHandler {
             URL url = new URL(firestoreUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
+            document.writeTo(conn);
             
-            OutputStream os = conn.getOutputStream();
-            os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-            os.close();
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200 || responseCode == 201) {
-                JSONObject successResponse = new JSONObject();
-                successResponse.put("success", true);
-                successResponse.put("id", billId);
-                
-                byte[] responseBytes = successResponse.toString().getBytes(StandardCharsets.UTF_8);
-                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-                exchange.sendResponseHeaders(200, responseBytes.length);
-                OutputStream responseOs = exchange.getResponseBody();
-                responseOs.write(responseBytes);
-                responseOs.close();
+                sendCreatedBill(exchange, billId);
                 
                 // Create an alert for the bill if due soon
                 createBillAlert(idToken, localId, billData);
             } else {
-                System.out.println("Error creating bill: " + responseCode);
+                LOGGER.warn("Error creating bill: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error creating bill", e);
             String errorMessage = "{\"error\":\"" + e.getMessage() + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
             exchange.sendResponseHeaders(500, errorMessage.length());
@@ -252,80 +177,55 @@ public class BillsHandler implements HttpHandler {
     
     private void handleUpdateBill(HttpExchange exchange, String idToken, String localId, String billId) throws IOException {
         try {
-            // Read the request body
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder requestBody = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                requestBody.append(line);
-            }
-            
             // Parse the bill data
-            JSONObject billData = new JSONObject(requestBody.toString());
-            
-            // Create the update data
-            JSONObject document = new JSONObject();
-            JSONObject fields = new JSONObject();
+            JSONObject billData = RequestContext.of(exchange).json();
             
             // Only update the fields that are provided
+            FirestoreEncoder.Document document = FirestoreEncoder.document();
             if (billData.has("name")) {
-                fields.put("name", new JSONObject().put("stringValue", billData.getString("name")));
+                document.string("name", billData.getString("name"));
             }
-            
             if (billData.has("amount")) {
-                fields.put("amount", new JSONObject().put("doubleValue", billData.getDouble("amount")));
+                document.number("amount", billData.getDouble("amount"));
             }
-            
             if (billData.has("category")) {
-                fields.put("category", new JSONObject().put("stringValue", billData.getString("category")));
+                document.string("category", billData.getString("category"));
             }
-            
             if (billData.has("frequency")) {
-                fields.put("frequency", new JSONObject().put("stringValue", billData.getString("frequency")));
+                document.string("frequency", billData.getString("frequency"));
             }
-            
             if (billData.has("dueDate")) {
-                fields.put("dueDate", new JSONObject().put("stringValue", billData.getString("dueDate")));
+                document.string("dueDate", billData.getString("dueDate"));
             }
-            
             if (billData.has("alertDays")) {
-                fields.put("alertDays", new JSONObject().put("integerValue", billData.getInt("alertDays")));
+                document.integer("alertDays", billData.getInt("alertDays"));
             }
-            
             if (billData.has("autoPay")) {
-                fields.put("autoPay", new JSONObject().put("booleanValue", billData.getBoolean("autoPay")));
+                document.bool("autoPay", billData.getBoolean("autoPay"));
             }
-            
             if (billData.has("notes")) {
-                fields.put("notes", new JSONObject().put("stringValue", billData.getString("notes")));
+                document.string("notes", billData.getString("notes"));
             }
-            
             if (billData.has("paid")) {
-                fields.put("paid", new JSONObject().put("booleanValue", billData.getBoolean("paid")));
+                document.bool("paid", billData.getBoolean("paid"));
             }
             
             // Add the updated timestamp
-            fields.put("updated", new JSONObject().put("timestampValue", Instant.now().toString()));
+            document.timestamp("updated", Instant.now());
             
-            document.put("fields", fields);
-            
-            // Update in Firestore
+            // Update in Firestore; the update mask keeps the fields not sent here
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
-                    + localId + "/Bills/" + billId;
+                    + localId + "/Bills/" + billId + "?" + document.updateMask();
             
             URL url = new URL(firestoreUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("PATCH");
-            conn.setRequestProperty("Content-Type", "application/json");
+            // HttpURLConnection does not accept PATCH; Firestore honours the override header
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("X-HTTP-Method-Override", "PATCH");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
-            
-            OutputStream os = conn.getOutputStream();
-            os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-            os.close();
+            document.writeTo(conn);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 JSONObject successResponse = new JSONObject();
                 successResponse.put("success", true);
@@ -337,11 +237,11 @@ public class BillsHandler implements HttpHandler {
                 responseOs.write(responseBytes);
                 responseOs.close();
             } else {
-                System.out.println("Error updating bill: " + responseCode);
+                LOGGER.warn("Error updating bill: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error updating bill", e);
             String errorMessage = "{\"error\":\"" + e.getMessage() + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
             exchange.sendResponseHeaders(500, errorMessage.length());
@@ -351,8 +251,37 @@ public class BillsHandler implements HttpHandler {
         }
     }
     
+    private void sendCreatedBill(HttpExchange exchange, String billId) throws IOException {
+        JSONObject successResponse = new JSONObject();
+        successResponse.put("success", true);
+        successResponse.put("id", billId);
+        
+        byte[] responseBytes = successResponse.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, responseBytes.length);
+        OutputStream responseOs = exchange.getResponseBody();
+        responseOs.write(responseBytes);
+        responseOs.close();
+    }
+    
     private void handleDeleteBill(HttpExchange exchange, String idToken, String localId, String billId) throws IOException {
         try {
+            WriteAheadLog wal = WriteAheadLog.getInstance();
+            if (wal.isEnabled()) {
+                try {
+                    wal.delete(idToken, localId, "Bills", billId);
+                    byte[] responseBytes = new JSONObject().put("success", true).toString().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                    exchange.sendResponseHeaders(200, responseBytes.length);
+                    OutputStream os = exchange.getResponseBody();
+                    os.write(responseBytes);
+                    os.close();
+                    return;
+                } catch (IOException e) {
+                    LOGGER.warn("Write-ahead log unavailable, deleting bill directly: {}", e.getMessage());
+                }
+            }
+            
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
                     + localId + "/Bills/" + billId;
             
@@ -361,7 +290,7 @@ public class BillsHandler implements HttpHandler {
             conn.setRequestMethod("DELETE");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 JSONObject successResponse = new JSONObject();
                 successResponse.put("success", true);
@@ -373,11 +302,11 @@ public class BillsHandler implements HttpHandler {
                 os.write(responseBytes);
                 os.close();
             } else {
-                System.out.println("Error deleting bill: " + responseCode);
+                LOGGER.warn("Error deleting bill: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error deleting bill", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
@@ -402,83 +331,45 @@ public class BillsHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
         
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                response.append(line);
-            }
-            in.close();
-            
-            JSONObject firebaseResponse = new JSONObject(response.toString());
+            java.time.LocalDate today = java.time.LocalDate.now();
+            java.time.LocalDate cutoffDate = today.plusDays(daysAhead);
             
-            if (firebaseResponse.has("documents")) {
-                JSONArray documents = firebaseResponse.getJSONArray("documents");
+            for (Bill bill : FirestoreDecoder.decodeList(conn.getInputStream(), Bill::builder)) {
+                // Skip if already paid or no due date
+                if (bill.paid() || bill.dueDate() == null) {
+                    continue;
+                }
                 
-                // Current date for comparing
-                java.time.LocalDate today = java.time.LocalDate.now();
-                java.time.LocalDate cutoffDate = today.plusDays(daysAhead);
+                java.time.LocalDate dueDate = java.time.LocalDate.parse(bill.dueDate());
                 
-                for (int i = 0; i < documents.length(); i++) {
-                    JSONObject document = documents.getJSONObject(i);
-                    JSONObject fields = document.getJSONObject("fields");
-                    
-                    // Skip if already paid
-                    if (fields.has("paid") && fields.getJSONObject("paid").getBoolean("booleanValue")) {
-                        continue;
+                // Check if due date is within range and not in the past
+                if (!dueDate.isBefore(today) && !dueDate.isAfter(cutoffDate)) {
+                    Map<String, Object> upcoming = new HashMap<>();
+                    upcoming.put("id", bill.id());
+                    if (bill.name() != null) {
+                        upcoming.put("name", bill.name());
+                    }
+                    if (bill.amount() != null) {
+                        upcoming.put("amount", bill.amount());
                     }
+                    upcoming.put("dueDate", bill.dueDate());
                     
-                    // Check due date
-                    if (fields.has("dueDate")) {
-                        String dueDateStr = fields.getJSONObject("dueDate").getString("stringValue");
-                        java.time.LocalDate dueDate = java.time.LocalDate.parse(dueDateStr);
-                        
-                        // Check if due date is within range and not in the past
-                        if (!dueDate.isBefore(today) && !dueDate.isAfter(cutoffDate)) {
-                            // Extract bill data
-                            Map<String, Object> bill = new HashMap<>();
-                            
-                            // Extract document ID
-                            String name = document.getString("name");
-                            String id = name.substring(name.lastIndexOf('/') + 1);
-                            bill.put("id", id);
-                            
-                            // Extract other fields
-                            if (fields.has("name")) {
-                                bill.put("name", fields.getJSONObject("name").getString("stringValue"));
-                            }
-                            
-                            if (fields.has("amount")) {
-                                if (fields.getJSONObject("amount").has("doubleValue")) {
-                                    bill.put("amount", fields.getJSONObject("amount").getDouble("doubleValue"));
-                                } else if (fields.getJSONObject("amount").has("integerValue")) {
-                                    bill.put("amount", fields.getJSONObject("amount").getInt("integerValue"));
-                                }
-                            }
-                            
-                            bill.put("dueDate", dueDateStr);
-                            
-                            // Calculate days until due
-                            long daysUntilDue = java.time.temporal.ChronoUnit.DAYS.between(today, dueDate);
-                            bill.put("daysUntilDue", daysUntilDue);
-                            
-                            if (fields.has("category")) {
-                                bill.put("category", fields.getJSONObject("category").getString("stringValue"));
-                            }
-                            
-                            if (fields.has("frequency")) {
-                                bill.put("frequency", fields.getJSONObject("frequency").getString("stringValue"));
-                            }
-                            
-                            if (fields.has("autoPay")) {
-                                bill.put("autoPay", fields.getJSONObject("autoPay").getBoolean("booleanValue"));
-                            }
-                            
-                            upcomingBills.add(bill);
-                        }
+                    // Calculate days until due
+                    upcoming.put("daysUntilDue", java.time.temporal.ChronoUnit.DAYS.between(today, dueDate));
+                    
+                    if (bill.category() != null) {
+                        upcoming.put("category", bill.category());
+                    }
+                    if (bill.frequency() != null) {
+                        upcoming.put("frequency", bill.frequency());
                     }
+                    if (bill.autoPay() != null) {
+                        upcoming.put("autoPay", bill.autoPay());
+                    }
+                    
+                    upcomingBills.add(upcoming);
                 }
             }
         }
@@ -515,16 +406,12 @@ public class BillsHandler implements HttpHandler {
                 
                 // Use AlertsHandler to create the alert
                 String alertId = UUID.randomUUID().toString();
-                JSONObject document = new JSONObject();
-                JSONObject fields = new JSONObject();
-                
-                fields.put("title", new JSONObject().put("stringValue", alertData.getString("title")));
-                fields.put("message", new JSONObject().put("stringValue", alertData.getString("message")));
-                fields.put("type", new JSONObject().put("stringValue", alertData.getString("type")));
-                fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-                fields.put("read", new JSONObject().put("booleanValue", false));
-                
-                document.put("fields", fields);
+                FirestoreEncoder.Document document = FirestoreEncoder.document()
+                        .string("title", alertData.getString("title"))
+                        .string("message", alertData.getString("message"))
+                        .string("type", alertData.getString("type"))
+                        .timestamp("created", Instant.now())
+                        .bool("read", false);
                 
                 // Save to Firestore
                 String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
@@ -533,37 +420,16 @@ public class BillsHandler implements HttpHandler {
                 URL url = new URL(firestoreUrl);
                 HttpURLConnection conn = (HttpURLConnection) url.openConnection();
                 conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
                 conn.setRequestProperty("Authorization", "Bearer " + idToken);
-                conn.setDoOutput(true);
+                document.writeTo(conn);
                 
-                OutputStream os = conn.getOutputStream();
-                os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-                os.close();
-                
-                int responseCode = conn.getResponseCode();
+                int responseCode = AppMetrics.responseCode(conn);
                 if (responseCode != 200 && responseCode != 201) {
-                    System.out.println("Error creating bill alert: " + responseCode);
+                    LOGGER.warn("Error creating bill alert: {}", responseCode);
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error creating bill alert: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    private static String extractCookieValue(String cookies, String name) {
-        if (cookies == null) {
-            return null;
-        }
-        
-        String[] parts = cookies.split(";");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring((name + "=").length());
-            }
+            LOGGER.warn("Error creating bill alert: {}", e.getMessage(), e);
         }
-        return null;
     }
 }
@@ -21,6 +21,7 @@ public class BlockchainApiService {
             .readTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
             .writeTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
             .retryOnConnectionFailure(true)
+            .addInterceptor(AppMetrics.okHttpInterceptor())
             .build();
 
     private final String etherscanApiKey;
@@ -30,10 +31,26 @@ public class BlockchainApiService {
     private static final String COINGECKO_BTC_ID = "bitcoin";
     private static final String COINGECKO_ETH_ID = "ethereum";
 
-    // Cache control - store last update time for each endpoint to avoid hitting rate limits
-    private final java.util.Map<String, Long> lastUpdateTime = new java.util.concurrent.ConcurrentHashMap<>();
-    private final java.util.Map<String, JSONObject> responseCache = new java.util.concurrent.ConcurrentHashMap<>();
+    // Parsed results are cached instead of raw responses, so a hit costs no
+    // serialization and the large per-address transaction payloads are not retained
     private static final long CACHE_DURATION = 60 * 1000; // Increase cache to 60 seconds to reduce API call frequency
+    private static final int MAX_CACHED_WALLETS = 500;
+    private static final int MAX_TRANSACTIONS = 10;
+    // Incremental sync: page size and the most pages fetched for one address per sync
+    private static final int SYNC_PAGE_SIZE = 50;
+    private static final int MAX_SYNC_PAGES = 10;
+    private static final java.util.Map<String, Object> syncLocks = new java.util.concurrent.ConcurrentHashMap<>();
+    private static final BoundedCache<String, WalletInfo> walletCache = new BoundedCache<>("wallet", MAX_CACHED_WALLETS, CACHE_DURATION);
+    // rawaddr transactions carry a block height but no confirmation count, so it is derived from the chain tip
+    private static final long TIP_CACHE_MS = 30 * 1000;
+    private static volatile long tipHeight;
+    private static volatile long tipFetchedAt;
+    private static final BoundedCache<String, MarketSnapshot> marketCache = new BoundedCache<>("market", 8, CACHE_DURATION);
+
+    /**
+     * Price and market figures for a coin, shared by every wallet of that type
+     */
+    private record MarketSnapshot(double currentPrice, double priceChange, double marketCap, double volume24h) {}
 
     public BlockchainApiService() {
         ConfigManager configManager = ConfigManager.getInstance();
@@ -53,18 +70,68 @@ public class BlockchainApiService {
             throw new IllegalArgumentException("Bitcoin address cannot be null or empty");
         }
         
+        String cacheKey = bitcoinKey(address);
+        WalletInfo cached = walletCache.get(cacheKey);
+        if (cached != null) {
+            LOGGER.info("Using cached Bitcoin wallet info for: " + address);
+            return cached;
+        }
+        
         try {
-            // Get wallet data from blockchain.info API
-            String walletUrl = BLOCKCHAIN_INFO_API + "/rawaddr/" + address;
-            JSONObject walletResponse = makeApiCall(walletUrl, null);
+            // Get balance and transaction count from blockchain.info API
+            String balanceUrl = BLOCKCHAIN_INFO_API + "/balance?active=" + address;
+            JSONObject balanceResponse = makeApiCall(balanceUrl, null).getJSONObject(address);
 
             // Parse balance - convert satoshis to BTC
-            BigDecimal balance = BigDecimal.valueOf(walletResponse.getLong("final_balance"))
+            BigDecimal balance = BigDecimal.valueOf(balanceResponse.getLong("final_balance"))
                     .divide(BigDecimal.valueOf(100000000), 8, RoundingMode.HALF_UP);
 
-            // Get current BTC price from blockchain.info ticker API
-            double currentPrice = 0.0;
-            double priceChange = 0.0;
+            MarketSnapshot market = getBitcoinMarket();
+
+            // Only page through rawaddr when the address has transactions we have not logged
+            List<Transaction> unlogged = new ArrayList<>();
+            if (balanceResponse.optLong("n_tx", -1) != TransactionLog.getInstance().count(bitcoinKey(address))) {
+                unlogged = syncBitcoinTransactions(address);
+            }
+            List<Transaction> transactions = recentTransactions(bitcoinKey(address), unlogged);
+
+            WalletInfo info = new WalletInfo(balance.doubleValue(), transactions, market.currentPrice(),
+                    market.priceChange(), market.marketCap(), market.volume24h());
+            walletCache.put(cacheKey, info);
+            return info;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error fetching Bitcoin wallet info: " + e.getMessage(), e);
+            
+            WalletInfo stale = walletCache.getStale(cacheKey);
+            if (stale != null) {
+                LOGGER.info("Using stale Bitcoin wallet info as fallback for: " + address);
+                return stale;
+            }
+            
+            // Attempt to get minimal price data from CoinMarketCap as a fallback
+            try {
+                // Use the shared CoinMarketCap price cache as a fallback
+                CoinPrice coinPrice = CoinPriceCache.getInstance().getPrice("BTC");
+                
+                // Price only; flagged so the zero balance is never stored
+                return WalletInfo.fallback(coinPrice.currentPrice(), coinPrice.priceChangePercentage24h());
+            } catch (Exception fallbackEx) {
+                LOGGER.log(Level.SEVERE, "Fallback to CoinMarketCap also failed: " + fallbackEx.getMessage(), fallbackEx);
+                throw new IOException("All API attempts failed and no real-time data is available");
+            }
+        }
+    }
+
+    /**
+     * Current Bitcoin price from blockchain.info plus market figures from CoinGecko
+     */
+    private MarketSnapshot getBitcoinMarket() throws IOException {
+        MarketSnapshot cached = marketCache.get("BTC");
+        if (cached != null) {
+            return cached;
+        }
+        
+        try {
             double marketCap = 0.0;
             double volume24h = 0.0;
 
@@ -73,8 +140,8 @@ public class BlockchainApiService {
             JSONObject tickerResponse = makeApiCall(tickerUrl, null);
             JSONObject usdData = tickerResponse.getJSONObject("USD");
 
-            currentPrice = usdData.getDouble("last");
-            priceChange = usdData.has("24h") ?
+            double currentPrice = usdData.getDouble("last");
+            double priceChange = usdData.has("24h") ?
                 usdData.getDouble("24h") :
                 ((usdData.getDouble("last") / usdData.getDouble("15m")) - 1) * 100;
                 
@@ -102,33 +169,16 @@ public class BlockchainApiService {
                 LOGGER.log(Level.WARNING, "Error fetching Bitcoin market data from CoinGecko: " + e.getMessage());
             }
 
-            // Get transactions
-            List<Transaction> transactions = new ArrayList<>();
-            if (walletResponse.has("txs")) {
-                JSONArray txs = walletResponse.getJSONArray("txs");
-                for (int i = 0; i < Math.min(txs.length(), 10); i++) {
-                    JSONObject tx = txs.getJSONObject(i);
-                    transactions.add(parseBitcoinTransaction(tx, address));
-                }
-            }
-
-            return new WalletInfo(balance.doubleValue(), transactions, currentPrice, priceChange, marketCap, volume24h);
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error fetching Bitcoin wallet info: " + e.getMessage(), e);
-            
-            // Attempt to get minimal price data from CoinMarketCap as a fallback
-            try {
-                // Use CoinMarketCapService directly as a fallback
-                CoinMarketCapService cmcService = new CoinMarketCapService();
-                CoinPrice coinPrice = cmcService.getPrice("BTC");
-                
-                // Return minimal data with just price info
-                return new WalletInfo(0.0, new ArrayList<>(), coinPrice.currentPrice(), 
-                                      coinPrice.priceChangePercentage24h(), 0.0, 0.0);
-            } catch (Exception fallbackEx) {
-                LOGGER.log(Level.SEVERE, "Fallback to CoinMarketCap also failed: " + fallbackEx.getMessage(), fallbackEx);
-                throw new IOException("All API attempts failed and no real-time data is available");
+            MarketSnapshot snapshot = new MarketSnapshot(currentPrice, priceChange, marketCap, volume24h);
+            marketCache.put("BTC", snapshot);
+            return snapshot;
+        } catch (IOException e) {
+            MarketSnapshot stale = marketCache.getStale("BTC");
+            if (stale != null) {
+                LOGGER.info("Using stale Bitcoin market data as fallback");
+                return stale;
             }
+            throw e;
         }
     }
 
@@ -141,6 +191,13 @@ public class BlockchainApiService {
             throw new IllegalArgumentException("Etherscan API key is not configured");
         }
 
+        String cacheKey = ethereumKey(address);
+        WalletInfo cached = walletCache.get(cacheKey);
+        if (cached != null) {
+            LOGGER.info("Using cached Ethereum wallet info for: " + address);
+            return cached;
+        }
+
         try {
             // Get balance
             String balanceUrl = String.format("%s?module=account&action=balance&address=%s&tag=latest&apikey=%s",
@@ -153,7 +210,49 @@ public class BlockchainApiService {
                         .divide(BigDecimal.valueOf(1000000000000000000L), 18, RoundingMode.HALF_UP);
             }
 
-            // Get ETH price from Etherscan
+            MarketSnapshot market = getEthereumMarket();
+
+            // Get transactions newer than the address's high-water mark
+            List<Transaction> unlogged = syncEthereumTransactions(address);
+            List<Transaction> transactions = recentTransactions(ethereumKey(address), unlogged);
+
+            WalletInfo info = new WalletInfo(balance.doubleValue(), transactions, market.currentPrice(),
+                    market.priceChange(), market.marketCap(), market.volume24h());
+            walletCache.put(cacheKey, info);
+            return info;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error fetching Ethereum wallet info: " + e.getMessage(), e);
+            
+            WalletInfo stale = walletCache.getStale(cacheKey);
+            if (stale != null) {
+                LOGGER.info("Using stale Ethereum wallet info as fallback for: " + address);
+                return stale;
+            }
+            
+            // Attempt to get minimal price data from CoinMarketCap as a fallback
+            try {
+                // Use the shared CoinMarketCap price cache as a fallback
+                CoinPrice coinPrice = CoinPriceCache.getInstance().getPrice("ETH");
+                
+                // Price only; flagged so the zero balance is never stored
+                return WalletInfo.fallback(coinPrice.currentPrice(), coinPrice.priceChangePercentage24h());
+            } catch (Exception fallbackEx) {
+                LOGGER.log(Level.SEVERE, "Fallback to CoinMarketCap also failed: " + fallbackEx.getMessage(), fallbackEx);
+                throw new IOException("All API attempts failed and no real-time data is available for Ethereum");
+            }
+        }
+    }
+
+    /**
+     * Current Ethereum price from Etherscan plus market figures from CoinGecko
+     */
+    private MarketSnapshot getEthereumMarket() throws IOException {
+        MarketSnapshot cached = marketCache.get("ETH");
+        if (cached != null) {
+            return cached;
+        }
+        
+        try {
             double currentPrice = 0.0;
             double priceChange = 0.0;
             double marketCap = 0.0;
@@ -194,41 +293,256 @@ public class BlockchainApiService {
                 // No longer using random fallback values
             }
 
-            // Get transactions
-            String txUrl = String.format("%s?module=account&action=txlist&address=%s&startblock=0&endblock=99999999&page=1&offset=10&sort=desc&apikey=%s",
-                    ETHERSCAN_API, address, etherscanApiKey);
-            JSONObject txResponse = makeApiCall(txUrl, null);
+            MarketSnapshot snapshot = new MarketSnapshot(currentPrice, priceChange, marketCap, volume24h);
+            marketCache.put("ETH", snapshot);
+            return snapshot;
+        } catch (IOException e) {
+            MarketSnapshot stale = marketCache.getStale("ETH");
+            if (stale != null) {
+                LOGGER.info("Using stale Ethereum market data as fallback");
+                return stale;
+            }
+            throw e;
+        }
+    }
 
-            List<Transaction> transactions = new ArrayList<>();
-            if (txResponse.getString("status").equals("1")) {
-                JSONArray txs = txResponse.getJSONArray("result");
-                for (int i = 0; i < Math.min(txs.length(), 10); i++) {
-                    JSONObject tx = txs.getJSONObject(i);
-                    transactions.add(parseEthereumTransaction(tx, address));
+    /**
+     * Get one page of a wallet's transaction history from the local log, newest first.
+     * An address that has never been synced is synced before reading.
+     *
+     * @param address The wallet address
+     * @param cryptoType BTC or ETH
+     * @param page Zero-based page number
+     * @param pageSize Transactions per page
+     * @return The transactions on that page
+     */
+    public List<Transaction> getTransactionHistory(String address, String cryptoType, int page, int pageSize) throws IOException {
+        if (address == null || address.trim().isEmpty()) {
+            throw new IllegalArgumentException("Wallet address cannot be null or empty");
+        }
+        
+        TransactionLog log = TransactionLog.getInstance();
+        String type = cryptoType == null ? "" : cryptoType.trim().toUpperCase();
+        String key;
+        if (type.equals("BTC")) {
+            key = bitcoinKey(address);
+            if (log.getMark(key).lastHash().isEmpty()) {
+                syncBitcoinTransactions(address);
+            }
+        } else if (type.equals("ETH")) {
+            key = ethereumKey(address);
+            if (log.getMark(key).lastHash().isEmpty()) {
+                syncEthereumTransactions(address);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported crypto type: " + cryptoType);
+        }
+        return log.read(key, page, pageSize);
+    }
+
+    /**
+     * Number of transactions held in the local log for a wallet
+     */
+    public int getTransactionCount(String address, String cryptoType) {
+        String key = "BTC".equalsIgnoreCase(cryptoType) ? bitcoinKey(address) : ethereumKey(address);
+        return TransactionLog.getInstance().count(key);
+    }
+
+    private static String bitcoinKey(String address) {
+        return "BTC:" + address;
+    }
+
+    private static String ethereumKey(String address) {
+        return "ETH:" + address.toLowerCase();
+    }
+
+    /**
+     * Fetch the Bitcoin transactions the log does not hold yet, oldest first.
+     * rawaddr pages newest first, so the n_tx it reports is used to place each
+     * page just above the newest logged transaction. A page is only logged when
+     * it reaches back to that transaction (or to the address's first one), so a
+     * gap larger than one sync is closed over several syncs, never skipped.
+     *
+     * @return Transactions seen but not logged, newest first
+     */
+    private List<Transaction> syncBitcoinTransactions(String address) throws IOException {
+        String key = bitcoinKey(address);
+        synchronized (syncLocks.computeIfAbsent(key, k -> new Object())) {
+            TransactionLog log = TransactionLog.getInstance();
+            long tip = bitcoinTipHeight();
+            if (!log.isAvailable()) {
+                List<Transaction> newest = new ArrayList<>();
+                List<Transaction> pending = new ArrayList<>();
+                JSONArray txs = makeApiCall(bitcoinPageUrl(address, 0), null).optJSONArray("txs");
+                for (int i = 0; txs != null && i < txs.length(); i++) {
+                    sortBySettlement(parseBitcoinTransaction(txs.getJSONObject(i), address, tip), newest, pending);
                 }
+                pending.addAll(newest);
+                return pending;
             }
 
-            return new WalletInfo(balance.doubleValue(), transactions, currentPrice, priceChange, marketCap, volume24h);
+            List<Transaction> unlogged = new ArrayList<>(); // newest first, from the first page
+            long offset = 0;
+            for (int page = 0; page < MAX_SYNC_PAGES; page++) {
+                JSONObject response = makeApiCall(bitcoinPageUrl(address, offset), null);
+                JSONArray txs = response.optJSONArray("txs");
+                if (txs == null) {
+                    break;
+                }
+                long total = response.optLong("n_tx", offset + txs.length());
+                TransactionLog.SyncMark mark = log.getMark(key);
+                int logged = log.count(key);
+
+                // Everything on the page newer than the newest logged transaction, newest first
+                List<Transaction> newer = new ArrayList<>();
+                boolean reachedLog = logged == 0 && offset + txs.length() >= total;
+                for (int i = 0; i < txs.length(); i++) {
+                    JSONObject raw = txs.getJSONObject(i);
+                    if (logged > 0 && raw.optString("hash").equals(mark.lastHash())) {
+                        reachedLog = true;
+                        break;
+                    }
+                    newer.add(parseBitcoinTransaction(raw, address, tip));
+                }
+                if (page == 0) {
+                    unlogged.addAll(newer);
+                }
+
+                if (reachedLog) {
+                    // Log the settled run that directly follows the logged history
+                    List<Transaction> settled = new ArrayList<>();
+                    for (int i = newer.size() - 1; i >= 0; i--) {
+                        String status = newer.get(i).getStatus();
+                        if ("CONFIRMED".equals(status)) {
+                            settled.add(newer.get(i));
+                        } else if ("PENDING".equals(status)) {
+                            break;
+                        }
+                    }
+                    if (!settled.isEmpty()) {
+                        Transaction newest = settled.get(settled.size() - 1);
+                        int added = log.append(key, settled, new TransactionLog.SyncMark(newest.getBlockHeight(), newest.getTxHash()));
+                        LOGGER.info("Synced " + added + " new Bitcoin transactions for " + address);
+                    }
+                    if (offset == 0) {
+                        break;
+                    }
+                }
+                // Next window ends on the newest logged transaction, or on the oldest one overall
+                long next = Math.max(0, total - log.count(key) - (SYNC_PAGE_SIZE - 1));
+                if (next == offset) {
+                    break;
+                }
+                offset = next;
+            }
+
+            unlogged.removeIf(tx -> "UNKNOWN".equals(tx.getStatus()) || log.contains(key, tx.getTxHash()));
+            return unlogged;
+        }
+    }
+
+    /**
+     * Height of the newest Bitcoin block, cached briefly
+     *
+     * @return The tip height, or 0 if it could not be fetched
+     */
+    private long bitcoinTipHeight() {
+        long now = System.currentTimeMillis();
+        if (tipHeight > 0 && now - tipFetchedAt < TIP_CACHE_MS) {
+            return tipHeight;
+        }
+        try {
+            long height = makeApiCall(BLOCKCHAIN_INFO_API + "/latestblock", null).getLong("height");
+            tipHeight = height;
+            tipFetchedAt = now;
+            return height;
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error fetching Ethereum wallet info: " + e.getMessage(), e);
+            LOGGER.warning("Could not fetch Bitcoin chain tip: " + e.getMessage());
+            return tipHeight;
+        }
+    }
+
+    private static String bitcoinPageUrl(String address, long offset) {
+        return BLOCKCHAIN_INFO_API + "/rawaddr/" + address + "?limit=" + SYNC_PAGE_SIZE + "&offset=" + offset;
+    }
+
+    /**
+     * Fetch Ethereum transactions from the high-water block onwards in ascending
+     * order. The mark block itself is re-read and duplicates are dropped by the log.
+     *
+     * @return Transactions seen but not logged (pending ones), newest first
+     */
+    private List<Transaction> syncEthereumTransactions(String address) throws IOException {
+        String key = ethereumKey(address);
+        synchronized (syncLocks.computeIfAbsent(key, k -> new Object())) {
+            TransactionLog log = TransactionLog.getInstance();
+            TransactionLog.SyncMark mark = log.getMark(key);
+            int maxPages = log.isAvailable() ? MAX_SYNC_PAGES : 1;
+            String sort = log.isAvailable() ? "asc" : "desc";
             
-            // Attempt to get minimal price data from CoinMarketCap as a fallback
-            try {
-                // Use CoinMarketCapService directly as a fallback
-                CoinMarketCapService cmcService = new CoinMarketCapService();
-                CoinPrice coinPrice = cmcService.getPrice("ETH");
+            List<Transaction> confirmed = new ArrayList<>(); // oldest first
+            List<Transaction> pending = new ArrayList<>();
+            
+            for (int page = 1; page <= maxPages; page++) {
+                String txUrl = String.format("%s?module=account&action=txlist&address=%s&startblock=%d&endblock=99999999&page=%d&offset=%d&sort=%s&apikey=%s",
+                        ETHERSCAN_API, address, mark.lastBlock(), page, SYNC_PAGE_SIZE, sort, etherscanApiKey);
+                JSONObject txResponse = makeApiCall(txUrl, null);
+                if (!txResponse.getString("status").equals("1")) {
+                    break; // status 0 also means "No transactions found"
+                }
                 
-                // Return minimal data with just price info
-                return new WalletInfo(0.0, new ArrayList<>(), coinPrice.currentPrice(), 
-                                     coinPrice.priceChangePercentage24h(), 0.0, 0.0);
-            } catch (Exception fallbackEx) {
-                LOGGER.log(Level.SEVERE, "Fallback to CoinMarketCap also failed: " + fallbackEx.getMessage(), fallbackEx);
-                throw new IOException("All API attempts failed and no real-time data is available for Ethereum");
+                JSONArray txs = txResponse.getJSONArray("result");
+                for (int i = 0; i < txs.length(); i++) {
+                    sortBySettlement(parseEthereumTransaction(txs.getJSONObject(i), address), confirmed, pending);
+                }
+                if (txs.length() < SYNC_PAGE_SIZE) {
+                    break;
+                }
             }
+            
+            if (!log.isAvailable()) {
+                pending.addAll(confirmed);
+                return pending;
+            }
+            java.util.Collections.reverse(pending);
+            if (!confirmed.isEmpty()) {
+                Transaction newest = confirmed.get(confirmed.size() - 1);
+                int added = log.append(key, confirmed, new TransactionLog.SyncMark(newest.getBlockHeight(), newest.getTxHash()));
+                LOGGER.info("Synced " + added + " new Ethereum transactions for " + address);
+            }
+            return pending;
+        }
+    }
+
+    /**
+     * Only settled transactions go into the log, so a pending one is fetched again
+     * on a later sync and logged once it has enough confirmations
+     */
+    private static void sortBySettlement(Transaction tx, List<Transaction> confirmed, List<Transaction> pending) {
+        if ("CONFIRMED".equals(tx.getStatus())) {
+            confirmed.add(tx);
+        } else if ("PENDING".equals(tx.getStatus())) {
+            pending.add(tx);
+        }
+    }
+
+    /**
+     * Newest transactions for a wallet: anything not yet logged followed by the log's first page
+     */
+    private List<Transaction> recentTransactions(String key, List<Transaction> unlogged) {
+        List<Transaction> recent = new ArrayList<>(unlogged);
+        try {
+            recent.addAll(TransactionLog.getInstance().read(key, 0, MAX_TRANSACTIONS));
+        } catch (IOException e) {
+            LOGGER.warning("Could not read transaction log for " + key + ": " + e.getMessage());
         }
+        return recent.size() > MAX_TRANSACTIONS ? recent.subList(0, MAX_TRANSACTIONS) : recent;
     }
 
-    private Transaction parseBitcoinTransaction(JSONObject tx, String walletAddress) {
+    /**
+     * @param tipHeight Current chain tip, used to count confirmations; 0 if unknown
+     */
+    private Transaction parseBitcoinTransaction(JSONObject tx, String walletAddress, long tipHeight) {
         try {
             JSONArray outputs = tx.getJSONArray("out");
             JSONObject firstOutput = outputs.getJSONObject(0);
@@ -251,6 +565,11 @@ public class BlockchainApiService {
                 }
             }
 
+            // Unconfirmed transactions have no block height
+            long blockHeight = tx.optLong("block_height", 0L);
+            long confirmations = tx.has("confirmations") ? tx.getLong("confirmations")
+                    : blockHeight > 0 && tipHeight >= blockHeight ? tipHeight - blockHeight + 1 : 0;
+
             return new Transaction(
                     isReceived ? "RECEIVE" : "SEND",
                     BigDecimal.valueOf(value)
@@ -260,7 +579,8 @@ public class BlockchainApiService {
                     tx.getString("hash"),
                     fromAddress,
                     firstOutput.getString("addr"),
-                    tx.has("confirmations") && tx.getInt("confirmations") > 6 ? "CONFIRMED" : "PENDING"
+                    confirmations > 6 ? "CONFIRMED" : "PENDING",
+                    blockHeight
             );
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error parsing Bitcoin transaction: " + e.getMessage(), e);
@@ -281,7 +601,8 @@ public class BlockchainApiService {
                     tx.getString("hash"),
                     tx.getString("from"),
                     tx.getString("to"),
-                    tx.has("confirmations") && tx.getInt("confirmations") > 12 ? "CONFIRMED" : "PENDING"
+                    tx.has("confirmations") && tx.getInt("confirmations") > 12 ? "CONFIRMED" : "PENDING",
+                    Long.parseLong(tx.optString("blockNumber", "0"))
             );
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error parsing Ethereum transaction: " + e.getMessage(), e);
@@ -294,17 +615,6 @@ public class BlockchainApiService {
         String endpoint = url.split("\\?")[0]; // Get the base URL without query parameters for logging
         LOGGER.info("Making API call to: " + endpoint);
         
-        // Check cache first
-        long currentTime = System.currentTimeMillis();
-        if (lastUpdateTime.containsKey(url)) {
-            long lastUpdate = lastUpdateTime.get(url);
-            if (currentTime - lastUpdate < CACHE_DURATION && responseCache.containsKey(url)) {
-                // Return cached response if it's still valid
-                LOGGER.info("Using cached response for: " + endpoint);
-                return new JSONObject(responseCache.get(url).toString()); // Deep copy to avoid mutation issues
-            }
-        }
-
         // Ensure we're using the correct Etherscan API key if needed
         String effectiveApiKey = apiKey;
         if (url.contains("etherscan.io") && (effectiveApiKey == null || effectiveApiKey.isEmpty())) {
@@ -368,10 +678,6 @@ public class BlockchainApiService {
                 // Log success without sensitive data
                 LOGGER.info("API call to " + endpoint + " successful");
 
-                // Cache successful response
-                lastUpdateTime.put(url, currentTime);
-                responseCache.put(url, jsonResponse);
-
                 return jsonResponse;
             } catch (IOException e) {
                 lastException = e;
@@ -406,17 +712,11 @@ public class BlockchainApiService {
             }
         }
 
-        // If we failed all retry attempts, try cached response
+        // If we failed all retry attempts, callers fall back to their parsed caches
         LOGGER.severe("API call failed for " + endpoint + " after " + maxRetries + " retries: " +
                 (lastException != null ? lastException.getMessage() : "Unknown error"));
 
-        // Check if we have a cached response we can use as fallback
-        if (responseCache.containsKey(url)) {
-            LOGGER.info("Using cached response as fallback for URL: " + endpoint);
-            return new JSONObject(responseCache.get(url).toString());
-        }
-        
-        // If no cached response and the endpoint is for blockchain.info, try an alternative endpoint
+        // If the endpoint is for blockchain.info, try an alternative endpoint
         if (url.contains("blockchain.info")) {
             try {
                 // Try alternative API (CoinGecko) for Bitcoin price data
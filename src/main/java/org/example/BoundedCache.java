@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread-safe LRU cache with a per-entry time to live.
+ *
+ * Values are handed out as-is, so callers should only store immutable objects.
+ * Expired entries are not removed on read; they stay available through
+ * {@link #getStale(Object)} as a fallback until the size bound evicts them.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class BoundedCache<K, V> {
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long storedAt;
+
+        Entry(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * @param name Cache name its hit ratio is exported under
+     * @param maxEntries Maximum number of entries kept; least recently used are evicted first
+     * @param ttlMillis How long an entry counts as fresh
+     */
+    public BoundedCache(String name, int maxEntries, long ttlMillis) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a value if it is present and still fresh
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null || System.currentTimeMillis() - entry.storedAt >= ttlMillis) {
+            AppMetrics.cacheGet(name, false);
+            return null;
+        }
+        AppMetrics.cacheGet(name, true);
+        return entry.value;
+    }
+
+    /**
+     * Get a value regardless of age, for use when the source is unavailable
+     */
+    public synchronized V getStale(K key) {
+        Entry<V> entry = map.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example;
+
+/**
+ * A spending budget stored under Users/{id}/Budget or Users/{id}/Budgets
+ *
+ * @param category Category the budget applies to, or null for an overall budget
+ * @param alertThreshold Percentage of the amount at which to alert
+ */
+public record Budget(String id, String category, double amount, int alertThreshold, double spent) {
+
+    /**
+     * Builder used by FirestoreDecoder to map a Firestore document onto a Budget
+     */
+    public static FirestoreDecoder.DocumentBuilder<Budget> builder() {
+        return new FirestoreDecoder.DocumentBuilder<>() {
+            private String category;
+            private double amount;
+            private int alertThreshold;
+            private double spent;
+
+            @Override
+            public void field(String field, Object value) {
+                switch (field) {
+                    case "category" -> category = FirestoreDecoder.asString(value);
+                    case "amount" -> amount = FirestoreDecoder.asDouble(value, 0);
+                    case "alertThreshold" -> alertThreshold = FirestoreDecoder.asInt(value, 0);
+                    case "spent" -> spent = FirestoreDecoder.asDouble(value, 0);
+                    default -> { }
+                }
+            }
+
+            @Override
+            public Budget build(String documentId) {
+                return new Budget(documentId, category, amount, alertThreshold, spent);
+            }
+        };
+    }
+}
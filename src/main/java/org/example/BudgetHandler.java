@@ -4,6 +4,8 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -17,23 +19,17 @@ import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 public class BudgetHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BudgetHandler.class);
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("BudgetHandler invoked: " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println("401 - Missing idToken/localId in cookies");
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        LOGGER.debug("BudgetHandler invoked: {} {}", exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
         
         if (idToken == null || localId == null) {
-            System.out.println("401 - null tokens");
+            LOGGER.debug("401 - null tokens");
             exchange.sendResponseHeaders(401, -1);
             return;
         }
@@ -117,18 +113,6 @@ public class BudgetHandler implements HttpHandler {
         }
     }
     
-    // Helper method to extract cookie value
-    private String extractCookieValue(String cookies, String name) {
-        String[] parts = cookies.split(";");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring((name + "=").length());
-            }
-        }
-        return null;
-    }
-    
     // Budget Handlers
     private void getBudgets(HttpExchange exchange, String idToken, String localId) throws IOException {
         String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
@@ -138,7 +122,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
         
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
             BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
             StringBuilder response = new StringBuilder();
@@ -148,15 +132,16 @@ public class BudgetHandler implements HttpHandler {
             }
             in.close();
             
+            String merged = WriteAheadLog.getInstance().mergePending(localId, "Budgets", response.toString());
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-            byte[] responseBytes = response.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] responseBytes = merged.getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, responseBytes.length);
             OutputStream os = exchange.getResponseBody();
             os.write(responseBytes);
             os.close();
         } else if (responseCode == 404) {
-            // No budgets collection exists yet, return empty list
-            String emptyResponse = "{\"documents\":[]}";
+            // No budgets collection exists yet, return empty list plus anything still pending
+            String emptyResponse = WriteAheadLog.getInstance().mergePending(localId, "Budgets", "{\"documents\":[]}");
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
             exchange.sendResponseHeaders(200, emptyResponse.length());
             OutputStream os = exchange.getResponseBody();
@@ -175,7 +160,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
         
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
             BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
             StringBuilder response = new StringBuilder();
@@ -197,15 +182,7 @@ public class BudgetHandler implements HttpHandler {
     }
     
     private void createBudget(HttpExchange exchange, String idToken, String localId) throws IOException {
-        InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-        BufferedReader br = new BufferedReader(isr);
-        StringBuilder requestBody = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) {
-            requestBody.append(line);
-        }
-        
-        JSONObject budgetData = new JSONObject(requestBody.toString());
+        JSONObject budgetData = RequestContext.of(exchange).json();
         String budgetId = UUID.randomUUID().toString();
         
         // Required fields check
@@ -214,62 +191,51 @@ public class BudgetHandler implements HttpHandler {
             return;
         }
         
-        // Transform JSON into Firestore format
-        JSONObject firestoreData = new JSONObject();
-        JSONObject fields = new JSONObject();
-        
-        // Amount field
-        JSONObject amountField = new JSONObject();
-        amountField.put("doubleValue", budgetData.getDouble("amount"));
-        fields.put("amount", amountField);
-        
-        // Start date field (convert to timestamp)
-        JSONObject startDateField = new JSONObject();
+        // Start date arrives as a plain date and is stored as a timestamp
         String startDate = budgetData.getString("startDate");
         LocalDate parsedDate = LocalDate.parse(startDate);
         Instant startDateInstant = parsedDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        startDateField.put("timestampValue", startDateInstant.toString());
-        fields.put("startDate", startDateField);
         
-        // Alert threshold field
-        JSONObject alertThresholdField = new JSONObject();
-        alertThresholdField.put("integerValue", budgetData.getInt("alertThreshold"));
-        fields.put("alertThreshold", alertThresholdField);
-        
-        // Notes field (optional)
+        // Create the Firestore document
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .number("amount", budgetData.getDouble("amount"))
+                .timestamp("startDate", startDateInstant)
+                .integer("alertThreshold", budgetData.getInt("alertThreshold"));
         if (budgetData.has("notes") && !budgetData.isNull("notes")) {
-            JSONObject notesField = new JSONObject();
-            notesField.put("stringValue", budgetData.getString("notes"));
-            fields.put("notes", notesField);
+            document.string("notes", budgetData.getString("notes"));
+        }
+        document.number("spent", 0.0)
+                .timestamp("created", Instant.now());
+        
+        // Acknowledge once durable locally; the write-ahead log delivers it to Firestore
+        WriteAheadLog wal = WriteAheadLog.getInstance();
+        if (wal.isEnabled()) {
+            try {
+                wal.set(idToken, localId, "Budgets", budgetId, document);
+                createBudgetAlert(idToken, localId, budgetId, budgetData.getDouble("amount"), 
+                        budgetData.getInt("alertThreshold"));
+                String successResponse = "{\"status\":\"success\",\"id\":\"" + budgetId + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, successResponse.length());
+                OutputStream respOs = exchange.getResponseBody();
+                respOs.write(successResponse.getBytes(StandardCharsets.UTF_8));
+                respOs.close();
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Write-ahead log unavailable, writing budget directly: {}", e.getMessage());
+            }
         }
         
-        // Spent field (default: 0)
-        JSONObject spentField = new JSONObject();
-        spentField.put("doubleValue", 0.0);
-        fields.put("spent", spentField);
-        
-        // Created timestamp field
-        JSONObject createdField = new JSONObject();
-        createdField.put("timestampValue", Instant.now().toString());
-        fields.put("created", createdField);
-        
-        firestoreData.put("fields", fields);
-        
         // Save to Firestore
         String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
                 + localId + "/Budgets/" + budgetId;
         URL url = new URL(firestoreUrl);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
         conn.setRequestMethod("PUT");  // Use PUT with a specific document ID
-        conn.setRequestProperty("Content-Type", "application/json");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setDoOutput(true);
+        document.writeTo(conn);
         
-        OutputStream os = conn.getOutputStream();
-        os.write(firestoreData.toString().getBytes(StandardCharsets.UTF_8));
-        os.close();
-        
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
             // Create a budget alert
             createBudgetAlert(idToken, localId, budgetId, budgetData.getDouble("amount"), 
@@ -289,30 +255,19 @@ public class BudgetHandler implements HttpHandler {
                 InputStreamReader isrError = new InputStreamReader(errorStream, StandardCharsets.UTF_8);
                 BufferedReader errorReader = new BufferedReader(isrError);
                 StringBuilder errorResponse = new StringBuilder();
+                String line;
                 while ((line = errorReader.readLine()) != null) {
                     errorResponse.append(line);
                 }
                 errorReader.close();
-                System.out.println("Firestore error: " + errorResponse.toString());
+                LOGGER.warn("Firestore error: {}", errorResponse.toString());
             }
             exchange.sendResponseHeaders(responseCode, -1);
         }
     }
     
     private void updateBudget(HttpExchange exchange, String idToken, String localId, String budgetId) throws IOException {
-        InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-        BufferedReader br = new BufferedReader(isr);
-        StringBuilder requestBody = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) {
-            requestBody.append(line);
-        }
-        
-        JSONObject budgetData = new JSONObject(requestBody.toString());
-        
-        // Transform JSON into Firestore format
-        JSONObject firestoreData = new JSONObject();
-        JSONObject fields = new JSONObject();
+        JSONObject budgetData = RequestContext.of(exchange).json();
         
         // Required fields check
         if (!budgetData.has("amount") || !budgetData.has("startDate") || !budgetData.has("alertThreshold")) {
@@ -320,60 +275,25 @@ public class BudgetHandler implements HttpHandler {
             return;
         }
         
-        // Amount field
-        JSONObject amountField = new JSONObject();
-        amountField.put("doubleValue", budgetData.getDouble("amount"));
-        fields.put("amount", amountField);
-        
-        // Start date field (convert to timestamp)
-        JSONObject startDateField = new JSONObject();
+        // Start date arrives as a plain date and is stored as a timestamp
         String startDate = budgetData.getString("startDate");
         LocalDate parsedDate = LocalDate.parse(startDate);
         Instant startDateInstant = parsedDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        startDateField.put("timestampValue", startDateInstant.toString());
-        fields.put("startDate", startDateField);
-        
-        // Alert threshold field
-        JSONObject alertThresholdField = new JSONObject();
-        alertThresholdField.put("integerValue", budgetData.getInt("alertThreshold"));
-        fields.put("alertThreshold", alertThresholdField);
         
-        // Notes field (optional)
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .number("amount", budgetData.getDouble("amount"))
+                .timestamp("startDate", startDateInstant)
+                .integer("alertThreshold", budgetData.getInt("alertThreshold"));
         if (budgetData.has("notes") && !budgetData.isNull("notes")) {
-            JSONObject notesField = new JSONObject();
-            notesField.put("stringValue", budgetData.getString("notes"));
-            fields.put("notes", notesField);
+            document.string("notes", budgetData.getString("notes"));
         }
-        
-        // Spent field (if provided)
         if (budgetData.has("spent") && !budgetData.isNull("spent")) {
-            JSONObject spentField = new JSONObject();
-            spentField.put("doubleValue", budgetData.getDouble("spent"));
-            fields.put("spent", spentField);
+            document.number("spent", budgetData.getDouble("spent"));
         }
+        document.timestamp("updated", Instant.now());
         
-        // Updated timestamp field
-        JSONObject updatedField = new JSONObject();
-        updatedField.put("timestampValue", Instant.now().toString());
-        fields.put("updated", updatedField);
-        
-        firestoreData.put("fields", fields);
-        
-        // Save to Firestore
-        String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
-                + localId + "/Budgets/" + budgetId;
-        URL url = new URL(firestoreUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("PATCH");  // Use PATCH to update
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setDoOutput(true);
-        
-        OutputStream os = conn.getOutputStream();
-        os.write(firestoreData.toString().getBytes(StandardCharsets.UTF_8));
-        os.close();
-        
-        int responseCode = conn.getResponseCode();
+        // Update in Firestore; the update mask keeps spent, created and anything else not sent here
+        int responseCode = FirestoreWrites.update("Users/" + localId + "/Budgets/" + budgetId, document, idToken);
         if (responseCode == 200) {
             // Update the budget alert
             updateBudgetAlert(idToken, localId, budgetId, budgetData.getDouble("amount"), 
@@ -400,7 +320,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("DELETE");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
         
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
             // Delete any associated alerts
             deleteAlertsForBudget(idToken, localId, budgetId);
@@ -427,7 +347,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
         
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
             BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
             StringBuilder response = new StringBuilder();
@@ -464,7 +384,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
         
-        int responseCode = conn.getResponseCode();
+        int responseCode = AppMetrics.responseCode(conn);
         if (responseCode == 200) {
             BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
             StringBuilder response = new StringBuilder();
@@ -486,11 +406,7 @@ public class BudgetHandler implements HttpHandler {
     }
 
     private void createLimit(HttpExchange exchange, String idToken, String localId) throws IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) sb.append(line);
-        JSONObject limitData = new JSONObject(sb.toString());
+        JSONObject limitData = RequestContext.of(exchange).json();
 
         if (!limitData.has("category") || !limitData.has("amount") || !limitData.has("alertThreshold")) {
             exchange.sendResponseHeaders(400, -1);
@@ -498,34 +414,20 @@ public class BudgetHandler implements HttpHandler {
         }
 
         String limitId = UUID.randomUUID().toString();
-        JSONObject firestoreData = new JSONObject();
-        JSONObject fields = new JSONObject();
-
-        JSONObject catField = new JSONObject();
-        catField.put("stringValue", limitData.getString("category"));
-        fields.put("category", catField);
-
-        JSONObject amountField = new JSONObject();
-        amountField.put("doubleValue", limitData.getDouble("amount"));
-        fields.put("amount", amountField);
-
-        JSONObject alertField = new JSONObject();
-        alertField.put("integerValue", limitData.getInt("alertThreshold"));
-        fields.put("alertThreshold", alertField);
-
-        fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-        firestoreData.put("fields", fields);
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .string("category", limitData.getString("category"))
+                .number("amount", limitData.getDouble("amount"))
+                .integer("alertThreshold", limitData.getInt("alertThreshold"))
+                .timestamp("created", Instant.now());
 
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/SpendingLimits/" + limitId;
         HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
         conn.setRequestMethod("PUT");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(firestoreData.toString().getBytes(StandardCharsets.UTF_8));
+        document.writeTo(conn);
 
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200) {
             createLimitAlert(idToken, localId, limitId,
                     limitData.getString("category"),
@@ -542,37 +444,22 @@ public class BudgetHandler implements HttpHandler {
     }
 
     private void updateLimit(HttpExchange exchange, String idToken, String localId, String limitId) throws IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) sb.append(line);
-        JSONObject limitData = new JSONObject(sb.toString());
-
-        JSONObject fields = new JSONObject();
+        JSONObject limitData = RequestContext.of(exchange).json();
 
+        // Only update the fields that are provided
+        FirestoreEncoder.Document document = FirestoreEncoder.document();
         if (limitData.has("category")) {
-            fields.put("category", new JSONObject().put("stringValue", limitData.getString("category")));
+            document.string("category", limitData.getString("category"));
         }
         if (limitData.has("amount")) {
-            fields.put("amount", new JSONObject().put("doubleValue", limitData.getDouble("amount")));
+            document.number("amount", limitData.getDouble("amount"));
         }
         if (limitData.has("alertThreshold")) {
-            fields.put("alertThreshold", new JSONObject().put("integerValue", limitData.getInt("alertThreshold")));
+            document.integer("alertThreshold", limitData.getInt("alertThreshold"));
         }
-        fields.put("updated", new JSONObject().put("timestampValue", Instant.now().toString()));
-
-        JSONObject firestoreData = new JSONObject().put("fields", fields);
+        document.timestamp("updated", Instant.now());
 
-        String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                + localId + "/SpendingLimits/" + limitId;
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("PATCH");
-        conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(firestoreData.toString().getBytes(StandardCharsets.UTF_8));
-
-        int code = conn.getResponseCode();
+        int code = FirestoreWrites.update("Users/" + localId + "/SpendingLimits/" + limitId, document, idToken);
         if (code == 200) {
             String response = "{\"status\":\"success\",\"id\":\"" + limitId + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -589,7 +476,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("DELETE");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
 
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200 || code == 204) {
             String success = "{\"status\":\"success\",\"message\":\"Limit deleted successfully\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -608,7 +495,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
 
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200) {
             BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
             StringBuilder response = new StringBuilder();
@@ -638,7 +525,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
 
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200) {
             BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
             StringBuilder response = new StringBuilder();
@@ -657,11 +544,7 @@ public class BudgetHandler implements HttpHandler {
 
 
     private void createPaycheck(HttpExchange exchange, String idToken, String localId) throws IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) sb.append(line);
-        JSONObject data = new JSONObject(sb.toString());
+        JSONObject data = RequestContext.of(exchange).json();
 
         if (!data.has("amount") || !data.has("date") || !data.has("employer")) {
             exchange.sendResponseHeaders(400, -1);
@@ -669,29 +552,23 @@ public class BudgetHandler implements HttpHandler {
         }
 
         String paycheckId = UUID.randomUUID().toString();
-        JSONObject fields = new JSONObject();
-
-        fields.put("amount", new JSONObject().put("doubleValue", data.getDouble("amount")));
-        fields.put("employer", new JSONObject().put("stringValue", data.getString("employer")));
-
         LocalDate parsedDate = LocalDate.parse(data.getString("date"));
         Instant dateInstant = parsedDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        fields.put("date", new JSONObject().put("timestampValue", dateInstant.toString()));
-
-        fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
 
-        JSONObject firestoreData = new JSONObject().put("fields", fields);
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .number("amount", data.getDouble("amount"))
+                .string("employer", data.getString("employer"))
+                .timestamp("date", dateInstant)
+                .timestamp("created", Instant.now());
 
         String url = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Paychecks/" + paycheckId;
         HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
         conn.setRequestMethod("PUT");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(firestoreData.toString().getBytes(StandardCharsets.UTF_8));
+        document.writeTo(conn);
 
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200) {
             String response = "{\"status\":\"success\",\"id\":\"" + paycheckId + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -704,39 +581,23 @@ public class BudgetHandler implements HttpHandler {
 
 
     private void updatePaycheck(HttpExchange exchange, String idToken, String localId, String paycheckId) throws IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) sb.append(line);
-        JSONObject data = new JSONObject(sb.toString());
-
-        JSONObject fields = new JSONObject();
+        JSONObject data = RequestContext.of(exchange).json();
 
+        // Only update the fields that are provided
+        FirestoreEncoder.Document document = FirestoreEncoder.document();
         if (data.has("amount")) {
-            fields.put("amount", new JSONObject().put("doubleValue", data.getDouble("amount")));
+            document.number("amount", data.getDouble("amount"));
         }
         if (data.has("employer")) {
-            fields.put("employer", new JSONObject().put("stringValue", data.getString("employer")));
+            document.string("employer", data.getString("employer"));
         }
         if (data.has("date")) {
             LocalDate parsedDate = LocalDate.parse(data.getString("date"));
-            Instant dateInstant = parsedDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
-            fields.put("date", new JSONObject().put("timestampValue", dateInstant.toString()));
+            document.timestamp("date", parsedDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
         }
-        fields.put("updated", new JSONObject().put("timestampValue", Instant.now().toString()));
-
-        JSONObject firestoreData = new JSONObject().put("fields", fields);
+        document.timestamp("updated", Instant.now());
 
-        String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                + localId + "/Paychecks/" + paycheckId;
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("PATCH");
-        conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(firestoreData.toString().getBytes(StandardCharsets.UTF_8));
-
-        int code = conn.getResponseCode();
+        int code = FirestoreWrites.update("Users/" + localId + "/Paychecks/" + paycheckId, document, idToken);
         if (code == 200) {
             String response = "{\"status\":\"success\",\"id\":\"" + paycheckId + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -755,7 +616,7 @@ public class BudgetHandler implements HttpHandler {
         conn.setRequestMethod("DELETE");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
 
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200 || code == 204) {
             String response = "{\"status\":\"success\",\"message\":\"Paycheck deleted successfully\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
@@ -768,72 +629,51 @@ public class BudgetHandler implements HttpHandler {
 
     private void createBudgetAlert(String idToken, String localId, String budgetId, double amount, int alertThreshold) throws IOException {
         String alertId = "budget_" + budgetId;
-        JSONObject fields = new JSONObject();
-
-        fields.put("type", new JSONObject().put("stringValue", "budget"));
-        fields.put("targetId", new JSONObject().put("stringValue", budgetId));
-        fields.put("threshold", new JSONObject().put("integerValue", alertThreshold));
-        fields.put("targetAmount", new JSONObject().put("doubleValue", amount));
-        fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-
-        JSONObject alertDoc = new JSONObject().put("fields", fields);
+        FirestoreEncoder.Document alertDoc = FirestoreEncoder.document()
+                .string("type", "budget")
+                .string("targetId", budgetId)
+                .integer("threshold", alertThreshold)
+                .number("targetAmount", amount)
+                .timestamp("created", Instant.now());
 
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Alerts/" + alertId;
         HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
         conn.setRequestMethod("PUT");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(alertDoc.toString().getBytes(StandardCharsets.UTF_8));
-        conn.getResponseCode(); // force execution, discard result
+        alertDoc.writeTo(conn);
+        AppMetrics.responseCode(conn); // force execution, discard result
     }
 
 
     private void updateBudgetAlert(String idToken, String localId, String budgetId, double amount, int alertThreshold) throws IOException {
         String alertId = "budget_" + budgetId;
-        JSONObject fields = new JSONObject();
+        FirestoreEncoder.Document alertPatch = FirestoreEncoder.document()
+                .integer("threshold", alertThreshold)
+                .number("targetAmount", amount)
+                .timestamp("updated", Instant.now());
 
-        fields.put("threshold", new JSONObject().put("integerValue", alertThreshold));
-        fields.put("targetAmount", new JSONObject().put("doubleValue", amount));
-        fields.put("updated", new JSONObject().put("timestampValue", Instant.now().toString()));
-
-        JSONObject alertPatch = new JSONObject().put("fields", fields);
-
-        String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                + localId + "/Alerts/" + alertId;
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("PATCH");
-        conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(alertPatch.toString().getBytes(StandardCharsets.UTF_8));
-        conn.getResponseCode();
+        FirestoreWrites.update("Users/" + localId + "/Alerts/" + alertId, alertPatch, idToken);
     }
 
 
     private void createLimitAlert(String idToken, String localId, String limitId, String category, double amount, int alertThreshold) throws IOException {
         String alertId = "limit_" + limitId;
-        JSONObject fields = new JSONObject();
-
-        fields.put("type", new JSONObject().put("stringValue", "limit"));
-        fields.put("targetId", new JSONObject().put("stringValue", limitId));
-        fields.put("category", new JSONObject().put("stringValue", category));
-        fields.put("threshold", new JSONObject().put("integerValue", alertThreshold));
-        fields.put("targetAmount", new JSONObject().put("doubleValue", amount));
-        fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-
-        JSONObject alertDoc = new JSONObject().put("fields", fields);
+        FirestoreEncoder.Document alertDoc = FirestoreEncoder.document()
+                .string("type", "limit")
+                .string("targetId", limitId)
+                .string("category", category)
+                .integer("threshold", alertThreshold)
+                .number("targetAmount", amount)
+                .timestamp("created", Instant.now());
 
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Alerts/" + alertId;
         HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
         conn.setRequestMethod("PUT");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(alertDoc.toString().getBytes(StandardCharsets.UTF_8));
-        conn.getResponseCode();
+        alertDoc.writeTo(conn);
+        AppMetrics.responseCode(conn);
     }
 
 
@@ -845,7 +685,7 @@ public class BudgetHandler implements HttpHandler {
         HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
         conn.setRequestMethod("DELETE");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.getResponseCode();
+        AppMetrics.responseCode(conn);
     }
 
 }
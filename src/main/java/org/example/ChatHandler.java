@@ -32,7 +32,7 @@ public class ChatHandler implements HttpHandler {
                     .POST(HttpRequest.BodyPublishers.ofString(requestBody))
                     .build();
             HttpClient client = HttpClient.newHttpClient();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = AppMetrics.send(client, request, HttpResponse.BodyHandlers.ofString());
             String responseBody = response.body();
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
             exchange.sendResponseHeaders(response.statusCode(), responseBody.getBytes(StandardCharsets.UTF_8).length);
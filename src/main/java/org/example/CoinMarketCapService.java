@@ -7,6 +7,12 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -29,6 +35,7 @@ public class CoinMarketCapService {
             .connectTimeout(10, TimeUnit.SECONDS)
             .readTimeout(30, TimeUnit.SECONDS)
             .writeTimeout(10, TimeUnit.SECONDS)
+            .addInterceptor(AppMetrics.okHttpInterceptor())
             .build();
 
         LOGGER.info("CoinMarketCapService initialized with API key: " + (apiKey != null ? apiKey.substring(0, 5) + "..." : "null"));
@@ -39,20 +46,49 @@ public class CoinMarketCapService {
             throw new IllegalArgumentException("Cryptocurrency symbol cannot be null or empty");
         }
         
+        String key = symbol.trim().toUpperCase();
+        CoinPrice price = getPrices(List.of(key)).get(key);
+        if (price == null) {
+            throw new IOException("Symbol '" + symbol + "' not found in API response");
+        }
+        return price;
+    }
+    
+    /**
+     * Fetch several symbols with a single quotes/latest call. Symbols missing from
+     * the response are left out of the returned map rather than failing the call.
+     *
+     * @param symbols The cryptocurrency symbols to fetch
+     * @return Map of upper-case symbol to its price
+     * @throws IOException if every attempt fails
+     */
+    public Map<String, CoinPrice> getPrices(Collection<String> symbols) throws IOException, IllegalArgumentException {
+        if (symbols == null || symbols.isEmpty()) {
+            throw new IllegalArgumentException("At least one cryptocurrency symbol is required");
+        }
+        
         if (apiKey == null || apiKey.isEmpty()) {
             String errorMsg = "CoinMarketCap API key is not configured";
             LOGGER.severe(errorMsg);
             throw new IOException(errorMsg);
         }
         
+        Set<String> keys = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.trim().isEmpty()) {
+                keys.add(symbol.trim().toUpperCase());
+            }
+        }
+        String joined = String.join(",", keys);
+        
         Exception lastException = null;
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
             try {
-                LOGGER.info("Attempting to fetch " + symbol + " price from CoinMarketCap (Attempt " + attempt + "/" + MAX_RETRIES + ")");
-                return fetchPriceFromApi(symbol);
+                LOGGER.info("Attempting to fetch " + joined + " price from CoinMarketCap (Attempt " + attempt + "/" + MAX_RETRIES + ")");
+                return fetchPricesFromApi(keys);
             } catch (Exception e) {
                 lastException = e;
-                LOGGER.warning("API attempt " + attempt + " failed for " + symbol + ": " + e.getMessage());
+                LOGGER.warning("API attempt " + attempt + " failed for " + joined + ": " + e.getMessage());
                 
                 if (attempt < MAX_RETRIES) {
                     try {
@@ -65,14 +101,14 @@ public class CoinMarketCapService {
             }
         }
         
-        String errorMsg = "All API attempts failed for " + symbol + ". Last error: " + 
+        String errorMsg = "All API attempts failed for " + joined + ". Last error: " + 
                      (lastException != null ? lastException.getMessage() : "Unknown error");
         LOGGER.severe(errorMsg);
         throw new IOException(errorMsg);
     }
     
-    private CoinPrice fetchPriceFromApi(String symbol) throws IOException, JSONException {
-        String url = String.format("%s?symbol=%s&convert=USD", API_URL, symbol.toUpperCase());
+    private Map<String, CoinPrice> fetchPricesFromApi(Set<String> symbols) throws IOException, JSONException {
+        String url = String.format("%s?symbol=%s&convert=USD", API_URL, String.join(",", symbols));
         LOGGER.info("Making API call to CoinMarketCap: " + url);
         
         String effectiveApiKey = this.apiKey;
@@ -153,34 +189,26 @@ public class CoinMarketCapService {
                 }
                 
                 JSONObject data = jsonObject.getJSONObject("data");
+                Map<String, CoinPrice> prices = new LinkedHashMap<>();
                 
-                if (!data.has(symbol.toUpperCase())) {
-                    LOGGER.severe("Missing symbol data for '" + symbol + "' in API response");
-                    throw new JSONException("Symbol '" + symbol + "' not found in API response");
-                }
-                
-                JSONObject symbolData = data.getJSONObject(symbol.toUpperCase());
-                
-                if (!symbolData.has("quote")) {
-                    LOGGER.severe("Missing 'quote' data for symbol: " + symbol);
-                    throw new JSONException("Missing 'quote' data for symbol: " + symbol);
-                }
-                
-                JSONObject quote = symbolData.getJSONObject("quote");
-                
-                if (!quote.has("USD")) {
-                    LOGGER.severe("Missing USD quote data for symbol: " + symbol);
-                    throw new JSONException("Missing USD quote data for symbol: " + symbol);
+                for (String symbol : symbols) {
+                    JSONObject symbolData = data.optJSONObject(symbol);
+                    JSONObject quote = symbolData != null ? symbolData.optJSONObject("quote") : null;
+                    JSONObject usd = quote != null ? quote.optJSONObject("USD") : null;
+                    
+                    if (usd == null) {
+                        LOGGER.warning("Missing USD quote data for symbol '" + symbol + "' in API response");
+                        continue;
+                    }
+                    
+                    double price = usd.getDouble("price");
+                    double change24h = usd.getDouble("percent_change_24h");
+                    
+                    LOGGER.info("Successfully retrieved " + symbol + " price: " + price + " (24h change: " + change24h + "%)");
+                    prices.put(symbol, new CoinPrice(price, change24h));
                 }
                 
-                JSONObject usd = quote.getJSONObject("USD");
-
-                double price = usd.getDouble("price");
-                double change24h = usd.getDouble("percent_change_24h");
-                
-                LOGGER.info("Successfully retrieved " + symbol + " price: " + price + " (24h change: " + change24h + "%)");
-                
-                return new CoinPrice(price, change24h);
+                return prices;
             } catch (JSONException e) {
                 LOGGER.severe("Error parsing CoinMarketCap JSON response: " + e.getMessage());
                 LOGGER.severe("Raw JSON: " + responseBody);
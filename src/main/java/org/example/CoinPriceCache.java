@@ -0,0 +1,274 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared cache of CoinMarketCap prices.
+ *
+ * Prices are kept per symbol for a short TTL. Misses are gathered into a single
+ * multi-symbol quotes/latest call, and symbols that have been read recently are
+ * refreshed in the background just before they expire so readers rarely wait on
+ * the API. Each symbol has at most one fetch in flight, which concurrent misses
+ * join. An expired price is served for a bounded time while it refreshes in the
+ * background, so a failing CoinMarketCap never holds up a reader that has one.
+ */
+public class CoinPriceCache {
+    private static final Logger LOGGER = Logger.getLogger(CoinPriceCache.class.getName());
+
+    // CMC updates quotes roughly once a minute, so fresher data buys nothing
+    private static final long TTL_MS = 60_000;
+    // Refresh hot symbols this long before they would expire
+    private static final long REFRESH_AHEAD_MS = 15_000;
+    // A symbol read within this window counts as hot
+    private static final long HOT_WINDOW_MS = 5 * 60_000;
+    // Oldest price we are willing to serve when the API is failing
+    private static final long MAX_STALE_MS = 30 * 60_000;
+    private static final long REFRESH_INTERVAL_SECONDS = 10;
+    // Longest a reader with no usable price waits on a fetch started by someone else
+    private static final long FETCH_WAIT_SECONDS = 30;
+
+    private static CoinPriceCache instance;
+
+    private final CoinMarketCapService cmcService;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    // One fetch per symbol at a time; concurrent misses join it
+    private final Map<String, CompletableFuture<CoinPrice>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refreshService;
+
+    /**
+     * Cached price with fetch and last-read times
+     */
+    private static class CacheEntry {
+        private final CoinPrice price;
+        private final long fetchedAt;
+        private volatile long lastAccess;
+
+        CacheEntry(CoinPrice price, long fetchedAt, long lastAccess) {
+            this.price = price;
+            this.fetchedAt = fetchedAt;
+            this.lastAccess = lastAccess;
+        }
+
+        boolean isFresh(long now) {
+            return now - fetchedAt < TTL_MS;
+        }
+
+        boolean isUsableWhenStale(long now) {
+            return now - fetchedAt < MAX_STALE_MS;
+        }
+    }
+
+    private CoinPriceCache() {
+        this.cmcService = new CoinMarketCapService();
+        this.refreshService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "coin-price-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refreshService.scheduleWithFixedDelay(this::refreshHotSymbols,
+                REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the singleton instance of CoinPriceCache
+     */
+    public static synchronized CoinPriceCache getInstance() {
+        if (instance == null) {
+            instance = new CoinPriceCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the price for a single symbol
+     *
+     * @param symbol The cryptocurrency symbol
+     * @return The cached or freshly fetched price
+     * @throws IOException if the price is unavailable and no usable stale price exists
+     */
+    public CoinPrice getPrice(String symbol) throws IOException {
+        if (symbol == null || symbol.trim().isEmpty()) {
+            throw new IllegalArgumentException("Cryptocurrency symbol cannot be null or empty");
+        }
+        String key = symbol.trim().toUpperCase();
+        CoinPrice price = getPrices(List.of(key)).get(key);
+        if (price == null) {
+            throw new IOException("No price available for " + key);
+        }
+        return price;
+    }
+
+    /**
+     * Get prices for several symbols. Missing symbols are fetched in a single
+     * call, joining any fetch already in flight for the same symbol. An expired
+     * price that is still usable is served straight away while it refreshes in
+     * the background, so only symbols with no usable price wait on the API.
+     *
+     * @param symbols The cryptocurrency symbols
+     * @return Map of upper-case symbol to price; symbols with no usable price are omitted
+     * @throws IOException if the fetch failed and none of the symbols had a usable stale price
+     */
+    public Map<String, CoinPrice> getPrices(Collection<String> symbols) throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, CoinPrice> result = new LinkedHashMap<>();
+        Set<String> expired = new LinkedHashSet<>();
+        Set<String> missing = new LinkedHashSet<>();
+
+        for (String symbol : symbols) {
+            String key = symbol.trim().toUpperCase();
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                entry.lastAccess = now;
+            }
+            boolean hit = entry != null && entry.isFresh(now);
+            AppMetrics.cacheGet("coin_price", hit);
+            if (hit) {
+                result.put(key, entry.price);
+            } else if (entry != null && entry.isUsableWhenStale(now)) {
+                result.put(key, entry.price);
+                expired.add(key);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            Map<String, CompletableFuture<CoinPrice>> owned = new LinkedHashMap<>();
+            claim(expired, owned);
+            if (!owned.isEmpty()) {
+                refreshService.execute(() -> fetch(owned));
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        // Nothing usable for these, so wait: run our own fetch on this thread and join the others
+        Map<String, CompletableFuture<CoinPrice>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<CoinPrice>> waiting = claim(missing, owned);
+        if (!owned.isEmpty()) {
+            fetch(owned);
+        }
+
+        IOException failure = null;
+        for (Map.Entry<String, CompletableFuture<CoinPrice>> e : waiting.entrySet()) {
+            try {
+                result.put(e.getKey(), e.getValue().get(FETCH_WAIT_SECONDS, TimeUnit.SECONDS));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                failure = new IOException("Interrupted waiting for " + e.getKey() + " price", ie);
+                break;
+            } catch (ExecutionException | TimeoutException ex) {
+                Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                failure = cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+            }
+        }
+
+        if (result.isEmpty() && failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * Find or start the in-flight fetch of each symbol
+     *
+     * @param owned Receives the futures this caller created and must complete with fetch
+     * @return Every symbol's future, owned or joined
+     */
+    private Map<String, CompletableFuture<CoinPrice>> claim(Collection<String> keys,
+                                                           Map<String, CompletableFuture<CoinPrice>> owned) {
+        Map<String, CompletableFuture<CoinPrice>> futures = new LinkedHashMap<>();
+        for (String key : keys) {
+            CompletableFuture<CoinPrice> created = new CompletableFuture<>();
+            CompletableFuture<CoinPrice> existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                owned.put(key, created);
+                futures.put(key, created);
+            } else {
+                futures.put(key, existing);
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Fetch a batch of claimed symbols in one call and complete their futures
+     */
+    private void fetch(Map<String, CompletableFuture<CoinPrice>> batch) {
+        try {
+            Map<String, CoinPrice> fetched = cmcService.getPrices(batch.keySet());
+            store(fetched, System.currentTimeMillis());
+            for (Map.Entry<String, CompletableFuture<CoinPrice>> e : batch.entrySet()) {
+                CoinPrice price = fetched.get(e.getKey());
+                if (price != null) {
+                    e.getValue().complete(price);
+                } else {
+                    e.getValue().completeExceptionally(new IOException("No price available for " + e.getKey()));
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Coin price fetch for " + batch.keySet() + " failed: " + e.getMessage(), e);
+            for (CompletableFuture<CoinPrice> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            batch.forEach(inFlight::remove);
+        }
+    }
+
+    private void store(Map<String, CoinPrice> prices, long fetchedAt) {
+        for (Map.Entry<String, CoinPrice> e : prices.entrySet()) {
+            CacheEntry previous = entries.get(e.getKey());
+            long lastAccess = previous != null ? previous.lastAccess : fetchedAt;
+            entries.put(e.getKey(), new CacheEntry(e.getValue(), fetchedAt, lastAccess));
+        }
+    }
+
+    /**
+     * Refresh recently read symbols that are close to expiring, in one batch,
+     * and drop entries nobody has read for a long time
+     */
+    private void refreshHotSymbols() {
+        try {
+            long now = System.currentTimeMillis();
+            List<String> due = new ArrayList<>();
+
+            for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+                CacheEntry entry = e.getValue();
+                boolean hot = now - entry.lastAccess < HOT_WINDOW_MS;
+                if (hot && now - entry.fetchedAt >= TTL_MS - REFRESH_AHEAD_MS) {
+                    due.add(e.getKey());
+                } else if (!hot && !entry.isUsableWhenStale(now)) {
+                    entries.remove(e.getKey());
+                }
+            }
+
+            Map<String, CompletableFuture<CoinPrice>> owned = new LinkedHashMap<>();
+            claim(due, owned);
+            if (owned.isEmpty()) {
+                return;
+            }
+            fetch(owned);
+            LOGGER.fine("Refreshed " + owned.size() + " hot coin prices");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Background coin price refresh failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses API responses with gzip or deflate, whichever the client prefers.
+ *
+ * Handlers size their responses up front with sendResponseHeaders(code, length),
+ * so the filter hands them a wrapped exchange: when a body of at least
+ * MIN_COMPRESS_BYTES with a text-like content type is announced, it switches
+ * the response to chunked transfer encoding and compresses whatever the
+ * handler writes on the fly. Small bodies, empty responses, HEAD requests and
+ * responses that already carry a Content-Encoding pass through untouched.
+ *
+ * Deflaters are expensive to create and hold native memory, so they are
+ * pooled and reset between responses.
+ */
+public class CompressionFilter extends Filter {
+    private static final int MIN_COMPRESS_BYTES = 1024;
+    private static final int MAX_POOLED_DEFLATERS = 32;
+    private static final int BUFFER_BYTES = 8 * 1024;
+
+    // gzip wraps raw deflate data in its own header and trailer; HTTP "deflate" is zlib
+    private static final Queue<Deflater> RAW_DEFLATERS = new ConcurrentLinkedQueue<>();
+    private static final Queue<Deflater> ZLIB_DEFLATERS = new ConcurrentLinkedQueue<>();
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String encoding = "HEAD".equalsIgnoreCase(exchange.getRequestMethod())
+                ? null : negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding == null) {
+            chain.doFilter(exchange);
+            return;
+        }
+
+        CompressingExchange wrapped = new CompressingExchange(exchange, encoding);
+        try {
+            chain.doFilter(wrapped);
+        } finally {
+            // Handlers that never closed their stream still need the trailer written
+            wrapped.finish();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "CompressionFilter gzips or deflates API responses";
+    }
+
+    /**
+     * Pick gzip or deflate from an Accept-Encoding header, preferring gzip on a tie
+     *
+     * @return "gzip", "deflate", or null to send the body as is
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        // -1 until a coding is named; "*" only covers codings the header leaves out
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, q);
+                case "deflate" -> deflate = Math.max(deflate, q);
+                case "*" -> any = Math.max(any, q);
+                default -> { }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? "gzip" : "deflate";
+    }
+
+    private static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            // Most handlers send JSON without declaring it
+            return true;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/") || type.contains("json") || type.contains("javascript") || type.contains("xml");
+    }
+
+    private static Deflater borrow(boolean gzip) {
+        Deflater deflater = (gzip ? RAW_DEFLATERS : ZLIB_DEFLATERS).poll();
+        return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+    }
+
+    private static void giveBack(Deflater deflater, boolean gzip) {
+        Queue<Deflater> pool = gzip ? RAW_DEFLATERS : ZLIB_DEFLATERS;
+        if (pool.size() < MAX_POOLED_DEFLATERS) {
+            deflater.reset();
+            pool.offer(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Deflates into the underlying stream, adding the gzip framing when asked.
+     * Returns its Deflater to the pool when closed.
+     */
+    private static class CompressingStream extends FilterOutputStream {
+        private final boolean gzip;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private Deflater deflater;
+
+        CompressingStream(OutputStream out, boolean gzip) throws IOException {
+            super(out);
+            this.gzip = gzip;
+            this.deflater = borrow(gzip);
+            if (gzip) {
+                out.write(GZIP_HEADER);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (deflater == null) {
+                throw new IOException("Stream closed");
+            }
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (deflater != null) {
+                drain(Deflater.SYNC_FLUSH);
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (deflater == null) {
+                return;
+            }
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                if (gzip) {
+                    writeIntLE((int) crc.getValue());
+                    writeIntLE((int) deflater.getBytesRead());
+                }
+            } finally {
+                giveBack(deflater, gzip);
+                deflater = null;
+                out.close();
+            }
+        }
+
+        private void drain(int flushMode) throws IOException {
+            int n;
+            do {
+                n = deflater.deflate(buffer, 0, buffer.length, flushMode);
+                if (n > 0) {
+                    out.write(buffer, 0, n);
+                }
+            } while (n == buffer.length);
+        }
+
+        private void writeIntLE(int v) throws IOException {
+            out.write(new byte[]{(byte) v, (byte) (v >> 8), (byte) (v >> 16), (byte) (v >> 24)});
+        }
+    }
+
+    /**
+     * Delegating exchange that decides at sendResponseHeaders time whether to compress
+     */
+    private static class CompressingExchange extends DelegatingExchange {
+        private final String encoding;
+        private CompressingStream compressed;
+
+        CompressingExchange(HttpExchange delegate, String encoding) {
+            super(delegate);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+            Headers headers = delegate.getResponseHeaders();
+            boolean hasBody = responseLength == 0 || responseLength >= MIN_COMPRESS_BYTES;
+            if (!hasBody || rCode == 204 || rCode == 304
+                    || headers.containsKey("Content-Encoding")
+                    || !isCompressible(headers.getFirst("Content-Type"))) {
+                delegate.sendResponseHeaders(rCode, responseLength);
+                return;
+            }
+            headers.set("Content-Encoding", encoding);
+            headers.add("Vary", "Accept-Encoding");
+            // Length 0 selects chunked transfer encoding
+            delegate.sendResponseHeaders(rCode, 0);
+            compressed = new CompressingStream(delegate.getResponseBody(), "gzip".equals(encoding));
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return compressed != null ? compressed : delegate.getResponseBody();
+        }
+
+        void finish() throws IOException {
+            if (compressed != null) {
+                compressed.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                finish();
+            } catch (IOException e) {
+                // The client went away; nothing left to do for this exchange
+            }
+            delegate.close();
+        }
+    }
+}
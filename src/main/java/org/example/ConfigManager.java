@@ -94,4 +94,40 @@ public class ConfigManager {
     public String getAlphaVantageApiKey() {
         return getApiKey("alphaVantageApiKey");
     }
+
+    /**
+     * Gets a boolean setting. A JVM system property of the same name
+     * (e.g. -DfirestoreLiveCache=true) takes precedence over the configuration file.
+     * 
+     * @param name The setting name
+     * @param defaultValue Value to use when the setting is absent
+     * @return The setting value
+     */
+    public boolean getFlag(String name, boolean defaultValue) {
+        String override = System.getProperty(name);
+        if (override != null) {
+            return Boolean.parseBoolean(override);
+        }
+        return config.optBoolean(name, defaultValue);
+    }
+
+    /**
+     * Gets a numeric setting. A system property of the same name takes
+     * precedence over the configuration file.
+     *
+     * @param name The setting name
+     * @param defaultValue Value to use when the setting is absent or not a number
+     * @return The setting value
+     */
+    public double getNumber(String name, double defaultValue) {
+        String override = System.getProperty(name);
+        if (override != null) {
+            try {
+                return Double.parseDouble(override);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return config.optDouble(name, defaultValue);
+    }
 }
@@ -6,78 +6,45 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import org.json.JSONObject;
 import org.json.JSONArray;
-import java.util.ArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.util.List;
 import java.util.Map;
 
 public class CryptoApiHandler implements HttpHandler {
-    // Keep in-memory wallet list for backward compatibility
-    private static final List<Wallet> wallets = new ArrayList<>();
-    
+    private static final Logger LOGGER = LoggerFactory.getLogger(CryptoApiHandler.class);
+
     // Services
     private final WalletService walletService;
-    private final FirestoreService firestoreService;
+    private final WalletRegistry walletRegistry;
     
     // Default user ID for testing when actual user ID is not available
     private static final String DEFAULT_USER_ID = "test_user";
     
     // Cookie name for user ID
     private static final String USER_ID_COOKIE = "userId";
+    
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
     public CryptoApiHandler() {
         this.walletService = new WalletService();
-        this.firestoreService = FirestoreService.getInstance();
-        
-        // Load any wallets from Firestore if available
-        loadWalletsFromFirestore();
+        this.walletRegistry = WalletRegistry.getInstance();
     }
     
     /**
      * Get the user ID from cookies or use default if not found
      */
     private String getUserId(HttpExchange exchange) {
-        // Get cookies from request headers
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        if (cookies != null) {
-            for (String cookie : cookies.split(";")) {
-                cookie = cookie.trim();
-                if (cookie.startsWith(USER_ID_COOKIE + "=")) {
-                    return cookie.substring(USER_ID_COOKIE.length() + 1);
-                }
-            }
+        String userId = RequestContext.of(exchange).cookie(USER_ID_COOKIE);
+        if (userId != null) {
+            return userId;
         }
         
         // Fall back to default user ID if not found
-        System.out.println("User ID not found in cookies, using default: " + DEFAULT_USER_ID);
+        LOGGER.debug("User ID not found in cookies, using default: {}", DEFAULT_USER_ID);
         return DEFAULT_USER_ID;
     }
     
-    /**
-     * Loads wallets from Firestore database if available
-     */
-    private void loadWalletsFromFirestore() {
-        if (firestoreService.isAvailable()) {
-            try {
-                // For initial loading we'll use the default user ID
-                List<Map<String, Object>> storedWallets = firestoreService.getUserWallets(DEFAULT_USER_ID);
-                
-                if (!storedWallets.isEmpty()) {
-                    // Clear in-memory wallets and reload from Firestore
-                    wallets.clear();
-                    
-                    for (Map<String, Object> walletData : storedWallets) {
-                        Wallet wallet = FirestoreService.mapToWallet(walletData);
-                        wallets.add(wallet);
-                    }
-                    System.out.println("Loaded " + storedWallets.size() + " wallets from Firestore");
-                }
-            } catch (Exception e) {
-                System.err.println("Error loading wallets from Firestore: " + e.getMessage());
-                // Continue with in-memory wallets
-            }
-        }
-    }
-
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -96,14 +63,18 @@ public class CryptoApiHandler implements HttpHandler {
 
             switch (method) {
                 case "GET":
-                    if (path.equals("/api/wallet") && query != null) {
+                    if (path.equals("/api/wallet/transactions")) {
+                        handleGetTransactionHistory(exchange);
+                    } else if (path.equals("/api/wallet") && query != null) {
                         handleGetWalletInfo(exchange);
                     } else {
                         handleGetWallets(exchange);
                     }
                     break;
                 case "POST":
-                    if (path.contains("/refresh")) {
+                    if (path.equals("/api/wallets/refresh")) {
+                        handleRefreshAllWallets(exchange);
+                    } else if (path.contains("/refresh")) {
                         handleRefreshWallet(exchange);
                     } else {
                         handleAddWallet(exchange);
@@ -113,7 +84,7 @@ public class CryptoApiHandler implements HttpHandler {
                     sendResponse(exchange, new JSONObject().put("error", "Method not allowed").toString(), 405);
             }
         } catch (Exception e) {
-            System.err.println("Error handling request: " + e.getMessage());
+            LOGGER.warn("Error handling request: {}", e.getMessage(), e);
             sendResponse(exchange, new JSONObject().put("error", e.getMessage()).toString(), 500);
         }
     }
@@ -124,31 +95,13 @@ public class CryptoApiHandler implements HttpHandler {
      */
     private void handleGetWalletInfo(HttpExchange exchange) throws IOException {
         // Declare variables at method scope so they're accessible in the catch block
-        String query = exchange.getRequestURI().getQuery();
-        String address = null;
-        String type = null;
+        RequestContext request = RequestContext.of(exchange);
+        String address = request.query("address");
+        String type = request.query("type");
         WalletInfo info = null;
         
         try {
-            System.out.println("Processing wallet info request: " + query);
-            
-            // Parse query parameters
-            if (query != null) {
-                String[] pairs = query.split("&");
-                for (String pair : pairs) {
-                    String[] keyValue = pair.split("=");
-                    if (keyValue.length == 2) {
-                        String key = keyValue[0];
-                        String value = java.net.URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
-                        
-                        if (key.equals("address")) {
-                            address = value;
-                        } else if (key.equals("type")) {
-                            type = value;
-                        }
-                    }
-                }
-            }
+            LOGGER.debug("Processing wallet info request: {}", exchange.getRequestURI().getQuery());
             
             if (type == null) {
                 sendResponse(exchange, new JSONObject()
@@ -160,7 +113,7 @@ public class CryptoApiHandler implements HttpHandler {
             try {
                 // If address is not provided, just get price info
                 if (address == null || address.isEmpty()) {
-                    System.out.println("Getting price info for: " + type);
+                    LOGGER.debug("Getting price info for: {}", type);
                     
                     // If only type is provided, get just the price information
                     // This is useful for market data display without a specific wallet
@@ -184,19 +137,17 @@ public class CryptoApiHandler implements HttpHandler {
                     response.put("marketCap", info.marketCap());
                     response.put("volume24h", info.volume24h());
                     
-                    System.out.println("Successfully generated price response for " + type + ": " + 
-                                    "Price=" + info.currentPrice() + ", Change=" + info.priceChange24h());
+                    LOGGER.debug("Successfully generated price response for {}: Price={}, Change={}", type, info.currentPrice(), info.priceChange24h());
                     
                     sendResponse(exchange, response.toString(), 200);
                     return;
                 }
                 
                 // If we have an address, get the full wallet info
-                System.out.println("Getting full wallet info for: " + address + " (" + type + ")");
+                LOGGER.debug("Getting full wallet info for: {} ({})", address, type);
                 info = walletService.getWalletInfo(address, type);
             } catch (Exception e) {
-                // Throw the error to be handled by the outer catch block
-                System.err.println("Error getting wallet info: " + e.getMessage());
+                // Throw the error to be handled, and logged, by the outer catch block
                 throw e;
             }
             
@@ -216,59 +167,84 @@ public class CryptoApiHandler implements HttpHandler {
             }
             response.put("transactions", txArray);
             
-            // Optionally, update the wallet in our in-memory list if it exists
-            for (Wallet wallet : wallets) {
-                if (wallet.getAddress().equals(address) && wallet.getCryptoType().equals(type)) {
-                    wallet.updateInfo(info);
-                    break;
-                }
+            // Update the user's stored wallet if they are tracking this address
+            String userId = getUserId(exchange);
+            Wallet tracked = walletRegistry.findByAddress(userId, address);
+            if (tracked != null && tracked.getCryptoType().equals(type)) {
+                walletRegistry.updateWallet(userId, tracked.getId(), info);
             }
             
-            System.out.println("Successfully generated wallet response for " + address + " (" + type + ")");
+            LOGGER.debug("Successfully generated wallet response for {} ({})", address, type);
             sendResponse(exchange, response.toString(), 200);
             
         } catch (Exception e) {
-            System.err.println("Critical error in handleGetWalletInfo: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error getting wallet info: {}", e.getMessage(), e);
             
             // Send an error response with the actual error message
             JSONObject errorResponse = new JSONObject();
             errorResponse.put("error", "Unable to fetch real-time data: " + e.getMessage());
             
-            System.out.println("Sending error response to client");
+            LOGGER.warn("Sending error response to client");
             sendResponse(exchange, errorResponse.toString(), 500);
         }
     }
     
-    private void handleGetWallets(HttpExchange exchange) throws IOException {
-        String userId = getUserId(exchange);
+    /**
+     * Handles paginated transaction history requests:
+     * GET /api/wallet/transactions?address=...&type=BTC|ETH&page=0&size=25
+     */
+    private void handleGetTransactionHistory(HttpExchange exchange) throws IOException {
+        RequestContext request = RequestContext.of(exchange);
+        String address = request.query("address");
+        String type = request.query("type");
+        if (address == null || type == null) {
+            sendResponse(exchange, new JSONObject()
+                .put("error", "Missing address or type parameter")
+                .toString(), 400);
+            return;
+        }
         
-        // Try to get wallets from Firestore for this specific user
-        if (firestoreService.isAvailable()) {
-            try {
-                List<Map<String, Object>> storedWallets = firestoreService.getUserWallets(userId);
-                
-                if (!storedWallets.isEmpty()) {
-                    JSONArray walletsArray = new JSONArray();
-                    
-                    for (Map<String, Object> walletData : storedWallets) {
-                        Wallet wallet = FirestoreService.mapToWallet(walletData);
-                        // Convert to JSON
-                        walletsArray.put(wallet.toJSON());
-                    }
-                    
-                    sendResponse(exchange, walletsArray.toString(), 200);
-                    return;
-                }
-            } catch (Exception e) {
-                System.err.println("Error getting wallets from Firestore: " + e.getMessage());
-                // Continue with in-memory wallets
+        int page;
+        int size;
+        try {
+            page = Math.max(0, Integer.parseInt(request.query("page", "0")));
+            size = Math.max(1, Math.min(MAX_HISTORY_PAGE_SIZE, Integer.parseInt(request.query("size", "25"))));
+        } catch (NumberFormatException e) {
+            sendResponse(exchange, new JSONObject()
+                .put("error", "Invalid page or size parameter")
+                .toString(), 400);
+            return;
+        }
+        
+        try {
+            JSONArray txArray = new JSONArray();
+            for (Transaction tx : walletService.getTransactionHistory(address, type, page, size)) {
+                txArray.put(tx.toJSON());
             }
+            
+            JSONObject response = new JSONObject();
+            response.put("address", address);
+            response.put("type", type);
+            response.put("page", page);
+            response.put("size", size);
+            response.put("total", walletService.getTransactionCount(address, type));
+            response.put("transactions", txArray);
+            sendResponse(exchange, response.toString(), 200);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, new JSONObject().put("error", e.getMessage()).toString(), 400);
+        } catch (Exception e) {
+            LOGGER.warn("Error getting transaction history: {}", e.getMessage(), e);
+            sendResponse(exchange, new JSONObject()
+                .put("error", "Failed to load transaction history: " + e.getMessage())
+                .toString(), 500);
         }
+    }
+    
+    private void handleGetWallets(HttpExchange exchange) throws IOException {
+        String userId = getUserId(exchange);
         
-        // Fall back to in-memory wallets if Firestore fails or is empty
         JSONArray walletsArray = new JSONArray();
-        for (Wallet wallet : wallets) {
+        for (Wallet wallet : walletRegistry.getWallets(userId)) {
             walletsArray.put(wallet.toJSON());
         }
         sendResponse(exchange, walletsArray.toString(), 200);
@@ -276,8 +252,7 @@ public class CryptoApiHandler implements HttpHandler {
 
     private void handleAddWallet(HttpExchange exchange) throws IOException {
         String userId = getUserId(exchange);
-        String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-        JSONObject json = new JSONObject(requestBody);
+        JSONObject json = RequestContext.of(exchange).json();
 
         Wallet wallet = new Wallet(
                 json.getString("label"),
@@ -290,26 +265,13 @@ public class CryptoApiHandler implements HttpHandler {
             WalletInfo info = walletService.getWalletInfo(wallet.getAddress(), wallet.getCryptoType());
             wallet.updateInfo(info);
             
-            // Add to in-memory list
-            wallets.add(wallet);
-            
-            // Save to Firestore with the user's actual ID
-            if (firestoreService.isAvailable()) {
-                // Generate a wallet document ID
-                if (wallet.getId() == null || wallet.getId().isEmpty()) {
-                    wallet.setId(java.util.UUID.randomUUID().toString());
-                }
-                
-                // Convert to map and save
-                Map<String, Object> walletData = FirestoreService.walletToMap(wallet);
-                boolean saveSuccess = firestoreService.saveWallet(userId, wallet.getId(), walletData);
-                System.out.println("Wallet saved to Firestore for user " + userId + ": " + wallet.getId() + ", success: " + saveSuccess);
-                System.out.println("Wallet data: " + walletData);
-            }
+            // Store for this user and write through to Firestore
+            walletRegistry.addWallet(userId, wallet);
+            LOGGER.debug("Wallet added for user {}: {}", userId, wallet.getId());
             
             sendResponse(exchange, wallet.toJSON().toString(), 200);
         } catch (Exception e) {
-            System.err.println("Error adding wallet: " + e.getMessage());
+            LOGGER.warn("Error adding wallet: {}", e.getMessage(), e);
             sendResponse(exchange, new JSONObject()
                 .put("error", "Failed to add wallet: " + e.getMessage())
                 .toString(), 500);
@@ -321,31 +283,54 @@ public class CryptoApiHandler implements HttpHandler {
         String address = exchange.getRequestURI().getPath().split("/")[3];
         
         try {
-            Wallet wallet = wallets.stream()
-                    .filter(w -> w.getAddress().equals(address))
-                    .findFirst()
-                    .orElseThrow(() -> new IOException("Wallet not found"));
+            Wallet wallet = walletRegistry.findByAddress(userId, address);
+            if (wallet == null) {
+                throw new IOException("Wallet not found");
+            }
     
             // Get updated info from blockchain API
             WalletInfo info = walletService.getWalletInfo(wallet.getAddress(), wallet.getCryptoType());
-            wallet.updateInfo(info);
-            
-            // Also update in Firestore if available
-            if (firestoreService.isAvailable()) {
-                Map<String, Object> walletData = FirestoreService.walletToMap(wallet);
-                firestoreService.saveWallet(userId, wallet.getId(), walletData);
-                System.out.println("Wallet updated in Firestore for user " + userId + ": " + wallet.getId());
+            Wallet updated = walletRegistry.updateWallet(userId, wallet.getId(), info);
+            if (updated == null) {
+                throw new IOException("Wallet not found");
             }
     
-            sendResponse(exchange, wallet.toJSON().toString(), 200);
+            sendResponse(exchange, updated.toJSON().toString(), 200);
         } catch (Exception e) {
-            System.err.println("Error refreshing wallet: " + e.getMessage());
+            LOGGER.warn("Error refreshing wallet: {}", e.getMessage(), e);
             sendResponse(exchange, new JSONObject()
                 .put("error", "Failed to refresh wallet: " + e.getMessage())
                 .toString(), 500);
         }
     }
 
+    /**
+     * Refreshes every wallet the user has in one bounded fan-out and saves the results
+     */
+    private void handleRefreshAllWallets(HttpExchange exchange) throws IOException {
+        String userId = getUserId(exchange);
+        
+        try {
+            List<Wallet> userWallets = walletRegistry.getWallets(userId);
+            Map<String, WalletInfo> infos = walletService.getWalletInfos(userWallets);
+            
+            JSONArray walletsArray = new JSONArray();
+            for (Wallet wallet : userWallets) {
+                WalletInfo info = infos.get(wallet.getAddress());
+                Wallet updated = info != null ? walletRegistry.updateWallet(userId, wallet.getId(), info) : null;
+                walletsArray.put((updated != null ? updated : wallet).toJSON());
+            }
+            
+            LOGGER.debug("Refreshed {} of {} wallets for user {}", infos.size(), userWallets.size(), userId);
+            sendResponse(exchange, walletsArray.toString(), 200);
+        } catch (Exception e) {
+            LOGGER.warn("Error refreshing wallets: {}", e.getMessage(), e);
+            sendResponse(exchange, new JSONObject()
+                .put("error", "Failed to refresh wallets: " + e.getMessage())
+                .toString(), 500);
+        }
+    }
+
     private void sendResponse(HttpExchange exchange, String response, int statusCode) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json");
         byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
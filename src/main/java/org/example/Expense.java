@@ -0,0 +1,74 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * An expense stored under Users/{id}/Expenses
+ *
+ * @param date Date as entered, yyyy-MM-dd or MM/dd/yyyy
+ * @param amount The expense's total
+ */
+public record Expense(String id, String date, String name, String category, double amount) {
+
+    /**
+     * Builder used by FirestoreDecoder to map a Firestore document onto an Expense.
+     * Expenses are saved with a "total" field; "amount" is accepted as well.
+     */
+    public static FirestoreDecoder.DocumentBuilder<Expense> builder() {
+        return new FirestoreDecoder.DocumentBuilder<>() {
+            private String date;
+            private String name;
+            private String category;
+            private double amount;
+
+            @Override
+            public void field(String field, Object value) {
+                switch (field) {
+                    case "date" -> date = FirestoreDecoder.asString(value);
+                    case "name" -> name = FirestoreDecoder.asString(value);
+                    case "category" -> category = FirestoreDecoder.asString(value);
+                    case "total", "amount" -> amount = FirestoreDecoder.asDouble(value, amount);
+                    default -> { }
+                }
+            }
+
+            @Override
+            public Expense build(String documentId) {
+                return new Expense(documentId, date, name, category, amount);
+            }
+        };
+    }
+
+    /**
+     * Encode for saving; the amount is stored as "total"
+     */
+    public FirestoreEncoder.Document toDocument() {
+        return FirestoreEncoder.document()
+                .string("date", date)
+                .string("name", name)
+                .string("category", category)
+                .number("total", amount);
+    }
+
+    /**
+     * Parse the expense date
+     *
+     * @return The date, or null if missing or unparseable
+     */
+    public LocalDate localDate() {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(date, DateTimeFormatter.ofPattern("MM/dd/yyyy"));
+            } catch (DateTimeParseException e2) {
+                return null;
+            }
+        }
+    }
+}
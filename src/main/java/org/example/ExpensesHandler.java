@@ -2,23 +2,22 @@ package org.example;
 
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ExpensesHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExpensesHandler.class);
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("ExpensesHandler invoked: " + exchange.getRequestMethod());
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        LOGGER.debug("ExpensesHandler invoked: {}", exchange.getRequestMethod());
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
         if (idToken == null || localId == null) {
             exchange.sendResponseHeaders(401, -1);
             return;
@@ -40,10 +39,11 @@ public class ExpensesHandler implements HttpHandler {
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Expenses";
         HttpURLConnection conn = openFirestoreConnection(urlStr, "GET", idToken);
-        int code = conn.getResponseCode();
-        System.out.println("Firestore GET response code: " + code);
+        int code = AppMetrics.responseCode(conn);
+        LOGGER.debug("Firestore GET response code: {}", code);
         if (code == 200) {
-            byte[] resp = readAll(conn.getInputStream()).getBytes(StandardCharsets.UTF_8);
+            String body = WriteAheadLog.getInstance().mergePending(localId, "Expenses", readAll(conn.getInputStream()));
+            byte[] resp = body.getBytes(StandardCharsets.UTF_8);
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
             exchange.sendResponseHeaders(200, resp.length);
             exchange.getResponseBody().write(resp);
@@ -53,34 +53,38 @@ public class ExpensesHandler implements HttpHandler {
     }
 
     private void handlePost(HttpExchange exchange, String idToken, String localId) throws IOException {
-        String body = readAll(exchange.getRequestBody());
-        String date = getJsonValue(body, "date");
-        String name = getJsonValue(body, "name");
-        String category = getJsonValue(body, "category");
-        String totalStr = getJsonValue(body, "total");
-        double total;
-        try {
-            total = Double.parseDouble(totalStr);
-        } catch (Exception e) {
+        RequestContext request = RequestContext.of(exchange);
+        String date = request.string("date");
+        String name = request.string("name");
+        String category = request.string("category");
+        double total = request.number("total", Double.NaN);
+        if (Double.isNaN(total)) {
             exchange.sendResponseHeaders(400, -1);
             return;
         }
-        String json = "{\"fields\":{"
-                + "\"date\":{\"stringValue\":\"" + date + "\"},"
-                + "\"name\":{\"stringValue\":\"" + name + "\"},"
-                + "\"category\":{\"stringValue\":\"" + category + "\"},"
-                + "\"total\":{\"doubleValue\":" + total + "}"
-                + "}}";
+        FirestoreEncoder.Document document = new Expense(null, date, name, category, total).toDocument();
+
+        // Acknowledge once durable locally; the write-ahead log delivers it to Firestore
+        WriteAheadLog wal = WriteAheadLog.getInstance();
+        if (wal.isEnabled()) {
+            try {
+                wal.set(idToken, localId, "Expenses", WriteAheadLog.newDocumentId(), document);
+                byte[] msg = "Expense added successfully.".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, msg.length);
+                exchange.getResponseBody().write(msg);
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Write-ahead log unavailable, writing expense directly: {}", e.getMessage());
+            }
+        }
 
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Expenses";
         HttpURLConnection conn = openFirestoreConnection(urlStr, "POST", idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+        document.writeTo(conn);
 
-        int code = conn.getResponseCode();
-        System.out.println("Firestore POST response code: " + code);
+        int code = AppMetrics.responseCode(conn);
+        LOGGER.debug("Firestore POST response code: {}", code);
         if (code == 200 || code == 201) {
             byte[] msg = "Expense added successfully.".getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, msg.length);
@@ -92,27 +96,28 @@ public class ExpensesHandler implements HttpHandler {
     }
 
     private void handleDelete(HttpExchange exchange, String idToken, String localId) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        String docId = null;
-        if (query != null) {
-            for (String param : query.split("&")) {
-                if (param.startsWith("docId=")) {
-                    docId = URLDecoder.decode(param.substring(6), "UTF-8");
-                    break;
-                }
-            }
-        }
+        String docId = RequestContext.of(exchange).query("docId");
         if (docId == null || docId.isEmpty()) {
-            System.out.println("DELETE missing docId parameter");
+            LOGGER.debug("DELETE missing docId parameter");
             exchange.sendResponseHeaders(400, -1);
             return;
         }
+        WriteAheadLog wal = WriteAheadLog.getInstance();
+        if (wal.isEnabled()) {
+            try {
+                wal.delete(idToken, localId, "Expenses", docId);
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Write-ahead log unavailable, deleting expense directly: {}", e.getMessage());
+            }
+        }
         String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Expenses/" + docId;
-        System.out.println("Firestore DELETE URL: " + urlStr);
+        LOGGER.debug("Firestore DELETE URL: {}", urlStr);
         HttpURLConnection conn = openFirestoreConnection(urlStr, "DELETE", idToken);
-        int code = conn.getResponseCode();
-        System.out.println("Firestore DELETE response code: " + code);
+        int code = AppMetrics.responseCode(conn);
+        LOGGER.debug("Firestore DELETE response code: {}", code);
         if (code == 200 || code == 204) {
             exchange.sendResponseHeaders(200, -1);
         } else {
@@ -140,27 +145,7 @@ public class ExpensesHandler implements HttpHandler {
     private void logError(HttpURLConnection conn) throws IOException {
         InputStream err = conn.getErrorStream();
         if (err != null) {
-            System.out.println("Firestore error: " + readAll(err));
-        }
-    }
-
-    private static String extractCookieValue(String cookies, String name) {
-        for (String part : cookies.split(";")) {
-            String t = part.trim();
-            if (t.startsWith(name + "=")) {
-                return t.substring(name.length() + 1);
-            }
-        }
-        return null;
-    }
-
-    private static String getJsonValue(String json, String key) {
-        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*(?:\\\"([^\\\"]*)\\\"|([\\d.-]+))");
-        Matcher m = p.matcher(json);
-        if (m.find()) {
-            if (m.group(1) != null) return m.group(1);
-            if (m.group(2) != null) return m.group(2);
+            LOGGER.warn("Firestore error: {}", readAll(err));
         }
-        return "";
     }
 }
@@ -0,0 +1,231 @@
+package org.example;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verifies Firebase ID tokens locally, so a bad or expired token is rejected
+ * before any request reaches Firestore.
+ *
+ * A token is accepted when its RS256 signature checks out against one of
+ * Google's securetoken signing certificates and its audience, issuer, subject
+ * and expiry match this project. The certificates are fetched once and then
+ * refreshed in the background as their Cache-Control max-age runs out.
+ * Verified tokens are remembered until they expire, so repeat requests with
+ * the same token cost a map lookup.
+ */
+public class FirebaseTokenVerifier {
+    private static final Logger LOGGER = Logger.getLogger(FirebaseTokenVerifier.class.getName());
+
+    private static final String PROJECT_ID = "cashclimb-d162c";
+    private static final String ISSUER = "https://securetoken.google.com/" + PROJECT_ID;
+    private static final String CERTS_URL =
+            "https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com";
+
+    private static final long CLOCK_SKEW_SECONDS = 60;
+    private static final int MAX_CACHED_TOKENS = 1000;
+
+    // Refresh this long before the certificates' max-age runs out
+    private static final long REFRESH_MARGIN_SECONDS = 300;
+    private static final long MIN_REFRESH_SECONDS = 60;
+    private static final long RETRY_SECONDS = 15;
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private static FirebaseTokenVerifier instance;
+
+    private volatile Map<String, PublicKey> signingKeys = Map.of();
+    private final ScheduledExecutorService refresher;
+    private ScheduledFuture<?> scheduledRefresh;
+    private volatile long lastRefreshAttempt;
+
+    // Access-ordered so the least recently used token is evicted first
+    private final Map<String, VerifiedToken> verified = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > MAX_CACHED_TOKENS;
+        }
+    };
+
+    /**
+     * The identity a valid token carries
+     *
+     * @param localId The user's Firebase UID
+     * @param expiresAt Token expiry, epoch seconds
+     */
+    public record VerifiedToken(String localId, long expiresAt) {
+    }
+
+    private FirebaseTokenVerifier() {
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "firebase-cert-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refreshKeys();
+    }
+
+    public static synchronized FirebaseTokenVerifier getInstance() {
+        if (instance == null) {
+            instance = new FirebaseTokenVerifier();
+        }
+        return instance;
+    }
+
+    /**
+     * Whether signing keys are loaded. Without them no token verifies, so
+     * callers must refuse the request rather than trust its localId.
+     */
+    public boolean isReady() {
+        return !signingKeys.isEmpty();
+    }
+
+    /**
+     * Verify an ID token
+     *
+     * @param idToken The token from the idToken cookie
+     * @return The token's identity, or null if it is malformed, forged or expired
+     */
+    public VerifiedToken verify(String idToken) {
+        if (idToken == null || idToken.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis() / 1000;
+
+        VerifiedToken cached;
+        synchronized (verified) {
+            cached = verified.get(idToken);
+        }
+        AppMetrics.cacheGet("verified_tokens", cached != null);
+        if (cached != null) {
+            if (cached.expiresAt() + CLOCK_SKEW_SECONDS > now) {
+                return cached;
+            }
+            synchronized (verified) {
+                verified.remove(idToken);
+            }
+            return null;
+        }
+
+        VerifiedToken token = verifyUncached(idToken, now);
+        if (token != null) {
+            synchronized (verified) {
+                verified.put(idToken, token);
+            }
+        }
+        return token;
+    }
+
+    private VerifiedToken verifyUncached(String idToken, long now) {
+        String[] parts = idToken.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            JSONObject header = new JSONObject(new String(decoder.decode(parts[0]), StandardCharsets.UTF_8));
+            JSONObject claims = new JSONObject(new String(decoder.decode(parts[1]), StandardCharsets.UTF_8));
+
+            if (!"RS256".equals(header.optString("alg"))) {
+                return null;
+            }
+            PublicKey key = signingKeys.get(header.optString("kid"));
+            if (key == null) {
+                // Google may have rotated keys since the last refresh; forged kids must not cause a fetch storm
+                if (System.currentTimeMillis() - lastRefreshAttempt > MIN_REFRESH_SECONDS * 1000) {
+                    lastRefreshAttempt = System.currentTimeMillis();
+                    refresher.execute(this::refreshKeys);
+                }
+                return null;
+            }
+
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(decoder.decode(parts[2]))) {
+                return null;
+            }
+
+            String subject = claims.optString("sub", "");
+            long expiresAt = claims.optLong("exp", 0);
+            long issuedAt = claims.optLong("iat", Long.MAX_VALUE);
+            if (!PROJECT_ID.equals(claims.optString("aud"))
+                    || !ISSUER.equals(claims.optString("iss"))
+                    || subject.isEmpty() || subject.length() > 128
+                    || expiresAt + CLOCK_SKEW_SECONDS <= now
+                    || issuedAt - CLOCK_SKEW_SECONDS > now) {
+                return null;
+            }
+            return new VerifiedToken(subject, expiresAt);
+        } catch (IllegalArgumentException | JSONException | GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Fetch the signing certificates and schedule the next refresh from their max-age
+     */
+    private synchronized void refreshKeys() {
+        lastRefreshAttempt = System.currentTimeMillis();
+        long nextRefresh = RETRY_SECONDS;
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(CERTS_URL).openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            int code = AppMetrics.responseCode(conn);
+            if (code != 200) {
+                throw new IOException("HTTP " + code);
+            }
+            String body;
+            try (InputStream in = conn.getInputStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            JSONObject certs = new JSONObject(body);
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map<String, PublicKey> keys = new HashMap<>();
+            for (String kid : certs.keySet()) {
+                X509Certificate cert = (X509Certificate) factory.generateCertificate(
+                        new ByteArrayInputStream(certs.getString(kid).getBytes(StandardCharsets.US_ASCII)));
+                keys.put(kid, cert.getPublicKey());
+            }
+            signingKeys = Map.copyOf(keys);
+
+            String cacheControl = conn.getHeaderField("Cache-Control");
+            Matcher m = cacheControl != null ? MAX_AGE.matcher(cacheControl) : null;
+            if (m != null && m.find()) {
+                nextRefresh = Math.max(MIN_REFRESH_SECONDS, Long.parseLong(m.group(1)) - REFRESH_MARGIN_SECONDS);
+            }
+            LOGGER.info("Loaded " + keys.size() + " Firebase signing keys, next refresh in " + nextRefresh + "s");
+        } catch (IOException | JSONException | GeneralSecurityException e) {
+            LOGGER.warning("Could not refresh Firebase signing keys: " + e.getMessage());
+        }
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        scheduledRefresh = refresher.schedule(this::refreshKeys, nextRefresh, TimeUnit.SECONDS);
+    }
+}
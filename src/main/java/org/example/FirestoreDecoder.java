@@ -0,0 +1,206 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Streaming decoder for Firestore REST documents.
+ *
+ * Reads a response with Jackson's JsonParser and hands each field of each
+ * document to a DocumentBuilder as a plain Java value, so typed records are
+ * built straight from the token stream without a JSONObject tree for the
+ * whole response. The JsonFactory is shared, which lets Jackson recycle its
+ * read buffers across calls on the same thread.
+ *
+ * Typed values decode as: stringValue, referenceValue and bytesValue to
+ * String; integerValue to Long; doubleValue to Double; booleanValue to
+ * Boolean; timestampValue to Instant; mapValue to Map; arrayValue to List;
+ * nullValue and geoPointValue to null.
+ */
+public final class FirestoreDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Builds one typed object from a document's fields
+     *
+     * @param <T> The record type
+     */
+    public interface DocumentBuilder<T> {
+        /**
+         * Called once per top-level field, in document order
+         */
+        void field(String name, Object value);
+
+        /**
+         * @param documentId Last segment of the document's name
+         * @return The finished object, or null to skip this document
+         */
+        T build(String documentId);
+    }
+
+    private FirestoreDecoder() {
+    }
+
+    /**
+     * Decode a collection listing, e.g. the body of GET .../Users/{id}/Bills
+     *
+     * @param in Response body; closed when done
+     * @param builders Supplies a fresh builder for each document
+     * @return The decoded documents in response order
+     */
+    public static <T> List<T> decodeList(InputStream in, Supplier<? extends DocumentBuilder<T>> builders) throws IOException {
+        List<T> results = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return results;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("documents".equals(name) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        T result = readDocument(parser, builders.get());
+                        if (result != null) {
+                            results.add(result);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Decode a single document, e.g. the body of GET .../Users/{id}/AccountInfo/cash
+     *
+     * @param in Response body; closed when done
+     * @param builder Receives the document's fields
+     * @return The decoded object, or null if the body was not a document
+     */
+    public static <T> T decodeDocument(InputStream in, DocumentBuilder<T> builder) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return readDocument(parser, builder);
+        }
+    }
+
+    /**
+     * Read a document object; the parser is positioned on its START_OBJECT
+     */
+    private static <T> T readDocument(JsonParser parser, DocumentBuilder<T> builder) throws IOException {
+        String documentId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("name".equals(name) && token == JsonToken.VALUE_STRING) {
+                String path = parser.getText();
+                documentId = path.substring(path.lastIndexOf('/') + 1);
+            } else if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    builder.field(field, readValue(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return builder.build(documentId);
+    }
+
+    /**
+     * Read one typed value object such as {"integerValue": "5"}; the parser is
+     * positioned on its START_OBJECT and is left on the matching END_OBJECT
+     */
+    private static Object readValue(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Object value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String type = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (type) {
+                case "stringValue", "referenceValue", "bytesValue" -> value = parser.getText();
+                case "integerValue" -> value = token == JsonToken.VALUE_STRING
+                        ? Long.parseLong(parser.getText()) : parser.getLongValue();
+                case "doubleValue" -> value = token == JsonToken.VALUE_STRING
+                        ? Double.parseDouble(parser.getText()) : parser.getDoubleValue();
+                case "booleanValue" -> value = parser.getBooleanValue();
+                case "timestampValue" -> value = Instant.parse(parser.getText());
+                case "mapValue" -> value = readMap(parser);
+                case "arrayValue" -> value = readArray(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    private static Map<String, Object> readMap(JsonParser parser) throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    map.put(field, readValue(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return map;
+    }
+
+    private static List<Object> readArray(JsonParser parser) throws IOException {
+        List<Object> list = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("values".equals(name) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    list.add(readValue(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Numeric field as a double, accepting both integerValue and doubleValue
+     */
+    public static double asDouble(Object value, double defaultValue) {
+        return value instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+
+    public static int asInt(Object value, int defaultValue) {
+        return value instanceof Number number ? number.intValue() : defaultValue;
+    }
+
+    public static String asString(Object value) {
+        return value instanceof String string ? string : null;
+    }
+
+    public static boolean asBoolean(Object value, boolean defaultValue) {
+        return value instanceof Boolean bool ? bool : defaultValue;
+    }
+}
@@ -0,0 +1,384 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoder for Firestore REST document bodies.
+ *
+ * A Document collects typed fields and writes them as {"fields": {...}} with
+ * Jackson's JsonGenerator, which escapes every string, into a per-thread
+ * buffer that is reused from one write to the next. The same field list also
+ * produces the updateMask and mask query parameters, so a PATCH only touches
+ * the fields it names. Server-side transforms (increment, server timestamp)
+ * cannot be expressed in a PATCH, so a document that has them is sent as a
+ * documents:commit write instead; FirestoreWrites picks the right call.
+ *
+ * Values encode as: String to stringValue; Integer and Long to integerValue;
+ * Float and Double to doubleValue; Boolean to booleanValue; Instant to
+ * timestampValue; Document and Map to mapValue; List to arrayValue; null to
+ * nullValue.
+ */
+public final class FirestoreEncoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Millisecond precision, the format the handlers have always written and parse back
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    // Buffers that grew past this are dropped rather than kept for the thread
+    private static final int MAX_POOLED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<PooledBuffer> BUFFERS = ThreadLocal.withInitial(PooledBuffer::new);
+
+    /**
+     * ByteArrayOutputStream that exposes its array so it can be written out
+     * without the copy toByteArray() makes
+     */
+    private static class PooledBuffer extends ByteArrayOutputStream {
+        PooledBuffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * Marks a field the server sets to the commit time
+     */
+    private static final Object SERVER_TIMESTAMP = new Object();
+
+    private interface BodyWriter {
+        void write(JsonGenerator gen) throws IOException;
+    }
+
+    private FirestoreEncoder() {
+    }
+
+    /**
+     * Start a new document body
+     */
+    public static Document document() {
+        return new Document();
+    }
+
+    /**
+     * Query string that limits a read to the given fields, e.g.
+     * "mask.fieldPaths=symbol&mask.fieldPaths=quantity"
+     */
+    public static String fieldMask(String... fieldPaths) {
+        return maskQuery("mask.fieldPaths", List.of(fieldPaths));
+    }
+
+    private static String maskQuery(String parameter, List<String> fieldPaths) {
+        StringBuilder query = new StringBuilder();
+        for (String path : fieldPaths) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(parameter).append('=').append(URLEncoder.encode(quoteFieldPath(path), StandardCharsets.UTF_8));
+        }
+        return query.toString();
+    }
+
+    /**
+     * Field names that are not simple identifiers must be backtick-quoted in a field path
+     */
+    private static String quoteFieldPath(String name) {
+        if (name.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            return name;
+        }
+        return "`" + name.replace("\\", "\\\\").replace("`", "\\`") + "`";
+    }
+
+    /**
+     * A document's fields, in the order they were added
+     */
+    public static final class Document {
+        private final List<String> names = new ArrayList<>(8);
+        private final List<Object> values = new ArrayList<>(8);
+        private final List<String> transformNames = new ArrayList<>(2);
+        private final List<Object> transformValues = new ArrayList<>(2);
+
+        private Document() {
+        }
+
+        public Document string(String name, String value) {
+            return put(name, value);
+        }
+
+        public Document integer(String name, long value) {
+            return put(name, value);
+        }
+
+        public Document number(String name, double value) {
+            return put(name, value);
+        }
+
+        public Document bool(String name, boolean value) {
+            return put(name, value);
+        }
+
+        public Document timestamp(String name, Instant value) {
+            return put(name, value);
+        }
+
+        public Document map(String name, Document value) {
+            return put(name, value);
+        }
+
+        public Document array(String name, List<?> value) {
+            return put(name, value);
+        }
+
+        /**
+         * Add delta to a numeric field on the server, starting from 0 if it is missing
+         */
+        public Document increment(String name, double delta) {
+            return transform(name, delta);
+        }
+
+        public Document increment(String name, long delta) {
+            return transform(name, delta);
+        }
+
+        /**
+         * Set a field to the time the server applies the write
+         */
+        public Document serverTimestamp(String name) {
+            return transform(name, SERVER_TIMESTAMP);
+        }
+
+        public boolean hasTransforms() {
+            return !transformNames.isEmpty();
+        }
+
+        private Document transform(String name, Object value) {
+            transformNames.add(name);
+            transformValues.add(value);
+            return this;
+        }
+
+        private Document put(String name, Object value) {
+            names.add(name);
+            values.add(value);
+            return this;
+        }
+
+        public List<String> fieldNames() {
+            return names;
+        }
+
+        /**
+         * Query string that makes a PATCH replace only this document's fields, e.g.
+         * "updateMask.fieldPaths=fullName&updateMask.fieldPaths=profileImage"
+         */
+        public String updateMask() {
+            return maskQuery("updateMask.fieldPaths", names);
+        }
+
+        /**
+         * The full request body, {"fields": {...}}
+         */
+        public byte[] toBytes() {
+            PooledBuffer buffer = encode(this::writeBody);
+            try {
+                return buffer.toByteArray();
+            } finally {
+                release(buffer);
+            }
+        }
+
+        /**
+         * Just the "fields" object, as stored by the write-ahead log
+         */
+        public String fieldsJson() {
+            PooledBuffer buffer = encode(gen -> writeFields(gen, this));
+            try {
+                return buffer.toString(StandardCharsets.UTF_8);
+            } finally {
+                release(buffer);
+            }
+        }
+
+        /**
+         * Send this document as the request body of a Firestore REST call
+         */
+        public void writeTo(HttpURLConnection conn) throws IOException {
+            send(conn, encode(this::writeBody));
+        }
+
+        /**
+         * Send this document as a single-write documents:commit body: an update
+         * masked to this document's fields, followed by its transforms
+         *
+         * @param documentName Full resource name, projects/.../documents/Users/...
+         * @param exists Precondition on the document existing, or null for none
+         */
+        public void writeCommitTo(HttpURLConnection conn, String documentName, Boolean exists) throws IOException {
+            send(conn, encode(gen -> writeCommit(gen, documentName, exists)));
+        }
+
+        @Override
+        public String toString() {
+            return new String(toBytes(), StandardCharsets.UTF_8);
+        }
+
+        private void writeBody(JsonGenerator gen) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName("fields");
+            writeFields(gen, this);
+            gen.writeEndObject();
+        }
+
+        private void writeCommit(JsonGenerator gen, String documentName, Boolean exists) throws IOException {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("writes");
+            gen.writeStartObject();
+
+            gen.writeObjectFieldStart("update");
+            gen.writeStringField("name", documentName);
+            gen.writeFieldName("fields");
+            writeFields(gen, this);
+            gen.writeEndObject();
+
+            gen.writeObjectFieldStart("updateMask");
+            gen.writeArrayFieldStart("fieldPaths");
+            for (String name : names) {
+                gen.writeString(quoteFieldPath(name));
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+
+            gen.writeArrayFieldStart("updateTransforms");
+            for (int i = 0; i < transformNames.size(); i++) {
+                gen.writeStartObject();
+                gen.writeStringField("fieldPath", quoteFieldPath(transformNames.get(i)));
+                Object value = transformValues.get(i);
+                if (value == SERVER_TIMESTAMP) {
+                    gen.writeStringField("setToServerValue", "REQUEST_TIME");
+                } else {
+                    gen.writeFieldName("increment");
+                    writeValue(gen, value);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+
+            if (exists != null) {
+                gen.writeObjectFieldStart("currentDocument");
+                gen.writeBooleanField("exists", exists);
+                gen.writeEndObject();
+            }
+
+            gen.writeEndObject();
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    private static PooledBuffer encode(BodyWriter body) {
+        PooledBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(buffer)) {
+            body.write(gen);
+        } catch (IOException e) {
+            // Only the in-memory buffer is written to
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+
+    private static void send(HttpURLConnection conn, PooledBuffer buffer) throws IOException {
+        try {
+            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(buffer.size());
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(buffer.array(), 0, buffer.size());
+            }
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private static void release(PooledBuffer buffer) {
+        if (buffer.array().length > MAX_POOLED_BUFFER) {
+            BUFFERS.remove();
+        }
+    }
+
+    private static void writeFields(JsonGenerator gen, Document doc) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < doc.names.size(); i++) {
+            gen.writeFieldName(doc.names.get(i));
+            writeValue(gen, doc.values.get(i));
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        gen.writeStartObject();
+        if (value == null) {
+            gen.writeNullField("nullValue");
+        } else if (value instanceof String s) {
+            gen.writeStringField("stringValue", s);
+        } else if (value instanceof Integer || value instanceof Long) {
+            // int64 travels as a string in the REST API
+            gen.writeStringField("integerValue", value.toString());
+        } else if (value instanceof Float || value instanceof Double) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                gen.writeStringField("doubleValue", Double.isNaN(d) ? "NaN" : d > 0 ? "Infinity" : "-Infinity");
+            } else {
+                gen.writeNumberField("doubleValue", d);
+            }
+        } else if (value instanceof Boolean b) {
+            gen.writeBooleanField("booleanValue", b);
+        } else if (value instanceof Instant instant) {
+            gen.writeStringField("timestampValue", TIMESTAMP_FORMAT.format(instant));
+        } else if (value instanceof Document doc) {
+            gen.writeFieldName("mapValue");
+            gen.writeStartObject();
+            gen.writeFieldName("fields");
+            writeFields(gen, doc);
+            gen.writeEndObject();
+        } else if (value instanceof Map<?, ?> map) {
+            Document doc = new Document();
+            map.forEach((k, v) -> doc.put(String.valueOf(k), v));
+            gen.writeFieldName("mapValue");
+            gen.writeStartObject();
+            gen.writeFieldName("fields");
+            writeFields(gen, doc);
+            gen.writeEndObject();
+        } else if (value instanceof List<?> list) {
+            gen.writeFieldName("arrayValue");
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("values");
+            for (Object item : list) {
+                writeValue(gen, item);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } else {
+            gen.writeStringField("stringValue", value.toString());
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for turning the Firestore SDK's ApiFutures into CompletableFutures.
+ *
+ * The adapter registers a callback instead of parking a thread in get(), and
+ * links the two futures both ways: when the ApiFuture settles the
+ * CompletableFuture completes, and when the CompletableFuture is cancelled or
+ * times out first the underlying RPC is cancelled too.
+ */
+public final class FirestoreFutures {
+
+    private FirestoreFutures() {
+    }
+
+    /**
+     * Adapt an ApiFuture without blocking on it
+     *
+     * @param apiFuture The SDK future
+     * @return A future that mirrors it and cancels it when cancelled or timed out
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                future.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+
+        // A no-op once the ApiFuture has already completed
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                apiFuture.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Adapt an ApiFuture and fail it with a TimeoutException if it does not
+     * complete within the deadline, cancelling the underlying call
+     *
+     * @param apiFuture The SDK future
+     * @param timeoutMillis Deadline in milliseconds
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture, long timeoutMillis) {
+        return toCompletableFuture(apiFuture).orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
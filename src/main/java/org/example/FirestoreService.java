@@ -6,6 +6,7 @@ import com.google.api.core.ApiFuture;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
+import io.grpc.Status;
 import org.json.JSONObject;
 
 import java.io.File;
@@ -17,6 +18,7 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +29,7 @@ import java.util.logging.Logger;
  * - Caching for frequently accessed data
  * - Retry logic for resilience
  * - Batch write operations
+ * - Non-blocking async variants of the common reads and writes
  * - Comprehensive error handling
  */
 public class FirestoreService {
@@ -39,6 +42,9 @@ public class FirestoreService {
     private static final String PORTFOLIOS_COLLECTION = "StockPositions"; // Changed to match Firebase naming
     private static final String SETTINGS_COLLECTION = "Settings";
     private static final String ACTIVITIES_COLLECTION = "Activities";
+    private static final String ALERTS_COLLECTION = "Alerts";
+    private static final String PRICE_ALERTS_COLLECTION = "PriceAlerts";
+    private static final int MAX_BATCH_SIZE = 500; // Firestore limit on writes per batch
     private static boolean initializationAttempted = false;
     private static final String PROJECT_ID = "cashclimb-d162c";
     
@@ -59,6 +65,26 @@ public class FirestoreService {
     private final Semaphore connectionSemaphore = new Semaphore(MAX_CONCURRENT_OPERATIONS);
     private final AtomicInteger activeConnections = new AtomicInteger(0);
     
+    // Bulk write settings
+    // One writer for the whole service, so this cap holds across every caller
+    private static final int BULK_INITIAL_OPS_PER_SECOND = 500;
+    private static final int BULK_MAX_OPS_PER_SECOND = 1000;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long SHUTDOWN_FLUSH_SECONDS = 10;
+    
+    // Overall deadline for an async operation, retries included
+    private static final long ASYNC_DEADLINE_MS = 10_000;
+    private final Set<CompletableFuture<Boolean>> pendingWrites = ConcurrentHashMap.newKeySet();
+    private BulkWriter bulkWriter;
+    
+    // Listener-backed copies of hot user documents, only when firestoreLiveCache is enabled
+    private LiveDocumentCache liveDocuments;
+    
+    /**
+     * A document to be written under a user's subcollection as part of a batch
+     */
+    public record UserDocument(String userId, String documentId, Map<String, Object> data) {}
+    
     /**
      * Cache entry with expiry time
      */
@@ -84,9 +110,13 @@ public class FirestoreService {
      * Private constructor to enforce singleton pattern
      */
     private FirestoreService() {
+        AppMetrics.rateLimiterTokens("firestore_connections", connectionSemaphore::availablePermits);
         // Start cache cleanup task
         cacheCleanupService.scheduleAtFixedRate(this::cleanupCache, 
             CACHE_EXPIRY_MINUTES, CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES);
+        
+        // Give in-flight bulk writes a chance to finish before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushPendingWrites, "firestore-write-flush"));
     }
 
     /**
@@ -111,6 +141,26 @@ public class FirestoreService {
         }
     }
 
+    /**
+     * Short name of an operation for metrics and traces, from its log message
+     */
+    private static String operationName(String errorMessage) {
+        return errorMessage.startsWith("Failed to ") ? errorMessage.substring("Failed to ".length()) : errorMessage;
+    }
+
+    /**
+     * Get an unexpired cache entry, counting the hit or miss
+     *
+     * @return The entry, or null if absent or expired
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CacheEntry<T> lookup(String cacheKey) {
+        CacheEntry<T> entry = (CacheEntry<T>) cache.get(cacheKey);
+        boolean hit = entry != null && !entry.isExpired();
+        AppMetrics.cacheGet("firestore", hit);
+        return hit ? entry : null;
+    }
+
     /**
      * Initialize Firebase and Firestore
      * This method must be called before any other method
@@ -498,9 +548,15 @@ public class FirestoreService {
                 connectionSemaphore.acquire();
                 activeConnections.incrementAndGet();
                 
+                long start = System.nanoTime();
+                String outcome = "ERROR";
                 try {
-                    return operation.call();
+                    T value = operation.call();
+                    outcome = "SUCCESS";
+                    return value;
                 } finally {
+                    AppMetrics.recordOutbound(RequestTracer.current(), "firestore_sdk", operationName(errorMessage),
+                            outcome, start);
                     connectionSemaphore.release();
                     activeConnections.decrementAndGet();
                 }
@@ -537,6 +593,91 @@ public class FirestoreService {
         return null;
     }
 
+    /**
+     * Non-blocking counterpart of executeWithRetry. Each attempt issues the
+     * operation and reacts to its ApiFuture through a callback; retries are
+     * scheduled on a delayed executor instead of sleeping a thread. The whole
+     * operation, retries included, is bounded by ASYNC_DEADLINE_MS, and
+     * cancelling the returned future cancels the attempt in flight.
+     * 
+     * @param operation Issues one attempt of the Firestore call
+     * @param errorMessage Error message for logging
+     * @param <T> Return type of the operation
+     * @return Future completing with the result, or exceptionally once retries or the deadline run out
+     */
+    private <T> CompletableFuture<T> executeAsync(Supplier<ApiFuture<T>> operation, String errorMessage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Attempts and retries run on SDK and timer threads, so carry the caller's trace along
+        attemptAsync(operation, errorMessage, RequestTracer.current(), result, 0, INITIAL_RETRY_DELAY_MS);
+        return result.orTimeout(ASYNC_DEADLINE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> void attemptAsync(Supplier<ApiFuture<T>> operation, String errorMessage, RequestTracer.Trace trace,
+                                  CompletableFuture<T> result, int retryCount, int retryDelayMs) {
+        if (result.isDone()) {
+            // Cancelled or past the deadline
+            return;
+        }
+        
+        long start = System.nanoTime();
+        CompletableFuture<T> attempt;
+        try {
+            attempt = FirestoreFutures.toCompletableFuture(operation.get());
+        } catch (Exception e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> inFlight = attempt;
+        result.whenComplete((value, error) -> inFlight.cancel(true));
+        
+        inFlight.whenComplete((value, error) -> {
+            AppMetrics.recordOutbound(trace, "firestore_sdk", operationName(errorMessage),
+                    error == null ? "SUCCESS" : "ERROR", start);
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            if (retryCount >= MAX_RETRIES || result.isDone()) {
+                LOGGER.severe("Operation failed after " + retryCount + " retries: " + errorMessage + ". Error: " + error.getMessage());
+                result.completeExceptionally(error);
+                return;
+            }
+            
+            LOGGER.warning("Attempt " + (retryCount + 1) + " failed: " + errorMessage + ". Retrying in " + retryDelayMs + "ms. Error: " + error.getMessage());
+            int nextDelayMs = Math.min(
+                (int)(retryDelayMs * RETRY_BACKOFF_FACTOR * (1.0 + Math.random() * 0.1)), 
+                MAX_RETRY_DELAY_MS
+            );
+            CompletableFuture.delayedExecutor(retryDelayMs, TimeUnit.MILLISECONDS).execute(
+                () -> attemptAsync(operation, errorMessage, trace, result, retryCount + 1, nextDelayMs));
+        });
+    }
+
+    /**
+     * Whether hot user documents are served from snapshot listeners
+     */
+    public boolean isLiveCacheEnabled() {
+        return getLiveDocuments() != null;
+    }
+
+    private synchronized LiveDocumentCache getLiveDocuments() {
+        if (liveDocuments == null && isAvailable()
+                && ConfigManager.getInstance().getFlag("firestoreLiveCache", false)) {
+            liveDocuments = new LiveDocumentCache();
+            LOGGER.info("Serving hot user documents from snapshot listeners");
+        }
+        return liveDocuments;
+    }
+
+    /**
+     * Read a document through the live cache
+     * 
+     * @return The document's fields, or null if the live cache is off or has no snapshot yet
+     */
+    private Map<String, Object> getLiveDocument(DocumentReference docRef) {
+        LiveDocumentCache live = getLiveDocuments();
+        return live == null ? null : live.get(docRef);
+    }
+
     /**
      * Get a user's profile data with caching
      * 
@@ -548,10 +689,16 @@ public class FirestoreService {
             return new HashMap<>();
         }
         
+        // Served locally when the user document is being listened to
+        Map<String, Object> liveProfile = getLiveDocument(db.collection(USERS_COLLECTION).document(userId));
+        if (liveProfile != null) {
+            return liveProfile;
+        }
+        
         // Check cache first
         String cacheKey = "profile:" + userId;
-        CacheEntry<Map<String, Object>> cachedProfile = (CacheEntry<Map<String, Object>>) cache.get(cacheKey);
-        if (cachedProfile != null && !cachedProfile.isExpired()) {
+        CacheEntry<Map<String, Object>> cachedProfile = lookup(cacheKey);
+        if (cachedProfile != null) {
             LOGGER.fine("Retrieved user profile from cache for ID: " + userId);
             return cachedProfile.getData();
         }
@@ -579,6 +726,39 @@ public class FirestoreService {
         }, "Failed to get user profile");
     }
 
+    /**
+     * Get a user's profile data without blocking
+     * 
+     * @param userId The user ID
+     * @return Future of the profile map, empty if the user has no profile
+     */
+    public CompletableFuture<Map<String, Object>> getUserProfileAsync(String userId) {
+        if (!isAvailable()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+        
+        LiveDocumentCache live = getLiveDocuments();
+        Map<String, Object> liveProfile = live == null ? null : live.getNow(db.collection(USERS_COLLECTION).document(userId));
+        if (liveProfile != null) {
+            return CompletableFuture.completedFuture(liveProfile);
+        }
+        
+        String cacheKey = "profile:" + userId;
+        CacheEntry<Map<String, Object>> cachedProfile = lookup(cacheKey);
+        if (cachedProfile != null) {
+            return CompletableFuture.completedFuture(cachedProfile.getData());
+        }
+        
+        return executeAsync(() -> db.collection(USERS_COLLECTION).document(userId).get(), "Failed to get user profile")
+                .thenApply(document -> {
+                    Map<String, Object> profile = document.exists() ? document.getData() : new HashMap<>();
+                    if (profile != null && !profile.isEmpty()) {
+                        cache.put(cacheKey, new CacheEntry<>(profile, CACHE_EXPIRY_MINUTES));
+                    }
+                    return profile;
+                });
+    }
+
     /**
      * Save or update a user's profile data
      * 
@@ -619,8 +799,8 @@ public class FirestoreService {
         
         // Check cache first
         String cacheKey = "wallets:" + userId;
-        CacheEntry<List<Map<String, Object>>> cachedWallets = (CacheEntry<List<Map<String, Object>>>) cache.get(cacheKey);
-        if (cachedWallets != null && !cachedWallets.isExpired()) {
+        CacheEntry<List<Map<String, Object>>> cachedWallets = lookup(cacheKey);
+        if (cachedWallets != null) {
             LOGGER.fine("Retrieved wallets from cache for user ID: " + userId);
             return cachedWallets.getData();
         }
@@ -648,6 +828,29 @@ public class FirestoreService {
         }, "Failed to get user wallets");
     }
 
+    /**
+     * Get a user's wallets without blocking
+     * 
+     * @param userId The user ID
+     * @return Future of the wallet data maps
+     */
+    public CompletableFuture<List<Map<String, Object>>> getUserWalletsAsync(String userId) {
+        if (!isAvailable()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        
+        String cacheKey = "wallets:" + userId;
+        CacheEntry<List<Map<String, Object>>> cachedWallets = lookup(cacheKey);
+        if (cachedWallets != null) {
+            return CompletableFuture.completedFuture(cachedWallets.getData());
+        }
+        
+        return getSubcollectionDataAsync(userId, WALLETS_COLLECTION).thenApply(wallets -> {
+            cache.put(cacheKey, new CacheEntry<>(wallets, CACHE_EXPIRY_MINUTES));
+            return wallets;
+        });
+    }
+
     /**
      * Save a wallet for a user
      * 
@@ -657,28 +860,32 @@ public class FirestoreService {
      * @return true if successful, false otherwise
      */
     public boolean saveWallet(String userId, String walletId, Map<String, Object> walletData) {
+        return saveWalletAsync(userId, walletId, walletData).exceptionally(e -> false).join();
+    }
+
+    /**
+     * Save a wallet for a user without blocking
+     * 
+     * @param userId The user ID
+     * @param walletId The wallet ID
+     * @param walletData The wallet data
+     * @return Future completing with true once written, false if Firestore is unavailable
+     */
+    public CompletableFuture<Boolean> saveWalletAsync(String userId, String walletId, Map<String, Object> walletData) {
         if (!isAvailable()) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         
-        Boolean result = executeWithRetry(() -> {
-            LOGGER.info("Saving wallet " + walletId + " for user: " + userId);
-            db.collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(WALLETS_COLLECTION)
-                    .document(walletId)
-                    .set(walletData)
-                    .get();
-            
-            LOGGER.info("Wallet saved successfully");
-            
-            // Invalidate wallet cache
-            cache.remove("wallets:" + userId);
-            
-            return true;
-        }, "Failed to save wallet");
-        
-        return result != null && result;
+        return executeAsync(() -> db.collection(USERS_COLLECTION)
+                        .document(userId)
+                        .collection(WALLETS_COLLECTION)
+                        .document(walletId)
+                        .set(walletData), "Failed to save wallet")
+                .thenApply(writeResult -> {
+                    // Invalidate wallet cache
+                    cache.remove("wallets:" + userId);
+                    return true;
+                });
     }
 
     /**
@@ -689,28 +896,32 @@ public class FirestoreService {
      * @return true if successful, false otherwise
      */
     public boolean deleteWallet(String userId, String walletId) {
+        return deleteWalletAsync(userId, walletId).exceptionally(e -> false).join();
+    }
+
+    /**
+     * Delete a wallet for a user without blocking
+     * 
+     * @param userId The user ID
+     * @param walletId The wallet ID (address)
+     * @return Future completing with true once deleted, false if Firestore is unavailable
+     */
+    public CompletableFuture<Boolean> deleteWalletAsync(String userId, String walletId) {
         if (!isAvailable()) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         
-        Boolean result = executeWithRetry(() -> {
-            LOGGER.info("Deleting wallet " + walletId + " for user: " + userId);
-            db.collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(WALLETS_COLLECTION)
-                    .document(walletId)
-                    .delete()
-                    .get();
-            
-            LOGGER.info("Wallet deleted successfully");
-            
-            // Invalidate wallet cache
-            cache.remove("wallets:" + userId);
-            
-            return true;
-        }, "Failed to delete wallet");
-        
-        return result != null && result;
+        LOGGER.info("Deleting wallet " + walletId + " for user: " + userId);
+        return executeAsync(() -> db.collection(USERS_COLLECTION)
+                        .document(userId)
+                        .collection(WALLETS_COLLECTION)
+                        .document(walletId)
+                        .delete(), "Failed to delete wallet")
+                .thenApply(writeResult -> {
+                    // Invalidate wallet cache
+                    cache.remove("wallets:" + userId);
+                    return true;
+                });
     }
 
     /**
@@ -726,8 +937,8 @@ public class FirestoreService {
         
         // Check cache first
         String cacheKey = "portfolio:" + userId;
-        CacheEntry<List<Map<String, Object>>> cachedPortfolio = (CacheEntry<List<Map<String, Object>>>) cache.get(cacheKey);
-        if (cachedPortfolio != null && !cachedPortfolio.isExpired()) {
+        CacheEntry<List<Map<String, Object>>> cachedPortfolio = lookup(cacheKey);
+        if (cachedPortfolio != null) {
             LOGGER.fine("Retrieved portfolio from cache for user ID: " + userId);
             return cachedPortfolio.getData();
         }
@@ -755,6 +966,54 @@ public class FirestoreService {
         }, "Failed to get user portfolio");
     }
 
+    /**
+     * Get a user's stock portfolio without blocking
+     * 
+     * @param userId The user ID
+     * @return Future of the stock position data maps
+     */
+    public CompletableFuture<List<Map<String, Object>>> getUserPortfolioAsync(String userId) {
+        if (!isAvailable()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        
+        String cacheKey = "portfolio:" + userId;
+        CacheEntry<List<Map<String, Object>>> cachedPortfolio = lookup(cacheKey);
+        if (cachedPortfolio != null) {
+            return CompletableFuture.completedFuture(cachedPortfolio.getData());
+        }
+        
+        return getSubcollectionDataAsync(userId, PORTFOLIOS_COLLECTION).thenApply(positions -> {
+            cache.put(cacheKey, new CacheEntry<>(positions, 5)); // 5 minutes
+            return positions;
+        });
+    }
+
+    /**
+     * Read every document in one of a user's subcollections without blocking
+     * 
+     * @param userId The user ID
+     * @param collectionName The subcollection name
+     * @return Future of the document data maps
+     */
+    public CompletableFuture<List<Map<String, Object>>> getSubcollectionDataAsync(String userId, String collectionName) {
+        if (!isAvailable()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        
+        return executeAsync(() -> db.collection(USERS_COLLECTION)
+                        .document(userId)
+                        .collection(collectionName)
+                        .get(), "Failed to read " + collectionName + " for user " + userId)
+                .thenApply(querySnapshot -> {
+                    List<Map<String, Object>> documents = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : querySnapshot.getDocuments()) {
+                        documents.add(document.getData());
+                    }
+                    return documents;
+                });
+    }
+
     /**
      * Save a stock position for a user
      * 
@@ -796,36 +1055,50 @@ public class FirestoreService {
      * @return true if successful, false otherwise
      */
     public boolean batchUpdatePositions(String userId, Map<String, Map<String, Object>> positions) {
+        return batchUpdatePositionsAsync(userId, positions).join();
+    }
+
+    /**
+     * Update stock positions in one WriteBatch without blocking. A portfolio is
+     * written all or nothing, so positions are committed atomically rather than
+     * through the bulk writer; only a portfolio larger than the Firestore batch
+     * limit is split across several commits.
+     * 
+     * @param userId The user ID
+     * @param positions Map of symbol to position data
+     * @return Future completing with true if every position was written
+     */
+    public CompletableFuture<Boolean> batchUpdatePositionsAsync(String userId, Map<String, Map<String, Object>> positions) {
         if (!isAvailable() || positions.isEmpty()) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         
-        Boolean result = executeWithRetry(() -> {
-            LOGGER.info("Batch updating " + positions.size() + " stock positions for user: " + userId);
-            WriteBatch batch = db.batch();
-            
-            for (Map.Entry<String, Map<String, Object>> entry : positions.entrySet()) {
-                String symbol = entry.getKey();
-                Map<String, Object> positionData = entry.getValue();
-                
-                DocumentReference docRef = db.collection(USERS_COLLECTION)
-                        .document(userId)
-                        .collection(PORTFOLIOS_COLLECTION)
-                        .document(symbol);
-                
-                batch.set(docRef, positionData);
-            }
-            
-            batch.commit().get();
-            LOGGER.info("Batch update completed successfully");
-            
-            // Invalidate portfolio cache
-            cache.remove("portfolio:" + userId);
-            
-            return true;
-        }, "Failed to batch update stock positions");
+        LOGGER.info("Batch updating " + positions.size() + " stock positions for user: " + userId);
+        List<Map.Entry<String, Map<String, Object>>> entries = new ArrayList<>(positions.entrySet());
+        List<CompletableFuture<List<WriteResult>>> commits = new ArrayList<>();
+        for (int start = 0; start < entries.size(); start += MAX_BATCH_SIZE) {
+            List<Map.Entry<String, Map<String, Object>>> chunk =
+                    entries.subList(start, Math.min(start + MAX_BATCH_SIZE, entries.size()));
+            // A committed batch cannot be reused, so each attempt builds its own
+            commits.add(executeAsync(() -> {
+                WriteBatch batch = db.batch();
+                for (Map.Entry<String, Map<String, Object>> entry : chunk) {
+                    DocumentReference docRef = db.collection(USERS_COLLECTION)
+                            .document(userId)
+                            .collection(PORTFOLIOS_COLLECTION)
+                            .document(entry.getKey());
+                    batch.set(docRef, entry.getValue());
+                }
+                return batch.commit();
+            }, "Failed to batch update stock positions"));
+        }
         
-        return result != null && result;
+        return CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> {
+                    // Invalidate portfolio cache
+                    cache.remove("portfolio:" + userId);
+                    return error == null;
+                });
     }
 
     /**
@@ -836,34 +1109,337 @@ public class FirestoreService {
      * @return transaction ID if successful, empty string otherwise
      */
     public String saveTransaction(String userId, Map<String, Object> transactionData) {
+        return saveTransactionAsync(userId, transactionData).exceptionally(e -> null).join();
+    }
+    
+    /**
+     * Save a transaction for a user without blocking
+     * 
+     * @param userId The user ID
+     * @param transactionData The transaction data
+     * @return Future of the new transaction ID, empty if Firestore is unavailable
+     */
+    public CompletableFuture<String> saveTransactionAsync(String userId, Map<String, Object> transactionData) {
         if (!isAvailable()) {
-            return "";
+            return CompletableFuture.completedFuture("");
         }
         
-        return executeWithRetry(() -> {
-            LOGGER.info("Saving transaction for user: " + userId);
-            // Generate a unique ID for the transaction
-            DocumentReference docRef = db.collection(USERS_COLLECTION)
+        DocumentReference docRef = db.collection(USERS_COLLECTION)
+                .document(userId)
+                .collection(TRANSACTIONS_COLLECTION)
+                .document();
+        String transactionId = docRef.getId();
+        transactionData.put("id", transactionId);
+        if (!transactionData.containsKey("timestamp")) {
+            transactionData.put("timestamp", FieldValue.serverTimestamp());
+        }
+        
+        // The ID is fixed up front, so a retried attempt overwrites rather than duplicates
+        return executeAsync(() -> docRef.set(transactionData), "Failed to save transaction")
+                .thenApply(writeResult -> transactionId);
+    }
+    
+    /**
+     * Save a price alert definition for a user
+     * 
+     * @param userId The user ID
+     * @param alertId The alert ID
+     * @param alertData The alert data
+     * @return true if successful, false otherwise
+     */
+    public boolean savePriceAlert(String userId, String alertId, Map<String, Object> alertData) {
+        if (!isAvailable()) {
+            return false;
+        }
+        
+        Boolean result = executeWithRetry(() -> {
+            db.collection(USERS_COLLECTION)
                     .document(userId)
-                    .collection(TRANSACTIONS_COLLECTION)
-                    .document();
-            
-            // Add the transaction ID to the data
-            String transactionId = docRef.getId();
-            transactionData.put("id", transactionId);
-            
-            // Add timestamp if not already present
-            if (!transactionData.containsKey("timestamp")) {
-                transactionData.put("timestamp", FieldValue.serverTimestamp());
+                    .collection(PRICE_ALERTS_COLLECTION)
+                    .document(alertId)
+                    .set(alertData)
+                    .get();
+            return true;
+        }, "Failed to save price alert");
+        
+        return result != null && result;
+    }
+
+    /**
+     * Delete a price alert definition for a user
+     * 
+     * @param userId The user ID
+     * @param alertId The alert ID
+     * @return true if successful, false otherwise
+     */
+    public boolean deletePriceAlert(String userId, String alertId) {
+        if (!isAvailable()) {
+            return false;
+        }
+        
+        Boolean result = executeWithRetry(() -> {
+            db.collection(USERS_COLLECTION)
+                    .document(userId)
+                    .collection(PRICE_ALERTS_COLLECTION)
+                    .document(alertId)
+                    .delete()
+                    .get();
+            return true;
+        }, "Failed to delete price alert");
+        
+        return result != null && result;
+    }
+
+    /**
+     * Load every user's untriggered price alert definitions with a single
+     * collection group query. Each returned map carries the owning user in
+     * "userId" and the document in "id".
+     * 
+     * @return List of price alert data maps
+     */
+    public List<Map<String, Object>> getActivePriceAlerts() {
+        if (!isAvailable()) {
+            return new ArrayList<>();
+        }
+        
+        List<Map<String, Object>> result = executeWithRetry(() -> {
+            QuerySnapshot querySnapshot;
+            try {
+                querySnapshot = db.collectionGroup(PRICE_ALERTS_COLLECTION)
+                        .whereEqualTo("triggered", false).get().get();
+            } catch (ExecutionException e) {
+                // Collection group filters need a single-field index exemption on PriceAlerts.triggered
+                if (!(e.getCause() instanceof FirestoreException)
+                        || ((FirestoreException) e.getCause()).getStatus().getCode() != Status.Code.FAILED_PRECONDITION) {
+                    throw e;
+                }
+                LOGGER.warning("No collection group index on PriceAlerts.triggered, loading every price alert: "
+                        + e.getCause().getMessage());
+                querySnapshot = db.collectionGroup(PRICE_ALERTS_COLLECTION).get().get();
             }
             
-            // Save the transaction
-            docRef.set(transactionData).get();
-            
-            LOGGER.info("Transaction saved successfully with ID: " + transactionId);
+            List<Map<String, Object>> alerts = new ArrayList<>();
+            for (QueryDocumentSnapshot document : querySnapshot.getDocuments()) {
+                Map<String, Object> data = new HashMap<>(document.getData());
+                data.put("id", document.getId());
+                data.put("userId", document.getReference().getParent().getParent().getId());
+                alerts.add(data);
+            }
             
-            return transactionId;
-        }, "Failed to save transaction");
+            LOGGER.info("Loaded " + alerts.size() + " price alerts");
+            return alerts;
+        }, "Failed to load price alerts");
+        
+        return result != null ? result : new ArrayList<>();
+    }
+
+    /**
+     * Create alert notifications, possibly for many users, in as few batches as possible
+     * 
+     * @param alerts The alert documents to write under each user's Alerts collection
+     * @return true if every document was written, false otherwise
+     */
+    public boolean batchSaveAlerts(List<UserDocument> alerts) {
+        return batchSaveUserDocuments(ALERTS_COLLECTION, alerts);
+    }
+
+    /**
+     * Write price alert definitions, possibly for many users, in as few batches as possible
+     * 
+     * @param priceAlerts The price alert documents to write under each user's PriceAlerts collection
+     * @return true if every document was written, false otherwise
+     */
+    public boolean batchSavePriceAlerts(List<UserDocument> priceAlerts) {
+        return batchSaveUserDocuments(PRICE_ALERTS_COLLECTION, priceAlerts);
+    }
+
+    /**
+     * Save wallets, possibly for many users, in as few batches as possible
+     * 
+     * @param wallets The wallet documents to write under each user's Wallets collection
+     * @return true if every document was written, false otherwise
+     */
+    public boolean batchSaveWallets(List<UserDocument> wallets) {
+        return batchSaveWalletsAsync(wallets).join();
+    }
+
+    /**
+     * Save wallets through the bulk write pipeline without blocking
+     * 
+     * @param wallets The wallet documents to write under each user's Wallets collection
+     * @return Future completing with true if every wallet was written
+     */
+    public CompletableFuture<Boolean> batchSaveWalletsAsync(List<UserDocument> wallets) {
+        return batchSaveUserDocumentsAsync(WALLETS_COLLECTION, wallets).thenApply(allWritten -> {
+            // Invalidate wallet cache for every user touched
+            for (UserDocument wallet : wallets) {
+                cache.remove("wallets:" + wallet.userId());
+            }
+            return allWritten;
+        });
+    }
+
+    /**
+     * Write documents into a per-user subcollection and wait for the result
+     * 
+     * @param collectionName The subcollection name
+     * @param documents The documents to write
+     * @return true if every document was written, false otherwise
+     */
+    public boolean batchSaveUserDocuments(String collectionName, List<UserDocument> documents) {
+        return batchSaveUserDocumentsAsync(collectionName, documents).join();
+    }
+
+    /**
+     * Write documents into a per-user subcollection without blocking
+     * 
+     * @param collectionName The subcollection name
+     * @param documents The documents to write
+     * @return Future completing with true if every document was written
+     */
+    public CompletableFuture<Boolean> batchSaveUserDocumentsAsync(String collectionName, List<UserDocument> documents) {
+        if (!isAvailable() || documents.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return bulkWrite(collectionName, documents);
+    }
+
+    /**
+     * Queue documents on the shared BulkWriter, which packs them into batches,
+     * paces every caller's writes together under one rate limit and retries
+     * each failed document on its own. No thread waits on the writes; the
+     * returned future completes once every document has either been written
+     * or given up on, and is tracked so pending writes can be flushed at
+     * shutdown.
+     * 
+     * @param collectionName The subcollection name
+     * @param documents The documents to write
+     * @return Future completing with true if every document was written
+     */
+    private CompletableFuture<Boolean> bulkWrite(String collectionName, List<UserDocument> documents) {
+        BulkWriter writer = getBulkWriter();
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        synchronized (writer) {
+            for (UserDocument doc : documents) {
+                DocumentReference docRef = db.collection(USERS_COLLECTION)
+                        .document(doc.userId())
+                        .collection(collectionName)
+                        .document(doc.documentId());
+                writes.add(FirestoreFutures.toCompletableFuture(writer.set(docRef, doc.data()))
+                        .handle((writeResult, error) -> error == null));
+            }
+            // Send the partly filled batch now; completion is tracked per write, not on the flush
+            writer.flush();
+        }
+        
+        CompletableFuture<Boolean> result = CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    long failed = writes.stream().filter(write -> !write.join()).count();
+                    if (failed > 0) {
+                        LOGGER.warning(failed + " of " + documents.size() + " writes to " + collectionName + " failed");
+                    } else {
+                        LOGGER.fine("Bulk wrote " + documents.size() + " documents to " + collectionName);
+                    }
+                    return failed == 0;
+                });
+        
+        pendingWrites.add(result);
+        result.whenComplete((allWritten, error) -> pendingWrites.remove(result));
+        return result;
+    }
+
+    /**
+     * The service-wide BulkWriter, created on first use
+     */
+    private synchronized BulkWriter getBulkWriter() {
+        if (bulkWriter == null) {
+            bulkWriter = db.bulkWriter(BulkWriterOptions.builder()
+                    .setInitialOpsPerSecond(BULK_INITIAL_OPS_PER_SECOND)
+                    .setMaxOpsPerSecond(BULK_MAX_OPS_PER_SECOND)
+                    .build());
+            bulkWriter.addWriteErrorListener(error -> {
+                if (error.getFailedAttempts() < MAX_WRITE_ATTEMPTS) {
+                    LOGGER.warning("Retrying write to " + error.getDocumentReference().getPath()
+                            + " after attempt " + error.getFailedAttempts() + ": " + error.getMessage());
+                    return true;
+                }
+                LOGGER.severe("Giving up on write to " + error.getDocumentReference().getPath()
+                        + " after " + error.getFailedAttempts() + " attempts: " + error.getMessage());
+                return false;
+            });
+        }
+        return bulkWriter;
+    }
+
+    /**
+     * Wait a bounded time for bulk writes still in flight. Registered as a
+     * shutdown hook so queued writes are not lost when the server stops.
+     */
+    private void flushPendingWrites() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Flushing " + pendingWrites.size() + " pending Firestore bulk writes");
+        try {
+            CompletableFuture.allOf(pendingWrites.toArray(new CompletableFuture<?>[0]))
+                    .get(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warning(pendingWrites.size() + " bulk writes still pending after " + SHUTDOWN_FLUSH_SECONDS + "s");
+        } catch (Exception e) {
+            LOGGER.warning("Error flushing pending writes: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Convert a Firestore REST "fields" object into the plain Java values the
+     * Admin SDK writes
+     * 
+     * @param fields The REST fields object
+     * @return Map of field name to value
+     */
+    public static Map<String, Object> restFieldsToMap(JSONObject fields) {
+        Map<String, Object> map = new HashMap<>();
+        for (String key : fields.keySet()) {
+            map.put(key, restValueToObject(fields.getJSONObject(key)));
+        }
+        return map;
+    }
+    
+    /**
+     * Convert a single Firestore REST value, e.g. {"integerValue": "5"}
+     * 
+     * @param value The typed REST value
+     * @return The equivalent Java value
+     */
+    public static Object restValueToObject(JSONObject value) {
+        if (value.has("stringValue")) {
+            return value.getString("stringValue");
+        } else if (value.has("integerValue")) {
+            return Long.parseLong(value.get("integerValue").toString());
+        } else if (value.has("doubleValue")) {
+            return value.getDouble("doubleValue");
+        } else if (value.has("booleanValue")) {
+            return value.getBoolean("booleanValue");
+        } else if (value.has("timestampValue")) {
+            return com.google.cloud.Timestamp.parseTimestamp(value.getString("timestampValue"));
+        } else if (value.has("mapValue")) {
+            JSONObject mapFields = value.getJSONObject("mapValue").optJSONObject("fields");
+            return mapFields == null ? new HashMap<String, Object>() : restFieldsToMap(mapFields);
+        } else if (value.has("arrayValue")) {
+            List<Object> list = new ArrayList<>();
+            org.json.JSONArray values = value.getJSONObject("arrayValue").optJSONArray("values");
+            if (values != null) {
+                for (int i = 0; i < values.length(); i++) {
+                    list.add(restValueToObject(values.getJSONObject(i)));
+                }
+            }
+            return list;
+        } else if (value.has("geoPointValue")) {
+            JSONObject point = value.getJSONObject("geoPointValue");
+            return new GeoPoint(point.optDouble("latitude", 0), point.optDouble("longitude", 0));
+        }
+        // nullValue and anything unrecognised
+        return null;
     }
     
     /**
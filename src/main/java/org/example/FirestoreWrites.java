@@ -0,0 +1,88 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * Partial document updates over the Firestore REST API.
+ *
+ * A write only touches the fields its Document names: plain fields go out as
+ * a PATCH with updateMask.fieldPaths, and a Document with transforms
+ * (increment, server timestamp) goes out as a one-write documents:commit,
+ * since PATCH cannot carry transforms. Either way the caller never reads the
+ * document first to merge its own changes in.
+ */
+public final class FirestoreWrites {
+    private static final Logger LOGGER = Logger.getLogger(FirestoreWrites.class.getName());
+
+    private static final String DATABASE = "projects/cashclimb-d162c/databases/(default)";
+    private static final String BASE_URL = "https://firestore.googleapis.com/v1/" + DATABASE;
+
+    private FirestoreWrites() {
+    }
+
+    /**
+     * Update the named fields of a document, creating it if it does not exist
+     *
+     * @param documentPath Path below the database root, e.g. "Users/{id}/AccountInfo/cash";
+     *                     segments must already be URL-safe
+     * @param document The fields and transforms to apply
+     * @param idToken The user's Firebase ID token
+     * @return The HTTP status code
+     */
+    public static int update(String documentPath, FirestoreEncoder.Document document, String idToken) throws IOException {
+        return update(documentPath, document, idToken, null);
+    }
+
+    /**
+     * Like update, with a precondition on whether the document exists. A failed
+     * precondition returns 404 (exists=true) or 409 (exists=false).
+     */
+    public static int update(String documentPath, FirestoreEncoder.Document document, String idToken, Boolean exists) throws IOException {
+        HttpURLConnection conn;
+        if (document.hasTransforms()) {
+            conn = open(BASE_URL + "/documents:commit", idToken);
+            document.writeCommitTo(conn, DATABASE + "/documents/" + documentPath, exists);
+        } else {
+            String url = BASE_URL + "/documents/" + documentPath + "?" + document.updateMask();
+            if (exists != null) {
+                url += "&currentDocument.exists=" + exists;
+            }
+            conn = open(url, idToken);
+            // HttpURLConnection does not accept PATCH; Firestore honours the override header
+            conn.setRequestProperty("X-HTTP-Method-Override", "PATCH");
+            document.writeTo(conn);
+        }
+
+        int code = AppMetrics.responseCode(conn);
+        if (code >= 400) {
+            LOGGER.warning("Firestore update of " + documentPath + " failed: HTTP " + code + " " + readError(conn));
+        }
+        return code;
+    }
+
+    private static HttpURLConnection open(String url, String idToken) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Authorization", "Bearer " + idToken);
+        return conn;
+    }
+
+    private static String readError(HttpURLConnection conn) {
+        try (InputStream in = conn.getErrorStream()) {
+            if (in == null) {
+                return "";
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
@@ -2,10 +2,9 @@ package org.example;
 
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
-import org.json.JSONObject;
-import org.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -13,35 +12,32 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class HomeDataHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HomeDataHandler.class);
+
     private final Firestore db;
 
     public HomeDataHandler() {
         // Initialize Firestore once at startup
         FirestoreService.initialize();
         this.db = FirestoreService.getInstance().getDb();
-        System.out.println("HomeDataHandler: Firestore initialized: " + (db != null));
+        LOGGER.debug("HomeDataHandler: Firestore initialized: {}", (db != null));
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("HomeDataHandler: handle() invoked.");
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        System.out.println("Cookies: " + cookies);
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println("No idToken or localId in cookies; sending 401");
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
-        System.out.println("Extracted idToken: " + idToken);
-        System.out.println("Extracted localId: " + localId);
+        LOGGER.debug("HomeDataHandler: handle() invoked.");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
+        LOGGER.debug("Extracted localId: {}", localId);
         if (idToken == null || localId == null) {
-            System.out.println("Either idToken or localId is null; sending 401");
+            LOGGER.debug("Either idToken or localId is null; sending 401");
             exchange.sendResponseHeaders(401, -1);
             return;
         }
@@ -55,21 +51,19 @@ public class HomeDataHandler implements HttpHandler {
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(responseBytes);
             }
-            System.out.println("HomeDataHandler: Response sent successfully.");
+            LOGGER.debug("HomeDataHandler: Response sent successfully.");
         } catch (Exception e) {
-            System.out.println("HomeDataHandler: Error building response: " + e);
+            LOGGER.warn("HomeDataHandler: Error building response", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
 
     private String buildResponseJson(String localId) throws Exception {
-        JSONObject doc = new JSONObject();
-        JSONObject fieldsObj = new JSONObject();
-        doc.put("fields", fieldsObj);
-
-        // Fetch monthly expenses and incomes from Firestore
-        double[] monthlyExpenses = fetchMonthly("Expenses", localId);
-        double[] monthlyIncomes  = fetchMonthly("Income", localId);
+        // Fetch monthly expenses and incomes from Firestore concurrently
+        CompletableFuture<double[]> expensesFuture = fetchMonthlyAsync("Expenses", localId);
+        CompletableFuture<double[]> incomesFuture  = fetchMonthlyAsync("Income", localId);
+        double[] monthlyExpenses = expensesFuture.join();
+        double[] monthlyIncomes  = incomesFuture.join();
 
         // Calculate current month totals
         LocalDate today = LocalDate.now();
@@ -78,41 +72,41 @@ public class HomeDataHandler implements HttpHandler {
         double currentMonthIncomes  = (idx >= 0 && idx < 12) ? monthlyIncomes[idx]  : 0;
 
         // Build arrays
-        JSONArray expArr = new JSONArray();
-        JSONArray incArr = new JSONArray();
+        List<Long> expArr = new ArrayList<>(12);
+        List<Long> incArr = new ArrayList<>(12);
         for (int i = 0; i < 12; i++) {
-            expArr.put(new JSONObject().put("integerValue", String.valueOf((int)Math.round(monthlyExpenses[i]))));
-            incArr.put(new JSONObject().put("integerValue", String.valueOf((int)Math.round(monthlyIncomes[i]))));
+            expArr.add((long) (int) Math.round(monthlyExpenses[i]));
+            incArr.add((long) (int) Math.round(monthlyIncomes[i]));
         }
-        fieldsObj.put("monthlyExpenses", new JSONObject().put("arrayValue", new JSONObject().put("values", expArr)));
-        fieldsObj.put("monthlyIncomes",  new JSONObject().put("arrayValue", new JSONObject().put("values", incArr)));
+        FirestoreEncoder.Document doc = FirestoreEncoder.document()
+                .array("monthlyExpenses", expArr)
+                .array("monthlyIncomes", incArr);
 
         // Totals
-        fieldsObj.put("totalExpenses", new JSONObject().put("integerValue", String.valueOf((int)Math.round(currentMonthExpenses))));
-        fieldsObj.put("totalIncomes",  new JSONObject().put("integerValue", String.valueOf((int)Math.round(currentMonthIncomes))));
+        doc.integer("totalExpenses", (int) Math.round(currentMonthExpenses))
+                .integer("totalIncomes", (int) Math.round(currentMonthIncomes));
 
         // Net worth, income, bills – you can compute similarly by querying other collections or documents
         int netWorth    = computeNetWorth(localId);
         int totalIncome = computeCumulativeIncome(localId);
         int billsDue    = computeBillsDue(localId);
 
-        fieldsObj.put("netWorth", new JSONObject().put("integerValue", String.valueOf(netWorth)));
-        fieldsObj.put("totalIncome", new JSONObject().put("integerValue", String.valueOf(totalIncome)));
-        fieldsObj.put("billsDue", new JSONObject().put("integerValue", String.valueOf(billsDue)));
+        doc.integer("netWorth", netWorth)
+                .integer("totalIncome", totalIncome)
+                .integer("billsDue", billsDue);
 
         return doc.toString();
     }
 
-    private double[] fetchMonthly(String subCollection, String localId) throws Exception {
+    private CompletableFuture<double[]> fetchMonthlyAsync(String subCollection, String localId) {
+        return FirestoreService.getInstance()
+                .getSubcollectionDataAsync(localId, subCollection)
+                .thenApply(this::sumByMonth);
+    }
+
+    private double[] sumByMonth(List<Map<String, Object>> docs) {
         double[] monthly = new double[12];
-        CollectionReference colRef = db
-                .collection("Users")
-                .document(localId)
-                .collection(subCollection);
-        ApiFuture<QuerySnapshot> future = colRef.get();
-        List<QueryDocumentSnapshot> docs = future.get().getDocuments();
-        for (QueryDocumentSnapshot d : docs) {
-            Map<String, Object> fields = d.getData();
+        for (Map<String, Object> fields : docs) {
             String dateStr = (String)((Map<?,?>)fields.get("date")).get("stringValue");
             double total   = Double.parseDouble((String)((Map<?,?>)fields.get("total")).get("integerValue"));
             LocalDate date = parseAnyDate(dateStr);
@@ -140,16 +134,6 @@ public class HomeDataHandler implements HttpHandler {
         return 0;
     }
 
-    private String extractCookieValue(String cookies, String name) {
-        for (String part : cookies.split(";")) {
-            String t = part.trim();
-            if (t.startsWith(name + "=")) {
-                return t.substring((name + "=").length());
-            }
-        }
-        return null;
-    }
-
     private LocalDate parseAnyDate(String ds) {
         if (ds == null || ds.isEmpty()) return null;
         try {
@@ -10,6 +10,8 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 import com.google.gson.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * IncomeHandler
@@ -22,25 +24,19 @@ import com.google.gson.*;
  * POST: Adds a new income document to Firestore.
  */
 public class IncomeHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncomeHandler.class);
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("IncomeHandler invoked: " + exchange.getRequestMethod());
+        LOGGER.debug("IncomeHandler invoked: {}", exchange.getRequestMethod());
 
         // Grab cookies to see if we have idToken + localId
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        System.out.println("IncomeHandler cookies: " + cookies);
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println("401 - Missing idToken/localId in cookies");
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
-        System.out.println("Extracted idToken: " + idToken);
-        System.out.println("Extracted localId: " + localId);
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
+        LOGGER.debug("Extracted localId: {}", localId);
         if (idToken == null || localId == null) {
-            System.out.println("401 - null tokens");
+            LOGGER.debug("401 - null tokens");
             exchange.sendResponseHeaders(401, -1);
             return;
         }
@@ -58,15 +54,15 @@ public class IncomeHandler implements HttpHandler {
     private void handleGetIncomes(HttpExchange exchange, String idToken, String localId) throws IOException {
         String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Income";
-        System.out.println("IncomeHandler GET URL: " + firestoreUrl);
+        LOGGER.debug("IncomeHandler GET URL: {}", firestoreUrl);
 
         URL url = new URL(firestoreUrl);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
         conn.setRequestMethod("GET");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
 
-        int responseCode = conn.getResponseCode();
-        System.out.println("IncomeHandler GET response code: " + responseCode);
+        int responseCode = AppMetrics.responseCode(conn);
+        LOGGER.debug("IncomeHandler GET response code: {}", responseCode);
         if (responseCode != 200) {
             exchange.sendResponseHeaders(responseCode, -1);
             return;
@@ -81,7 +77,7 @@ public class IncomeHandler implements HttpHandler {
         }
         in.close();
         String responseBody = sb.toString();
-        System.out.println("IncomeHandler raw GET response:\n" + responseBody);
+        LOGGER.debug("IncomeHandler raw GET response: {}", responseBody);
 
         // Build JSON response that includes both the incomes and calculated values
         String calculationJson = computeMonthlyYearly(responseBody);
@@ -98,58 +94,41 @@ public class IncomeHandler implements HttpHandler {
      * POST: Add one income document to Firestore with the fields date, name, frequency, recurring, total.
      */
     private void handleAddIncome(HttpExchange exchange, String idToken, String localId) throws IOException {
-        StringBuilder body = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                body.append(line);
-            }
-        }
-        String requestBody = body.toString();
-        System.out.println("IncomeHandler requestBody: " + requestBody);
+        RequestContext request = RequestContext.of(exchange);
+        LOGGER.debug("IncomeHandler requestBody: {}", request.body());
 
-        // extract JSON fields from the request (using a simple regex helper)
-        String dateVal       = getJsonValue(requestBody, "date");
-        String nameVal       = getJsonValue(requestBody, "name");
-        String freqVal       = getJsonValue(requestBody, "frequency");
-        String recurringVal  = getJsonValue(requestBody, "recurring");
-        String totalValStr   = getJsonValue(requestBody, "total");
+        String dateVal       = request.string("date");
+        String nameVal       = request.string("name");
+        String freqVal       = request.string("frequency");
 
-        double totalVal;
-        try {
-            totalVal = Double.parseDouble(totalValStr);
-        } catch(Exception e) {
-            System.out.println("400 - invalid totalValue format");
+        double totalVal = request.number("total", Double.NaN);
+        if (Double.isNaN(totalVal)) {
+            LOGGER.debug("400 - invalid totalValue format");
             exchange.sendResponseHeaders(400, -1);
             return;
         }
-        boolean isRecurring = "true".equalsIgnoreCase(recurringVal);
+        boolean isRecurring = request.bool("recurring", false);
 
         String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
                 + localId + "/Income";
-        System.out.println("Firestore URL (POST): " + firestoreUrl);
+        LOGGER.debug("Firestore URL (POST): {}", firestoreUrl);
 
         HttpURLConnection conn = (HttpURLConnection) new URL(firestoreUrl).openConnection();
         conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
         conn.setRequestProperty("Authorization", "Bearer " + idToken);
-        conn.setDoOutput(true);
-
-        // Construct JSON to store as doubleValue for total
-        String jsonToFirestore = "{\"fields\":{"
-                + "\"date\":{\"stringValue\":\"" + dateVal + "\"},"
-                + "\"name\":{\"stringValue\":\"" + nameVal + "\"},"
-                + "\"frequency\":{\"stringValue\":\"" + freqVal + "\"},"
-                + "\"recurring\":{\"stringValue\":\"" + isRecurring + "\"},"
-                + "\"total\":{\"doubleValue\":" + totalVal + "}"
-                + "}}";
-        System.out.println("jsonToFirestore: " + jsonToFirestore);
-
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(jsonToFirestore.getBytes(StandardCharsets.UTF_8));
-        }
-        int responseCodePost = conn.getResponseCode();
-        System.out.println("Firestore POST response code: " + responseCodePost);
+
+        // "recurring" has always been stored as the string "true"/"false"
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .string("date", dateVal)
+                .string("name", nameVal)
+                .string("frequency", freqVal)
+                .string("recurring", String.valueOf(isRecurring))
+                .number("total", totalVal);
+        LOGGER.debug("jsonToFirestore: {}", document);
+
+        document.writeTo(conn);
+        int responseCodePost = AppMetrics.responseCode(conn);
+        LOGGER.debug("Firestore POST response code: {}", responseCodePost);
 
         if (responseCodePost == 200 || responseCodePost == 201) {
             String success = "Income added successfully.";
@@ -168,7 +147,7 @@ public class IncomeHandler implements HttpHandler {
                     errBody.append(ln);
                 }
                 errBr.close();
-                System.out.println("Firestore Income error body: " + errBody);
+                LOGGER.warn("Firestore Income error body: {}", errBody);
             }
             exchange.sendResponseHeaders(responseCodePost, -1);
         }
@@ -184,12 +163,12 @@ public class IncomeHandler implements HttpHandler {
      *    "yearlyIncome": <double>
      * }
      */
-    private String computeMonthlyYearly(String firestoreResponseBody) {
+    static String computeMonthlyYearly(String firestoreResponseBody) {
         JsonObject root;
         try {
             root = JsonParser.parseString(firestoreResponseBody).getAsJsonObject();
         } catch (Exception e) {
-            System.out.println("Invalid JSON from Firestore in computeMonthlyYearly");
+            LOGGER.warn("Invalid JSON from Firestore in computeMonthlyYearly");
             return "{\"incomes\":[],\"monthlyIncomes\":[0,0,0,0,0,0,0,0,0,0,0,0],\"yearlyIncome\":0}";
         }
 
@@ -216,8 +195,7 @@ public class IncomeHandler implements HttpHandler {
                 String recurringStr = getStringField(fieldsObj, "recurring");
                 boolean isRecurring = "true".equalsIgnoreCase(recurringStr);
 
-                System.out.println("Doc parse => date=" + dateStr + ", total=" + total
-                        + ", freq=" + freqStr + ", recurring=" + isRecurring);
+                LOGGER.debug("Doc parse => date={}, total={}, freq={}, recurring={}", dateStr, total, freqStr, isRecurring);
 
                 double[] docMonthly = new double[12];
                 for (int i = 0; i < 12; i++) {
@@ -303,7 +281,7 @@ public class IncomeHandler implements HttpHandler {
     /**
      * Utility: Safely parse a date from a string with either "yyyy-MM-dd" or "MM/dd/yyyy" format.
      */
-    private LocalDate tryParseDate(String ds) {
+    private static LocalDate tryParseDate(String ds) {
         if (ds == null || ds.trim().isEmpty())
             return null;
         try {
@@ -313,7 +291,7 @@ public class IncomeHandler implements HttpHandler {
             try {
                 return LocalDate.parse(ds, DateTimeFormatter.ofPattern("MM/dd/yyyy"));
             } catch (Exception ex2) {
-                System.out.println("tryParseDate failed for: " + ds);
+                LOGGER.debug("tryParseDate failed for: {}", ds);
                 return null;
             }
         }
@@ -322,7 +300,7 @@ public class IncomeHandler implements HttpHandler {
     /**
      * Utility: Retrieve the "stringValue" from a field in fieldsObj, if present.
      */
-    private String getStringField(JsonObject fieldsObj, String fieldName) {
+    private static String getStringField(JsonObject fieldsObj, String fieldName) {
         if (!fieldsObj.has(fieldName))
             return null;
         JsonObject sub = fieldsObj.getAsJsonObject(fieldName);
@@ -337,7 +315,7 @@ public class IncomeHandler implements HttpHandler {
     /**
      * Utility: Retrieve a numeric value from a field as a double.
      */
-    private double getDoubleField(JsonObject fieldsObj, String fieldName) {
+    private static double getDoubleField(JsonObject fieldsObj, String fieldName) {
         if (!fieldsObj.has(fieldName))
             return 0.0;
         JsonObject sub = fieldsObj.getAsJsonObject(fieldName);
@@ -359,40 +337,4 @@ public class IncomeHandler implements HttpHandler {
         }
         return 0.0;
     }
-
-    /**
-     * Utility: Extract a cookie value from the cookies string.
-     */
-    private static String extractCookieValue(String cookies, String name) {
-        String[] parts = cookies.split(";");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring((name + "=").length());
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Utility: Simple extraction of a JSON key's value from a JSON string using regex.
-     * This supports both quoted strings and numeric/boolean values.
-     */
-    private static String getJsonValue(String json, String key) {
-        String regex = "\"" + key + "\"\\s*:\\s*(?:\"([^\"]*)\"|([\\d.Ee+\\-]+|true|false|null))";
-        try {
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(regex);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                if (m.group(1) != null) {
-                    return m.group(1);
-                } else if (m.group(2) != null) {
-                    return m.group(2);
-                }
-            }
-        } catch (Exception e) {
-            // Ignore exceptions
-        }
-        return "";
-    }
 }
@@ -0,0 +1,166 @@
+package org.example;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.ListenerRegistration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * In-memory copies of small, frequently read Firestore documents, kept current
+ * by snapshot listeners.
+ *
+ * The first read of a document attaches a listener and waits briefly for its
+ * initial snapshot; after that every read is a local lookup, and changes made
+ * by any server instance arrive through the listener. Listeners nobody has
+ * read from within the idle timeout are detached, and the total is capped,
+ * detaching the least recently read document when a new one is needed.
+ */
+public class LiveDocumentCache {
+    private static final Logger LOGGER = Logger.getLogger(LiveDocumentCache.class.getName());
+
+    private static final long IDLE_TIMEOUT_MS = 10 * 60_000;
+    private static final int MAX_LISTENERS = 200;
+    private static final long FIRST_SNAPSHOT_TIMEOUT_MS = 3_000;
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final Map<String, LiveDocument> documents = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * One listened-to document and its latest contents
+     */
+    private static class LiveDocument {
+        private final CompletableFuture<Void> firstSnapshot = new CompletableFuture<>();
+        private volatile ListenerRegistration registration;
+        private volatile Map<String, Object> data;
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    public LiveDocumentCache() {
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "live-document-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::detachIdle, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the current contents of a document, listening to it from now on
+     *
+     * @param docRef The document
+     * @return The document's fields, an empty map if it does not exist, or null
+     *         if no snapshot arrived in time and the caller should read it directly
+     */
+    public Map<String, Object> get(DocumentReference docRef) {
+        String path = docRef.getPath();
+        LiveDocument doc = documents.get(path);
+        if (doc == null) {
+            doc = attach(path, docRef);
+        }
+        doc.lastAccess = System.currentTimeMillis();
+
+        if (!doc.firstSnapshot.isDone()) {
+            try {
+                doc.firstSnapshot.get(FIRST_SNAPSHOT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return doc.data;
+    }
+
+    /**
+     * Like get, but never waits: attaches the listener if needed and returns
+     * null until its first snapshot has arrived
+     */
+    public Map<String, Object> getNow(DocumentReference docRef) {
+        String path = docRef.getPath();
+        LiveDocument doc = documents.get(path);
+        if (doc == null) {
+            doc = attach(path, docRef);
+        }
+        doc.lastAccess = System.currentTimeMillis();
+        return doc.firstSnapshot.isDone() ? doc.data : null;
+    }
+
+    /**
+     * Stop listening to a document, e.g. after deleting it
+     */
+    public void invalidate(DocumentReference docRef) {
+        detach(docRef.getPath());
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    private synchronized LiveDocument attach(String path, DocumentReference docRef) {
+        LiveDocument existing = documents.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        if (documents.size() >= MAX_LISTENERS) {
+            evictLeastRecentlyRead();
+        }
+
+        LiveDocument doc = new LiveDocument();
+        documents.put(path, doc);
+        doc.registration = docRef.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                // The listener is dead after an error; drop it so the next read reattaches
+                LOGGER.warning("Snapshot listener for " + path + " failed: " + error.getMessage());
+                documents.remove(path, doc);
+                doc.firstSnapshot.completeExceptionally(error);
+                return;
+            }
+            Map<String, Object> fields = snapshot != null && snapshot.exists() ? snapshot.getData() : null;
+            doc.data = Collections.unmodifiableMap(fields != null ? new HashMap<>(fields) : new HashMap<>());
+            doc.firstSnapshot.complete(null);
+        });
+        return doc;
+    }
+
+    private void evictLeastRecentlyRead() {
+        String oldestPath = null;
+        long oldestAccess = Long.MAX_VALUE;
+        for (Map.Entry<String, LiveDocument> entry : documents.entrySet()) {
+            if (entry.getValue().lastAccess < oldestAccess) {
+                oldestAccess = entry.getValue().lastAccess;
+                oldestPath = entry.getKey();
+            }
+        }
+        if (oldestPath != null) {
+            detach(oldestPath);
+        }
+    }
+
+    private void detach(String path) {
+        LiveDocument doc = documents.remove(path);
+        if (doc != null && doc.registration != null) {
+            doc.registration.remove();
+        }
+    }
+
+    private void detachIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        int detached = 0;
+        for (Map.Entry<String, LiveDocument> entry : documents.entrySet()) {
+            if (entry.getValue().lastAccess < cutoff) {
+                detach(entry.getKey());
+                detached++;
+            }
+        }
+        if (detached > 0) {
+            LOGGER.fine("Detached " + detached + " idle document listeners, " + documents.size() + " remain");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Sends java.util.logging records to SLF4J, so the services that log through
+ * JUL share logback's asynchronous appenders instead of writing to stderr
+ * synchronously from the calling thread.
+ */
+public class LogBridge extends Handler {
+    private final SimpleFormatter formatter = new SimpleFormatter();
+
+    private LogBridge() {
+    }
+
+    /**
+     * Replace the JUL root handlers with the bridge. Call once at startup.
+     */
+    public static void install() {
+        java.util.logging.Logger root = LogManager.getLogManager().getLogger("");
+        for (Handler handler : root.getHandlers()) {
+            root.removeHandler(handler);
+        }
+        root.addHandler(new LogBridge());
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (record == null) {
+            return;
+        }
+        Logger logger = LoggerFactory.getLogger(record.getLoggerName() != null ? record.getLoggerName() : "jul");
+        int level = record.getLevel().intValue();
+        if (level >= Level.SEVERE.intValue()) {
+            if (logger.isErrorEnabled()) {
+                logger.error(formatter.formatMessage(record), record.getThrown());
+            }
+        } else if (level >= Level.WARNING.intValue()) {
+            if (logger.isWarnEnabled()) {
+                logger.warn(formatter.formatMessage(record), record.getThrown());
+            }
+        } else if (level >= Level.INFO.intValue()) {
+            if (logger.isInfoEnabled()) {
+                logger.info(formatter.formatMessage(record), record.getThrown());
+            }
+        } else if (level >= Level.FINE.intValue()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(formatter.formatMessage(record), record.getThrown());
+            }
+        } else if (logger.isTraceEnabled()) {
+            logger.trace(formatter.formatMessage(record), record.getThrown());
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -2,20 +2,22 @@ package org.example;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.*;
 
 public class NetWorthHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetWorthHandler.class);
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
 
         if (idToken == null || localId == null) {
             exchange.sendResponseHeaders(401, -1);
@@ -23,42 +25,31 @@ public class NetWorthHandler implements HttpHandler {
         }
 
         if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            String body = readAll(exchange.getRequestBody());
-            System.out.println("NetWorth POST Body: " + body);
+            LOGGER.debug("NetWorth POST Body: {}", request.body());
 
-            JSONObject obj = new JSONObject(body);
-            double netWorth = obj.optDouble("netWorth", -1);
-            double assets = obj.optDouble("assetsLiabilities", -1);
-            double holdings = obj.optDouble("stocksCrypto", -1);
+            double netWorth = request.number("netWorth", -1);
+            double assets = request.number("assetsLiabilities", -1);
+            double holdings = request.number("stocksCrypto", -1);
 
             if (netWorth < 0 || assets < 0 || holdings < 0) {
                 exchange.sendResponseHeaders(400, -1);
                 return;
             }
 
-            String json = "{ \"fields\": {"
-                    + "\"netWorth\": {\"doubleValue\": " + netWorth + "},"
-                    + "\"assetsLiabilities\": {\"doubleValue\": " + assets + "},"
-                    + "\"stocksCrypto\": {\"doubleValue\": " + holdings + "}"
-                    + "} }";
-
-            String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                    + localId + "/NetWorth/networth";
-
-            HttpURLConnection conn = openFirestoreConnection(urlStr, "PATCH", idToken);
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-            conn.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .number("netWorth", netWorth)
+                    .number("assetsLiabilities", assets)
+                    .number("stocksCrypto", holdings)
+                    .serverTimestamp("updated");
 
-            int code = conn.getResponseCode();
-            System.out.println("Firestore NetWorth response code: " + code);
+            int code = FirestoreWrites.update("Users/" + localId + "/NetWorth/networth", document, idToken);
+            LOGGER.debug("Firestore NetWorth response code: {}", code);
 
             if (code == 200 || code == 201) {
                 byte[] msg = "Saved".getBytes(StandardCharsets.UTF_8);
                 exchange.sendResponseHeaders(200, msg.length);
                 exchange.getResponseBody().write(msg);
             } else {
-                System.out.println("Error: " + readAll(conn.getErrorStream()));
                 exchange.sendResponseHeaders(code, -1);
             }
             exchange.getResponseBody().close();
@@ -67,14 +58,14 @@ public class NetWorthHandler implements HttpHandler {
                     + localId + "/NetWorth/networth";
 
             HttpURLConnection conn = openFirestoreConnection(urlStr, "GET", idToken);
-            int code = conn.getResponseCode();
+            int code = AppMetrics.responseCode(conn);
             if (code == 200) {
                 byte[] response = readAll(conn.getInputStream()).getBytes(StandardCharsets.UTF_8);
                 exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
                 exchange.sendResponseHeaders(200, response.length);
                 exchange.getResponseBody().write(response);
             } else {
-                System.out.println("GET failed: " + readAll(conn.getErrorStream()));
+                LOGGER.warn("GET failed: {}", readAll(conn.getErrorStream()));
                 exchange.sendResponseHeaders(code, -1);
             }
             exchange.getResponseBody().close();
@@ -84,16 +75,6 @@ public class NetWorthHandler implements HttpHandler {
     }
 
 
-    private static String extractCookieValue(String cookies, String name) {
-        if (cookies == null) return null;
-        for (String part : cookies.split(";")) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring(name.length() + 1);
-            }
-        }
-        return null;
-    }
     private static String readAll(InputStream in) throws IOException {
         if (in == null) return "";
         BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
@@ -0,0 +1,75 @@
+package org.example;
+
+import org.json.JSONObject;
+
+/**
+ * A user-defined alert on a stock price.
+ *
+ * PRICE_ABOVE and PRICE_BELOW fire when the quote crosses the threshold.
+ * PERCENT_MOVE fires when the quote moves the given percentage in either
+ * direction away from the base price captured when the alert was created.
+ */
+public record PriceAlert(
+        String id,
+        String userId,
+        String symbol,
+        Type type,
+        double threshold,
+        double basePrice,
+        long createdAt
+) {
+    public enum Type { PRICE_ABOVE, PRICE_BELOW, PERCENT_MOVE }
+
+    /**
+     * Price at or above which this alert fires, or NaN if it has no upper trigger
+     */
+    public double upperTrigger() {
+        switch (type) {
+            case PRICE_ABOVE: return threshold;
+            case PERCENT_MOVE: return basePrice * (1 + threshold / 100.0);
+            default: return Double.NaN;
+        }
+    }
+
+    /**
+     * Price at or below which this alert fires, or NaN if it has no lower trigger
+     */
+    public double lowerTrigger() {
+        switch (type) {
+            case PRICE_BELOW: return threshold;
+            case PERCENT_MOVE: return basePrice * (1 - threshold / 100.0);
+            default: return Double.NaN;
+        }
+    }
+
+    public String title() {
+        switch (type) {
+            case PRICE_ABOVE: return symbol + " Above Target";
+            case PRICE_BELOW: return symbol + " Below Target";
+            default: return symbol + " Price Move";
+        }
+    }
+
+    public String message(double price) {
+        switch (type) {
+            case PRICE_ABOVE:
+                return String.format("%s is trading at $%.2f, above your target of $%.2f.", symbol, price, threshold);
+            case PRICE_BELOW:
+                return String.format("%s is trading at $%.2f, below your target of $%.2f.", symbol, price, threshold);
+            default:
+                double move = (price - basePrice) / basePrice * 100;
+                return String.format("%s moved %.2f%% from $%.2f to $%.2f.", symbol, move, basePrice, price);
+        }
+    }
+
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("symbol", symbol);
+        json.put("type", type.name());
+        json.put("threshold", threshold);
+        json.put("basePrice", basePrice);
+        json.put("createdAt", createdAt);
+        return json;
+    }
+}
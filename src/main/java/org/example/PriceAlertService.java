@@ -0,0 +1,395 @@
+package org.example;
+
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates user price alerts against incoming stock quotes.
+ *
+ * Alerts are indexed per symbol in two sorted maps keyed by trigger price:
+ * one for upper triggers and one for lower triggers. A quote only has to
+ * look at the head of the upper map and the tail of the lower map, so the
+ * cost of a quote is O(log n + k) for k fired alerts rather than a scan of
+ * every alert on the symbol. Fired alerts are one-shot; they are dropped from
+ * the index immediately and their notifications are written to the users'
+ * Alerts collections by a background flusher in batched writes. A batch that
+ * does not fully save is queued again; the documents have fixed IDs, so a
+ * retry overwrites rather than duplicates.
+ *
+ * Saved alerts that have not triggered are loaded in the background when the
+ * service starts, so the first quote never waits on Firestore.
+ */
+public class PriceAlertService {
+    private static final Logger LOGGER = Logger.getLogger(PriceAlertService.class.getName());
+    private static final long FLUSH_INTERVAL_SECONDS = 2;
+    private static final int MAX_ALERTS_PER_USER = 50;
+    private static final String NOTIFICATION_TYPE = "price_alert";
+
+    private static PriceAlertService instance;
+
+    private final Map<String, SymbolBook> books = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, PriceAlert>> alertsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Double> lastPrices = new ConcurrentHashMap<>();
+    // Alerts removed or fired while the initial load runs, so the load does not bring them back
+    private final Set<String> retiredDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    // Fired alerts waiting to be persisted
+    private final Queue<FirestoreService.UserDocument> pendingNotifications = new ConcurrentLinkedQueue<>();
+    private final Queue<FirestoreService.UserDocument> pendingTriggered = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flushService;
+
+    /**
+     * Upper and lower trigger indexes for a single symbol
+     */
+    private static class SymbolBook {
+        private final TreeMap<Double, Map<String, PriceAlert>> upper = new TreeMap<>();
+        private final TreeMap<Double, Map<String, PriceAlert>> lower = new TreeMap<>();
+
+        synchronized void add(PriceAlert alert) {
+            if (!Double.isNaN(alert.upperTrigger())) {
+                upper.computeIfAbsent(alert.upperTrigger(), k -> new LinkedHashMap<>()).put(alert.id(), alert);
+            }
+            if (!Double.isNaN(alert.lowerTrigger())) {
+                lower.computeIfAbsent(alert.lowerTrigger(), k -> new LinkedHashMap<>()).put(alert.id(), alert);
+            }
+        }
+
+        synchronized boolean remove(PriceAlert alert) {
+            boolean removed = removeFrom(upper, alert.upperTrigger(), alert.id());
+            removed |= removeFrom(lower, alert.lowerTrigger(), alert.id());
+            return removed;
+        }
+
+        /**
+         * Remove and return every alert whose trigger is crossed by the price
+         */
+        synchronized List<PriceAlert> fire(double price) {
+            if ((upper.isEmpty() || upper.firstKey() > price) && (lower.isEmpty() || lower.lastKey() < price)) {
+                return Collections.emptyList();
+            }
+
+            List<PriceAlert> fired = new ArrayList<>();
+            drain(upper.headMap(price, true), fired);
+            drain(lower.tailMap(price, true), fired);
+
+            // Percent-move alerts sit in both maps; clear the side that did not fire
+            for (PriceAlert alert : fired) {
+                if (alert.type() == PriceAlert.Type.PERCENT_MOVE) {
+                    removeFrom(upper, alert.upperTrigger(), alert.id());
+                    removeFrom(lower, alert.lowerTrigger(), alert.id());
+                }
+            }
+            return fired;
+        }
+
+        private static void drain(NavigableMap<Double, Map<String, PriceAlert>> crossed, List<PriceAlert> fired) {
+            for (Map<String, PriceAlert> level : crossed.values()) {
+                fired.addAll(level.values());
+            }
+            crossed.clear();
+        }
+
+        private static boolean removeFrom(TreeMap<Double, Map<String, PriceAlert>> index, double trigger, String id) {
+            if (Double.isNaN(trigger)) {
+                return false;
+            }
+            Map<String, PriceAlert> level = index.get(trigger);
+            if (level == null || level.remove(id) == null) {
+                return false;
+            }
+            if (level.isEmpty()) {
+                index.remove(trigger);
+            }
+            return true;
+        }
+    }
+
+    private PriceAlertService() {
+        flushService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "price-alert-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flushService.execute(this::loadFromFirestore);
+        flushService.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the singleton instance. Saved alerts load in the background.
+     */
+    public static synchronized PriceAlertService getInstance() {
+        if (instance == null) {
+            instance = new PriceAlertService();
+        }
+        return instance;
+    }
+
+    /**
+     * Rebuild the in-memory index from the untriggered alerts in the PriceAlerts collections
+     */
+    private void loadFromFirestore() {
+        try {
+            FirestoreService firestoreService = FirestoreService.getInstance();
+            if (!firestoreService.isAvailable()) {
+                LOGGER.warning("Firestore not available, price alerts will only be kept in memory");
+                return;
+            }
+
+            int count = 0;
+            for (Map<String, Object> data : firestoreService.getActivePriceAlerts()) {
+                try {
+                    if (Boolean.TRUE.equals(data.get("triggered")) || retiredDuringLoad.contains((String) data.get("id"))) {
+                        continue;
+                    }
+                    index(fromMap(data));
+                    count++;
+                } catch (RuntimeException e) {
+                    LOGGER.warning("Skipping malformed price alert " + data.get("id") + ": " + e.getMessage());
+                }
+            }
+            LOGGER.info("Indexed " + count + " active price alerts");
+        } finally {
+            loaded = true;
+            retiredDuringLoad.clear();
+        }
+    }
+
+    /**
+     * Remember an alert that left the index, while the initial load could still re-add it
+     */
+    private void retire(String alertId) {
+        if (!loaded) {
+            retiredDuringLoad.add(alertId);
+        }
+    }
+
+    /**
+     * Create a price alert for a user
+     *
+     * @param userId The user ID
+     * @param symbol The stock symbol
+     * @param type The alert type
+     * @param threshold Target price for PRICE_ABOVE/PRICE_BELOW, or percentage for PERCENT_MOVE
+     * @param basePrice Reference price for PERCENT_MOVE; when null the last seen quote is used
+     * @return The created alert
+     * @throws IllegalArgumentException if the alert is not valid
+     */
+    public PriceAlert addAlert(String userId, String symbol, PriceAlert.Type type, double threshold, Double basePrice) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new IllegalArgumentException("Symbol is required");
+        }
+        if (!(threshold > 0) || Double.isInfinite(threshold)) {
+            throw new IllegalArgumentException("Threshold must be a positive number");
+        }
+        String sym = symbol.trim().toUpperCase(Locale.ROOT);
+
+        double base = 0;
+        if (type == PriceAlert.Type.PERCENT_MOVE) {
+            if (threshold >= 100) {
+                throw new IllegalArgumentException("Percent move must be below 100");
+            }
+            Double reference = basePrice != null ? basePrice : lastPrices.get(sym);
+            if (reference == null || !(reference > 0)) {
+                throw new IllegalArgumentException("No current price for " + sym + "; supply basePrice");
+            }
+            base = reference;
+        }
+
+        Map<String, PriceAlert> existing = alertsByUser.get(userId);
+        if (existing != null && existing.size() >= MAX_ALERTS_PER_USER) {
+            throw new IllegalArgumentException("Price alert limit of " + MAX_ALERTS_PER_USER + " reached");
+        }
+
+        PriceAlert alert = new PriceAlert(UUID.randomUUID().toString(), userId, sym, type,
+                threshold, base, System.currentTimeMillis());
+        index(alert);
+
+        if (!FirestoreService.getInstance().savePriceAlert(userId, alert.id(), toMap(alert))) {
+            LOGGER.warning("Price alert " + alert.id() + " was not persisted and will not survive a restart");
+        }
+        return alert;
+    }
+
+    /**
+     * Remove a user's price alert
+     *
+     * @return true if the alert existed
+     */
+    public boolean removeAlert(String userId, String alertId) {
+        Map<String, PriceAlert> userAlerts = alertsByUser.get(userId);
+        PriceAlert alert = userAlerts != null ? userAlerts.remove(alertId) : null;
+        if (alert == null) {
+            return false;
+        }
+
+        SymbolBook book = books.get(alert.symbol());
+        if (book != null) {
+            book.remove(alert);
+        }
+        retire(alertId);
+        FirestoreService.getInstance().deletePriceAlert(userId, alertId);
+        return true;
+    }
+
+    /**
+     * Get the active price alerts for a user, oldest first
+     */
+    public List<PriceAlert> getAlerts(String userId) {
+        Map<String, PriceAlert> userAlerts = alertsByUser.get(userId);
+        if (userAlerts == null) {
+            return Collections.emptyList();
+        }
+        List<PriceAlert> alerts = new ArrayList<>(userAlerts.values());
+        alerts.sort((a, b) -> Long.compare(a.createdAt(), b.createdAt()));
+        return alerts;
+    }
+
+    /**
+     * Last quote seen for a symbol, or null if none has arrived yet
+     */
+    public Double getLastPrice(String symbol) {
+        return symbol == null ? null : lastPrices.get(symbol.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Feed a fresh quote into the alert index. Called from the quote fetch
+     * paths; symbols without alerts cost a single map lookup.
+     *
+     * @param symbol The stock symbol
+     * @param price The latest price
+     */
+    public void onQuote(String symbol, double price) {
+        if (symbol == null || !(price > 0)) {
+            return;
+        }
+        String sym = symbol.toUpperCase(Locale.ROOT);
+        lastPrices.put(sym, price);
+
+        SymbolBook book = books.get(sym);
+        if (book == null) {
+            return;
+        }
+
+        List<PriceAlert> fired = book.fire(price);
+        if (fired.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.now();
+        for (PriceAlert alert : fired) {
+            Map<String, PriceAlert> userAlerts = alertsByUser.get(alert.userId());
+            if (userAlerts != null) {
+                userAlerts.remove(alert.id());
+            }
+            retire(alert.id());
+
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("title", alert.title());
+            notification.put("message", alert.message(price));
+            notification.put("type", NOTIFICATION_TYPE);
+            notification.put("created", now);
+            notification.put("read", false);
+            notification.put("relatedId", alert.id());
+            pendingNotifications.add(new FirestoreService.UserDocument(alert.userId(), UUID.randomUUID().toString(), notification));
+
+            Map<String, Object> definition = toMap(alert);
+            definition.put("triggered", true);
+            definition.put("triggeredPrice", price);
+            definition.put("triggeredAt", now);
+            pendingTriggered.add(new FirestoreService.UserDocument(alert.userId(), alert.id(), definition));
+        }
+        LOGGER.info(fired.size() + " price alerts fired for " + sym + " at " + price);
+    }
+
+    /**
+     * Write out queued notifications and mark their definitions as triggered.
+     * Anything that does not save stays queued for the next flush.
+     */
+    private void flush() {
+        if (pendingNotifications.isEmpty() && pendingTriggered.isEmpty()) {
+            return;
+        }
+        FirestoreService firestoreService = FirestoreService.getInstance();
+        if (!firestoreService.isAvailable()) {
+            LOGGER.warning("Firestore not available, holding " + pendingNotifications.size()
+                    + " price alert notifications");
+            return;
+        }
+
+        List<FirestoreService.UserDocument> notifications = drainQueue(pendingNotifications);
+        List<FirestoreService.UserDocument> triggered = drainQueue(pendingTriggered);
+        boolean notificationsSaved = false;
+        boolean triggeredSaved = false;
+        try {
+            notificationsSaved = notifications.isEmpty() || firestoreService.batchSaveAlerts(notifications);
+            triggeredSaved = triggered.isEmpty() || firestoreService.batchSavePriceAlerts(triggered);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error flushing price alerts: " + e.getMessage(), e);
+        }
+        if (!notificationsSaved) {
+            LOGGER.warning("Price alert notifications did not all save, retrying " + notifications.size());
+            pendingNotifications.addAll(notifications);
+        }
+        if (!triggeredSaved) {
+            LOGGER.warning("Triggered price alerts did not all update, retrying " + triggered.size());
+            pendingTriggered.addAll(triggered);
+        }
+    }
+
+    private static List<FirestoreService.UserDocument> drainQueue(Queue<FirestoreService.UserDocument> queue) {
+        List<FirestoreService.UserDocument> drained = new ArrayList<>();
+        FirestoreService.UserDocument doc;
+        while ((doc = queue.poll()) != null) {
+            drained.add(doc);
+        }
+        return drained;
+    }
+
+    private void index(PriceAlert alert) {
+        alertsByUser.computeIfAbsent(alert.userId(), k -> new ConcurrentHashMap<>()).put(alert.id(), alert);
+        books.computeIfAbsent(alert.symbol(), k -> new SymbolBook()).add(alert);
+    }
+
+    private static Map<String, Object> toMap(PriceAlert alert) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("symbol", alert.symbol());
+        map.put("type", alert.type().name());
+        map.put("threshold", alert.threshold());
+        map.put("basePrice", alert.basePrice());
+        map.put("createdAt", alert.createdAt());
+        map.put("triggered", false);
+        return map;
+    }
+
+    private static PriceAlert fromMap(Map<String, Object> map) {
+        return new PriceAlert(
+                (String) map.get("id"),
+                (String) map.get("userId"),
+                (String) map.get("symbol"),
+                PriceAlert.Type.valueOf((String) map.get("type")),
+                ((Number) map.get("threshold")).doubleValue(),
+                map.get("basePrice") instanceof Number ? ((Number) map.get("basePrice")).doubleValue() : 0,
+                map.get("createdAt") instanceof Number ? ((Number) map.get("createdAt")).longValue() : 0
+        );
+    }
+}
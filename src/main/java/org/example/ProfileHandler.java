@@ -7,15 +7,13 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ProfileHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
 
         if (idToken == null || localId == null) {
             exchange.sendResponseHeaders(401, -1);
@@ -32,31 +30,25 @@ public class ProfileHandler implements HttpHandler {
     }
 
     private void handlePost(HttpExchange exchange, String idToken, String localId) throws IOException {
-        String body = readAll(exchange.getRequestBody());
-        String fullName = getJsonValue(body, "fullName");
-        String careerDescription = getJsonValue(body, "careerDescription");
-        String profileImage = getJsonValue(body, "profileImage");
+        RequestContext request = RequestContext.of(exchange);
+        String fullName = request.string("fullName");
+        String careerDescription = request.string("careerDescription");
+        String profileImage = request.string("profileImage");
 
         if (fullName.isEmpty() || careerDescription.isEmpty()) {
             exchange.sendResponseHeaders(400, -1);
             return;
         }
 
-        String json = "{ \"fields\": {"
-                + "\"fullName\": {\"stringValue\": \"" + escapeJson(fullName) + "\"},"
-                + "\"careerDescription\": {\"stringValue\": \"" + escapeJson(careerDescription) + "\"},"
-                + "\"profileImage\": {\"stringValue\": \"" + escapeJson(profileImage) + "\"}"
-                + "} }";
-
-        String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                + localId + "/Profile/profile";
-
-        HttpURLConnection conn = openFirestoreConnection(urlStr, "PATCH", idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .string("fullName", fullName)
+                .string("careerDescription", careerDescription);
+        // Leave the stored image alone when the form did not send a new one
+        if (!profileImage.isEmpty()) {
+            document.string("profileImage", profileImage);
+        }
 
-        int code = conn.getResponseCode();
+        int code = FirestoreWrites.update("Users/" + localId + "/Profile/profile", document, idToken);
         if (code == 200 || code == 201) {
             byte[] msg = "Profile saved.".getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, msg.length);
@@ -72,7 +64,7 @@ public class ProfileHandler implements HttpHandler {
                 + localId + "/Profile/profile";
 
         HttpURLConnection conn = openFirestoreConnection(urlStr, "GET", idToken);
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200) {
             byte[] response = readAll(conn.getInputStream()).getBytes(StandardCharsets.UTF_8);
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
@@ -104,26 +96,4 @@ public class ProfileHandler implements HttpHandler {
         while ((line = reader.readLine()) != null) sb.append(line);
         return sb.toString();
     }
-
-    private static String extractCookieValue(String cookies, String name) {
-        if (cookies == null) return null;
-        for (String part : cookies.split(";")) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring(name.length() + 1);
-            }
-        }
-        return null;
-    }
-
-    private static String getJsonValue(String json, String key) {
-        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]*)\"");
-        Matcher m = p.matcher(json);
-        if (m.find()) return m.group(1);
-        return "";
-    }
-
-    private static String escapeJson(String value) {
-        return value.replace("\\", "\\\\").replace("\"", "\\\"");
-    }
 }
\ No newline at end of file
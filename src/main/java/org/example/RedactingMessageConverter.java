@@ -0,0 +1,43 @@
+package org.example;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.regex.Pattern;
+
+/**
+ * Logback %msg converter that masks credentials before a line is written.
+ *
+ * Handlers log URLs, cookie headers and request bodies at debug level; this
+ * strips Firebase ID tokens (any JWT), refresh tokens, session IDs, API keys,
+ * passwords and Bearer headers from them. It runs on the async appender's
+ * worker thread, so request threads never pay for the regex.
+ */
+public class RedactingMessageConverter extends MessageConverter {
+    private static final String MASK = "[redacted]";
+
+    // Three base64url segments starting with the encoded '{"' of a JOSE header
+    private static final Pattern JWT = Pattern.compile("eyJ[\\w-]+\\.[\\w-]+\\.[\\w-]*");
+    private static final Pattern BEARER = Pattern.compile("(Bearer\\s+)\\S+");
+    // key=value in cookies, query strings and form bodies
+    private static final Pattern PAIR = Pattern.compile(
+            "\\b(idToken|id_token|refreshToken|refresh_token|sid|key|password)=([^;&\\s\"]+)");
+    // "key": "value" in JSON
+    private static final Pattern JSON_PAIR = Pattern.compile(
+            "(\"(?:idToken|id_token|refreshToken|refresh_token|password)\"\\s*:\\s*)\"[^\"]*\"");
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return redact(event.getFormattedMessage());
+    }
+
+    static String redact(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        String result = JWT.matcher(message).replaceAll(MASK);
+        result = BEARER.matcher(result).replaceAll("$1" + MASK);
+        result = PAIR.matcher(result).replaceAll("$1=" + MASK);
+        return JSON_PAIR.matcher(result).replaceAll("$1\"" + MASK + "\"");
+    }
+}
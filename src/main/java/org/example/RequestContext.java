@@ -0,0 +1,295 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cookies, query parameters and JSON body of one request, each parsed at most
+ * once no matter how many times a handler asks.
+ *
+ * RequestContextFilter attaches a context to every API exchange; handlers get
+ * it with RequestContext.of(exchange). The body is read lazily, capped at
+ * MAX_BODY_BYTES, and parsed with a single streaming pass into a JSONObject.
+ * The typed field accessors follow the old per-handler getJsonValue helpers:
+ * a missing field, or a body that is not a JSON object, reads as "" or the
+ * given fallback instead of throwing.
+ */
+public final class RequestContext {
+    static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final HttpExchange exchange;
+    private Map<String, String> cookies;
+    private Map<String, String> query;
+    private byte[] body;
+    private JSONObject json;
+    private JSONException jsonError;
+
+    private RequestContext(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * The context RequestContextFilter attached to this exchange, or a fresh
+     * one for exchanges that did not pass through the filter
+     */
+    public static RequestContext of(HttpExchange exchange) {
+        HttpExchange e = exchange;
+        while (e instanceof DelegatingExchange delegating) {
+            if (e instanceof ContextExchange bound) {
+                return bound.context;
+            }
+            e = delegating.delegate;
+        }
+        return new RequestContext(exchange);
+    }
+
+    /**
+     * Wrap an exchange so the filters and handler after it share one context.
+     * HttpExchange attributes cannot carry it: the JDK server keeps them per
+     * context rather than per exchange.
+     */
+    static HttpExchange attach(HttpExchange exchange) {
+        return new ContextExchange(exchange, new RequestContext(exchange));
+    }
+
+    /**
+     * @return The cookie's value, or null if the request did not send it
+     */
+    public String cookie(String name) {
+        if (cookies == null) {
+            cookies = new HashMap<>();
+            List<String> headers = exchange.getRequestHeaders().get("Cookie");
+            if (headers != null) {
+                for (String header : headers) {
+                    for (String part : header.split(";")) {
+                        String t = part.trim();
+                        int eq = t.indexOf('=');
+                        if (eq > 0) {
+                            // First occurrence wins, as with the per-handler helpers this replaces
+                            cookies.putIfAbsent(t.substring(0, eq), t.substring(eq + 1));
+                        }
+                    }
+                }
+            }
+        }
+        return cookies.get(name);
+    }
+
+    public String idToken() {
+        return cookie("idToken");
+    }
+
+    public String localId() {
+        return cookie("localId");
+    }
+
+    /**
+     * @return The URL-decoded query parameter, or null if absent
+     */
+    public String query(String name) {
+        if (query == null) {
+            query = new HashMap<>();
+            String raw = exchange.getRequestURI().getRawQuery();
+            if (raw != null) {
+                for (String param : raw.split("&")) {
+                    if (param.isEmpty()) {
+                        continue;
+                    }
+                    int eq = param.indexOf('=');
+                    String key = eq >= 0 ? param.substring(0, eq) : param;
+                    String value = eq >= 0 ? param.substring(eq + 1) : "";
+                    try {
+                        query.putIfAbsent(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                                URLDecoder.decode(value, StandardCharsets.UTF_8));
+                    } catch (IllegalArgumentException e) {
+                        // Malformed percent-encoding; treat the parameter as absent
+                    }
+                }
+            }
+        }
+        return query.get(name);
+    }
+
+    /**
+     * @return The URL-decoded query parameter, or the fallback if absent
+     */
+    public String query(String name, String fallback) {
+        String value = query(name);
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * The request body as text, read once
+     *
+     * @throws IOException If the body is larger than MAX_BODY_BYTES
+     */
+    public String body() throws IOException {
+        return new String(bodyBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The request body as a JSON object
+     *
+     * @throws JSONException If the body is not a JSON object
+     */
+    public JSONObject json() throws IOException {
+        if (json == null && jsonError == null) {
+            try (JsonParser parser = JSON_FACTORY.createParser(bodyBytes())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new JSONException("Request body is not a JSON object");
+                }
+                json = readObject(parser);
+            } catch (JsonProcessingException e) {
+                jsonError = new JSONException("Malformed request body: " + e.getOriginalMessage());
+            } catch (JSONException e) {
+                jsonError = e;
+            }
+        }
+        if (jsonError != null) {
+            throw jsonError;
+        }
+        return json;
+    }
+
+    /**
+     * A top-level body field as text; numbers and booleans are converted
+     *
+     * @return The value, or "" if missing, null, nested or the body is not JSON
+     */
+    public String string(String name) throws IOException {
+        Object value = field(name);
+        return value == null || value instanceof JSONObject || value instanceof JSONArray ? "" : value.toString();
+    }
+
+    /**
+     * A top-level body field as a number, accepting numeric strings
+     */
+    public double number(String name, double fallback) throws IOException {
+        Object value = field(name);
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        if (value instanceof String s) {
+            try {
+                return Double.parseDouble(s.trim());
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * A top-level body field as a boolean, accepting "true" and "false"
+     */
+    public boolean bool(String name, boolean fallback) throws IOException {
+        Object value = field(name);
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        if (value instanceof String s && (s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false"))) {
+            return Boolean.parseBoolean(s);
+        }
+        return fallback;
+    }
+
+    private Object field(String name) throws IOException {
+        JSONObject object;
+        try {
+            object = json();
+        } catch (JSONException e) {
+            return null;
+        }
+        Object value = object.opt(name);
+        return value == JSONObject.NULL ? null : value;
+    }
+
+    private byte[] bodyBytes() throws IOException {
+        if (body == null) {
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    if (out.size() + n > MAX_BODY_BYTES) {
+                        throw new IOException("Request body exceeds " + MAX_BODY_BYTES + " bytes");
+                    }
+                    out.write(buffer, 0, n);
+                }
+                body = out.toByteArray();
+            }
+        }
+        return body;
+    }
+
+    private static JSONObject readObject(JsonParser parser) throws IOException {
+        JSONObject object = new JSONObject();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            object.put(name, readValue(parser, parser.nextToken()));
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JSONException("Truncated request body");
+        }
+        return object;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        if (token == null) {
+            throw new JSONException("Truncated request body");
+        }
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                JSONArray array = new JSONArray();
+                JsonToken next;
+                while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    array.put(readValue(parser, next));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return JSONObject.NULL;
+        }
+    }
+
+    /**
+     * Carries a RequestContext down the filter chain to the handler
+     */
+    private static class ContextExchange extends DelegatingExchange {
+        private final RequestContext context;
+
+        ContextExchange(HttpExchange delegate, RequestContext context) {
+            super(delegate);
+            this.context = context;
+        }
+    }
+}
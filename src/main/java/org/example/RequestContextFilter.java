@@ -0,0 +1,37 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Attaches a RequestContext to each exchange so the handler parses cookies,
+ * query string and body once. Requests that announce a body larger than
+ * RequestContext.MAX_BODY_BYTES are refused before anything is read.
+ */
+public class RequestContextFilter extends Filter {
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > RequestContext.MAX_BODY_BYTES) {
+                    exchange.sendResponseHeaders(413, -1);
+                    exchange.close();
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                exchange.close();
+                return;
+            }
+        }
+        chain.doFilter(RequestContext.attach(exchange));
+    }
+
+    @Override
+    public String description() {
+        return "RequestContextFilter parses cookies, query and body once per request";
+    }
+}
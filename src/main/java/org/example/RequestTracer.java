@@ -0,0 +1,335 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process request tracing.
+ *
+ * Every request gets a trace ID, returned in the X-Trace-Id header and put in
+ * the logging MDC as "traceId". While the request runs, each outbound call and
+ * cache lookup that AppMetrics sees is added to the trace as a span. Requests
+ * slower than the "traceSlowMs" setting (default 1000) are kept in a ring of
+ * the RECENT_TRACES most recent ones, and /admin/traces prints them as a
+ * waterfall so sequential fan-out shows up as a staircase of identical calls.
+ *
+ * Only a "traceSampleRate" fraction of requests (default 1.0) collects spans.
+ * With the "traceJfr" flag each span and request is also emitted as a JFR
+ * event, recorded whenever a flight recording is running.
+ *
+ * The trace follows the request thread. Work handed to another thread only
+ * joins the trace when the caller passes it along explicitly.
+ */
+public final class RequestTracer {
+    public static final String HEADER = "X-Trace-Id";
+
+    private static final int RECENT_TRACES = 100;
+    private static final int MAX_SPANS = 1000;
+    private static final int BAR_WIDTH = 40;
+
+    private static final long SLOW_NANOS =
+            (long) (ConfigManager.getInstance().getNumber("traceSlowMs", 1000) * 1_000_000);
+    private static final double SAMPLE_RATE = ConfigManager.getInstance().getNumber("traceSampleRate", 1.0);
+    private static final boolean JFR = ConfigManager.getInstance().getFlag("traceJfr", false);
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private static final Trace[] recent = new Trace[RECENT_TRACES];
+    private static int nextSlot;
+
+    private RequestTracer() {
+    }
+
+    /**
+     * One request and the spans recorded while it ran
+     */
+    public static final class Trace {
+        private final String id;
+        private final String method;
+        private final String path;
+        private final boolean sampled;
+        private final long startNanos = System.nanoTime();
+        private final long startMillis = System.currentTimeMillis();
+        private final List<Span> spans = new ArrayList<>();
+        private int droppedSpans;
+        private long durationNanos;
+        private int status;
+
+        private Trace(String id, String method, String path, boolean sampled) {
+            this.id = id;
+            this.method = method;
+            this.path = path;
+            this.sampled = sampled;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        private synchronized void add(Span span) {
+            if (spans.size() < MAX_SPANS) {
+                spans.add(span);
+            } else {
+                droppedSpans++;
+            }
+        }
+    }
+
+    private record Span(String kind, String name, String detail, long offsetNanos, long durationNanos, String thread) {
+    }
+
+    /**
+     * The trace of the request running on this thread, or null outside a request
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Add a span that started at startNanos and ends now
+     *
+     * @param trace The trace to add to, usually current(); ignored if null
+     * @param kind What sort of work this is, e.g. "http" or "cache"
+     * @param name What was called
+     * @param detail The outcome
+     */
+    public static void span(Trace trace, String kind, String name, String detail, long startNanos) {
+        if (trace == null || !trace.sampled) {
+            return;
+        }
+        long end = System.nanoTime();
+        trace.add(new Span(kind, name, detail, startNanos - trace.startNanos, end - startNanos,
+                Thread.currentThread().getName()));
+        if (JFR) {
+            SpanEvent event = new SpanEvent();
+            if (event.shouldCommit()) {
+                event.traceId = trace.id;
+                event.kind = kind;
+                event.name = name;
+                event.detail = detail;
+                event.elapsed = end - startNanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Add an instant span, such as a cache lookup, to the current trace
+     */
+    public static void event(String kind, String name, String detail) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            span(trace, kind, name, detail, System.nanoTime());
+        }
+    }
+
+    /**
+     * Filter that opens a trace for each exchange on its context
+     */
+    static Filter filter() {
+        return new TraceFilter();
+    }
+
+    /**
+     * Handler for /admin/traces. Answers 404 unless the request carries the
+     * "adminToken" from the configuration as a bearer token, so the endpoint
+     * does not exist for anyone else. ?id= limits the dump to one trace.
+     */
+    public static HttpHandler dumpHandler() {
+        return RequestTracer::dump;
+    }
+
+    private static Trace begin(String method, String path) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String id = String.format("%016x%016x", random.nextLong(), random.nextLong());
+        boolean sampled = SAMPLE_RATE >= 1 || random.nextDouble() < SAMPLE_RATE;
+        Trace trace = new Trace(id, method, path, sampled);
+        CURRENT.set(trace);
+        MDC.put("traceId", id);
+        return trace;
+    }
+
+    private static void end(Trace trace, int status) {
+        CURRENT.remove();
+        MDC.remove("traceId");
+        trace.durationNanos = System.nanoTime() - trace.startNanos;
+        trace.status = status;
+        if (!trace.sampled) {
+            return;
+        }
+        if (JFR) {
+            RequestEvent event = new RequestEvent();
+            if (event.shouldCommit()) {
+                event.traceId = trace.id;
+                event.method = trace.method;
+                event.path = trace.path;
+                event.status = status;
+                synchronized (trace) {
+                    event.spans = trace.spans.size() + trace.droppedSpans;
+                }
+                event.elapsed = trace.durationNanos;
+                event.commit();
+            }
+        }
+        if (trace.durationNanos >= SLOW_NANOS) {
+            synchronized (recent) {
+                recent[nextSlot] = trace;
+                nextSlot = (nextSlot + 1) % RECENT_TRACES;
+            }
+        }
+    }
+
+    private static void dump(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!isAdmin(exchange)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String id = RequestContext.of(exchange).query("id");
+            StringBuilder out = new StringBuilder();
+            out.append("Slow traces, at least ").append(SLOW_NANOS / 1_000_000).append(" ms, newest first\n");
+            synchronized (recent) {
+                for (int i = 1; i <= RECENT_TRACES; i++) {
+                    Trace trace = recent[Math.floorMod(nextSlot - i, RECENT_TRACES)];
+                    if (trace != null && (id == null || id.equals(trace.id))) {
+                        out.append('\n');
+                        waterfall(trace, out);
+                    }
+                }
+            }
+            byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
+    private static boolean isAdmin(HttpExchange exchange) {
+        String token = ConfigManager.getInstance().getApiKey("adminToken");
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (token == null || token.isEmpty() || header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                header.substring("Bearer ".length()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Print one trace: a header line, the repeated calls that suggest N+1
+     * fan-out, then one bar per span scaled to the request's duration
+     */
+    private static void waterfall(Trace trace, StringBuilder out) {
+        List<Span> spans;
+        int dropped;
+        synchronized (trace) {
+            spans = new ArrayList<>(trace.spans);
+            dropped = trace.droppedSpans;
+        }
+        out.append(String.format("%s %s %s -> %d in %.1f ms at %s%n", trace.id, trace.method, trace.path,
+                trace.status, trace.durationNanos / 1e6, Instant.ofEpochMilli(trace.startMillis)));
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Span span : spans) {
+            counts.merge(span.kind() + " " + span.name(), 1, Integer::sum);
+        }
+        counts.forEach((call, n) -> {
+            if (n > 1) {
+                out.append(String.format("  %dx %s%n", n, call));
+            }
+        });
+        if (dropped > 0) {
+            out.append(String.format("  %d more spans not kept%n", dropped));
+        }
+
+        double total = Math.max(trace.durationNanos, 1);
+        for (Span span : spans) {
+            int from = (int) Math.min(BAR_WIDTH - 1, span.offsetNanos() / total * BAR_WIDTH);
+            int width = (int) Math.max(1, Math.round(span.durationNanos() / total * BAR_WIDTH));
+            char[] bar = new char[BAR_WIDTH];
+            for (int i = 0; i < BAR_WIDTH; i++) {
+                bar[i] = i >= from && i < from + width ? '=' : ' ';
+            }
+            out.append(String.format("  %9.1f ms %9.1f ms |%s| %s %s %s [%s]%n",
+                    span.offsetNanos() / 1e6, span.durationNanos() / 1e6, new String(bar),
+                    span.kind(), span.name(), span.detail(), span.thread()));
+        }
+    }
+
+    private static class TraceFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            Trace trace = begin(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+            exchange.getResponseHeaders().set(HEADER, trace.id);
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                end(trace, exchange.getResponseCode());
+            }
+        }
+
+        @Override
+        public String description() {
+            return "TraceFilter records the spans of each request";
+        }
+    }
+
+    @Name("org.example.TraceSpan")
+    @Label("Trace Span")
+    @Category("CashClimb")
+    @StackTrace(false)
+    static class SpanEvent extends Event {
+        @Label("Trace ID")
+        String traceId;
+        @Label("Kind")
+        String kind;
+        @Label("Name")
+        String name;
+        @Label("Detail")
+        String detail;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("org.example.TraceRequest")
+    @Label("Traced Request")
+    @Category("CashClimb")
+    @StackTrace(false)
+    static class RequestEvent extends Event {
+        @Label("Trace ID")
+        String traceId;
+        @Label("Method")
+        String method;
+        @Label("Path")
+        String path;
+        @Label("Status")
+        int status;
+        @Label("Spans")
+        int spans;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
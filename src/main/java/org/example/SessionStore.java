@@ -0,0 +1,333 @@
+package org.example;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-side login sessions.
+ *
+ * The browser only holds an opaque session ID; the Firebase ID token and
+ * refresh token stay here. ID tokens last an hour, so each session's token is
+ * exchanged for a fresh one through the securetoken endpoint a few minutes
+ * before it expires, at most one exchange per session at a time, on a small
+ * pool of REFRESH_THREADS. A request that arrives while the token is still
+ * valid never waits for a refresh. A session is only dropped when Firebase
+ * definitively rejects its refresh token or it goes unused for IDLE_TIMEOUT;
+ * a refresh that is slow or fails transiently leaves the session in place.
+ *
+ * With the "sessionPersistence" flag the sessions are also written to
+ * data/sessions.json (owner-readable only, since it holds refresh tokens) so
+ * a restart does not log everyone out.
+ */
+public class SessionStore {
+    private static final Logger LOGGER = Logger.getLogger(SessionStore.class.getName());
+
+    private static final String TOKEN_URL = "https://securetoken.googleapis.com/v1/token?key=";
+    private static final Path PERSIST_FILE = Paths.get("data", "sessions.json");
+
+    private static final long IDLE_TIMEOUT_MS = 12 * 60 * 60_000L;
+    // Refresh this long before the ID token expires
+    private static final long REFRESH_AHEAD_MS = 5 * 60_000;
+    // How long a request waits for a refresh when its token has already expired
+    private static final long REFRESH_WAIT_MS = 5_000;
+    private static final long MAINTENANCE_INTERVAL_SECONDS = 60;
+    private static final int REFRESH_THREADS = 4;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static SessionStore instance;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenance;
+    private final ExecutorService refreshers;
+    private final boolean persistent;
+    private volatile boolean dirty;
+
+    /**
+     * One signed-in browser
+     */
+    public static class Session {
+        private final String id;
+        private final String localId;
+        private volatile String idToken;
+        private volatile String refreshToken;
+        private volatile long expiresAt;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private CompletableFuture<Boolean> refreshing;
+
+        private Session(String id, String localId, String idToken, String refreshToken, long expiresAt) {
+            this.id = id;
+            this.localId = localId;
+            this.idToken = idToken;
+            this.refreshToken = refreshToken;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getLocalId() {
+            return localId;
+        }
+    }
+
+    private SessionStore() {
+        this.persistent = ConfigManager.getInstance().getFlag("sessionPersistence", false);
+        if (persistent) {
+            load();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::save, "session-store-save"));
+        }
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger refresherCount = new AtomicInteger();
+        this.refreshers = Executors.newFixedThreadPool(REFRESH_THREADS, r -> {
+            Thread t = new Thread(r, "session-refresh-" + refresherCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_SECONDS,
+                MAINTENANCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized SessionStore getInstance() {
+        if (instance == null) {
+            instance = new SessionStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Start a session from a signInWithPassword response
+     *
+     * @param expiresInSeconds The token lifetime Firebase reported
+     * @return The new session
+     */
+    public Session create(String localId, String idToken, String refreshToken, long expiresInSeconds) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(id, localId, idToken, refreshToken,
+                System.currentTimeMillis() + expiresInSeconds * 1000);
+        sessions.put(id, session);
+        dirty = true;
+        return session;
+    }
+
+    /**
+     * Look up a session by the ID from its cookie
+     *
+     * @return The session, or null if unknown or idle too long
+     */
+    public Session get(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccess > IDLE_TIMEOUT_MS) {
+            remove(sessionId);
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    public void remove(String sessionId) {
+        if (sessionId != null && sessions.remove(sessionId) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * A usable ID token for the session. Starts a background refresh when the
+     * token is close to expiry and only waits for it once the token has
+     * actually expired.
+     *
+     * @return The ID token, or null if Firebase rejected the refresh token and
+     *         the session has been dropped
+     * @throws IOException If the token expired and a refresh did not complete
+     *         in time or failed transiently; the session is kept for a retry
+     */
+    public String currentToken(Session session) throws IOException {
+        long now = System.currentTimeMillis();
+        if (session.expiresAt - now > REFRESH_AHEAD_MS) {
+            return session.idToken;
+        }
+        CompletableFuture<Boolean> refresh = refresh(session);
+        if (session.expiresAt > now) {
+            return session.idToken;
+        }
+        boolean refreshed;
+        try {
+            refreshed = refresh.get(REFRESH_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for token refresh", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Token refresh for " + session.localId + " did not complete", e);
+        }
+        if (refreshed) {
+            return session.idToken;
+        }
+        if (!sessions.containsKey(session.id)) {
+            return null;
+        }
+        throw new IOException("Token refresh for " + session.localId + " failed, session kept");
+    }
+
+    /**
+     * Exchange the refresh token for a new ID token, joining a refresh already in flight
+     */
+    private CompletableFuture<Boolean> refresh(Session session) {
+        synchronized (session) {
+            if (session.refreshing != null && !session.refreshing.isDone()) {
+                return session.refreshing;
+            }
+            session.refreshing = CompletableFuture.supplyAsync(() -> exchangeRefreshToken(session), refreshers);
+            return session.refreshing;
+        }
+    }
+
+    private boolean exchangeRefreshToken(Session session) {
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(TOKEN_URL + Login.FIREBASE_API_KEY).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            conn.setDoOutput(true);
+            String form = "grant_type=refresh_token&refresh_token="
+                    + URLEncoder.encode(session.refreshToken, StandardCharsets.UTF_8);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+
+            int code = AppMetrics.responseCode(conn);
+            if (code != 200) {
+                LOGGER.warning("Token refresh for " + session.localId + " failed: HTTP " + code);
+                if (code == 400) {
+                    // Refresh token revoked or the account was disabled; the user must sign in again
+                    remove(session.id);
+                }
+                return false;
+            }
+            JSONObject response;
+            try (InputStream in = conn.getInputStream()) {
+                response = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            session.idToken = response.getString("id_token");
+            session.refreshToken = response.optString("refresh_token", session.refreshToken);
+            session.expiresAt = System.currentTimeMillis() + Long.parseLong(response.optString("expires_in", "3600")) * 1000;
+            dirty = true;
+            return true;
+        } catch (IOException | JSONException | NumberFormatException e) {
+            LOGGER.warning("Token refresh for " + session.localId + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Drop idle sessions, refresh tokens of active ones ahead of expiry, and persist
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (now - session.lastAccess > IDLE_TIMEOUT_MS) {
+                remove(session.id);
+            } else if (session.expiresAt - now <= REFRESH_AHEAD_MS + MAINTENANCE_INTERVAL_SECONDS * 1000) {
+                refresh(session);
+            }
+        }
+        if (persistent && dirty) {
+            save();
+        }
+    }
+
+    private synchronized void save() {
+        JSONArray array = new JSONArray();
+        for (Session session : sessions.values()) {
+            array.put(new JSONObject()
+                    .put("id", session.id)
+                    .put("localId", session.localId)
+                    .put("idToken", session.idToken)
+                    .put("refreshToken", session.refreshToken)
+                    .put("expiresAt", session.expiresAt)
+                    .put("lastAccess", session.lastAccess));
+        }
+        dirty = false;
+        try {
+            Files.createDirectories(PERSIST_FILE.getParent());
+            Path tmp = PERSIST_FILE.resolveSibling(PERSIST_FILE.getFileName() + ".tmp");
+            // Owner-only from creation, so the tokens are never readable by others
+            Files.deleteIfExists(tmp);
+            try {
+                Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system
+                Files.createFile(tmp);
+            }
+            Files.writeString(tmp, array.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, PERSIST_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.log(Level.WARNING, "Could not save sessions: " + e.getMessage(), e);
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(PERSIST_FILE)) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(Files.readString(PERSIST_FILE, StandardCharsets.UTF_8));
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject json = array.getJSONObject(i);
+                Session session = new Session(json.getString("id"), json.getString("localId"),
+                        json.getString("idToken"), json.getString("refreshToken"), json.getLong("expiresAt"));
+                session.lastAccess = json.optLong("lastAccess", now);
+                if (now - session.lastAccess <= IDLE_TIMEOUT_MS) {
+                    sessions.put(session.id, session);
+                }
+            }
+            LOGGER.info("Restored " + sessions.size() + " sessions");
+        } catch (IOException | JSONException e) {
+            LOGGER.warning("Could not restore sessions: " + e.getMessage());
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -12,7 +14,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.YearMonth;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -20,24 +22,18 @@ import java.util.UUID;
  * Provides functionality to create, retrieve, update, and delete spending limits.
  */
 public class SpendingLimitsHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpendingLimitsHandler.class);
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        System.out.println("SpendingLimitsHandler invoked: " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        LOGGER.debug("SpendingLimitsHandler invoked: {} {}", exchange.getRequestMethod(), exchange.getRequestURI().getPath());
         
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            System.out.println("401 - Missing idToken/localId in cookies");
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
         
         if (idToken == null || localId == null) {
-            System.out.println("401 - null tokens");
+            LOGGER.debug("401 - null tokens");
             exchange.sendResponseHeaders(401, -1);
             return;
         }
@@ -58,7 +54,7 @@ public class SpendingLimitsHandler implements HttpHandler {
         } else if (path.equals("/api/spending-limits/check") && "POST".equalsIgnoreCase(method)) {
             handleCheckSpendingLimits(exchange, idToken, localId);
         } else {
-            System.out.println("404 - Unsupported path/method: " + path + " " + method);
+            LOGGER.debug("404 - Unsupported path/method: {} {}", path, method);
             exchange.sendResponseHeaders(404, -1);
         }
     }
@@ -76,7 +72,7 @@ public class SpendingLimitsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -164,12 +160,12 @@ public class SpendingLimitsHandler implements HttpHandler {
                     os.write(responseBytes);
                     os.close();
                 } else {
-                    System.out.println("Error fetching spending limits: " + responseCode);
+                    LOGGER.warn("Error fetching spending limits: {}", responseCode);
                     exchange.sendResponseHeaders(responseCode, -1);
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error getting spending limits", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
@@ -179,41 +175,24 @@ public class SpendingLimitsHandler implements HttpHandler {
      */
     private void handleCreateSpendingLimit(HttpExchange exchange, String idToken, String localId) throws IOException {
         try {
-            // Read request body
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder requestBody = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                requestBody.append(line);
-            }
-            
             // Parse the limit data
-            JSONObject limitData = new JSONObject(requestBody.toString());
+            JSONObject limitData = RequestContext.of(exchange).json();
             
             // Generate a unique ID
             String limitId = UUID.randomUUID().toString();
             
-            // Create the Firestore document
-            JSONObject document = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("category", new JSONObject().put("stringValue", limitData.getString("category")));
-            fields.put("amount", new JSONObject().put("doubleValue", limitData.getDouble("amount")));
-            fields.put("period", new JSONObject().put("stringValue", limitData.getString("period")));
-            
-            // Set start date if provided, otherwise use current date
+            // Start date defaults to today; description is optional
             String startDate = limitData.optString("startDate", LocalDate.now().toString());
-            fields.put("startDate", new JSONObject().put("stringValue", startDate));
-            
-            // Optional description
             String description = limitData.optString("description", "");
-            fields.put("description", new JSONObject().put("stringValue", description));
             
-            // Add created timestamp
-            fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-            
-            document.put("fields", fields);
+            // Create the Firestore document
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .string("category", limitData.getString("category"))
+                    .number("amount", limitData.getDouble("amount"))
+                    .string("period", limitData.getString("period"))
+                    .string("startDate", startDate)
+                    .string("description", description)
+                    .timestamp("created", Instant.now());
             
             // Save to Firestore
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
@@ -222,15 +201,10 @@ public class SpendingLimitsHandler implements HttpHandler {
             URL url = new URL(firestoreUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
+            document.writeTo(conn);
             
-            OutputStream os = conn.getOutputStream();
-            os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-            os.close();
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200 || responseCode == 201) {
                 JSONObject successResponse = new JSONObject();
                 successResponse.put("success", true);
@@ -243,11 +217,11 @@ public class SpendingLimitsHandler implements HttpHandler {
                 responseOs.write(responseBytes);
                 responseOs.close();
             } else {
-                System.out.println("Error creating spending limit: " + responseCode);
+                LOGGER.warn("Error creating spending limit: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error creating spending limit", e);
             String errorMessage = "{\"error\":\"" + e.getMessage() + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
             exchange.sendResponseHeaders(500, errorMessage.length());
@@ -262,64 +236,36 @@ public class SpendingLimitsHandler implements HttpHandler {
      */
     private void handleUpdateSpendingLimit(HttpExchange exchange, String idToken, String localId, String limitId) throws IOException {
         try {
-            // Read request body
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder requestBody = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                requestBody.append(line);
-            }
-            
             // Parse the limit data
-            JSONObject limitData = new JSONObject(requestBody.toString());
-            
-            // Create the update data
-            JSONObject document = new JSONObject();
-            JSONObject fields = new JSONObject();
+            JSONObject limitData = RequestContext.of(exchange).json();
             
             // Only update the fields that are provided
+            FirestoreEncoder.Document document = FirestoreEncoder.document();
             if (limitData.has("category")) {
-                fields.put("category", new JSONObject().put("stringValue", limitData.getString("category")));
+                document.string("category", limitData.getString("category"));
             }
             
             if (limitData.has("amount")) {
-                fields.put("amount", new JSONObject().put("doubleValue", limitData.getDouble("amount")));
+                document.number("amount", limitData.getDouble("amount"));
             }
             
             if (limitData.has("period")) {
-                fields.put("period", new JSONObject().put("stringValue", limitData.getString("period")));
+                document.string("period", limitData.getString("period"));
             }
             
             if (limitData.has("startDate")) {
-                fields.put("startDate", new JSONObject().put("stringValue", limitData.getString("startDate")));
+                document.string("startDate", limitData.getString("startDate"));
             }
             
             if (limitData.has("description")) {
-                fields.put("description", new JSONObject().put("stringValue", limitData.getString("description")));
+                document.string("description", limitData.getString("description"));
             }
             
             // Add updated timestamp
-            fields.put("updated", new JSONObject().put("timestampValue", Instant.now().toString()));
-            
-            document.put("fields", fields);
-            
-            // Update in Firestore
-            String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
-                    + localId + "/SpendingLimits/" + limitId;
-            
-            URL url = new URL(firestoreUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("PATCH");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
+            document.timestamp("updated", Instant.now());
             
-            OutputStream os = conn.getOutputStream();
-            os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-            os.close();
-            
-            int responseCode = conn.getResponseCode();
+            // Update in Firestore; the update mask keeps the fields not sent here
+            int responseCode = FirestoreWrites.update("Users/" + localId + "/SpendingLimits/" + limitId, document, idToken);
             if (responseCode == 200) {
                 JSONObject successResponse = new JSONObject();
                 successResponse.put("success", true);
@@ -331,11 +277,11 @@ public class SpendingLimitsHandler implements HttpHandler {
                 responseOs.write(responseBytes);
                 responseOs.close();
             } else {
-                System.out.println("Error updating spending limit: " + responseCode);
+                LOGGER.warn("Error updating spending limit: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error updating spending limit", e);
             String errorMessage = "{\"error\":\"" + e.getMessage() + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
             exchange.sendResponseHeaders(500, errorMessage.length());
@@ -358,7 +304,7 @@ public class SpendingLimitsHandler implements HttpHandler {
             conn.setRequestMethod("DELETE");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 JSONObject successResponse = new JSONObject();
                 successResponse.put("success", true);
@@ -370,11 +316,11 @@ public class SpendingLimitsHandler implements HttpHandler {
                 os.write(responseBytes);
                 os.close();
             } else {
-                System.out.println("Error deleting spending limit: " + responseCode);
+                LOGGER.warn("Error deleting spending limit: {}", responseCode);
                 exchange.sendResponseHeaders(responseCode, -1);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error deleting spending limit", e);
             exchange.sendResponseHeaders(500, -1);
         }
     }
@@ -392,7 +338,7 @@ public class SpendingLimitsHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             
             if (responseCode == 200) {
                 BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
@@ -483,12 +429,12 @@ public class SpendingLimitsHandler implements HttpHandler {
                     os.write(responseBytes);
                     os.close();
                 } else {
-                    System.out.println("Error checking spending limits: " + responseCode);
+                    LOGGER.warn("Error checking spending limits: {}", responseCode);
                     exchange.sendResponseHeaders(responseCode, -1);
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.warn("Error checking spending limits", e);
             String errorMessage = "{\"error\":\"" + e.getMessage() + "\"}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
             exchange.sendResponseHeaders(500, errorMessage.length());
@@ -502,14 +448,40 @@ public class SpendingLimitsHandler implements HttpHandler {
      * Calculate the current spending for a given limit
      */
     private double getCurrentSpending(String idToken, String localId, JSONObject limitFields) throws Exception {
-        double totalSpending = 0;
-        
         // Get category
         String category = "";
         if (limitFields.has("category")) {
             category = limitFields.getJSONObject("category").getString("stringValue");
         }
         
+        LocalDate[] range = spendingPeriod(limitFields, LocalDate.now());
+        
+        // Get expenses in the date range
+        String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
+                + localId + "/Expenses";
+        
+        URL url = new URL(firestoreUrl);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("GET");
+        conn.setRequestProperty("Authorization", "Bearer " + idToken);
+        
+        int responseCode = AppMetrics.responseCode(conn);
+        if (responseCode == 200) {
+            List<Expense> expenses = FirestoreDecoder.decodeList(conn.getInputStream(), Expense::builder);
+            return sumSpending(expenses, category, range[0], range[1]);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * The days a limit's current period covers
+     *
+     * @param limitFields The limit document's Firestore fields
+     * @param today The last day of the period
+     * @return The first and last day of the period, inclusive
+     */
+    static LocalDate[] spendingPeriod(JSONObject limitFields, LocalDate today) {
         // Get period
         String period = "monthly";
         if (limitFields.has("period")) {
@@ -517,14 +489,14 @@ public class SpendingLimitsHandler implements HttpHandler {
         }
         
         // Get start date
-        LocalDate startDate = LocalDate.now().withDayOfMonth(1); // Default to first day of current month
+        LocalDate startDate = today.withDayOfMonth(1); // Default to first day of current month
         if (limitFields.has("startDate")) {
             startDate = LocalDate.parse(limitFields.getJSONObject("startDate").getString("stringValue"));
         }
         
         // Calculate date range for the period
         LocalDate startOfPeriod;
-        LocalDate endOfPeriod = LocalDate.now();
+        LocalDate endOfPeriod = today;
         
         switch (period) {
             case "daily":
@@ -555,61 +527,29 @@ public class SpendingLimitsHandler implements HttpHandler {
             startOfPeriod = startDate;
         }
         
-        // Get expenses in the date range
-        String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
-                + localId + "/Expenses";
-        
-        URL url = new URL(firestoreUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Authorization", "Bearer " + idToken);
+        return new LocalDate[]{startOfPeriod, endOfPeriod};
+    }
+    
+    /**
+     * Total the expenses that fall in a category and date range
+     *
+     * @param category Category to count, or "" or "All" for every category
+     * @param startOfPeriod First day counted
+     * @param endOfPeriod Last day counted
+     */
+    static double sumSpending(List<Expense> expenses, String category, LocalDate startOfPeriod, LocalDate endOfPeriod) {
+        boolean anyCategory = category.isEmpty() || category.equalsIgnoreCase("All");
+        double totalSpending = 0;
         
-        int responseCode = conn.getResponseCode();
-        if (responseCode == 200) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                response.append(line);
+        for (Expense expense : expenses) {
+            // Expenses without a category count towards every limit
+            if (!anyCategory && expense.category() != null && !category.equalsIgnoreCase(expense.category())) {
+                continue;
             }
-            in.close();
             
-            JSONObject firebaseResponse = new JSONObject(response.toString());
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            
-            if (firebaseResponse.has("documents")) {
-                JSONArray documents = firebaseResponse.getJSONArray("documents");
-                
-                for (int i = 0; i < documents.length(); i++) {
-                    JSONObject document = documents.getJSONObject(i);
-                    JSONObject fields = document.getJSONObject("fields");
-                    
-                    // Check category match if category is specified
-                    if (!category.isEmpty() && fields.has("category")) {
-                        String expenseCategory = fields.getJSONObject("category").getString("stringValue");
-                        if (!category.equalsIgnoreCase(expenseCategory) && !category.equalsIgnoreCase("All")) {
-                            continue;
-                        }
-                    }
-                    
-                    // Check date within period
-                    if (fields.has("date")) {
-                        LocalDate expenseDate = LocalDate.parse(fields.getJSONObject("date").getString("stringValue"), formatter);
-                        
-                        if ((expenseDate.isEqual(startOfPeriod) || expenseDate.isAfter(startOfPeriod)) && 
-                            (expenseDate.isEqual(endOfPeriod) || expenseDate.isBefore(endOfPeriod))) {
-                            
-                            // Add amount to total
-                            if (fields.has("amount")) {
-                                if (fields.getJSONObject("amount").has("doubleValue")) {
-                                    totalSpending += fields.getJSONObject("amount").getDouble("doubleValue");
-                                } else if (fields.getJSONObject("amount").has("integerValue")) {
-                                    totalSpending += fields.getJSONObject("amount").getInt("integerValue");
-                                }
-                            }
-                        }
-                    }
-                }
+            LocalDate expenseDate = expense.localDate();
+            if (expenseDate != null && !expenseDate.isBefore(startOfPeriod) && !expenseDate.isAfter(endOfPeriod)) {
+                totalSpending += expense.amount();
             }
         }
         
@@ -635,21 +575,18 @@ public class SpendingLimitsHandler implements HttpHandler {
             }
             
             String alertId = UUID.randomUUID().toString();
-            JSONObject document = new JSONObject();
-            JSONObject fields = new JSONObject();
             
             String title = "Spending Limit Exceeded: " + category;
             String message = String.format(
                     "Your %s spending in the category '%s' has reached $%.2f, which exceeds your %s limit of $%.2f.",
                     periodDisplay, category, currentSpending, periodDisplay, limitAmount);
             
-            fields.put("title", new JSONObject().put("stringValue", title));
-            fields.put("message", new JSONObject().put("stringValue", message));
-            fields.put("type", new JSONObject().put("stringValue", "spending-limit"));
-            fields.put("created", new JSONObject().put("timestampValue", Instant.now().toString()));
-            fields.put("read", new JSONObject().put("booleanValue", false));
-            
-            document.put("fields", fields);
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .string("title", title)
+                    .string("message", message)
+                    .string("type", "spending-limit")
+                    .timestamp("created", Instant.now())
+                    .bool("read", false);
             
             // Save to Firestore
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/" 
@@ -658,39 +595,15 @@ public class SpendingLimitsHandler implements HttpHandler {
             URL url = new URL(firestoreUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
+            document.writeTo(conn);
             
-            OutputStream os = conn.getOutputStream();
-            os.write(document.toString().getBytes(StandardCharsets.UTF_8));
-            os.close();
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode != 200 && responseCode != 201) {
-                System.out.println("Error creating spending limit alert: " + responseCode);
+                LOGGER.warn("Error creating spending limit alert: {}", responseCode);
             }
         } catch (Exception e) {
-            System.out.println("Error creating spending limit alert: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    /**
-     * Extract a cookie value from the cookie string
-     */
-    private static String extractCookieValue(String cookies, String name) {
-        if (cookies == null) {
-            return null;
-        }
-        
-        String[] parts = cookies.split(";");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith(name + "=")) {
-                return trimmed.substring((name + "=").length());
-            }
+            LOGGER.warn("Error creating spending limit alert: {}", e.getMessage(), e);
         }
-        return null;
     }
 }
@@ -0,0 +1,538 @@
+package org.example;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory cache of the web assets under src/main/resources.
+ *
+ * Each asset is read once, on preload or first request, and kept with a
+ * gzip-compressed copy, plus a brotli copy when a prebuilt ".br" file sits
+ * next to it. Responses carry a strong ETag and Last-Modified, conditional
+ * requests get 304, and fingerprinted names (app.3f9a1c2b.js) are cached by
+ * browsers for a year. With the "staticDevMode" flag a WatchService drops
+ * edited files from the cache so changes show up on the next reload.
+ *
+ * Files above LARGE_FILE_BYTES are not held in memory. They are streamed
+ * from a FileChannel in fixed-size chunks through a per-thread buffer, with
+ * single-range Range requests (206/416) and If-Range, so a large download
+ * costs no heap in proportion to its size.
+ *
+ * Only web asset types are served; configuration such as keys.json and the
+ * service account key never leaves the server.
+ */
+public class StaticAssets {
+    private static final Logger LOGGER = Logger.getLogger(StaticAssets.class.getName());
+
+    private static final String BASE_PATH = "src/main/resources";
+    private static final String CLASSPATH_PREFIX = "/";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=UTF-8"),
+            Map.entry("css", "text/css; charset=UTF-8"),
+            Map.entry("js", "application/javascript; charset=UTF-8"),
+            Map.entry("json", "application/json; charset=UTF-8"),
+            Map.entry("csv", "text/csv; charset=UTF-8"),
+            Map.entry("txt", "text/plain; charset=UTF-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"));
+
+    // Already compressed formats gain nothing from gzip
+    private static final Set<String> COMPRESSIBLE = Set.of("html", "css", "js", "json", "csv", "txt", "svg");
+
+    private static final Set<String> PRIVATE_FILES = Set.of(
+            "keys.json", "serviceAccountKey.json", "serviceAccountKey.template.json");
+
+    // name.<8+ hex digits>.ext, as produced by a bundler
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*[.-][0-9a-fA-F]{8,}\\.[a-z0-9]+$");
+
+    // Larger files are streamed from disk instead of cached
+    private static final long LARGE_FILE_BYTES = 512 * 1024;
+    private static final int STREAM_CHUNK_BYTES = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> STREAM_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(STREAM_CHUNK_BYTES));
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "no-cache";
+
+    private static StaticAssets instance;
+
+    private final Path root = Paths.get(BASE_PATH).toAbsolutePath().normalize();
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+
+    /**
+     * One cached file and its encodings
+     *
+     * @param body The file's bytes, or null for a large file streamed from disk
+     * @param gzip Gzip-compressed body, or null if not worth compressing
+     * @param brotli Prebuilt brotli body, or null if none was shipped
+     * @param file Source file for a large asset
+     * @param size Length of the uncompressed content
+     */
+    private record Asset(byte[] body, byte[] gzip, byte[] brotli, Path file, long size, String contentType,
+                         String etag, String lastModified, long lastModifiedSeconds, String cacheControl) {
+
+        boolean streamed() {
+            return body == null;
+        }
+    }
+
+    private StaticAssets() {
+        if (ConfigManager.getInstance().getFlag("staticDevMode", false)) {
+            startWatcher();
+        }
+    }
+
+    public static synchronized StaticAssets getInstance() {
+        if (instance == null) {
+            instance = new StaticAssets();
+        }
+        return instance;
+    }
+
+    /**
+     * Load every servable file up front so the first visitor is not the one
+     * paying for reads and compression
+     */
+    public void preload() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(Files::isRegularFile)
+                    .map(path -> "/" + path.getFileName())
+                    .filter(this::isServable)
+                    .forEach(this::lookup);
+        } catch (IOException e) {
+            LOGGER.warning("Could not preload static assets: " + e.getMessage());
+        }
+        LOGGER.info("Preloaded " + assets.size() + " static assets");
+    }
+
+    /**
+     * Serve a GET or HEAD for a static asset
+     */
+    public void serve(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        boolean head = "HEAD".equalsIgnoreCase(method);
+        if (!head && !"GET".equalsIgnoreCase(method)) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+
+        String uriPath = exchange.getRequestURI().getPath();
+        if (uriPath.equals("/")) uriPath = "/index.html";
+        if (!isServable(uriPath)) {
+            exchange.sendResponseHeaders(uriPath.contains("..") ? 403 : 404, -1);
+            exchange.close();
+            return;
+        }
+
+        Asset asset = lookup(uriPath);
+        if (asset == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        // Pick the encoding first: each one is its own representation with its own ETag
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = asset.body();
+        String encoding = null;
+        String etag = asset.etag();
+        if (!asset.streamed()) {
+            if (asset.brotli() != null && accepts(acceptEncoding, "br")) {
+                body = asset.brotli();
+                encoding = "br";
+                etag = variantEtag(asset.etag(), "br");
+            } else if (asset.gzip() != null && accepts(acceptEncoding, "gzip")) {
+                body = asset.gzip();
+                encoding = "gzip";
+                etag = variantEtag(asset.etag(), "gz");
+            }
+        }
+
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("ETag", etag);
+        responseHeaders.set("Last-Modified", asset.lastModified());
+        responseHeaders.set("Cache-Control", asset.cacheControl());
+        responseHeaders.set("Vary", "Accept-Encoding");
+
+        if (notModified(exchange.getRequestHeaders(), asset)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        if (asset.streamed()) {
+            responseHeaders.set("Content-Type", asset.contentType());
+            serveStreamed(exchange, asset, head);
+            return;
+        }
+
+        if (encoding != null) {
+            responseHeaders.set("Content-Encoding", encoding);
+        }
+        responseHeaders.set("Content-Type", asset.contentType());
+
+        if (head) {
+            responseHeaders.set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private boolean isServable(String uriPath) {
+        if (uriPath.contains("..") || uriPath.contains("\\") || uriPath.endsWith("/")) {
+            return false;
+        }
+        String name = uriPath.substring(uriPath.lastIndexOf('/') + 1);
+        return !PRIVATE_FILES.contains(name) && CONTENT_TYPES.containsKey(extension(name));
+    }
+
+    private Asset lookup(String uriPath) {
+        Asset asset = assets.get(uriPath);
+        if (asset != null && !(asset.streamed() && changedOnDisk(asset))) {
+            AppMetrics.cacheGet("static_assets", true);
+            return asset;
+        }
+        AppMetrics.cacheGet("static_assets", false);
+        try {
+            asset = load(uriPath);
+        } catch (IOException e) {
+            LOGGER.warning("Could not load static asset " + uriPath + ": " + e.getMessage());
+            return null;
+        }
+        if (asset != null) {
+            assets.put(uriPath, asset);
+        }
+        return asset;
+    }
+
+    /**
+     * Read an asset from the resources directory, or from the classpath when
+     * running from a packaged jar
+     */
+    private Asset load(String uriPath) throws IOException {
+        byte[] body;
+        byte[] brotli = null;
+        long lastModifiedMillis;
+
+        Path file = root.resolve(uriPath.substring(1)).normalize();
+        if (file.startsWith(root) && Files.isRegularFile(file)) {
+            if (Files.size(file) > LARGE_FILE_BYTES) {
+                return loadStreamed(uriPath, file);
+            }
+            body = Files.readAllBytes(file);
+            lastModifiedMillis = Files.getLastModifiedTime(file).toMillis();
+            Path brotliFile = file.resolveSibling(file.getFileName() + ".br");
+            if (Files.isRegularFile(brotliFile)) {
+                brotli = Files.readAllBytes(brotliFile);
+            }
+        } else {
+            try (InputStream in = StaticAssets.class.getResourceAsStream(CLASSPATH_PREFIX + uriPath.substring(1))) {
+                if (in == null) {
+                    return null;
+                }
+                body = in.readAllBytes();
+            }
+            try (InputStream in = StaticAssets.class.getResourceAsStream(CLASSPATH_PREFIX + uriPath.substring(1) + ".br")) {
+                if (in != null) {
+                    brotli = in.readAllBytes();
+                }
+            }
+            // Packaged resources do not change while the server runs
+            lastModifiedMillis = System.currentTimeMillis();
+        }
+
+        String name = uriPath.substring(uriPath.lastIndexOf('/') + 1);
+        String ext = extension(name);
+        byte[] gzip = COMPRESSIBLE.contains(ext) ? gzip(body) : null;
+        if (gzip != null && gzip.length >= body.length) {
+            gzip = null;
+        }
+
+        long lastModifiedSeconds = lastModifiedMillis / 1000;
+        return new Asset(body, gzip, brotli, null, body.length, CONTENT_TYPES.get(ext), etag(body),
+                httpDate(lastModifiedSeconds), lastModifiedSeconds,
+                FINGERPRINTED.matcher(name).matches() ? CACHE_IMMUTABLE : CACHE_REVALIDATE);
+    }
+
+    /**
+     * Describe a large file without reading it; the ETag comes from its size
+     * and modification time so it changes whenever the file does
+     */
+    private Asset loadStreamed(String uriPath, Path file) throws IOException {
+        String name = uriPath.substring(uriPath.lastIndexOf('/') + 1);
+        long size = Files.size(file);
+        long lastModifiedMillis = Files.getLastModifiedTime(file).toMillis();
+        long lastModifiedSeconds = lastModifiedMillis / 1000;
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+        return new Asset(null, null, null, file, size, CONTENT_TYPES.get(extension(name)), etag,
+                httpDate(lastModifiedSeconds), lastModifiedSeconds,
+                FINGERPRINTED.matcher(name).matches() ? CACHE_IMMUTABLE : CACHE_REVALIDATE);
+    }
+
+    private static boolean changedOnDisk(Asset asset) {
+        try {
+            return Files.size(asset.file()) != asset.size()
+                    || Files.getLastModifiedTime(asset.file()).toMillis() / 1000 != asset.lastModifiedSeconds();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Stream a large asset, honouring a single byte range
+     */
+    private static void serveStreamed(HttpExchange exchange, Asset asset, boolean head) throws IOException {
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("Accept-Ranges", "bytes");
+
+        long start = 0;
+        long length = asset.size();
+        int status = 200;
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        // A stale If-Range means the client's partial copy is outdated: send it all
+        if (range != null && (ifRange == null || ifRange.trim().equals(asset.etag()))) {
+            Matcher m = RANGE.matcher(range.trim());
+            // Multiple ranges are not supported; the full body is a valid answer
+            if (m.matches() && (!m.group(1).isEmpty() || !m.group(2).isEmpty())) {
+                long size = asset.size();
+                long first;
+                long last;
+                if (m.group(1).isEmpty()) {
+                    // bytes=-N is the last N bytes
+                    long suffix = Long.parseLong(m.group(2));
+                    first = Math.max(0, size - suffix);
+                    last = size - 1;
+                } else {
+                    first = Long.parseLong(m.group(1));
+                    last = m.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(m.group(2)), size - 1);
+                }
+                if (first >= size || first > last) {
+                    responseHeaders.set("Content-Range", "bytes */" + size);
+                    exchange.sendResponseHeaders(416, -1);
+                    exchange.close();
+                    return;
+                }
+                start = first;
+                length = last - first + 1;
+                status = 206;
+                responseHeaders.set("Content-Range", "bytes " + first + "-" + last + "/" + size);
+            }
+        }
+
+        if (head) {
+            responseHeaders.set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(asset.file(), StandardOpenOption.READ)) {
+            exchange.sendResponseHeaders(status, length);
+            ByteBuffer buffer = STREAM_BUFFERS.get();
+            try (OutputStream os = exchange.getResponseBody()) {
+                long position = start;
+                long remaining = length;
+                while (remaining > 0) {
+                    buffer.clear();
+                    if (remaining < buffer.capacity()) {
+                        buffer.limit((int) remaining);
+                    }
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        // File shrank underneath us; the client sees a short response
+                        break;
+                    }
+                    os.write(buffer.array(), 0, read);
+                    position += read;
+                    remaining -= read;
+                }
+            }
+        }
+    }
+
+    private static String httpDate(long epochSeconds) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds), ZoneOffset.UTC));
+    }
+
+    /**
+     * If-None-Match takes precedence; If-Modified-Since is only consulted without it.
+     * A tag for any encoding of the asset matches, since they share one content.
+     */
+    private static boolean notModified(Headers requestHeaders, Asset asset) {
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(asset.etag())
+                        || candidate.equals(variantEtag(asset.etag(), "gz"))
+                        || candidate.equals(variantEtag(asset.etag(), "br"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+                return asset.lastModifiedSeconds() <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tag one encoding of an asset, e.g. "abc" becomes "abc-gz"
+     */
+    private static String variantEtag(String etag, String suffix) {
+        return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+    }
+
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (params[0].trim().equalsIgnoreCase(coding)) {
+                return params.length < 2 || !params[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 3 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Strong validator from the content, so it is stable across restarts
+     */
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Development only: evict assets whose files change on disk
+     */
+    private void startWatcher() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            root.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            LOGGER.warning("Static asset hot reload unavailable: " + e.getMessage());
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path changed) {
+                            String name = changed.getFileName().toString();
+                            // Editing foo.js.br invalidates foo.js
+                            String uriPath = "/" + (name.endsWith(".br") ? name.substring(0, name.length() - 3) : name);
+                            if (assets.remove(uriPath) != null) {
+                                LOGGER.info("Reloading static asset " + uriPath);
+                            }
+                        }
+                    }
+                    if (!key.reset()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "static-asset-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Watching " + root + " for static asset changes");
+    }
+}
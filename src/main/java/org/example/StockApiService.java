@@ -52,8 +52,12 @@ public class StockApiService {
     private static final int MAX_REQUESTS_PER_MINUTE = 5;
     private static final long REQUEST_WINDOW_MS = 60 * 1000; // 1 minute in milliseconds
     
-    // Request tracking for rate limiting
-    private final Deque<Long> requestTimestamps = new LinkedList<>();
+    // Request tracking for rate limiting; the limit is per API key, so every instance shares it
+    private static final Deque<Long> requestTimestamps = new LinkedList<>();
+    
+    static {
+        AppMetrics.rateLimiterTokens("alphavantage", StockApiService::remainingRequests);
+    }
     
     // Cache for API responses to reduce API calls
     private final Map<String, CachedResponse> responseCache = new ConcurrentHashMap<>();
@@ -79,7 +83,7 @@ public class StockApiService {
      * Check if we can make another API request within rate limits
      * @return true if a request can be made, false otherwise
      */
-    private synchronized boolean canMakeRequest() {
+    private static synchronized boolean canMakeRequest() {
         final long currentTime = System.currentTimeMillis();
         
         // Remove timestamps older than the window
@@ -94,10 +98,18 @@ public class StockApiService {
     /**
      * Record that we've made a request
      */
-    private synchronized void recordRequest() {
+    private static synchronized void recordRequest() {
         requestTimestamps.addLast(System.currentTimeMillis());
     }
-    
+
+    /**
+     * Requests left in the current window, exported as the limiter's token level
+     */
+    private static synchronized int remainingRequests() {
+        canMakeRequest();
+        return MAX_REQUESTS_PER_MINUTE - requestTimestamps.size();
+    }
+
     /**
      * Get stock quote from either cache or API
      * 
@@ -109,8 +121,10 @@ public class StockApiService {
         // Check cache first
         String cacheKey = "quote_" + symbol;
         CachedResponse cached = responseCache.get(cacheKey);
+        boolean hit = cached != null && !cached.isExpired();
+        AppMetrics.cacheGet("stock_response", hit);
         
-        if (cached != null && !cached.isExpired()) {
+        if (hit) {
             LOGGER.info("Using cached quote data for " + symbol);
             return (Stock) cached.data;
         }
@@ -129,7 +143,7 @@ public class StockApiService {
                     .build();
             
             recordRequest();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = AppMetrics.send(client, request, HttpResponse.BodyHandlers.ofString());
             String responseBody = response.body();
             
             JsonObject json = gson.fromJson(responseBody, JsonObject.class);
@@ -164,6 +178,9 @@ public class StockApiService {
             // Cache the response
             responseCache.put(cacheKey, new CachedResponse(stock));
             
+            // Let any price alerts on this symbol see the new quote
+            PriceAlertService.getInstance().onQuote(symbol, stock.getPrice());
+            
             return stock;
             
         } catch (InterruptedException e) {
@@ -187,8 +204,10 @@ public class StockApiService {
         // Check cache first
         String cacheKey = "history_" + symbol + "_" + timeframe;
         CachedResponse cached = responseCache.get(cacheKey);
+        boolean hit = cached != null && !cached.isExpired();
+        AppMetrics.cacheGet("stock_response", hit);
         
-        if (cached != null && !cached.isExpired()) {
+        if (hit) {
             LOGGER.info("Using cached history data for " + symbol + " (" + timeframe + ")");
             return (List<Map<String, Object>>) cached.data;
         }
@@ -231,7 +250,7 @@ public class StockApiService {
                     .build();
             
             recordRequest();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = AppMetrics.send(client, request, HttpResponse.BodyHandlers.ofString());
             String responseBody = response.body();
             
             JsonObject json = gson.fromJson(responseBody, JsonObject.class);
@@ -352,29 +371,11 @@ public class StockApiService {
     }
     
     /**
-     * Helper method to get company name for a symbol.
-     * In a real implementation, you would call a separate API endpoint
-     * to get full company details.
+     * Helper method to get company name for a symbol from the bundled
+     * symbol directory, so no extra API call is spent on it.
      */
     private String getCompanyName(String symbol) {
-        Map<String, String> companyNames = new HashMap<>();
-        companyNames.put("AAPL", "Apple Inc.");
-        companyNames.put("MSFT", "Microsoft Corporation");
-        companyNames.put("AMZN", "Amazon.com Inc.");
-        companyNames.put("GOOGL", "Alphabet Inc.");
-        companyNames.put("META", "Meta Platforms Inc.");
-        companyNames.put("TSLA", "Tesla Inc.");
-        companyNames.put("NVDA", "NVIDIA Corporation");
-        companyNames.put("JPM", "JPMorgan Chase & Co.");
-        companyNames.put("V", "Visa Inc.");
-        companyNames.put("JNJ", "Johnson & Johnson");
-        companyNames.put("WMT", "Walmart Inc.");
-        companyNames.put("PG", "Procter & Gamble Co.");
-        companyNames.put("MA", "Mastercard Inc.");
-        companyNames.put("UNH", "UnitedHealth Group Inc.");
-        companyNames.put("HD", "Home Depot Inc.");
-        
-        return companyNames.getOrDefault(symbol, symbol + " Inc.");
+        return SymbolDirectory.getInstance().getCompanyName(symbol);
     }
     
     /**
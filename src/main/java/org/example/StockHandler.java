@@ -11,7 +11,6 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.net.URI;
@@ -19,10 +18,11 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -34,6 +34,9 @@ public class StockHandler implements HttpHandler {
     private static final Logger LOGGER = Logger.getLogger(StockHandler.class.getName());
     private static final Gson gson = new Gson();
     
+    // Cash a user starts trading with before an AccountInfo/cash document exists
+    private static final double DEFAULT_CASH_BALANCE = 10000.0;
+    
     // Services
     private final StockApiService apiService = new StockApiService();
     private final FirestoreService firestoreService = FirestoreService.getInstance();
@@ -77,6 +80,8 @@ public class StockHandler implements HttpHandler {
                 } else {
                     sendResponse(exchange, 405, "{ \"error\": \"Method not allowed\" }");
                 }
+            } else if (path.equals("/api/stocks/search")) {
+                handleSearchRequest(exchange);
             } else if (path.matches("/api/stocks/[\\w-]+/history")) {
                 handleStockHistoryRequest(exchange);
             } else if (path.matches("/api/stocks/[\\w-]+")) {
@@ -85,8 +90,7 @@ public class StockHandler implements HttpHandler {
                 sendResponse(exchange, 404, "{ \"error\": \"Not found\" }");
             }
         } catch (Exception e) {
-            LOGGER.severe("Error handling request: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error handling request: " + e.getMessage(), e);
             sendResponse(exchange, 500, "{ \"error\": \"Internal server error\" }");
         }
     }
@@ -99,7 +103,7 @@ public class StockHandler implements HttpHandler {
     
     private void handleAccountRequest(HttpExchange exchange, String userId) throws IOException {
         // Extract idToken from cookies for Firebase API calls
-        String idToken = extractAuthTokenFromCookies(exchange);
+        String idToken = RequestContext.of(exchange).idToken();
         if (idToken == null) {
             sendResponse(exchange, 401, "{ \"error\": \"No authentication token found\" }");
             return;
@@ -107,7 +111,7 @@ public class StockHandler implements HttpHandler {
         
         // Calculate account value from positions and current stock prices from Firebase
         double portfolioValue = 0.0;
-        double cash = 10000.00; // Default cash value - can be fetched from Firebase profile
+        double cash = DEFAULT_CASH_BALANCE;
         
         try {
             // Get user's stock positions from Firebase
@@ -138,8 +142,7 @@ public class StockHandler implements HttpHandler {
             sendResponse(exchange, 200, gson.toJson(response));
             
         } catch (Exception e) {
-            LOGGER.severe("Error calculating account value: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error calculating account value: " + e.getMessage(), e);
             
             // Return a fallback response with basic data
             JsonObject response = new JsonObject();
@@ -154,7 +157,7 @@ public class StockHandler implements HttpHandler {
     }
     
     private void handlePortfolioRequest(HttpExchange exchange, String userId) throws IOException {
-        String idToken = extractAuthTokenFromCookies(exchange);
+        String idToken = RequestContext.of(exchange).idToken();
         if (idToken == null) {
             sendResponse(exchange, 401, "{ \"error\": \"No authentication token found\" }");
             return;
@@ -173,96 +176,69 @@ public class StockHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder responseBuilder = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    responseBuilder.append(line);
-                }
-                reader.close();
-                
-                // Parse the positions data
-                JSONObject root = new JSONObject(responseBuilder.toString());
-                if (root.has("documents")) {
-                    JSONArray documents = root.getJSONArray("documents");
+                for (StockPosition position : FirestoreDecoder.decodeList(conn.getInputStream(), StockPosition::builder)) {
+                    String symbol = position.getSymbol();
+                    int quantity = position.getQuantity();
+                    double avgPrice = position.getAveragePrice();
+                    double currentPrice;
                     
-                    for (int i = 0; i < documents.length(); i++) {
-                        JSONObject doc = documents.getJSONObject(i);
-                        if (doc.has("fields")) {
-                            JSONObject fields = doc.getJSONObject("fields");
-                            
-                            // Extract position data
-                            String symbol = "";
-                            int quantity = 0;
-                            double avgPrice = 0.0;
-                            double currentPrice = 0.0;
-                            
-                            if (fields.has("symbol") && fields.getJSONObject("symbol").has("stringValue")) {
-                                symbol = fields.getJSONObject("symbol").getString("stringValue");
-                            }
-                            
-                            if (fields.has("quantity") && fields.getJSONObject("quantity").has("integerValue")) {
-                                quantity = Integer.parseInt(fields.getJSONObject("quantity").getString("integerValue"));
-                            }
-                            
-                            if (fields.has("averagePrice") && fields.getJSONObject("averagePrice").has("doubleValue")) {
-                                avgPrice = fields.getJSONObject("averagePrice").getDouble("doubleValue");
-                            }
-                            
-                            if (quantity > 0 && !symbol.isEmpty()) {
-                                try {
-                                    // Get current price from Alpha Vantage API
-                                    Stock stock = apiService.getStockQuote(symbol);
-                                    currentPrice = stock.getPrice();
-                                } catch (Exception e) {
-                                    LOGGER.warning("Failed to get price for " + symbol + ": " + e.getMessage());
-                                    currentPrice = avgPrice; // Use average price as fallback
-                                }
-                                
-                                double marketValue = quantity * currentPrice;
-                                double unrealizedPL = marketValue - (quantity * avgPrice);
-                                double unrealizedPLPC = (unrealizedPL / (quantity * avgPrice)) * 100;
-                                
-                                Map<String, Object> posMap = new HashMap<>();
-                                posMap.put("symbol", symbol);
-                                posMap.put("qty", quantity);
-                                posMap.put("avg_entry_price", avgPrice);
-                                posMap.put("current_price", currentPrice);
-                                posMap.put("market_value", marketValue);
-                                posMap.put("unrealized_pl", unrealizedPL);
-                                posMap.put("unrealized_plpc", unrealizedPLPC);
-                                
-                                positions.add(posMap);
-                                
-                                // Update last price in Firebase for future reference
-                                updateLastPrice(userId, idToken, symbol, currentPrice);
-                            }
+                    if (quantity > 0 && !symbol.isEmpty()) {
+                        try {
+                            // Get current price from Alpha Vantage API
+                            Stock stock = apiService.getStockQuote(symbol);
+                            currentPrice = stock.getPrice();
+                        } catch (Exception e) {
+                            LOGGER.warning("Failed to get price for " + symbol + ": " + e.getMessage());
+                            currentPrice = avgPrice; // Use average price as fallback
                         }
+                        
+                        positions.add(valuePosition(symbol, quantity, avgPrice, currentPrice));
+                        
+                        // Update last price in Firebase for future reference
+                        updateLastPrice(userId, idToken, symbol, currentPrice);
                     }
                 }
             } else {
                 LOGGER.warning("Failed to fetch stock positions: HTTP " + responseCode);
             }
         } catch (Exception e) {
-            LOGGER.severe("Error fetching portfolio: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error fetching portfolio: " + e.getMessage(), e);
         }
         
         response.add("positions", gson.toJsonTree(positions));
         sendResponse(exchange, 200, gson.toJson(response));
     }
     
+    /**
+     * Market value and unrealized profit of one position, keyed as the portfolio response expects
+     */
+    static Map<String, Object> valuePosition(String symbol, int quantity, double avgPrice, double currentPrice) {
+        double marketValue = quantity * currentPrice;
+        double unrealizedPL = marketValue - (quantity * avgPrice);
+        double unrealizedPLPC = (unrealizedPL / (quantity * avgPrice)) * 100;
+        
+        Map<String, Object> posMap = new HashMap<>();
+        posMap.put("symbol", symbol);
+        posMap.put("qty", quantity);
+        posMap.put("avg_entry_price", avgPrice);
+        posMap.put("current_price", currentPrice);
+        posMap.put("market_value", marketValue);
+        posMap.put("unrealized_pl", unrealizedPL);
+        posMap.put("unrealized_plpc", unrealizedPLPC);
+        return posMap;
+    }
+    
     private void handleGetOrdersRequest(HttpExchange exchange, String userId) throws IOException {
-        String idToken = extractAuthTokenFromCookies(exchange);
+        String idToken = RequestContext.of(exchange).idToken();
         if (idToken == null) {
             sendResponse(exchange, 401, "{ \"error\": \"No authentication token found\" }");
             return;
         }
         
-        String status = exchange.getRequestURI().getQuery();
-        boolean isOpen = status == null || status.contains("status=open");
+        String status = RequestContext.of(exchange).query("status");
+        boolean isOpen = status == null || "open".equals(status);
         
         JsonObject response = new JsonObject();
         List<Map<String, Object>> orders = new ArrayList<>();
@@ -278,7 +254,7 @@ public class StockHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
                 StringBuilder responseBuilder = new StringBuilder();
@@ -346,8 +322,7 @@ public class StockHandler implements HttpHandler {
                 LOGGER.warning("Failed to fetch orders: HTTP " + responseCode);
             }
         } catch (Exception e) {
-            LOGGER.severe("Error fetching orders: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error fetching orders: " + e.getMessage(), e);
         }
         
         response.add("orders", gson.toJsonTree(orders));
@@ -355,14 +330,13 @@ public class StockHandler implements HttpHandler {
     }
     
     private void handlePlaceOrderRequest(HttpExchange exchange, String userId) throws IOException {
-        String idToken = extractAuthTokenFromCookies(exchange);
+        String idToken = RequestContext.of(exchange).idToken();
         if (idToken == null) {
             sendResponse(exchange, 401, "{ \"error\": \"No authentication token found\" }");
             return;
         }
         
-        String requestBody = new BufferedReader(new InputStreamReader(exchange.getRequestBody()))
-                .lines().collect(Collectors.joining("\n"));
+        String requestBody = RequestContext.of(exchange).body();
         
         JsonObject orderData = gson.fromJson(requestBody, JsonObject.class);
         String symbol = orderData.get("symbol").getAsString();
@@ -406,27 +380,20 @@ public class StockHandler implements HttpHandler {
             conn.setDoOutput(true);
             
             // Create Firestore document
-            JSONObject requestJson = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("symbol", new JSONObject().put("stringValue", symbol));
-            fields.put("type", new JSONObject().put("stringValue", orderType));
-            fields.put("side", new JSONObject().put("stringValue", side));
-            fields.put("quantity", new JSONObject().put("integerValue", String.valueOf(quantity)));
-            fields.put("price", new JSONObject().put("doubleValue", price));
-            fields.put("status", new JSONObject().put("stringValue", "filled"));
-            fields.put("createdAt", new JSONObject().put("timestampValue", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date())));
-            
-            requestJson.put("fields", fields);
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .string("symbol", symbol)
+                    .string("type", orderType)
+                    .string("side", side)
+                    .integer("quantity", quantity)
+                    .number("price", price)
+                    .string("status", "filled")
+                    .timestamp("createdAt", Instant.now());
             
             // Write to Firestore
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestJson.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+            document.writeTo(conn);
             
             // Check response
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode >= 400) {
                 BufferedReader errorReader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
                 StringBuilder errorResponse = new StringBuilder();
@@ -459,8 +426,7 @@ public class StockHandler implements HttpHandler {
             
             sendResponse(exchange, 200, gson.toJson(response));
         } catch (Exception e) {
-            LOGGER.severe("Error processing order: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error processing order: " + e.getMessage(), e);
             sendResponse(exchange, 500, "{ \"error\": \"Failed to process order: " + e.getMessage() + "\" }");
         }
     }
@@ -478,6 +444,33 @@ public class StockHandler implements HttpHandler {
         sendResponse(exchange, 200, gson.toJson(response));
     }
     
+    /**
+     * Search the local symbol directory by ticker or company name.
+     * Served entirely from memory - the upstream SYMBOL_SEARCH function is never called.
+     */
+    private void handleSearchRequest(HttpExchange exchange) throws IOException {
+        RequestContext request = RequestContext.of(exchange);
+        String q = request.query("q", "");
+        int limit = 10;
+        try {
+            limit = Integer.parseInt(request.query("limit", "10"));
+        } catch (NumberFormatException ignored) {
+            // keep the default
+        }
+        
+        if (q.trim().isEmpty()) {
+            sendResponse(exchange, 400, "{ \"error\": \"Missing q parameter\" }");
+            return;
+        }
+        
+        List<SymbolDirectory.Match> matches = SymbolDirectory.getInstance().search(q, limit);
+        
+        JsonObject response = new JsonObject();
+        response.addProperty("query", q);
+        response.add("results", gson.toJsonTree(matches));
+        sendResponse(exchange, 200, gson.toJson(response));
+    }
+    
     private void handleGetStockRequest(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         String symbol = path.substring(path.lastIndexOf('/') + 1);
@@ -506,8 +499,7 @@ public class StockHandler implements HttpHandler {
             sendResponse(exchange, 200, jsonBuilder.toString());
         } catch (Exception e) {
             // Unexpected errors
-            LOGGER.severe("Unexpected error when getting stock data: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Unexpected error when getting stock data: " + e.getMessage(), e);
             
             String errorJson = "{\"error\": \"Failed to retrieve stock data: " + e.getMessage().replace("\"", "'") + "\", \"symbol\": \"" + symbol + "\"}";
             sendResponse(exchange, 500, errorJson);
@@ -531,70 +523,23 @@ public class StockHandler implements HttpHandler {
     }
     
     /**
-     * Helper method to get company names without dependency on external libraries
+     * Helper method to get company names from the bundled symbol directory
      */
     private String getCompanyName(String symbol) {
-        Map<String, String> companyNames = new HashMap<>();
-        companyNames.put("AAPL", "Apple Inc.");
-        companyNames.put("MSFT", "Microsoft Corporation");
-        companyNames.put("AMZN", "Amazon.com Inc.");
-        companyNames.put("GOOGL", "Alphabet Inc.");
-        companyNames.put("META", "Meta Platforms Inc.");
-        companyNames.put("TSLA", "Tesla Inc.");
-        companyNames.put("NVDA", "NVIDIA Corporation");
-        companyNames.put("JPM", "JPMorgan Chase & Co.");
-        companyNames.put("V", "Visa Inc.");
-        companyNames.put("JNJ", "Johnson & Johnson");
-        companyNames.put("WMT", "Walmart Inc.");
-        companyNames.put("PG", "Procter & Gamble Co.");
-        companyNames.put("MA", "Mastercard Inc.");
-        companyNames.put("UNH", "UnitedHealth Group Inc.");
-        companyNames.put("HD", "Home Depot Inc.");
-        
-        return companyNames.getOrDefault(symbol, symbol + " Inc.");
+        return SymbolDirectory.getInstance().getCompanyName(symbol);
     }
     
     private void handleStockHistoryRequest(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         String symbol = path.substring(path.lastIndexOf('/', path.lastIndexOf('/') - 1) + 1, path.lastIndexOf('/'));
         
-        String query = exchange.getRequestURI().getQuery();
-        String timeframe = "1D"; // Default
-        if (query != null && query.contains("timeframe=")) {
-            timeframe = query.split("timeframe=")[1].split("&")[0];
-        }
+        String timeframe = RequestContext.of(exchange).query("timeframe", "1D");
         
         try {
             // Use our StockApiService for history data
             List<Map<String, Object>> historyData = apiService.getStockHistory(symbol, timeframe);
             
-            // Convert the history data to a JSON response
-            StringBuilder jsonBuilder = new StringBuilder();
-            jsonBuilder.append("{\"history\": [");
-            
-            for (int i = 0; i < historyData.size(); i++) {
-                Map<String, Object> point = historyData.get(i);
-                if (i > 0) jsonBuilder.append(",");
-                
-                jsonBuilder.append("{");
-                // Format timestamp as ISO string if it's a long value
-                Object timestamp = point.get("timestamp");
-                if (timestamp instanceof Long) {
-                    Date date = new Date((Long) timestamp);
-                    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-                    dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-                    jsonBuilder.append("\"timestamp\":\"").append(dateFormat.format(date)).append("\",");
-                } else {
-                    jsonBuilder.append("\"timestamp\":\"").append(timestamp).append("\",");
-                }
-                
-                jsonBuilder.append("\"price\":").append(point.get("price"));
-                jsonBuilder.append("}");
-            }
-            
-            jsonBuilder.append("]}");
-            
-            sendResponse(exchange, 200, jsonBuilder.toString());
+            sendResponse(exchange, 200, historyJson(historyData));
         } catch (Exception e) {
             // Handle error
             LOGGER.severe("Error getting stock history: " + e.getMessage());
@@ -604,26 +549,34 @@ public class StockHandler implements HttpHandler {
     }
     
     /**
-     * Extract the Firebase ID token from request cookies
+     * Serialize history points as {"history": [{"timestamp": ..., "price": ...}, ...]}
      */
-    private String extractAuthTokenFromCookies(HttpExchange exchange) {
-        // Get the Cookie header
-        String cookieHeader = exchange.getRequestHeaders().getFirst("Cookie");
-        if (cookieHeader == null) {
-            return null;
-        }
+    static String historyJson(List<Map<String, Object>> historyData) {
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"history\": [");
         
-        // Parse cookies
-        Map<String, String> cookies = new HashMap<>();
-        for (String cookie : cookieHeader.split(";")) {
-            String[] parts = cookie.trim().split("=", 2);
-            if (parts.length == 2) {
-                cookies.put(parts[0], parts[1]);
+        for (int i = 0; i < historyData.size(); i++) {
+            Map<String, Object> point = historyData.get(i);
+            if (i > 0) jsonBuilder.append(",");
+            
+            jsonBuilder.append("{");
+            // Format timestamp as ISO string if it's a long value
+            Object timestamp = point.get("timestamp");
+            if (timestamp instanceof Long) {
+                Date date = new Date((Long) timestamp);
+                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+                dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                jsonBuilder.append("\"timestamp\":\"").append(dateFormat.format(date)).append("\",");
+            } else {
+                jsonBuilder.append("\"timestamp\":\"").append(timestamp).append("\",");
             }
+            
+            jsonBuilder.append("\"price\":").append(point.get("price"));
+            jsonBuilder.append("}");
         }
         
-        // Extract ID token
-        return cookies.get("idToken");
+        jsonBuilder.append("]}");
+        return jsonBuilder.toString();
     }
     
     /**
@@ -633,73 +586,40 @@ public class StockHandler implements HttpHandler {
         double portfolioValue = 0.0;
         
         try {
-            // Fetch user's stock positions from Firebase
+            // Fetch user's stock positions from Firebase, only the fields valued here
             String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                    + userId + "/StockPositions";
+                    + userId + "/StockPositions?" + FirestoreEncoder.fieldMask("symbol", "quantity", "lastPrice");
             
             URL url = new URL(firestoreUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder responseBuilder = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    responseBuilder.append(line);
-                }
-                reader.close();
-                
-                // Parse the positions data
-                JSONObject root = new JSONObject(responseBuilder.toString());
-                if (root.has("documents")) {
-                    JSONArray documents = root.getJSONArray("documents");
+                for (StockPosition position : FirestoreDecoder.decodeList(conn.getInputStream(), StockPosition::builder)) {
+                    String symbol = position.getSymbol();
+                    int quantity = position.getQuantity();
+                    // Use stored last price as a starting point
+                    double currentPrice = position.getLastPrice();
                     
-                    for (int i = 0; i < documents.length(); i++) {
-                        JSONObject doc = documents.getJSONObject(i);
-                        if (doc.has("fields")) {
-                            JSONObject fields = doc.getJSONObject("fields");
-                            
-                            // Extract position data
-                            String symbol = "";
-                            int quantity = 0;
-                            double currentPrice = 0.0;
-                            
-                            if (fields.has("symbol") && fields.getJSONObject("symbol").has("stringValue")) {
-                                symbol = fields.getJSONObject("symbol").getString("stringValue");
-                            }
-                            
-                            if (fields.has("quantity") && fields.getJSONObject("quantity").has("integerValue")) {
-                                quantity = Integer.parseInt(fields.getJSONObject("quantity").getString("integerValue"));
-                            }
-                            
-                            if (fields.has("lastPrice") && fields.getJSONObject("lastPrice").has("doubleValue")) {
-                                // Use stored last price as a starting point
-                                currentPrice = fields.getJSONObject("lastPrice").getDouble("doubleValue");
-                            }
-                            
-                            if (quantity > 0 && !symbol.isEmpty()) {
-                                try {
-                                    // Try to get current price from API
-                                    Stock stock = apiService.getStockQuote(symbol);
-                                    currentPrice = stock.getPrice();
-                                } catch (Exception e) {
-                                    // If API call fails, use the stored price (or default to 0)
-                                    LOGGER.warning("Failed to get price for " + symbol + ", using stored price: " + e.getMessage());
-                                }
-                                
-                                // Add to portfolio value
-                                portfolioValue += quantity * currentPrice;
-                            }
+                    if (quantity > 0 && !symbol.isEmpty()) {
+                        try {
+                            // Try to get current price from API
+                            Stock stock = apiService.getStockQuote(symbol);
+                            currentPrice = stock.getPrice();
+                        } catch (Exception e) {
+                            // If API call fails, use the stored price (or default to 0)
+                            LOGGER.warning("Failed to get price for " + symbol + ", using stored price: " + e.getMessage());
                         }
+                        
+                        // Add to portfolio value
+                        portfolioValue += quantity * currentPrice;
                     }
                 }
             }
         } catch (Exception e) {
-            LOGGER.severe("Error calculating portfolio value: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error calculating portfolio value: " + e.getMessage(), e);
         }
         
         return portfolioValue;
@@ -709,7 +629,7 @@ public class StockHandler implements HttpHandler {
      * Get user's cash balance from Firebase
      */
     private double getCashBalance(String userId, String idToken) {
-        double cashBalance = 10000.0; // Default starting cash
+        double cashBalance = DEFAULT_CASH_BALANCE;
         
         try {
             // Check if the user has a cash balance document
@@ -721,7 +641,7 @@ public class StockHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
                 StringBuilder responseBuilder = new StringBuilder();
@@ -762,7 +682,7 @@ public class StockHandler implements HttpHandler {
             conn.setRequestMethod("GET");
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode == 200) {
                 BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
                 StringBuilder responseBuilder = new StringBuilder();
@@ -806,20 +726,13 @@ public class StockHandler implements HttpHandler {
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             conn.setDoOutput(true);
             
-            JSONObject requestJson = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("value", new JSONObject().put("doubleValue", equity));
-            fields.put("timestamp", new JSONObject().put("timestampValue", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date())));
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .number("value", equity)
+                    .timestamp("timestamp", Instant.now());
             
-            requestJson.put("fields", fields);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestJson.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+            document.writeTo(conn);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode >= 400) {
                 LOGGER.warning("Failed to store equity snapshot: HTTP " + responseCode);
             }
@@ -833,31 +746,13 @@ public class StockHandler implements HttpHandler {
      */
     private void updateLastPrice(String userId, String idToken, String symbol, double price) {
         try {
-            String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                    + userId + "/StockPositions/" + symbol;
-            
-            URL url = new URL(firestoreUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("PATCH");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
+            // Only touch an existing position, and only its price fields
+            int responseCode = FirestoreWrites.update("Users/" + userId + "/StockPositions/" + symbol,
+                    FirestoreEncoder.document()
+                            .number("lastPrice", price)
+                            .serverTimestamp("lastUpdated"), idToken, true);
             
-            JSONObject requestJson = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("lastPrice", new JSONObject().put("doubleValue", price));
-            fields.put("lastUpdated", new JSONObject().put("timestampValue", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date())));
-            
-            requestJson.put("fields", fields);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestJson.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int responseCode = conn.getResponseCode();
-            if (responseCode >= 400) {
+            if (responseCode >= 400 && responseCode != 404) {
                 LOGGER.warning("Failed to update last price: HTTP " + responseCode);
             }
         } catch (Exception e) {
@@ -879,7 +774,7 @@ public class StockHandler implements HttpHandler {
             getConn.setRequestMethod("GET");
             getConn.setRequestProperty("Authorization", "Bearer " + idToken);
             
-            int getResponseCode = getConn.getResponseCode();
+            int getResponseCode = AppMetrics.responseCode(getConn);
             boolean positionExists = (getResponseCode == 200);
             
             int existingQuantity = 0;
@@ -934,48 +829,29 @@ public class StockHandler implements HttpHandler {
                     deleteConn.setRequestMethod("DELETE");
                     deleteConn.setRequestProperty("Authorization", "Bearer " + idToken);
                     
-                    int deleteResponseCode = deleteConn.getResponseCode();
+                    int deleteResponseCode = AppMetrics.responseCode(deleteConn);
                     if (deleteResponseCode >= 400) {
                         LOGGER.warning("Failed to delete stock position: HTTP " + deleteResponseCode);
                     }
                 }
             } else {
                 // Create or update position
-                URL updateUrl = new URL(firestoreUrl);
-                HttpURLConnection updateConn = (HttpURLConnection) updateUrl.openConnection();
-                updateConn.setRequestMethod(positionExists ? "PATCH" : "POST");
-                updateConn.setRequestProperty("Content-Type", "application/json");
-                updateConn.setRequestProperty("Authorization", "Bearer " + idToken);
-                updateConn.setDoOutput(true);
-                
-                JSONObject requestJson = new JSONObject();
-                JSONObject fields = new JSONObject();
-                
-                fields.put("symbol", new JSONObject().put("stringValue", symbol));
-                fields.put("quantity", new JSONObject().put("integerValue", String.valueOf(newQuantity)));
-                fields.put("averagePrice", new JSONObject().put("doubleValue", newAvgPrice));
-                fields.put("lastPrice", new JSONObject().put("doubleValue", price));
-                fields.put("lastUpdated", new JSONObject().put("timestampValue", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date())));
-                
-                requestJson.put("fields", fields);
-                
-                try (OutputStream os = updateConn.getOutputStream()) {
-                    byte[] input = requestJson.toString().getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                }
-                
-                int updateResponseCode = updateConn.getResponseCode();
+                int updateResponseCode = FirestoreWrites.update("Users/" + userId + "/StockPositions/" + symbol,
+                        FirestoreEncoder.document()
+                                .string("symbol", symbol)
+                                .integer("quantity", newQuantity)
+                                .number("averagePrice", newAvgPrice)
+                                .number("lastPrice", price)
+                                .timestamp("lastUpdated", Instant.now()), idToken);
                 if (updateResponseCode >= 400) {
                     LOGGER.warning("Failed to update stock position: HTTP " + updateResponseCode);
                 }
             }
-            
-            // Update cash balance
-            updateCashBalance(userId, idToken, side, quantity, price);
-            
         } catch (Exception e) {
-            LOGGER.severe("Error updating stock position: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Error updating stock position: " + e.getMessage(), e);
+        } finally {
+            // The trade has been placed, so the cash moves whether or not the position was recorded
+            updateCashBalance(userId, idToken, side, quantity, price);
         }
     }
     
@@ -987,35 +863,18 @@ public class StockHandler implements HttpHandler {
             double tradeValue = quantity * price;
             double cashChange = "buy".equals(side) ? -tradeValue : tradeValue;
             
-            // Get current cash balance
-            double currentCash = getCashBalance(userId, idToken);
-            double newCash = currentCash + cashChange;
-            
-            // Update cash balance in Firebase
-            String firestoreUrl = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                    + userId + "/AccountInfo/cash";
-            
-            URL url = new URL(firestoreUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST"); // Use POST with merge option
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + idToken);
-            conn.setDoOutput(true);
-            
-            JSONObject requestJson = new JSONObject();
-            JSONObject fields = new JSONObject();
-            
-            fields.put("balance", new JSONObject().put("doubleValue", newCash));
-            fields.put("lastUpdated", new JSONObject().put("timestampValue", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date())));
-            
-            requestJson.put("fields", fields);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestJson.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+            // Apply the change on the server so concurrent trades cannot overwrite each other
+            String cashPath = "Users/" + userId + "/AccountInfo/cash";
+            int responseCode = FirestoreWrites.update(cashPath, FirestoreEncoder.document()
+                    .increment("balance", cashChange)
+                    .serverTimestamp("lastUpdated"), idToken, true);
+            
+            if (responseCode == 404) {
+                // First trade: the balance starts from the default rather than 0
+                responseCode = FirestoreWrites.update(cashPath, FirestoreEncoder.document()
+                        .number("balance", DEFAULT_CASH_BALANCE + cashChange)
+                        .serverTimestamp("lastUpdated"), idToken, false);
             }
-            
-            int responseCode = conn.getResponseCode();
             if (responseCode >= 400) {
                 LOGGER.warning("Failed to update cash balance: HTTP " + responseCode);
             }
@@ -1049,26 +908,18 @@ public class StockHandler implements HttpHandler {
             conn.setRequestProperty("Authorization", "Bearer " + idToken);
             conn.setDoOutput(true);
             
-            JSONObject requestJson = new JSONObject();
-            JSONObject fields = new JSONObject();
+            FirestoreEncoder.Document document = FirestoreEncoder.document()
+                    .number("portfolioValue", portfolioValue)
+                    .number("cashBalance", cashBalance)
+                    .number("totalValue", totalValue)
+                    .timestamp("lastUpdated", Instant.now())
+                    // Add date information for easier querying
+                    .integer("year", Calendar.getInstance().get(Calendar.YEAR))
+                    .integer("month", Calendar.getInstance().get(Calendar.MONTH) + 1);
             
-            fields.put("portfolioValue", new JSONObject().put("doubleValue", portfolioValue));
-            fields.put("cashBalance", new JSONObject().put("doubleValue", cashBalance));
-            fields.put("totalValue", new JSONObject().put("doubleValue", totalValue));
-            fields.put("lastUpdated", new JSONObject().put("timestampValue", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date())));
-            
-            // Add date information for easier querying
-            fields.put("year", new JSONObject().put("integerValue", String.valueOf(Calendar.getInstance().get(Calendar.YEAR))));
-            fields.put("month", new JSONObject().put("integerValue", String.valueOf(Calendar.getInstance().get(Calendar.MONTH) + 1)));
-            
-            requestJson.put("fields", fields);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestJson.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+            document.writeTo(conn);
             
-            int responseCode = conn.getResponseCode();
+            int responseCode = AppMetrics.responseCode(conn);
             if (responseCode >= 400) {
                 LOGGER.warning("Failed to update portfolio summary: HTTP " + responseCode);
             }
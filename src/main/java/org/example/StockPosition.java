@@ -7,6 +7,7 @@ public class StockPosition {
     private String symbol;
     private int quantity;
     private double averagePrice;
+    private double lastPrice;
 
     /**
      * Constructor for StockPosition
@@ -75,6 +76,50 @@ public class StockPosition {
         this.averagePrice = averagePrice;
     }
 
+    /**
+     * Get the last price recorded for the position, 0 if none
+     * 
+     * @return The last recorded price
+     */
+    public double getLastPrice() {
+        return lastPrice;
+    }
+
+    /**
+     * Set the last recorded price
+     * 
+     * @param lastPrice The last recorded price
+     */
+    public void setLastPrice(double lastPrice) {
+        this.lastPrice = lastPrice;
+    }
+
+    /**
+     * Builder used by FirestoreDecoder to map a StockPositions document onto a StockPosition
+     * 
+     * @return A builder for one document
+     */
+    public static FirestoreDecoder.DocumentBuilder<StockPosition> builder() {
+        StockPosition position = new StockPosition("", 0, 0.0);
+        return new FirestoreDecoder.DocumentBuilder<>() {
+            @Override
+            public void field(String name, Object value) {
+                switch (name) {
+                    case "symbol" -> position.setSymbol(value instanceof String symbol ? symbol : "");
+                    case "quantity" -> position.setQuantity(FirestoreDecoder.asInt(value, 0));
+                    case "averagePrice" -> position.setAveragePrice(FirestoreDecoder.asDouble(value, 0.0));
+                    case "lastPrice" -> position.setLastPrice(FirestoreDecoder.asDouble(value, 0.0));
+                    default -> { }
+                }
+            }
+
+            @Override
+            public StockPosition build(String documentId) {
+                return position;
+            }
+        };
+    }
+
     @Override
     public String toString() {
         return "StockPosition{" +
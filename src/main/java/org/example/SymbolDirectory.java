@@ -0,0 +1,331 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory directory of tradable symbols loaded from the bundled listing file.
+ *
+ * Tickers and the individual words of company names are kept in sorted arrays,
+ * so a prefix lookup is a binary search followed by a short scan. When a query
+ * produces too few prefix hits, a bounded edit-distance pass over the entries
+ * sharing its first letter picks up typos ("APPL", "micosoft"). No upstream
+ * SYMBOL_SEARCH calls are made.
+ */
+public class SymbolDirectory {
+    private static final Logger LOGGER = Logger.getLogger(SymbolDirectory.class.getName());
+    private static final String LISTING_FILE = "src/main/resources/symbols.csv";
+    private static final String LISTING_RESOURCE = "/symbols.csv";
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 50;
+
+    // Ranking weights - lower is better
+    private static final int RANK_EXACT_SYMBOL = 0;
+    private static final int RANK_SYMBOL_PREFIX = 1;
+    private static final int RANK_NAME_PREFIX = 2;
+    private static final int RANK_FUZZY = 3;
+
+    private static SymbolDirectory instance;
+
+    // Parallel arrays ordered by symbol
+    private final String[] symbols;
+    private final String[] names;
+    private final String[] exchanges;
+    private final String[] assetTypes;
+
+    // Name words in sorted order, each pointing back at its symbol index
+    private final String[] nameTokens;
+    private final int[] nameTokenOwners;
+
+    /**
+     * A single search hit returned to callers.
+     */
+    public record Match(String symbol, String name, String exchange, String assetType) {}
+
+    private SymbolDirectory(List<String[]> rows) {
+        rows.sort(Comparator.comparing(row -> row[0]));
+
+        int n = rows.size();
+        symbols = new String[n];
+        names = new String[n];
+        exchanges = new String[n];
+        assetTypes = new String[n];
+
+        List<String> tokens = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String[] row = rows.get(i);
+            symbols[i] = row[0];
+            names[i] = row[1];
+            exchanges[i] = row[2];
+            assetTypes[i] = row[3];
+
+            for (String word : row[1].toUpperCase(Locale.ROOT).split("[^A-Z0-9&]+")) {
+                if (!word.isEmpty()) {
+                    tokens.add(word);
+                    owners.add(i);
+                }
+            }
+        }
+
+        Integer[] order = new Integer[tokens.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(tokens::get));
+
+        nameTokens = new String[order.length];
+        nameTokenOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            nameTokens[i] = tokens.get(order[i]);
+            nameTokenOwners[i] = owners.get(order[i]);
+        }
+
+        LOGGER.info("Symbol directory loaded with " + n + " symbols and " + nameTokens.length + " name tokens");
+    }
+
+    /**
+     * Get the singleton directory, loading the listing file on first use
+     */
+    public static synchronized SymbolDirectory getInstance() {
+        if (instance == null) {
+            instance = new SymbolDirectory(loadListing());
+        }
+        return instance;
+    }
+
+    /**
+     * Read the listing from disk, falling back to the classpath copy.
+     * The format follows Alpha Vantage's LISTING_STATUS export:
+     * symbol,name,exchange,assetType,ipoDate,delistingDate,status
+     */
+    private static List<String[]> loadListing() {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = openListing()) {
+            if (reader == null) {
+                LOGGER.severe("Symbol listing not found at " + LISTING_FILE + " or on the classpath");
+                return rows;
+            }
+
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                String[] row = parseListingLine(line);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to read symbol listing: " + e.getMessage(), e);
+        }
+        return rows;
+    }
+
+    private static BufferedReader openListing() throws IOException {
+        Path path = Paths.get(LISTING_FILE);
+        if (Files.isRegularFile(path)) {
+            return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        }
+        InputStream in = SymbolDirectory.class.getResourceAsStream(LISTING_RESOURCE);
+        return in == null ? null : new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Split a listing row. Company names may themselves contain commas, so the
+     * symbol is taken from the left and the five fixed columns from the right.
+     */
+    private static String[] parseListingLine(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length < 7) {
+            return null;
+        }
+        int last = parts.length;
+        String symbol = parts[0].trim().toUpperCase(Locale.ROOT);
+        String name = String.join(",", Arrays.copyOfRange(parts, 1, last - 5)).trim();
+        String exchange = parts[last - 5].trim();
+        String assetType = parts[last - 4].trim();
+        String status = parts[last - 1].trim();
+
+        if (symbol.isEmpty() || name.isEmpty() || "Delisted".equalsIgnoreCase(status)) {
+            return null;
+        }
+        return new String[] { symbol, name, exchange, assetType };
+    }
+
+    /**
+     * Look up the company name for a ticker
+     *
+     * @param symbol The stock symbol
+     * @return The listed company name, or the symbol with "Inc." appended if unknown
+     */
+    public String getCompanyName(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        int idx = Arrays.binarySearch(symbols, symbol.trim().toUpperCase(Locale.ROOT));
+        return idx >= 0 ? names[idx] : symbol + " Inc.";
+    }
+
+    /**
+     * Check whether a ticker is present in the directory
+     */
+    public boolean contains(String symbol) {
+        return symbol != null && Arrays.binarySearch(symbols, symbol.trim().toUpperCase(Locale.ROOT)) >= 0;
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    public List<Match> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Ranked prefix search over tickers and company-name words.
+     * Exact ticker matches come first, then ticker prefixes, then name-word
+     * prefixes, then near misses within a small edit distance. Near misses
+     * are only looked for when there are no prefix hits or the query has at
+     * least three characters.
+     *
+     * @param query Free text typed by the user
+     * @param limit Maximum number of results
+     * @return Matches in rank order
+     */
+    public List<Match> search(String query, int limit) {
+        List<Match> results = new ArrayList<>();
+        if (query == null) {
+            return results;
+        }
+        String q = query.trim().toUpperCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            return results;
+        }
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        // symbol index -> best rank seen
+        Map<Integer, Integer> ranks = new HashMap<>();
+
+        // Multi-word queries ("bank of america") match on their first word and
+        // are filtered against the full name afterwards
+        String[] words = q.split("\\s+");
+        String head = words[0];
+
+        for (int i = lowerBound(symbols, head); i < symbols.length && symbols[i].startsWith(head); i++) {
+            offer(ranks, i, symbols[i].equals(q) ? RANK_EXACT_SYMBOL : RANK_SYMBOL_PREFIX);
+        }
+        for (int i = lowerBound(nameTokens, head); i < nameTokens.length && nameTokens[i].startsWith(head); i++) {
+            offer(ranks, nameTokenOwners[i], RANK_NAME_PREFIX);
+        }
+
+        // Short queries that already have prefix hits are still being typed; don't fuzz them.
+        // Typos are rarely in the first letter, so only that letter's sorted run is scanned.
+        boolean fuzzy = ranks.isEmpty() ? head.length() >= 2 : head.length() >= 3;
+        if (ranks.size() < limit && fuzzy) {
+            int maxDistance = head.length() >= 5 ? 2 : 1;
+            int[] row = new int[head.length() + maxDistance + 1];
+            String first = head.substring(0, 1);
+            String next = String.valueOf((char) (head.charAt(0) + 1));
+            for (int i = lowerBound(symbols, first), end = lowerBound(symbols, next); i < end; i++) {
+                if (withinDistance(head, symbols[i], maxDistance, row)) {
+                    offer(ranks, i, RANK_FUZZY);
+                }
+            }
+            for (int i = lowerBound(nameTokens, first), end = lowerBound(nameTokens, next); i < end; i++) {
+                if (withinDistance(head, nameTokens[i], maxDistance, row)) {
+                    offer(ranks, nameTokenOwners[i], RANK_FUZZY);
+                }
+            }
+        }
+
+        List<Integer> hits = new ArrayList<>(ranks.keySet());
+        if (words.length > 1) {
+            hits.removeIf(i -> !names[i].toUpperCase(Locale.ROOT).contains(q.substring(head.length()).trim()));
+        }
+        hits.sort(Comparator.<Integer>comparingInt(ranks::get)
+                .thenComparingInt(i -> symbols[i].length())
+                .thenComparing(i -> symbols[i]));
+
+        for (int i = 0; i < hits.size() && results.size() < limit; i++) {
+            int idx = hits.get(i);
+            results.add(new Match(symbols[idx], names[idx], exchanges[idx], assetTypes[idx]));
+        }
+        return results;
+    }
+
+    private static void offer(Map<Integer, Integer> ranks, int idx, int rank) {
+        ranks.merge(idx, rank, Math::min);
+    }
+
+    /**
+     * First index whose value is >= key
+     */
+    private static int lowerBound(String[] sorted, String key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * True if the query is within maxDistance edits of some prefix of the
+     * candidate. Uses a single-row Levenshtein table, supplied by the caller
+     * and at least query length + maxDistance + 1 long, and bails out as soon
+     * as every cell in a row exceeds the bound.
+     */
+    private static boolean withinDistance(String query, String candidate, int maxDistance, int[] row) {
+        int qLen = query.length();
+        int cLen = Math.min(candidate.length(), qLen + maxDistance);
+        if (cLen < qLen - maxDistance) {
+            return false;
+        }
+
+        for (int j = 0; j <= cLen; j++) {
+            row[j] = j;
+        }
+        for (int i = 1; i <= qLen; i++) {
+            int diag = row[0];
+            row[0] = i;
+            int rowMin = row[0];
+            for (int j = 1; j <= cLen; j++) {
+                int above = row[j];
+                int cost = query.charAt(i - 1) == candidate.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min(Math.min(row[j - 1] + 1, above + 1), diag + cost);
+                diag = above;
+                rowMin = Math.min(rowMin, row[j]);
+            }
+            if (rowMin > maxDistance) {
+                return false;
+            }
+        }
+
+        // Any prefix of the candidate may match, so take the best column
+        for (int j = 0; j <= cLen; j++) {
+            if (row[j] <= maxDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
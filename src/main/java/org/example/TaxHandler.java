@@ -2,24 +2,22 @@ package org.example;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.*;
 
 public class TaxHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaxHandler.class);
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
 
         if (idToken == null || localId == null) {
             exchange.sendResponseHeaders(401, -1);
@@ -36,38 +34,28 @@ public class TaxHandler implements HttpHandler {
     }
 
     private void handlePost(HttpExchange exchange, String idToken, String localId) throws IOException {
-        String body = readAll(exchange.getRequestBody());
-
-        String result = getJsonValue(body, "result");
-        String income = getJsonValue(body, "income");
-        String filingStatus = getJsonValue(body, "filingStatus");
-        String state = getJsonValue(body, "state");
-        String taxCredits = getJsonValue(body, "taxCredits");
-        String taxesPaid = getJsonValue(body, "taxesPaid");
+        RequestContext request = RequestContext.of(exchange);
+        String result = request.string("result");
+        String income = request.string("income");
+        String filingStatus = request.string("filingStatus");
+        String state = request.string("state");
+        String taxCredits = request.string("taxCredits");
+        String taxesPaid = request.string("taxesPaid");
 
         if (result.isEmpty() || income.isEmpty() || filingStatus.isEmpty() || state.isEmpty()) {
             exchange.sendResponseHeaders(400, -1);
             return;
         }
 
-        String json = "{ \"fields\": {"
-                + "\"result\": {\"stringValue\": \"" + escapeJson(result) + "\"},"
-                + "\"income\": {\"stringValue\": \"" + escapeJson(income) + "\"},"
-                + "\"filingStatus\": {\"stringValue\": \"" + escapeJson(filingStatus) + "\"},"
-                + "\"state\": {\"stringValue\": \"" + escapeJson(state) + "\"},"
-                + "\"taxCredits\": {\"stringValue\": \"" + escapeJson(taxCredits) + "\"},"
-                + "\"taxesPaid\": {\"stringValue\": \"" + escapeJson(taxesPaid) + "\"}"
-                + "} }";
-
-        String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                + localId + "/TaxHistory/latest";
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .string("result", result)
+                .string("income", income)
+                .string("filingStatus", filingStatus)
+                .string("state", state)
+                .string("taxCredits", taxCredits)
+                .string("taxesPaid", taxesPaid);
 
-        HttpURLConnection conn = openFirestoreConnection(urlStr, "PATCH", idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
-
-        int code = conn.getResponseCode();
+        int code = FirestoreWrites.update("Users/" + localId + "/TaxHistory/latest", document, idToken);
         if (code == 200 || code == 201) {
             byte[] msg = "Tax record saved.".getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, msg.length);
@@ -85,8 +73,8 @@ public class TaxHandler implements HttpHandler {
         HttpURLConnection conn = openFirestoreConnection(urlStr, "GET", idToken);
         conn.setRequestProperty("Content-Type", "application/json");
 
-        int code = conn.getResponseCode();
-        System.out.println("Firestore GET response code: " + code);
+        int code = AppMetrics.responseCode(conn);
+        LOGGER.debug("Firestore GET response code: {}", code);
 
         InputStream inputStream;
         try {
@@ -96,10 +84,10 @@ public class TaxHandler implements HttpHandler {
         }
 
         String responseText = readAll(inputStream);
-        System.out.println("Firestore GET response body: " + responseText);
+        LOGGER.debug("Firestore GET response body: {}", responseText);
 
         if (responseText == null || responseText.trim().isEmpty()) {
-            System.out.println("Firestore returned empty or invalid JSON.");
+            LOGGER.warn("Firestore returned empty or invalid JSON.");
             exchange.sendResponseHeaders(204, -1); // No content
             return;
         }
@@ -132,22 +120,4 @@ public class TaxHandler implements HttpHandler {
         while ((line = br.readLine()) != null) sb.append(line);
         return sb.toString();
     }
-    private static String extractCookieValue(String cookies, String name) {
-        for (String part : cookies.split(";")) {
-            String t = part.trim();
-            if (t.startsWith(name + "=")) {
-                return t.substring(name.length() + 1);
-            }
-        }
-        return null;
-    }
-    private static String getJsonValue(String json, String key) {
-        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]*)\"");
-        Matcher m = p.matcher(json);
-        return m.find() ? m.group(1) : "";
-    }
-
-    private static String escapeJson(String value) {
-        return value.replace("\\", "\\\\").replace("\"", "\\\"");
-    }
 }
\ No newline at end of file
@@ -6,18 +6,13 @@ import com.sun.net.httpserver.HttpHandler;
 import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.*;
 
 public class TipsHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
-        if (cookies == null || !cookies.contains("idToken=") || !cookies.contains("localId=")) {
-            exchange.sendResponseHeaders(401, -1);
-            return;
-        }
-        String idToken = extractCookieValue(cookies, "idToken");
-        String localId = extractCookieValue(cookies, "localId");
+        RequestContext request = RequestContext.of(exchange);
+        String idToken = request.idToken();
+        String localId = request.localId();
         if (idToken == null || localId == null) {
             exchange.sendResponseHeaders(401, -1);
             return;
@@ -31,31 +26,22 @@ public class TipsHandler implements HttpHandler {
         }
     }
     private void handlePost(HttpExchange exchange, String idToken, String localId) throws IOException {
-        String body = readAll(exchange.getRequestBody());
-        String id = getJsonValue(body, "id");
-        String category = getJsonValue(body, "category");
-        String text = getJsonValue(body, "text");
+        RequestContext request = RequestContext.of(exchange);
+        String id = request.string("id");
+        String category = request.string("category");
+        String text = request.string("text");
 
         if (id.isEmpty() || category.isEmpty() || text.isEmpty()) {
             exchange.sendResponseHeaders(400, -1);
             return;
         }
 
-        String json = "{ \"fields\": {"
-                + "\"id\": {\"stringValue\": \"" + id + "\"},"
-                + "\"category\": {\"stringValue\": \"" + category + "\"},"
-                + "\"text\": {\"stringValue\": \"" + text + "\"}"
-                + "} }";
-
-        String urlStr = "https://firestore.googleapis.com/v1/projects/cashclimb-d162c/databases/(default)/documents/Users/"
-                + localId + "/SavedTips/" + URLEncoder.encode(id, "UTF-8");
+        FirestoreEncoder.Document document = FirestoreEncoder.document()
+                .string("id", id)
+                .string("category", category)
+                .string("text", text);
 
-        HttpURLConnection conn = openFirestoreConnection(urlStr, "PATCH", idToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
-
-        int code = conn.getResponseCode();
+        int code = FirestoreWrites.update("Users/" + localId + "/SavedTips/" + URLEncoder.encode(id, "UTF-8"), document, idToken);
         if (code == 200 || code == 201) {
             byte[] msg = "Tip saved.".getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, msg.length);
@@ -70,7 +56,7 @@ public class TipsHandler implements HttpHandler {
                 + localId + "/SavedTips";
 
         HttpURLConnection conn = openFirestoreConnection(urlStr, "GET", idToken);
-        int code = conn.getResponseCode();
+        int code = AppMetrics.responseCode(conn);
         if (code == 200) {
             byte[] response = readAll(conn.getInputStream()).getBytes(StandardCharsets.UTF_8);
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
@@ -100,21 +86,6 @@ public class TipsHandler implements HttpHandler {
         while ((line = br.readLine()) != null) sb.append(line);
         return sb.toString();
     }
-    private static String extractCookieValue(String cookies, String name) {
-        for (String part : cookies.split(";")) {
-            String t = part.trim();
-            if (t.startsWith(name + "=")) {
-                return t.substring(name.length() + 1);
-            }
-        }
-        return null;
-    }
-    private static String getJsonValue(String json, String key) {
-        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]*)\"");
-        Matcher m = p.matcher(json);
-        if (m.find()) return m.group(1);
-        return "";
-    }
 }
 
 
@@ -14,6 +14,7 @@ public class Transaction {
     private final String from;       // Sender address
     private final String to;         // Recipient address
     private final String status;     // CONFIRMED, PENDING, UNKNOWN
+    private final long blockHeight;  // Block the transaction was mined in, 0 if unknown
 
     /**
      * Creates a new Transaction with the specified details.
@@ -27,6 +28,15 @@ public class Transaction {
      * @param status    The transaction status (CONFIRMED, PENDING, UNKNOWN)
      */
     public Transaction(String type, double amount, String timestamp, String txHash, String from, String to, String status) {
+        this(type, amount, timestamp, txHash, from, to, status, 0L);
+    }
+
+    /**
+     * Creates a new Transaction that also records the block it was mined in.
+     *
+     * @param blockHeight The block height, or 0 if unconfirmed or unknown
+     */
+    public Transaction(String type, double amount, String timestamp, String txHash, String from, String to, String status, long blockHeight) {
         this.type = type;
         this.amount = amount;
         this.timestamp = timestamp;
@@ -34,6 +44,7 @@ public class Transaction {
         this.from = from;
         this.to = to;
         this.status = status;
+        this.blockHeight = blockHeight;
     }
 
     /**
@@ -61,4 +72,5 @@ public class Transaction {
     public String getFrom() { return from; }
     public String getTo() { return to; }
     public String getStatus() { return status; }
+    public long getBlockHeight() { return blockHeight; }
 }
@@ -0,0 +1,285 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only local log of wallet transactions with an in-memory index by address.
+ *
+ * Every record is a length-prefixed entry in a single file. A record is either a
+ * transaction or a sync mark holding the address's high-water mark (last block
+ * and newest transaction hash). On startup the file is scanned once to rebuild
+ * the per-address offset lists, after which history pages are served with
+ * positional reads and no network calls.
+ */
+public class TransactionLog {
+    private static final Logger LOGGER = Logger.getLogger(TransactionLog.class.getName());
+    private static final String LOG_FILE = "data/transactions.log";
+
+    private static final byte RECORD_TRANSACTION = 1;
+    private static final byte RECORD_MARK = 2;
+
+    private static TransactionLog instance;
+
+    private FileChannel channel;
+    private final Map<String, AddressIndex> index = new HashMap<>();
+
+    /**
+     * Sync state of one address
+     *
+     * @param lastBlock Highest block seen, 0 if none
+     * @param lastHash Hash of the newest transaction seen, or empty
+     */
+    public record SyncMark(long lastBlock, String lastHash) {
+        public static final SyncMark NONE = new SyncMark(0L, "");
+    }
+
+    /**
+     * Offsets of an address's transactions in log order, oldest first
+     */
+    private static class AddressIndex {
+        private long[] offsets = new long[8];
+        private int count;
+        private final Set<String> hashes = new HashSet<>();
+        private SyncMark mark = SyncMark.NONE;
+
+        void add(long offset, String hash) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+            hashes.add(hash);
+        }
+    }
+
+    private TransactionLog(Path path) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Transaction log unavailable at " + path + ": " + e.getMessage(), e);
+            channel = null;
+        }
+    }
+
+    /**
+     * Get the singleton log, scanning the file on first use
+     */
+    public static synchronized TransactionLog getInstance() {
+        if (instance == null) {
+            instance = new TransactionLog(Paths.get(LOG_FILE));
+        }
+        return instance;
+    }
+
+    public boolean isAvailable() {
+        return channel != null;
+    }
+
+    /**
+     * Rebuild the index from disk. A torn record at the end of the file, left by
+     * a crash mid-append, is cut off so later appends start on a clean boundary.
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        int records = 0;
+        ByteBuffer header = ByteBuffer.allocate(4);
+
+        while (position + 4 <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            if (length <= 0 || position + 4 + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, position + 4);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array()));
+            byte kind = in.readByte();
+            String key = in.readUTF();
+            AddressIndex entry = index.computeIfAbsent(key, k -> new AddressIndex());
+            if (kind == RECORD_TRANSACTION) {
+                entry.add(position, readTransaction(in).getTxHash());
+            } else if (kind == RECORD_MARK) {
+                entry.mark = new SyncMark(in.readLong(), in.readUTF());
+            }
+
+            position += 4 + length;
+            records++;
+        }
+
+        if (position < size) {
+            LOGGER.warning("Truncating " + (size - position) + " trailing bytes from transaction log");
+            channel.truncate(position);
+        }
+        LOGGER.info("Transaction log loaded: " + records + " records for " + index.size() + " addresses");
+    }
+
+    /**
+     * Append newly synced transactions and the new high-water mark in one write.
+     * Transactions already in the log for this address are skipped.
+     *
+     * @param key Address key, e.g. "ETH:0xabc..."
+     * @param transactions New transactions, oldest first
+     * @param mark The address's sync state after these transactions
+     * @return Number of transactions actually appended
+     */
+    public synchronized int append(String key, List<Transaction> transactions, SyncMark mark) throws IOException {
+        if (channel == null) {
+            throw new IOException("Transaction log is not available");
+        }
+        AddressIndex entry = index.computeIfAbsent(key, k -> new AddressIndex());
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        List<Long> addedOffsets = new ArrayList<>();
+        List<String> addedHashes = new ArrayList<>();
+        Set<String> batch = new HashSet<>();
+        long base = channel.size();
+
+        for (Transaction tx : transactions) {
+            if (entry.hashes.contains(tx.getTxHash()) || !batch.add(tx.getTxHash())) {
+                continue;
+            }
+            addedOffsets.add(base + buffer.size());
+            addedHashes.add(tx.getTxHash());
+            writeRecord(buffer, RECORD_TRANSACTION, key, out -> writeTransaction(out, tx));
+        }
+        writeRecord(buffer, RECORD_MARK, key, out -> {
+            out.writeLong(mark.lastBlock());
+            out.writeUTF(mark.lastHash());
+        });
+
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        long position = base;
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+        channel.force(false);
+
+        for (int i = 0; i < addedOffsets.size(); i++) {
+            entry.add(addedOffsets.get(i), addedHashes.get(i));
+        }
+        entry.mark = mark;
+        return addedOffsets.size();
+    }
+
+    /**
+     * Get the sync state of an address
+     */
+    public synchronized SyncMark getMark(String key) {
+        AddressIndex entry = index.get(key);
+        return entry == null ? SyncMark.NONE : entry.mark;
+    }
+
+    /**
+     * Number of transactions stored for an address
+     */
+    public synchronized int count(String key) {
+        AddressIndex entry = index.get(key);
+        return entry == null ? 0 : entry.count;
+    }
+
+    /**
+     * Whether a transaction is stored for an address
+     */
+    public synchronized boolean contains(String key, String txHash) {
+        AddressIndex entry = index.get(key);
+        return entry != null && entry.hashes.contains(txHash);
+    }
+
+    /**
+     * Read one page of an address's history, newest first
+     *
+     * @param key Address key
+     * @param page Zero-based page number
+     * @param pageSize Transactions per page
+     * @return The transactions on that page
+     */
+    public synchronized List<Transaction> read(String key, int page, int pageSize) throws IOException {
+        AddressIndex entry = index.get(key);
+        if (entry == null || channel == null || page < 0 || pageSize <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Transaction> result = new ArrayList<>();
+        int newest = entry.count - 1 - page * pageSize;
+        for (int i = newest; i >= 0 && i > newest - pageSize; i--) {
+            result.add(readTransactionAt(entry.offsets[i]));
+        }
+        return result;
+    }
+
+    private Transaction readTransactionAt(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        channel.read(header, offset);
+        header.flip();
+        ByteBuffer body = ByteBuffer.allocate(header.getInt());
+        channel.read(body, offset + 4);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array()));
+        in.readByte();
+        in.readUTF();
+        return readTransaction(in);
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static void writeRecord(ByteArrayOutputStream buffer, byte kind, String key, RecordWriter payload) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeByte(kind);
+        out.writeUTF(key);
+        payload.write(out);
+        out.flush();
+
+        DataOutputStream frame = new DataOutputStream(buffer);
+        frame.writeInt(record.size());
+        record.writeTo(frame);
+        frame.flush();
+    }
+
+    private static void writeTransaction(DataOutputStream out, Transaction tx) throws IOException {
+        out.writeUTF(tx.getType());
+        out.writeDouble(tx.getAmount());
+        out.writeUTF(nullToEmpty(tx.getTimestamp()));
+        out.writeUTF(nullToEmpty(tx.getTxHash()));
+        out.writeUTF(nullToEmpty(tx.getFrom()));
+        out.writeUTF(nullToEmpty(tx.getTo()));
+        out.writeUTF(nullToEmpty(tx.getStatus()));
+        out.writeLong(tx.getBlockHeight());
+    }
+
+    private static Transaction readTransaction(DataInputStream in) throws IOException {
+        return new Transaction(in.readUTF(), in.readDouble(), in.readUTF(), in.readUTF(),
+                in.readUTF(), in.readUTF(), in.readUTF(), in.readLong());
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
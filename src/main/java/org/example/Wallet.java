@@ -34,6 +34,17 @@ public class Wallet {
         this.lastUpdated = LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
     }
 
+    /**
+     * Create an updated copy of this wallet, leaving this instance untouched.
+     * Used where wallets are shared between threads and must not change in place.
+     */
+    public Wallet withInfo(WalletInfo info) {
+        Wallet copy = new Wallet(label, address, cryptoType);
+        copy.id = id;
+        copy.updateInfo(info);
+        return copy;
+    }
+
     public JSONObject toJSON() {
         JSONObject json = new JSONObject();
         json.put("id", id);
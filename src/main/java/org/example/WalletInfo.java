@@ -8,9 +8,32 @@ public record WalletInfo(
         double currentPrice,
         double priceChange24h,
         double marketCap,
-        double volume24h
+        double volume24h,
+        boolean fallback
 ) {
+    /**
+     * Transactions are copied into an unmodifiable list so a WalletInfo can be
+     * cached and shared between requests without defensive copies.
+     */
+    public WalletInfo {
+        transactions = transactions == null ? List.of() : List.copyOf(transactions);
+    }
+
+    public WalletInfo(double balance, List<Transaction> transactions, double currentPrice, double priceChange24h,
+                      double marketCap, double volume24h) {
+        this(balance, transactions, currentPrice, priceChange24h, marketCap, volume24h, false);
+    }
+
     public WalletInfo(double balance, List<Transaction> transactions, double currentPrice, double priceChange24h) {
         this(balance, transactions, currentPrice, priceChange24h, 0.0, 0.0);
     }
+
+    /**
+     * Placeholder for a wallet whose chain lookup failed: a zero balance and no
+     * transactions around whatever price is known. Callers must not store it
+     * over a wallet's real balance.
+     */
+    public static WalletInfo fallback(double currentPrice, double priceChange24h) {
+        return new WalletInfo(0.0, List.of(), currentPrice, priceChange24h, 0.0, 0.0, true);
+    }
 }
@@ -0,0 +1,313 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps tracked wallets warm by refreshing them in the background.
+ *
+ * Every wallet held in the WalletRegistry is scheduled in a priority queue
+ * ordered by its next due time. A wallet whose balance or newest transaction
+ * changed on its last refresh is checked again soon; one that did not change
+ * backs off exponentially up to an hour. Each provider (blockchain.info for
+ * BTC, Etherscan for ETH) has its own token bucket, so the most overdue
+ * wallets go first and a busy provider never blocks the other. Refreshes run
+ * on their own small pool, at most MAX_IN_FLIGHT at a time, so a backlog is
+ * spread over several ticks and never competes with user lookups for the
+ * WalletService pool. Updated wallets are written to Firestore in periodic
+ * batches rather than one at a time.
+ */
+public class WalletRefresher {
+    private static final Logger LOGGER = Logger.getLogger(WalletRefresher.class.getName());
+
+    // Adaptive cadence bounds
+    private static final long MIN_INTERVAL_MS = 60_000;
+    private static final long INITIAL_INTERVAL_MS = 5 * 60_000;
+    private static final long MAX_INTERVAL_MS = 60 * 60_000;
+
+    private static final long TICK_SECONDS = 5;
+    private static final long DISCOVERY_SECONDS = 60;
+    private static final long FLUSH_SECONDS = 30;
+
+    // Background wallet refreshes each provider may absorb per minute. A refresh
+    // costs a few calls, and user-initiated requests share the same limits.
+    private static final int BTC_REFRESHES_PER_MINUTE = 4;
+    private static final int ETH_REFRESHES_PER_MINUTE = 30;
+
+    // Background refreshes running at once; the rest wait for a later tick
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final int REFRESH_THREADS = 2;
+
+    private static WalletRefresher instance;
+
+    private final WalletService walletService;
+    private final WalletRegistry walletRegistry;
+    private final Map<String, RateBudget> budgets = new ConcurrentHashMap<>();
+    private final Map<String, TrackedWallet> tracked = new ConcurrentHashMap<>();
+    private final PriorityQueue<TrackedWallet> schedule = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.nextDue, b.nextDue));
+    private final Queue<FirestoreService.UserDocument> pendingSaves = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    private boolean started;
+
+    /**
+     * Refresh state of one wallet
+     */
+    private static class TrackedWallet {
+        private final String userId;
+        private final String walletId;
+        private final String address;
+        private final String cryptoType;
+        private long nextDue;
+        private long interval = INITIAL_INTERVAL_MS;
+        private String lastSignature;
+
+        TrackedWallet(String userId, Wallet wallet, long nextDue) {
+            this.userId = userId;
+            this.walletId = wallet.getId();
+            this.address = wallet.getAddress();
+            this.cryptoType = wallet.getCryptoType().toUpperCase();
+            this.nextDue = nextDue;
+        }
+
+        String key() {
+            return userId + "/" + walletId;
+        }
+    }
+
+    /**
+     * Token bucket refilled continuously at a fixed rate
+     */
+    private static class RateBudget {
+        private final double capacity;
+        private final double refillPerMs;
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+
+        RateBudget(int perMinute) {
+            this.capacity = perMinute;
+            this.refillPerMs = perMinute / 60_000.0;
+            this.tokens = perMinute;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMs);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized double available() {
+            return Math.min(capacity, tokens + (System.currentTimeMillis() - lastRefill) * refillPerMs);
+        }
+    }
+
+    private WalletRefresher() {
+        AtomicInteger refreshThreads = new AtomicInteger();
+        this.walletService = new WalletService(Executors.newFixedThreadPool(REFRESH_THREADS, r -> {
+            Thread t = new Thread(r, "wallet-refresh-" + refreshThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }));
+        this.walletRegistry = WalletRegistry.getInstance();
+        budgets.put("BTC", new RateBudget(BTC_REFRESHES_PER_MINUTE));
+        budgets.put("ETH", new RateBudget(ETH_REFRESHES_PER_MINUTE));
+        budgets.forEach((type, budget) -> AppMetrics.rateLimiterTokens("wallet_refresh_" + type.toLowerCase(), budget::available));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wallet-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Get the singleton instance of WalletRefresher
+     */
+    public static synchronized WalletRefresher getInstance() {
+        if (instance == null) {
+            instance = new WalletRefresher();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the background schedule. Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        scheduler.scheduleWithFixedDelay(this::discover, 0, DISCOVERY_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::tick, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+        LOGGER.info("Wallet refresher started");
+    }
+
+    /**
+     * Pick up wallets of users whose wallets have been loaded into the registry
+     * and stop tracking wallets that have been removed
+     */
+    private void discover() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> live = new HashSet<>();
+            int added = 0;
+
+            for (String userId : walletRegistry.getLoadedUsers()) {
+                for (Wallet wallet : walletRegistry.getWallets(userId)) {
+                    if (wallet.getId() == null || wallet.getCryptoType() == null) {
+                        continue;
+                    }
+                    TrackedWallet candidate = new TrackedWallet(userId, wallet, now + INITIAL_INTERVAL_MS);
+                    live.add(candidate.key());
+                    if (tracked.putIfAbsent(candidate.key(), candidate) == null) {
+                        synchronized (schedule) {
+                            schedule.add(candidate);
+                        }
+                        added++;
+                    }
+                }
+            }
+
+            int removed = 0;
+            for (TrackedWallet wallet : new ArrayList<>(tracked.values())) {
+                if (!live.contains(wallet.key())) {
+                    tracked.remove(wallet.key());
+                    synchronized (schedule) {
+                        schedule.remove(wallet);
+                    }
+                    removed++;
+                }
+            }
+
+            if (added > 0 || removed > 0) {
+                LOGGER.info("Wallet refresher tracking " + tracked.size() + " wallets (+" + added + ", -" + removed + ")");
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error discovering wallets to refresh: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start refreshes for due wallets while there is an in-flight slot and their
+     * provider has budget. Wallets held back stay at the front of the queue for
+     * the next tick.
+     */
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<TrackedWallet> dispatch = new ArrayList<>();
+        List<TrackedWallet> deferred = new ArrayList<>();
+        Set<String> exhausted = new HashSet<>();
+
+        synchronized (schedule) {
+            while (!schedule.isEmpty() && schedule.peek().nextDue <= now && inFlight.availablePermits() > 0) {
+                TrackedWallet wallet = schedule.poll();
+                RateBudget budget = budgets.get(wallet.cryptoType);
+                if (budget == null) {
+                    tracked.remove(wallet.key());
+                } else if (!exhausted.contains(wallet.cryptoType) && budget.tryAcquire()) {
+                    // Only this thread acquires, so the permit checked above is still there
+                    inFlight.acquireUninterruptibly();
+                    dispatch.add(wallet);
+                } else {
+                    exhausted.add(wallet.cryptoType);
+                    deferred.add(wallet);
+                }
+            }
+            schedule.addAll(deferred);
+        }
+
+        for (TrackedWallet wallet : dispatch) {
+            try {
+                walletService.getWalletInfoAsync(wallet.address, wallet.cryptoType)
+                        .whenComplete((info, error) -> onRefreshed(wallet, info, error));
+            } catch (IllegalArgumentException e) {
+                inFlight.release();
+                LOGGER.warning("Dropping wallet " + wallet.key() + " from refresh: " + e.getMessage());
+                tracked.remove(wallet.key());
+            }
+        }
+    }
+
+    private void onRefreshed(TrackedWallet wallet, WalletInfo info, Throwable error) {
+        inFlight.release();
+        if (!tracked.containsKey(wallet.key())) {
+            return;
+        }
+
+        if (error != null || info.fallback()) {
+            // A fallback carries a placeholder zero balance, so it must not reach the registry or Firestore
+            LOGGER.fine("Background refresh failed for " + wallet.key() + ": "
+                    + (error != null ? error.getMessage() : "upstream unavailable"));
+            wallet.interval = Math.min(wallet.interval * 2, MAX_INTERVAL_MS);
+        } else {
+            String signature = info.balance() + "|"
+                    + (info.transactions().isEmpty() ? "" : info.transactions().get(0).getTxHash());
+            boolean active = wallet.lastSignature != null && !signature.equals(wallet.lastSignature);
+            wallet.lastSignature = signature;
+            wallet.interval = active ? MIN_INTERVAL_MS : Math.min(wallet.interval * 2, MAX_INTERVAL_MS);
+
+            Wallet updated = walletRegistry.applyUpdate(wallet.userId, wallet.walletId, info);
+            if (updated == null) {
+                tracked.remove(wallet.key());
+                return;
+            }
+            pendingSaves.add(new FirestoreService.UserDocument(
+                    wallet.userId, wallet.walletId, FirestoreService.walletToMap(updated)));
+        }
+
+        wallet.nextDue = System.currentTimeMillis() + wallet.interval;
+        synchronized (schedule) {
+            schedule.add(wallet);
+        }
+    }
+
+    /**
+     * Hand refreshed wallets to Firestore's bulk write pipeline
+     */
+    private void flush() {
+        try {
+            // Leave the queue alone while Firestore is down so nothing collected so far is lost
+            FirestoreService firestoreService = FirestoreService.getInstance();
+            if (!firestoreService.isAvailable()) {
+                return;
+            }
+
+            List<FirestoreService.UserDocument> saves = new ArrayList<>();
+            FirestoreService.UserDocument doc;
+            while ((doc = pendingSaves.poll()) != null) {
+                saves.add(doc);
+            }
+            if (saves.isEmpty()) {
+                return;
+            }
+            firestoreService.batchSaveWalletsAsync(saves).thenAccept(allWritten -> {
+                if (!allWritten) {
+                    LOGGER.warning("Some of " + saves.size() + " refreshed wallets failed to save");
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error saving refreshed wallets: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Per-user registry of crypto wallets.
+ *
+ * Each user's wallets are loaded from Firestore on that user's first access and
+ * then held as an immutable snapshot keyed by wallet ID, with a second index by
+ * address. Readers take the current snapshot without locking; writers copy it,
+ * apply their change and publish the new snapshot under the user's lock, then
+ * write the wallet through to Firestore. Wallet objects in a snapshot are never
+ * mutated; updates replace them with a new instance. Firestore writes for one
+ * wallet are chained so they land in the order the snapshots were published.
+ */
+public class WalletRegistry {
+    private static final Logger LOGGER = Logger.getLogger(WalletRegistry.class.getName());
+
+    private static WalletRegistry instance;
+
+    private final FirestoreService firestoreService;
+    private final Map<String, UserWallets> users = new ConcurrentHashMap<>();
+
+    /**
+     * Immutable view of one user's wallets
+     */
+    private record Snapshot(Map<String, Wallet> byId, Map<String, String> idByAddress) {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+        Snapshot with(Wallet wallet) {
+            Map<String, Wallet> ids = new LinkedHashMap<>(byId);
+            Map<String, String> addresses = new HashMap<>(idByAddress);
+            ids.put(wallet.getId(), wallet);
+            addresses.put(wallet.getAddress(), wallet.getId());
+            return new Snapshot(Collections.unmodifiableMap(ids), Collections.unmodifiableMap(addresses));
+        }
+
+        Snapshot without(Wallet wallet) {
+            Map<String, Wallet> ids = new LinkedHashMap<>(byId);
+            Map<String, String> addresses = new HashMap<>(idByAddress);
+            ids.remove(wallet.getId());
+            addresses.remove(wallet.getAddress(), wallet.getId());
+            return new Snapshot(Collections.unmodifiableMap(ids), Collections.unmodifiableMap(addresses));
+        }
+    }
+
+    /**
+     * Wallet state for a single user, loaded on first use
+     */
+    private static class UserWallets {
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+        private volatile boolean loaded;
+        // Most recent Firestore write per wallet ID, until it completes
+        private final Map<String, CompletableFuture<Boolean>> lastWrite = new ConcurrentHashMap<>();
+    }
+
+    private WalletRegistry() {
+        this.firestoreService = FirestoreService.getInstance();
+    }
+
+    /**
+     * Get the singleton instance of WalletRegistry
+     */
+    public static synchronized WalletRegistry getInstance() {
+        if (instance == null) {
+            instance = new WalletRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Get a user's wallets in the order they were added
+     */
+    public List<Wallet> getWallets(String userId) {
+        return Collections.unmodifiableList(new ArrayList<>(load(userId).snapshot.byId().values()));
+    }
+
+    public Wallet getWallet(String userId, String walletId) {
+        return walletId == null ? null : load(userId).snapshot.byId().get(walletId);
+    }
+
+    public Wallet findByAddress(String userId, String address) {
+        if (address == null) {
+            return null;
+        }
+        Snapshot snapshot = load(userId).snapshot;
+        String walletId = snapshot.idByAddress().get(address);
+        return walletId == null ? null : snapshot.byId().get(walletId);
+    }
+
+    /**
+     * Add a wallet for a user and save it to Firestore
+     *
+     * @return The stored wallet
+     */
+    public Wallet addWallet(String userId, Wallet wallet) {
+        if (wallet.getId() == null || wallet.getId().isEmpty()) {
+            wallet.setId(java.util.UUID.randomUUID().toString());
+        }
+        UserWallets user = load(userId);
+        synchronized (user) {
+            user.snapshot = user.snapshot.with(wallet);
+        }
+        writeThrough(userId, wallet.getId());
+        return wallet;
+    }
+
+    /**
+     * Apply fresh chain and price data to one of a user's wallets. A fallback
+     * result from a failed lookup leaves the wallet as it is.
+     *
+     * @return The updated wallet, or null if the user has no such wallet
+     */
+    public Wallet updateWallet(String userId, String walletId, WalletInfo info) {
+        Wallet updated = applyUpdate(userId, walletId, info);
+        if (updated != null && !info.fallback()) {
+            writeThrough(userId, walletId);
+        }
+        return updated;
+    }
+
+    /**
+     * Apply fresh data without saving; the caller is responsible for persisting
+     * the returned wallet, for example as part of a batched write. A fallback
+     * result from a failed lookup leaves the wallet as it is.
+     *
+     * @return The updated wallet, or null if the user has no such wallet
+     */
+    public Wallet applyUpdate(String userId, String walletId, WalletInfo info) {
+        UserWallets user = load(userId);
+        synchronized (user) {
+            Wallet current = user.snapshot.byId().get(walletId);
+            if (current == null || info.fallback()) {
+                return current;
+            }
+            Wallet updated = current.withInfo(info);
+            user.snapshot = user.snapshot.with(updated);
+            return updated;
+        }
+    }
+
+    /**
+     * Remove a wallet and delete it from Firestore
+     *
+     * @return true if the user had the wallet
+     */
+    public boolean removeWallet(String userId, String walletId) {
+        UserWallets user = load(userId);
+        Wallet removed;
+        synchronized (user) {
+            removed = user.snapshot.byId().get(walletId);
+            if (removed == null) {
+                return false;
+            }
+            user.snapshot = user.snapshot.without(removed);
+            if (firestoreService.isAvailable()) {
+                // Behind any save still in flight, so the wallet cannot reappear
+                chainWrite(user, walletId, () -> firestoreService.deleteWalletAsync(userId, walletId))
+                        .whenComplete((deleted, error) -> {
+                            if (error != null || !deleted) {
+                                LOGGER.warning("Wallet " + walletId + " for user " + userId + " was not deleted from Firestore");
+                            }
+                        });
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Users whose wallets are currently held in memory
+     */
+    public List<String> getLoadedUsers() {
+        return new ArrayList<>(users.keySet());
+    }
+
+    private UserWallets load(String userId) {
+        UserWallets user = users.computeIfAbsent(userId, k -> new UserWallets());
+        if (user.loaded) {
+            return user;
+        }
+
+        synchronized (user) {
+            if (user.loaded) {
+                return user;
+            }
+            Snapshot snapshot = Snapshot.EMPTY;
+            boolean complete = !firestoreService.isAvailable();
+            if (!complete) {
+                List<Map<String, Object>> stored = firestoreService.getUserWallets(userId);
+                if (stored != null) {
+                    for (Map<String, Object> walletData : stored) {
+                        Wallet wallet = FirestoreService.mapToWallet(walletData);
+                        if (wallet.getId() == null) {
+                            wallet.setId(wallet.getAddress());
+                        }
+                        snapshot = snapshot.with(wallet);
+                    }
+                    LOGGER.info("Loaded " + snapshot.byId().size() + " wallets for user " + userId);
+                    complete = true;
+                } else {
+                    LOGGER.warning("Could not load wallets for user " + userId + ", will retry on next access");
+                }
+            }
+            // Keep wallets added in memory while an earlier load attempt was failing
+            for (Wallet wallet : user.snapshot.byId().values()) {
+                snapshot = snapshot.with(wallet);
+            }
+            user.snapshot = snapshot;
+            user.loaded = complete;
+        }
+        return user;
+    }
+
+    private void writeThrough(String userId, String walletId) {
+        if (!firestoreService.isAvailable()) {
+            return;
+        }
+        UserWallets user = load(userId);
+        synchronized (user) {
+            // Save the latest published state; a removed wallet is left to its delete
+            Wallet wallet = user.snapshot.byId().get(walletId);
+            if (wallet == null) {
+                return;
+            }
+            // The in-memory copy is authoritative, so the caller doesn't wait on Firestore
+            Map<String, Object> data = FirestoreService.walletToMap(wallet);
+            chainWrite(user, walletId, () -> firestoreService.saveWalletAsync(userId, walletId, data))
+                    .whenComplete((saved, error) -> {
+                        if (error != null || !saved) {
+                            LOGGER.warning("Wallet " + walletId + " for user " + userId + " was not saved to Firestore");
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Start a Firestore write for a wallet once its previous write has finished.
+     * Called with the user's lock held, so writes start in snapshot order.
+     */
+    private static CompletableFuture<Boolean> chainWrite(UserWallets user, String walletId,
+                                                         Supplier<CompletableFuture<Boolean>> write) {
+        CompletableFuture<Boolean> previous = user.lastWrite.get(walletId);
+        CompletableFuture<Boolean> next = previous == null
+                ? write.get()
+                : previous.handle((result, error) -> null).thenCompose(ignored -> write.get());
+        user.lastWrite.put(walletId, next);
+        next.whenComplete((result, error) -> user.lastWrite.remove(walletId, next));
+        return next;
+    }
+}
@@ -2,24 +2,78 @@ package org.example;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Service that provides wallet information by combining blockchain data with price data.
- * Acts as a facade for the BlockchainApiService and CoinMarketCapService.
+ * Acts as a facade for the BlockchainApiService and the shared CoinPriceCache.
+ *
+ * The chain lookup and the price lookup are independent, so they run concurrently
+ * on a shared bounded pool and are combined under a single deadline. A wallet
+ * lookup therefore takes as long as the slower upstream call rather than the sum.
+ * The deadline starts once the chain lookup is running, so time spent queued
+ * behind other lookups does not eat into it; the queue itself is bounded and a
+ * lookup that finds it full fails straight away.
  */
 public class WalletService {
     private static final Logger LOGGER = Logger.getLogger(WalletService.class.getName());
+    
+    // Upper bound on a whole wallet lookup, covering both upstream calls and their retries
+    private static final long WALLET_DEADLINE_MS = 15000;
+    
+    // Upstream calls are blocking I/O; this caps how many run at once across all requests
+    private static final int MAX_CONCURRENT_LOOKUPS = 8;
+    // Lookups waiting for a thread beyond this are rejected rather than queued
+    private static final int MAX_QUEUED_LOOKUPS = 32;
+    private static final ExecutorService LOOKUP_EXECUTOR = new ThreadPoolExecutor(
+            MAX_CONCURRENT_LOOKUPS, MAX_CONCURRENT_LOOKUPS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_QUEUED_LOOKUPS), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "wallet-lookup-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }, new ThreadPoolExecutor.AbortPolicy());
+    
     private final BlockchainApiService blockchainApi;
-    private final CoinMarketCapService cmcService;
+    private final CoinPriceCache priceCache;
+    private final Executor lookupExecutor;
 
     /**
      * Constructs a new WalletService with blockchain and price API services.
      */
     public WalletService() {
+        this(LOOKUP_EXECUTOR);
+    }
+
+    /**
+     * Constructs a WalletService that runs its lookups on the given executor
+     * instead of the shared pool, so background work cannot crowd out user requests
+     */
+    WalletService(Executor lookupExecutor) {
         this.blockchainApi = new BlockchainApiService();
-        this.cmcService = new CoinMarketCapService();
+        this.priceCache = CoinPriceCache.getInstance();
+        this.lookupExecutor = lookupExecutor;
     }
 
     /**
@@ -29,9 +83,116 @@ public class WalletService {
      * @param cryptoType The cryptocurrency type (BTC or ETH)
      * @return WalletInfo containing combined wallet information
      * @throws IOException if there's an error communicating with the APIs
-     * @throws IllegalArgumentException if the address or crypto type is invalid
+     * @throws IllegalArgumentException if the address or crypto type is missing
      */
     public WalletInfo getWalletInfo(String address, String cryptoType) throws IOException, IllegalArgumentException {
+        requirePresent(address, cryptoType);
+        try {
+            return getWalletInfoAsync(address, cryptoType).join();
+        } catch (CompletionException | IllegalArgumentException e) {
+            // An unsupported crypto type gets the empty fallback, as it always has
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            LOGGER.log(Level.SEVERE, "Error fetching wallet info: " + cause.getMessage(), cause);
+            return emptyWalletInfo();
+        }
+    }
+    
+    /**
+     * Asynchronously retrieves combined wallet information. The chain and price lookups
+     * are started together and the returned future completes exceptionally with a
+     * TimeoutException if both have not finished within the wallet deadline of the
+     * chain lookup starting, or with a RejectedExecutionException if the lookup pool
+     * is saturated.
+     *
+     * @param address The wallet address to query
+     * @param cryptoType The cryptocurrency type (BTC or ETH)
+     * @return Future of WalletInfo containing combined wallet information
+     * @throws IllegalArgumentException if the address or crypto type is invalid
+     */
+    public CompletableFuture<WalletInfo> getWalletInfoAsync(String address, String cryptoType) {
+        String type = validate(address, cryptoType);
+        LOGGER.info("Fetching wallet info for " + type + " address: " + address);
+        
+        CompletableFuture<CoinPrice> price = fetchPrice(type);
+        return lookup(address, type, price);
+    }
+    
+    /**
+     * Retrieves wallet information for several wallets in one fan-out. The price for
+     * each crypto type is fetched once and shared, and chain lookups are spread over
+     * the bounded lookup pool. Wallets whose lookup fails or misses the deadline are
+     * left out of the result rather than failing the whole batch.
+     *
+     * @param wallets The wallets to look up
+     * @return Future of a map from wallet address to its WalletInfo, in input order
+     */
+    public CompletableFuture<Map<String, WalletInfo>> getWalletInfosAsync(List<Wallet> wallets) {
+        Map<String, CompletableFuture<CoinPrice>> prices = new HashMap<>();
+        Map<String, CompletableFuture<WalletInfo>> lookups = new LinkedHashMap<>();
+        
+        for (Wallet wallet : wallets) {
+            String type;
+            try {
+                type = validate(wallet.getAddress(), wallet.getCryptoType());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warning("Skipping wallet " + wallet.getId() + ": " + e.getMessage());
+                continue;
+            }
+            if (lookups.containsKey(wallet.getAddress())) {
+                continue;
+            }
+            CompletableFuture<CoinPrice> price = prices.computeIfAbsent(type, this::fetchPrice);
+            lookups.put(wallet.getAddress(), lookup(wallet.getAddress(), type, price));
+        }
+        
+        LOGGER.info("Fetching wallet info for " + lookups.size() + " wallets with " + prices.size() + " price lookups");
+        
+        CompletableFuture<?>[] all = lookups.values().toArray(new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(all)
+                .handle((ignored, error) -> {
+                    Map<String, WalletInfo> results = new LinkedHashMap<>();
+                    for (Map.Entry<String, CompletableFuture<WalletInfo>> entry : lookups.entrySet()) {
+                        CompletableFuture<WalletInfo> lookup = entry.getValue();
+                        if (!lookup.isCompletedExceptionally()) {
+                            results.put(entry.getKey(), lookup.join());
+                        } else {
+                            LOGGER.warning("Wallet lookup failed for " + entry.getKey());
+                        }
+                    }
+                    return results;
+                });
+    }
+    
+    /**
+     * Blocking form of {@link #getWalletInfosAsync(List)}
+     */
+    public Map<String, WalletInfo> getWalletInfos(List<Wallet> wallets) {
+        return getWalletInfosAsync(wallets).join();
+    }
+    
+    /**
+     * Get one page of a wallet's locally synced transaction history, newest first.
+     *
+     * @param address The wallet address
+     * @param cryptoType The cryptocurrency type (BTC or ETH)
+     * @param page Zero-based page number
+     * @param pageSize Transactions per page
+     * @return The transactions on that page
+     * @throws IOException if the history could not be synced or read
+     */
+    public List<Transaction> getTransactionHistory(String address, String cryptoType, int page, int pageSize) throws IOException {
+        String type = validate(address, cryptoType);
+        return blockchainApi.getTransactionHistory(address, type, page, pageSize);
+    }
+    
+    /**
+     * Number of synced transactions held for a wallet
+     */
+    public int getTransactionCount(String address, String cryptoType) {
+        return blockchainApi.getTransactionCount(address, validate(address, cryptoType));
+    }
+    
+    private static void requirePresent(String address, String cryptoType) {
         if (address == null || address.trim().isEmpty()) {
             throw new IllegalArgumentException("Wallet address cannot be null or empty");
         }
@@ -39,38 +200,92 @@ public class WalletService {
         if (cryptoType == null || cryptoType.trim().isEmpty()) {
             throw new IllegalArgumentException("Cryptocurrency type cannot be null or empty");
         }
+    }
+    
+    private static String validate(String address, String cryptoType) {
+        requirePresent(address, cryptoType);
         
-        try {
-            WalletInfo blockchainInfo;
-            CoinPrice coinPrice;
-
-            LOGGER.info("Fetching wallet info for " + cryptoType + " address: " + address);
-            
-            cryptoType = cryptoType.toUpperCase().trim();
-            if (cryptoType.equals("BTC")) {
-                blockchainInfo = blockchainApi.getBitcoinWalletInfo(address);
-                coinPrice = cmcService.getPrice("BTC");
-            } else if (cryptoType.equals("ETH")) {
-                blockchainInfo = blockchainApi.getEthereumWalletInfo(address);
-                coinPrice = cmcService.getPrice("ETH");
-            } else {
-                throw new IllegalArgumentException("Unsupported crypto type: " + cryptoType + ". Supported types are BTC and ETH.");
+        String type = cryptoType.toUpperCase().trim();
+        if (!type.equals("BTC") && !type.equals("ETH")) {
+            throw new IllegalArgumentException("Unsupported crypto type: " + type + ". Supported types are BTC and ETH.");
+        }
+        return type;
+    }
+    
+    /**
+     * Start a wallet's chain lookup and combine it with its price lookup
+     */
+    private CompletableFuture<WalletInfo> lookup(String address, String type, CompletableFuture<CoinPrice> price) {
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        return combine(fetchChainInfo(address, type, started), price, started);
+    }
+    
+    private CompletableFuture<WalletInfo> fetchChainInfo(String address, String type, CompletableFuture<Void> started) {
+        return submit(() -> {
+            started.complete(null);
+            try {
+                return type.equals("BTC")
+                        ? blockchainApi.getBitcoinWalletInfo(address)
+                        : blockchainApi.getEthereumWalletInfo(address);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
-
-            return new WalletInfo(
-                    blockchainInfo.balance(),
-                    blockchainInfo.transactions(),
-                    coinPrice.currentPrice(),
-                    coinPrice.priceChangePercentage24h(),
-                    blockchainInfo.marketCap(),
-                    blockchainInfo.volume24h()
-            );
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error fetching wallet info: " + e.getMessage(), e);
-            return new WalletInfo(0.0, new ArrayList<>(), 0.0, 0.0, 0.0, 0.0);
+        });
+    }
+    
+    private CompletableFuture<CoinPrice> fetchPrice(String type) {
+        return submit(() -> {
+            try {
+                return priceCache.getPrice(type);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, lookupExecutor);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Wallet lookup pool is saturated, rejecting lookup");
+            return CompletableFuture.failedFuture(e);
         }
     }
     
+    /**
+     * Join a chain lookup with a price lookup under the wallet deadline, which
+     * starts when the chain lookup begins running. On failure the chain future is
+     * cancelled so a lookup still queued never runs and a late result is discarded;
+     * the price future is left alone because a fan-out may share it between wallets.
+     */
+    private static CompletableFuture<WalletInfo> combine(CompletableFuture<WalletInfo> chain, CompletableFuture<CoinPrice> price,
+                                                         CompletableFuture<Void> started) {
+        CompletableFuture<WalletInfo> combined = chain.thenCombine(price, (blockchainInfo, coinPrice) -> new WalletInfo(
+                blockchainInfo.balance(),
+                blockchainInfo.transactions(),
+                coinPrice.currentPrice(),
+                coinPrice.priceChangePercentage24h(),
+                blockchainInfo.marketCap(),
+                blockchainInfo.volume24h(),
+                blockchainInfo.fallback()
+        ));
+        started.thenRun(() -> combined.orTimeout(WALLET_DEADLINE_MS, TimeUnit.MILLISECONDS));
+        
+        combined.whenComplete((info, error) -> {
+            if (error != null) {
+                if (error instanceof TimeoutException || error.getCause() instanceof TimeoutException) {
+                    LOGGER.warning("Wallet lookup exceeded " + WALLET_DEADLINE_MS + "ms deadline");
+                }
+                chain.cancel(false);
+            }
+        });
+        return combined;
+    }
+    
+    private static WalletInfo emptyWalletInfo() {
+        return WalletInfo.fallback(0.0, 0.0);
+    }
+    
     /**
      * Get only Bitcoin price information without a wallet address.
      * This is used for market data display.
@@ -82,9 +297,9 @@ public class WalletService {
         try {
             LOGGER.info("Fetching Bitcoin price info without wallet address");
             
-            // Get price data directly from CoinMarketCap API
-            LOGGER.info("Getting Bitcoin price directly from CoinMarketCap API");
-            CoinPrice coinPrice = cmcService.getPrice("BTC");
+            // Get price data from the shared CoinMarketCap price cache
+            LOGGER.info("Getting Bitcoin price from CoinMarketCap price cache");
+            CoinPrice coinPrice = priceCache.getPrice("BTC");
             double currentPrice = coinPrice.currentPrice();
             double priceChange = coinPrice.priceChangePercentage24h();
             
@@ -113,9 +328,9 @@ public class WalletService {
         try {
             LOGGER.info("Fetching Ethereum price info without wallet address");
             
-            // Get price data directly from CoinMarketCap API
-            LOGGER.info("Getting Ethereum price directly from CoinMarketCap API");
-            CoinPrice coinPrice = cmcService.getPrice("ETH");
+            // Get price data from the shared CoinMarketCap price cache
+            LOGGER.info("Getting Ethereum price from CoinMarketCap price cache");
+            CoinPrice coinPrice = priceCache.getPrice("ETH");
             double currentPrice = coinPrice.currentPrice();
             double priceChange = coinPrice.priceChangePercentage24h();
             
@@ -0,0 +1,611 @@
+package org.example;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FirestoreException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Local write-ahead log for user mutations made through the REST handlers.
+ *
+ * A handler hands its document write to the log and answers the user as soon
+ * as the record is on disk. Records are framed as length, CRC32 and payload,
+ * and a single writer thread group-commits whatever has queued up with one
+ * fsync. A replayer applies pending writes to Firestore through the Admin SDK
+ * strictly in order per user, backing off while Firestore is failing, and
+ * logs an applied marker for each one. Every write targets a fixed document
+ * path chosen up front, which is its idempotency key: replaying a write after
+ * a crash overwrites the same document instead of creating a duplicate.
+ *
+ * The Admin SDK bypasses Firestore security rules, so a write is only accepted
+ * when the caller's ID token verifies locally and belongs to the user it
+ * targets. Otherwise append fails and the handler falls back to a REST write
+ * authorised by the token. A write Firestore rejects for good, such as an
+ * invalid argument or a failed precondition, is moved to a dead-letter file
+ * instead of blocking the user's queue behind endless retries.
+ * Handlers that list a collection merge the user's pending writes into the
+ * Firestore response so the user sees their own changes straight away.
+ */
+public class WriteAheadLog {
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+    private static final String LOG_FILE = "data/writes.wal";
+    private static final String DEAD_LETTER_FILE = "writes.dead";
+    private static final String DOCUMENT_PREFIX = "projects/cashclimb-d162c/databases/(default)/documents/Users/";
+
+    private static final byte RECORD_WRITE = 1;
+    private static final byte RECORD_APPLIED = 2;
+
+    private static final long APPEND_TIMEOUT_SECONDS = 5;
+    private static final long REPLAY_INTERVAL_MS = 500;
+    private static final long FIRESTORE_TIMEOUT_SECONDS = 10;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+    // Rewrite the file with only pending writes once they are under half of it
+    private static final long COMPACT_MIN_BYTES = 1024 * 1024;
+    private static final double COMPACT_LIVE_RATIO = 0.5;
+
+    // Firestore status codes that a retry cannot fix
+    private static final Set<String> PERMANENT_CODES = Set.of(
+            "INVALID_ARGUMENT", "NOT_FOUND", "ALREADY_EXISTS", "PERMISSION_DENIED",
+            "FAILED_PRECONDITION", "OUT_OF_RANGE", "UNIMPLEMENTED", "UNAUTHENTICATED");
+
+    private static final String ID_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static WriteAheadLog instance;
+
+    private final Path path;
+    private volatile FileChannel channel;
+    private final AtomicLong nextSeq = new AtomicLong(1);
+    private final BlockingQueue<Append> appendQueue = new LinkedBlockingQueue<>();
+    private final Map<String, Deque<PendingWrite>> pendingByUser = new ConcurrentHashMap<>();
+    private final Map<String, Backoff> backoffByUser = new ConcurrentHashMap<>();
+    private final AtomicLong deadLetters = new AtomicLong();
+    // Size of the frames of the writes still pending, i.e. what compaction would keep
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final ScheduledExecutorService replayer;
+
+    public enum Operation { SET, DELETE }
+
+    /**
+     * A document write not yet confirmed by Firestore
+     *
+     * @param seq Position in the log
+     * @param fieldsJson Firestore REST "fields" object for SET, empty for DELETE
+     */
+    public record PendingWrite(long seq, String userId, String collection, String documentId,
+                               Operation operation, String fieldsJson, long createdAt) {
+    }
+
+    private record Append(byte[] frame, PendingWrite write, CompletableFuture<Void> durable) {
+    }
+
+    private static class Backoff {
+        private long retryAt;
+        private long delayMs = 1000;
+    }
+
+    private WriteAheadLog(Path path) {
+        this.path = path;
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Write-ahead log unavailable at " + path + ": " + e.getMessage(), e);
+            channel = null;
+        }
+
+        Thread writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-replayer");
+            t.setDaemon(true);
+            return t;
+        });
+        replayer.scheduleWithFixedDelay(this::replay, REPLAY_INTERVAL_MS, REPLAY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the singleton log, replaying anything left over from the last run
+     */
+    public static synchronized WriteAheadLog getInstance() {
+        if (instance == null) {
+            instance = new WriteAheadLog(Paths.get(LOG_FILE));
+        }
+        return instance;
+    }
+
+    /**
+     * Whether writes can go through the log. The replayer writes with the
+     * Admin SDK, so without it handlers keep writing to Firestore directly.
+     */
+    public boolean isEnabled() {
+        return channel != null && FirestoreService.getInstance().isAvailable();
+    }
+
+    /**
+     * Generate a document ID in the same style as Firestore's auto IDs
+     */
+    public static String newDocumentId() {
+        StringBuilder id = new StringBuilder(20);
+        for (int i = 0; i < 20; i++) {
+            id.append(ID_ALPHABET.charAt(RANDOM.nextInt(ID_ALPHABET.length())));
+        }
+        return id.toString();
+    }
+
+    /**
+     * Log a document write and wait until it is durable on local disk
+     *
+     * @param idToken The caller's ID token, which must verify as userId
+     * @param document The whole document
+     */
+    public void set(String idToken, String userId, String collection, String documentId, FirestoreEncoder.Document document) throws IOException {
+        append(idToken, userId, collection, documentId, Operation.SET, document.fieldsJson());
+    }
+
+    /**
+     * Log a document delete and wait until it is durable on local disk
+     *
+     * @param idToken The caller's ID token, which must verify as userId
+     */
+    public void delete(String idToken, String userId, String collection, String documentId) throws IOException {
+        append(idToken, userId, collection, documentId, Operation.DELETE, "");
+    }
+
+    /**
+     * Number of writes moved to the dead-letter file since startup
+     */
+    public long deadLetterCount() {
+        return deadLetters.get();
+    }
+
+    private void append(String idToken, String userId, String collection, String documentId, Operation operation,
+                        String fieldsJson) throws IOException {
+        if (channel == null) {
+            throw new IOException("Write-ahead log is not available");
+        }
+        // The cookie's localId is only trusted once the token it came with proves it
+        FirebaseTokenVerifier.VerifiedToken token = FirebaseTokenVerifier.getInstance().verify(idToken);
+        if (token == null || !token.localId().equals(userId)) {
+            throw new IOException("ID token could not be verified for user " + userId);
+        }
+        Append request;
+        // Keep queue order equal to sequence order so a reload replays in the same order
+        synchronized (appendQueue) {
+            PendingWrite write = new PendingWrite(nextSeq.getAndIncrement(), userId, collection, documentId,
+                    operation, fieldsJson, System.currentTimeMillis());
+            request = new Append(frame(encodeWrite(write)), write, new CompletableFuture<>());
+            appendQueue.add(request);
+        }
+
+        try {
+            request.durable().get(APPEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for write-ahead log", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Write-ahead log append failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for write-ahead log", e);
+        }
+    }
+
+    /**
+     * Apply a user's pending writes for one collection to a Firestore REST list
+     * response, so reads reflect writes that have not reached Firestore yet
+     *
+     * @param listJson Body of a REST collection GET, e.g. {"documents":[...]}
+     * @return The response with pending writes applied
+     */
+    public String mergePending(String userId, String collection, String listJson) {
+        Deque<PendingWrite> pending = pendingByUser.get(userId);
+        if (pending == null || pending.isEmpty()) {
+            return listJson;
+        }
+
+        JSONObject response = listJson == null || listJson.isBlank() ? new JSONObject() : new JSONObject(listJson);
+        Map<String, JSONObject> documents = new LinkedHashMap<>();
+        JSONArray existing = response.optJSONArray("documents");
+        if (existing != null) {
+            for (int i = 0; i < existing.length(); i++) {
+                JSONObject doc = existing.getJSONObject(i);
+                documents.put(doc.getString("name"), doc);
+            }
+        }
+
+        boolean changed = false;
+        for (PendingWrite write : pending) {
+            if (!write.collection().equals(collection)) {
+                continue;
+            }
+            String name = DOCUMENT_PREFIX + userId + "/" + collection + "/" + write.documentId();
+            if (write.operation() == Operation.DELETE) {
+                documents.remove(name);
+            } else {
+                String time = Instant.ofEpochMilli(write.createdAt()).toString();
+                JSONObject previous = documents.get(name);
+                documents.put(name, new JSONObject()
+                        .put("name", name)
+                        .put("fields", new JSONObject(write.fieldsJson()))
+                        .put("createTime", previous != null ? previous.optString("createTime", time) : time)
+                        .put("updateTime", time));
+            }
+            changed = true;
+        }
+
+        if (!changed) {
+            return listJson;
+        }
+        response.put("documents", new JSONArray(documents.values()));
+        return response.toString();
+    }
+
+    /**
+     * Whether a user has writes to a collection that Firestore has not confirmed yet
+     */
+    public boolean hasPending(String userId, String collection) {
+        Deque<PendingWrite> pending = pendingByUser.get(userId);
+        if (pending == null) {
+            return false;
+        }
+        for (PendingWrite write : pending) {
+            if (write.collection().equals(collection)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of writes not yet confirmed by Firestore
+     */
+    public int pendingCount() {
+        int count = 0;
+        for (Deque<PendingWrite> pending : pendingByUser.values()) {
+            count += pending.size();
+        }
+        return count;
+    }
+
+    /**
+     * Rebuild the pending set from disk. Scanning stops at the first record
+     * that is torn or fails its CRC, and the file is cut back to that point.
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        Map<Long, PendingWrite> pending = new TreeMap<>();
+        long maxSeq = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+
+        while (position + 8 <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || position + 8 + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, position + 8);
+            if (checksum(body.array()) != crc) {
+                LOGGER.warning("CRC mismatch in write-ahead log at offset " + position);
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array()));
+            byte kind = in.readByte();
+            long seq = in.readLong();
+            if (kind == RECORD_WRITE) {
+                pending.put(seq, readWrite(seq, in));
+            } else if (kind == RECORD_APPLIED) {
+                pending.remove(seq);
+            }
+            maxSeq = Math.max(maxSeq, seq);
+            position += 8 + length;
+        }
+
+        if (position < size) {
+            LOGGER.warning("Truncating " + (size - position) + " trailing bytes from write-ahead log");
+            channel.truncate(position);
+        }
+
+        for (PendingWrite write : pending.values()) {
+            enqueuePending(write);
+        }
+        nextSeq.set(maxSeq + 1);
+        LOGGER.info("Write-ahead log loaded: " + pending.size() + " writes pending replay");
+    }
+
+    /**
+     * Group commit: take everything queued, write it in one go and fsync once
+     */
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(appendQueue.take());
+                appendQueue.drainTo(batch);
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                for (Append append : batch) {
+                    buffer.write(append.frame());
+                }
+                try {
+                    writeFully(channel, buffer.toByteArray(), channel.size());
+                    channel.force(false);
+                    for (Append append : batch) {
+                        if (append.write() != null) {
+                            enqueuePending(append.write());
+                        }
+                        append.durable().complete(null);
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Write-ahead log append failed: " + e.getMessage(), e);
+                    for (Append append : batch) {
+                        append.durable().completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+
+                long size = channel.size();
+                if (size > COMPACT_MIN_BYTES && liveBytes.get() < size * COMPACT_LIVE_RATIO && appendQueue.isEmpty()) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error in write-ahead log writer: " + e.getMessage(), e);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Rewrite the log with only the writes still pending. Runs on the writer
+     * thread, so no append can interleave with it.
+     */
+    private void compact() throws IOException {
+        List<PendingWrite> pending = new ArrayList<>();
+        for (Deque<PendingWrite> writes : pendingByUser.values()) {
+            pending.addAll(writes);
+        }
+        pending.sort((a, b) -> Long.compare(a.seq(), b.seq()));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (PendingWrite write : pending) {
+            buffer.write(frame(encodeWrite(write)));
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, buffer.toByteArray(), 0);
+            out.force(true);
+        }
+        // Keep the old file open until the compacted one has replaced it
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel old = channel;
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        old.close();
+        liveBytes.set(buffer.size());
+        LOGGER.info("Compacted write-ahead log to " + pending.size() + " pending writes");
+    }
+
+    /**
+     * Apply the oldest pending write of each user whose backoff has expired,
+     * continuing down a user's queue until one fails
+     */
+    private void replay() {
+        FirestoreService firestoreService = FirestoreService.getInstance();
+        if (!firestoreService.isAvailable()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, Deque<PendingWrite>> entry : pendingByUser.entrySet()) {
+            String userId = entry.getKey();
+            Deque<PendingWrite> pending = entry.getValue();
+            Backoff backoff = backoffByUser.get(userId);
+            if (backoff != null && backoff.retryAt > now) {
+                continue;
+            }
+
+            PendingWrite write;
+            while ((write = pending.peekFirst()) != null) {
+                try {
+                    apply(firestoreService, write);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    if (isPermanent(cause)) {
+                        deadLetter(write, cause);
+                        dequeuePending(pending);
+                        backoffByUser.remove(userId);
+                        appendQueue.add(new Append(frame(encodeApplied(write.seq())), null, new CompletableFuture<>()));
+                        continue;
+                    }
+                    Backoff next = backoffByUser.computeIfAbsent(userId, k -> new Backoff());
+                    next.retryAt = System.currentTimeMillis() + next.delayMs;
+                    LOGGER.warning("Replay of write " + write.seq() + " for user " + userId + " failed, retrying in "
+                            + next.delayMs + "ms: " + e.getMessage());
+                    next.delayMs = Math.min(next.delayMs * 2, MAX_RETRY_DELAY_MS);
+                    break;
+                }
+                dequeuePending(pending);
+                backoffByUser.remove(userId);
+                appendQueue.add(new Append(frame(encodeApplied(write.seq())), null, new CompletableFuture<>()));
+            }
+        }
+    }
+
+    private void apply(FirestoreService firestoreService, PendingWrite write) throws Exception {
+        DocumentReference docRef = firestoreService.getSubcollectionDocument(write.userId(), write.collection(), write.documentId());
+        if (docRef == null) {
+            throw new IOException("Firestore is not available");
+        }
+        if (write.operation() == Operation.DELETE) {
+            docRef.delete().get(FIRESTORE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } else {
+            docRef.set(FirestoreService.restFieldsToMap(new JSONObject(write.fieldsJson())))
+                    .get(FIRESTORE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Whether Firestore rejected a write in a way no retry will change
+     */
+    private static boolean isPermanent(Throwable e) {
+        if (e instanceof FirestoreException firestoreError) {
+            return PERMANENT_CODES.contains(firestoreError.getStatus().getCode().name());
+        }
+        if (e instanceof ApiException apiError) {
+            return PERMANENT_CODES.contains(apiError.getStatusCode().getCode().name());
+        }
+        // A payload that cannot be turned into a document will never apply
+        return e instanceof JSONException || e instanceof IllegalArgumentException;
+    }
+
+    /**
+     * Set a write aside in the dead-letter file, one JSON object per line, so
+     * it can be inspected and replayed by hand
+     */
+    private void deadLetter(PendingWrite write, Throwable error) {
+        deadLetters.incrementAndGet();
+        LOGGER.severe("Write " + write.seq() + " for user " + write.userId() + " to " + write.collection() + "/"
+                + write.documentId() + " was rejected permanently, moving it to " + DEAD_LETTER_FILE + ": "
+                + error.getMessage());
+        JSONObject entry = new JSONObject()
+                .put("seq", write.seq())
+                .put("userId", write.userId())
+                .put("collection", write.collection())
+                .put("documentId", write.documentId())
+                .put("operation", write.operation().name())
+                .put("fields", write.fieldsJson())
+                .put("createdAt", Instant.ofEpochMilli(write.createdAt()).toString())
+                .put("error", String.valueOf(error.getMessage()));
+        try {
+            Files.writeString(path.resolveSibling(DEAD_LETTER_FILE), entry + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write dead letter for write " + write.seq() + ": " + entry, e);
+        }
+    }
+
+    private void enqueuePending(PendingWrite write) {
+        liveBytes.addAndGet(frameLength(write));
+        pendingByUser.computeIfAbsent(write.userId(), k -> new ConcurrentLinkedDeque<>()).addLast(write);
+    }
+
+    private void dequeuePending(Deque<PendingWrite> pending) {
+        PendingWrite write = pending.pollFirst();
+        if (write != null) {
+            liveBytes.addAndGet(-frameLength(write));
+        }
+    }
+
+    private static int frameLength(PendingWrite write) {
+        return 8 + encodeWrite(write).length;
+    }
+
+    private static byte[] encodeWrite(PendingWrite write) {
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeByte(RECORD_WRITE);
+            out.writeLong(write.seq());
+            out.writeUTF(write.userId());
+            out.writeUTF(write.collection());
+            out.writeUTF(write.documentId());
+            out.writeByte(write.operation().ordinal());
+            out.writeLong(write.createdAt());
+            byte[] fields = write.fieldsJson().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(fields.length);
+            out.write(fields);
+            out.flush();
+            return record.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encodeApplied(long seq) {
+        return ByteBuffer.allocate(9).put(RECORD_APPLIED).putLong(seq).array();
+    }
+
+    private static PendingWrite readWrite(long seq, DataInputStream in) throws IOException {
+        String userId = in.readUTF();
+        String collection = in.readUTF();
+        String documentId = in.readUTF();
+        Operation operation = Operation.values()[in.readByte()];
+        long createdAt = in.readLong();
+        byte[] fields = new byte[in.readInt()];
+        in.readFully(fields);
+        return new PendingWrite(seq, userId, collection, documentId, operation,
+                new String(fields, StandardCharsets.UTF_8), createdAt);
+    }
+
+    private static byte[] frame(byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .array();
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel target, byte[] data, long position) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(data);
+        while (bytes.hasRemaining()) {
+            position += target.write(bytes, position);
+        }
+    }
+}